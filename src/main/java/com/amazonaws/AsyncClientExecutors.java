@@ -0,0 +1,118 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.internal.BoundedExecutor;
+import com.amazonaws.internal.SharedExecutorView;
+
+/**
+ * Process wide executor used by asynchronous clients that weren't given an
+ * explicit ExecutorService.
+ * <p>
+ * All such clients share a single bounded pool of named daemon threads,
+ * configured once per process through
+ * {@link #setDefaultConfiguration(ExecutorConfiguration)} before the first
+ * client is created. When all its threads are busy and its queue is full,
+ * new requests are rejected with a
+ * {@link java.util.concurrent.RejectedExecutionException} instead of starting
+ * more threads. The current queue depth, number of active threads and number
+ * of rejected tasks can be read from {@link #getDefaultExecutor()}.
+ * <p>
+ * Each client gets its own view of the shared pool, so shutting down one
+ * client doesn't affect any other.
+ */
+public final class AsyncClientExecutors {
+
+    private static final Log log = LogFactory.getLog(AsyncClientExecutors.class);
+
+    private static ExecutorConfiguration defaultConfiguration = new ExecutorConfiguration();
+    private static BoundedExecutor defaultExecutor;
+
+    /** The configuration defaultExecutor was started with */
+    private static ExecutorConfiguration startedConfiguration;
+
+    private AsyncClientExecutors() {}
+
+    /**
+     * Sets the configuration of the executor shared by asynchronous clients.
+     * The shared executor is started once and never replaced, so this should
+     * be called before the first asynchronous client is created. If the
+     * executor has already been started, only its number of threads and keep
+     * alive time are changed; a different queue capacity or thread name
+     * prefix is ignored, and a warning is logged.
+     *
+     * @param config
+     *            The configuration of the shared executor.
+     */
+    public static synchronized void setDefaultConfiguration(ExecutorConfiguration config) {
+        if (config == null) throw new IllegalArgumentException("The executor configuration must be specified");
+        defaultConfiguration = new ExecutorConfiguration(config);
+        if (defaultExecutor != null) {
+            if (config.getMaxQueuedTasks() != startedConfiguration.getMaxQueuedTasks()
+                    || !equal(config.getThreadNamePrefix(), startedConfiguration.getThreadNamePrefix())) {
+                log.warn("The shared async client executor has already been started; "
+                        + "its queue capacity and thread name prefix can no longer be changed");
+            }
+            // Order matters: the core size may never exceed the maximum size
+            if (config.getMaxThreads() > defaultExecutor.getMaximumPoolSize()) {
+                defaultExecutor.setMaximumPoolSize(config.getMaxThreads());
+                defaultExecutor.setCorePoolSize(config.getMaxThreads());
+            } else {
+                defaultExecutor.setCorePoolSize(config.getMaxThreads());
+                defaultExecutor.setMaximumPoolSize(config.getMaxThreads());
+            }
+            defaultExecutor.setKeepAliveTime(config.getKeepAliveTime(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * Returns a copy of the configuration of the executor shared by
+     * asynchronous clients.
+     */
+    public static synchronized ExecutorConfiguration getDefaultConfiguration() {
+        return new ExecutorConfiguration(defaultConfiguration);
+    }
+
+    /**
+     * Returns the executor shared by asynchronous clients, starting it if
+     * necessary. This is mainly useful to monitor its queue depth, number of
+     * active threads and number of rejected tasks.
+     */
+    public static synchronized BoundedExecutor getDefaultExecutor() {
+        if (defaultExecutor == null) {
+            startedConfiguration = new ExecutorConfiguration(defaultConfiguration);
+            defaultExecutor = new BoundedExecutor(startedConfiguration);
+        }
+        return defaultExecutor;
+    }
+
+    /**
+     * Returns a new ExecutorService, for use by a single client, that runs its
+     * tasks on the shared executor.
+     */
+    public static ExecutorService newDefaultExecutorService() {
+        return new SharedExecutorView(getDefaultExecutor());
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws;
+
+/**
+ * Configuration options for the bounded executors used to run asynchronous
+ * client requests, such as the maximum number of threads and the maximum
+ * number of tasks that may be queued waiting for a thread.
+ *
+ * @see AsyncClientExecutors
+ */
+public class ExecutorConfiguration {
+
+    /**
+     * The default maximum number of threads. This matches the default size of
+     * the HTTP connection pool, since each asynchronous request holds a
+     * connection while it runs.
+     */
+    public static final int DEFAULT_MAX_THREADS = ClientConfiguration.DEFAULT_MAX_CONNECTIONS;
+
+    /** The default maximum number of tasks waiting for a thread. */
+    public static final int DEFAULT_MAX_QUEUED_TASKS = 10000;
+
+    /** The default time (in milliseconds) an idle thread is kept alive. */
+    public static final long DEFAULT_KEEP_ALIVE_TIME = 60 * 1000;
+
+    /** The default prefix of the names of the executor threads. */
+    public static final String DEFAULT_THREAD_NAME_PREFIX = "aws-async-client";
+
+    /** The maximum number of threads running tasks at the same time. */
+    private int maxThreads = DEFAULT_MAX_THREADS;
+
+    /**
+     * The maximum number of tasks waiting for a thread. Tasks submitted when
+     * the queue is full are rejected.
+     */
+    private int maxQueuedTasks = DEFAULT_MAX_QUEUED_TASKS;
+
+    /** The amount of time (in milliseconds) an idle thread is kept alive. */
+    private long keepAliveTime = DEFAULT_KEEP_ALIVE_TIME;
+
+    /** The prefix of the names of the executor threads. */
+    private String threadNamePrefix = DEFAULT_THREAD_NAME_PREFIX;
+
+    public ExecutorConfiguration() {}
+
+    public ExecutorConfiguration(ExecutorConfiguration other) {
+        this.maxThreads       = other.maxThreads;
+        this.maxQueuedTasks   = other.maxQueuedTasks;
+        this.keepAliveTime    = other.keepAliveTime;
+        this.threadNamePrefix = other.threadNamePrefix;
+    }
+
+    /**
+     * Returns the maximum number of threads running tasks at the same time.
+     *
+     * @return The maximum number of threads running tasks at the same time.
+     */
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    /**
+     * Sets the maximum number of threads running tasks at the same time.
+     *
+     * @param maxThreads
+     *            The maximum number of threads running tasks at the same
+     *            time.
+     */
+    public void setMaxThreads(int maxThreads) {
+        if (maxThreads < 1) {
+            throw new IllegalArgumentException("The maximum number of threads must be at least 1");
+        }
+        this.maxThreads = maxThreads;
+    }
+
+    /**
+     * Sets the maximum number of threads running tasks at the same time, and
+     * returns the updated ExecutorConfiguration object.
+     *
+     * @param maxThreads
+     *            The maximum number of threads running tasks at the same
+     *            time.
+     *
+     * @return The updated ExecutorConfiguration object.
+     */
+    public ExecutorConfiguration withMaxThreads(int maxThreads) {
+        setMaxThreads(maxThreads);
+        return this;
+    }
+
+    /**
+     * Returns the maximum number of tasks waiting for a thread. Tasks
+     * submitted while the queue is full are rejected with a
+     * {@link java.util.concurrent.RejectedExecutionException}.
+     *
+     * @return The maximum number of tasks waiting for a thread.
+     */
+    public int getMaxQueuedTasks() {
+        return maxQueuedTasks;
+    }
+
+    /**
+     * Sets the maximum number of tasks waiting for a thread. Tasks submitted
+     * while the queue is full are rejected with a
+     * {@link java.util.concurrent.RejectedExecutionException}.
+     *
+     * @param maxQueuedTasks
+     *            The maximum number of tasks waiting for a thread.
+     */
+    public void setMaxQueuedTasks(int maxQueuedTasks) {
+        if (maxQueuedTasks < 1) {
+            throw new IllegalArgumentException("The maximum number of queued tasks must be at least 1");
+        }
+        this.maxQueuedTasks = maxQueuedTasks;
+    }
+
+    /**
+     * Sets the maximum number of tasks waiting for a thread, and returns the
+     * updated ExecutorConfiguration object.
+     *
+     * @param maxQueuedTasks
+     *            The maximum number of tasks waiting for a thread.
+     *
+     * @return The updated ExecutorConfiguration object.
+     */
+    public ExecutorConfiguration withMaxQueuedTasks(int maxQueuedTasks) {
+        setMaxQueuedTasks(maxQueuedTasks);
+        return this;
+    }
+
+    /**
+     * Returns the amount of time (in milliseconds) an idle thread is kept
+     * alive before it's stopped.
+     *
+     * @return The amount of time (in milliseconds) an idle thread is kept
+     *         alive.
+     */
+    public long getKeepAliveTime() {
+        return keepAliveTime;
+    }
+
+    /**
+     * Sets the amount of time (in milliseconds) an idle thread is kept alive
+     * before it's stopped.
+     *
+     * @param keepAliveTime
+     *            The amount of time (in milliseconds) an idle thread is kept
+     *            alive.
+     */
+    public void setKeepAliveTime(long keepAliveTime) {
+        this.keepAliveTime = keepAliveTime;
+    }
+
+    /**
+     * Sets the amount of time (in milliseconds) an idle thread is kept alive
+     * before it's stopped, and returns the updated ExecutorConfiguration
+     * object.
+     *
+     * @param keepAliveTime
+     *            The amount of time (in milliseconds) an idle thread is kept
+     *            alive.
+     *
+     * @return The updated ExecutorConfiguration object.
+     */
+    public ExecutorConfiguration withKeepAliveTime(long keepAliveTime) {
+        setKeepAliveTime(keepAliveTime);
+        return this;
+    }
+
+    /**
+     * Returns the prefix of the names of the executor threads.
+     *
+     * @return The prefix of the names of the executor threads.
+     */
+    public String getThreadNamePrefix() {
+        return threadNamePrefix;
+    }
+
+    /**
+     * Sets the prefix of the names of the executor threads.
+     *
+     * @param threadNamePrefix
+     *            The prefix of the names of the executor threads.
+     */
+    public void setThreadNamePrefix(String threadNamePrefix) {
+        this.threadNamePrefix = threadNamePrefix;
+    }
+
+    /**
+     * Sets the prefix of the names of the executor threads, and returns the
+     * updated ExecutorConfiguration object.
+     *
+     * @param threadNamePrefix
+     *            The prefix of the names of the executor threads.
+     *
+     * @return The updated ExecutorConfiguration object.
+     */
+    public ExecutorConfiguration withThreadNamePrefix(String threadNamePrefix) {
+        setThreadNamePrefix(threadNamePrefix);
+        return this;
+    }
+}
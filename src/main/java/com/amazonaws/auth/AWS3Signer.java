@@ -31,7 +31,7 @@ import org.apache.commons.logging.LogFactory;
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.Request;
 import com.amazonaws.util.DateUtils;
-import com.amazonaws.util.HttpUtils;
+import com.amazonaws.util.ParsedEndpoint;
 
 /**
  * Signer implementation that signs requests with the AWS3 signing protocol.
@@ -78,11 +78,7 @@ public class AWS3Signer extends AbstractAWSSigner {
 
         // AWS3 HTTP requires that we sign the Host header
         // so we have to have it in the request by the time we sign.
-        String hostHeader = request.getEndpoint().getHost();
-        if (HttpUtils.isUsingNonDefaultPort(request.getEndpoint())) {
-            hostHeader += ":" + request.getEndpoint().getPort();
-        }
-        request.addHeader("Host", hostHeader);
+        request.addHeader("Host", ParsedEndpoint.get(request.getEndpoint()).getHostHeader());
 
         if ( sanitizedCredentials instanceof AWSSessionCredentials ) {
             addSessionCredentials(request, (AWSSessionCredentials) sanitizedCredentials);
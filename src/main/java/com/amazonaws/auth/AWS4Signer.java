@@ -16,7 +16,6 @@ package com.amazonaws.auth;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URI;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -29,9 +28,9 @@ import org.apache.commons.logging.LogFactory;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.Request;
-import com.amazonaws.util.AwsHostNameUtils;
 import com.amazonaws.util.BinaryUtils;
-import com.amazonaws.util.HttpUtils;
+import com.amazonaws.util.HashedByteArrayInputStream;
+import com.amazonaws.util.ParsedEndpoint;
 
 /**
  * Signer implementation that signs requests with the AWS4 signing protocol.
@@ -79,16 +78,13 @@ public class AWS4Signer extends AbstractAWSSigner {
         SimpleDateFormat dateTimeFormat = new SimpleDateFormat("yyyyMMdd'T'HHmmss'Z'");
         dateTimeFormat.setTimeZone(new SimpleTimeZone(0, "UTC"));
 
-        String regionName  = extractRegionName(request.getEndpoint());
-        String serviceName = extractServiceName(request.getEndpoint());
+        ParsedEndpoint endpoint = ParsedEndpoint.get(request.getEndpoint());
+        String regionName  = extractRegionName(endpoint);
+        String serviceName = extractServiceName(endpoint);
 
         // AWS4 requires that we sign the Host header so we
         // have to have it in the request by the time we sign.
-        String hostHeader = request.getEndpoint().getHost();
-        if (HttpUtils.isUsingNonDefaultPort(request.getEndpoint())) {
-            hostHeader += ":" + request.getEndpoint().getPort();
-        }
-        request.addHeader("Host", hostHeader);
+        request.addHeader("Host", endpoint.getHostHeader());
 
         Date date = getSignatureDate(request.getTimeOffset());
         if (overriddenDate != null) date = overriddenDate;
@@ -97,12 +93,20 @@ public class AWS4Signer extends AbstractAWSSigner {
         String dateStamp = dateStampFormat.format(date);
 
         InputStream payloadStream = getBinaryRequestPayloadStream(request);
-        payloadStream.mark(-1);
-        String contentSha256 = BinaryUtils.toHex(hash(payloadStream));
-        try {
-            payloadStream.reset();
-        } catch (IOException e) {
-            throw new AmazonClientException("Unable to reset stream after calculating AWS4 signature", e);
+        String contentSha256 = null;
+        if (payloadStream instanceof HashedByteArrayInputStream) {
+            // Hashed when it was written, unless it has been partly read since
+            byte[] hash = ((HashedByteArrayInputStream)payloadStream).getRemainingContentSha256();
+            if (hash != null) contentSha256 = BinaryUtils.toHex(hash);
+        }
+        if (contentSha256 == null) {
+            payloadStream.mark(-1);
+            contentSha256 = BinaryUtils.toHex(hash(payloadStream));
+            try {
+                payloadStream.reset();
+            } catch (IOException e) {
+                throw new AmazonClientException("Unable to reset stream after calculating AWS4 signature", e);
+            }
         }
 
         request.addHeader("X-Amz-Date", dateTime);
@@ -184,16 +188,16 @@ public class AWS4Signer extends AbstractAWSSigner {
         request.addHeader("x-amz-security-token", credentials.getSessionToken());
     }
 
-    private String extractRegionName(URI endpoint) {
+    private String extractRegionName(ParsedEndpoint endpoint) {
         if (regionName != null) return regionName;
 
-        return AwsHostNameUtils.parseRegionName(endpoint);
+        return endpoint.getRegionName();
     }
 
-    private String extractServiceName(URI endpoint) {
+    private String extractServiceName(ParsedEndpoint endpoint) {
         if (serviceName != null) return serviceName;
 
-        return AwsHostNameUtils.parseServiceName(endpoint);
+        return endpoint.getServiceName();
     }
 
 
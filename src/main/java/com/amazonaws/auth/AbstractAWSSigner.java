@@ -21,11 +21,10 @@ import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Date;
-import java.util.Iterator;
 import java.util.Map;
-import java.util.SortedMap;
-import java.util.TreeMap;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
@@ -35,6 +34,7 @@ import org.apache.commons.codec.binary.Base64;
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.Request;
 import com.amazonaws.util.HttpUtils;
+import com.amazonaws.util.ParsedEndpoint;
 import com.amazonaws.util.StringInputStream;
 
 /**
@@ -49,6 +49,13 @@ public abstract class AbstractAWSSigner implements Signer {
     /** The default encoding to use when URL encoding */
     protected static final String DEFAULT_ENCODING = "UTF-8";
 
+    /** Orders encoded query parameters, as {name, value} pairs, by name */
+    private static final Comparator<String[]> ENCODED_NAME_ORDER = new Comparator<String[]>() {
+        public int compare(String[] a, String[] b) {
+            return a[0].compareTo(b[0]);
+        }
+    };
+
     /**
      * Computes an RFC 2104-compliant HMAC signature and returns the result as a
      * Base64 encoded string.
@@ -165,27 +172,26 @@ public abstract class AbstractAWSSigner implements Signer {
      * @return A canonicalized form for the specified query string parameters.
      */
     protected String getCanonicalizedQueryString(Map<String, String> parameters) {
-
-        SortedMap<String, String> sorted = new TreeMap<String, String>();
-
-        Iterator<Map.Entry<String, String>> pairs = parameters.entrySet().iterator();
-        while (pairs.hasNext()) {
-            Map.Entry<String, String> pair = pairs.next();
-            String key = pair.getKey();
-            String value = pair.getValue();
-            sorted.put(HttpUtils.urlEncode(key, false), HttpUtils.urlEncode(value, false));
+        // Parameters are sorted by their encoded names, and each name and value
+        // is only encoded once; most of them need no encoding at all, in which
+        // case urlEncode returns them as they are
+        String[][] pairs = new String[parameters.size()][];
+        int length = 0;
+        int i = 0;
+        for (Map.Entry<String, String> pair : parameters.entrySet()) {
+            String key = HttpUtils.urlEncode(pair.getKey(), false);
+            String value = HttpUtils.urlEncode(pair.getValue(), false);
+            pairs[i++] = new String[] {key, value};
+            length += key.length() + value.length() + 2;
         }
-
-        StringBuilder builder = new StringBuilder();
-        pairs = sorted.entrySet().iterator();
-        while (pairs.hasNext()) {
-            Map.Entry<String, String> pair = pairs.next();
-            builder.append(pair.getKey());
-            builder.append("=");
-            builder.append(pair.getValue());
-            if (pairs.hasNext()) {
-                builder.append("&");
-            }
+        Arrays.sort(pairs, ENCODED_NAME_ORDER);
+
+        StringBuilder builder = new StringBuilder(length);
+        for (i = 0; i < pairs.length; i++) {
+            // Keep the last of several parameters with the same encoded name
+            if (i + 1 < pairs.length && pairs[i][0].equals(pairs[i + 1][0])) continue;
+            if (builder.length() > 0) builder.append('&');
+            builder.append(pairs[i][0]).append('=').append(pairs[i][1]);
         }
 
         return builder.toString();
@@ -325,7 +331,6 @@ public abstract class AbstractAWSSigner implements Signer {
     }
 
     protected String getCanonicalizedEndpoint(URI endpoint) {
-        String endpointForStringToSign = endpoint.getHost().toLowerCase();
         /*
          * Apache HttpClient will omit the port in the Host header for default
          * port values (i.e. 80 for HTTP and 443 for HTTPS) even if we
@@ -333,11 +338,7 @@ public abstract class AbstractAWSSigner implements Signer {
          * value here when we calculate the string to sign and in the Host
          * header we send in the HTTP request.
          */
-        if (HttpUtils.isUsingNonDefaultPort(endpoint)) {
-            endpointForStringToSign += ":" + endpoint.getPort();
-        }
-
-        return endpointForStringToSign;
+        return ParsedEndpoint.get(endpoint).getHostHeader().toLowerCase();
     }
 
     /**
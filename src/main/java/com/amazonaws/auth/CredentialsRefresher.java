@@ -0,0 +1,303 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.auth;
+
+import java.lang.ref.WeakReference;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Keeps the current credentials of a provider whose credentials expire, and
+ * refreshes them in the background before they do.
+ * <p>
+ * Callers read the current credentials without taking any lock. Once the
+ * credentials are within the prefetch window of their expiration (less a
+ * random jitter, so that many providers don't all refresh at once), a refresh
+ * is started on a scheduler shared by all providers, and the current
+ * credentials are served until it completes. Callers only wait for new
+ * credentials when there are none yet or the current ones have actually
+ * expired, or within a minute of it, so that requests signed with them don't
+ * reach the service after they expire.
+ * <p>
+ * A failed background refresh is logged and retried later, and so is a load
+ * that returned credentials about to expire. The wait before such a retry
+ * starts at a second and doubles with each retry, up to a minute. Expired
+ * credentials aren't refreshed in the background: the next caller loads new
+ * ones, once the retry wait has elapsed.
+ * <p>
+ * Scheduled refreshes only hold weak references to their refresher, so
+ * providers that are no longer used can be garbage collected.
+ */
+abstract class CredentialsRefresher {
+
+    private static final Log log = LogFactory.getLog(CredentialsRefresher.class);
+
+    /** The first wait before retrying a refresh that didn't yield lasting credentials */
+    private static final long MIN_RETRY_DELAY_MILLIS = 1000;
+
+    /** The longest wait before retrying a refresh */
+    private static final long MAX_RETRY_DELAY_MILLIS = 60 * 1000;
+
+    /** How long before their expiration credentials are treated as expired */
+    private static final long EXPIRY_SKEW_MILLIS = 60 * 1000;
+
+    private static final Random random = new Random();
+
+    private final long prefetchMillis;
+    private final long jitterMillis;
+
+    /** Null until credentials are first loaded */
+    private volatile Entry current;
+
+    /** Set while a background refresh is scheduled or running */
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+    /** Serializes loads, so that only one thread talks to the service at a time */
+    private final Object loadLock = new Object();
+
+    /** Retries since lasting credentials were last loaded; guarded by loadLock */
+    private int retries;
+
+    /**
+     * @param prefetchMillis
+     *            How long before their expiration credentials are refreshed in
+     *            the background.
+     * @param jitterMillis
+     *            The most time randomly added to the prefetch window.
+     */
+    CredentialsRefresher(long prefetchMillis, long jitterMillis) {
+        this.prefetchMillis = prefetchMillis;
+        this.jitterMillis = jitterMillis;
+    }
+
+    /**
+     * Loads new credentials from the service.
+     *
+     * @return The new credentials and their expiration, which is null if they
+     *         don't expire.
+     */
+    protected abstract ExpiringCredentials load();
+
+    /**
+     * Called with newly loaded credentials, before they are served.
+     */
+    protected void loaded(ExpiringCredentials credentials) {
+    }
+
+    /**
+     * Returns the current credentials, loading them first if there are none
+     * or they have expired, and starting a background refresh if they are
+     * about to expire. The returned credentials may still be expired if the
+     * service returned expired credentials and the retry wait hasn't elapsed.
+     */
+    ExpiringCredentials getCredentials() {
+        Entry entry = current;
+        long now = System.currentTimeMillis();
+        if (entry == null || (entry.isExpired(now) && now >= entry.refreshAtMillis)) {
+            synchronized (loadLock) {
+                entry = current;
+                now = System.currentTimeMillis();
+                if (entry == null || (entry.isExpired(now) && now >= entry.refreshAtMillis)) {
+                    entry = install(load());
+                }
+            }
+        } else if (now >= entry.refreshAtMillis && !entry.isExpired(now)) {
+            refreshInBackground();
+        }
+        return entry.credentials;
+    }
+
+    /**
+     * Loads new credentials right away, waiting for them.
+     */
+    ExpiringCredentials refresh() {
+        synchronized (loadLock) {
+            return install(load()).credentials;
+        }
+    }
+
+    /**
+     * Makes newly loaded credentials current and schedules their refresh.
+     * Called with loadLock held.
+     */
+    private Entry install(ExpiringCredentials credentials) {
+        long now = System.currentTimeMillis();
+        long refreshAtMillis = Long.MAX_VALUE;
+        if (credentials.expiration != null) {
+            long expiration = credentials.expiration.getTime() - EXPIRY_SKEW_MILLIS;
+            long jitter = jitterMillis > 0 ? (long)(random.nextDouble() * jitterMillis) : 0;
+            // Credentials that don't last longer than the prefetch window are
+            // refreshed half way through their life instead of continuously
+            refreshAtMillis = Math.max(expiration - prefetchMillis - jitter, now + (expiration - now) / 2);
+        }
+        if (refreshAtMillis - now < MIN_RETRY_DELAY_MILLIS) {
+            refreshAtMillis = now + nextRetryDelay(Long.MAX_VALUE);
+        } else {
+            retries = 0;
+        }
+        loaded(credentials);
+        Entry entry = new Entry(credentials, refreshAtMillis);
+        current = entry;
+        if (refreshAtMillis != Long.MAX_VALUE && !entry.isExpired(now)) {
+            schedule(new ScheduledRefresh(this), refreshAtMillis - now);
+        }
+        return entry;
+    }
+
+    /**
+     * Schedules another background refresh after one that failed, unless the
+     * credentials have expired. Called with loadLock held.
+     */
+    private void retryLater() {
+        Entry entry = current;
+        long now = System.currentTimeMillis();
+        if (entry == null || entry.isExpired(now)) return;
+
+        // Retry at least once more before the credentials expire
+        long retryDelay = nextRetryDelay((entry.expiresAtMillis() - now) / 2);
+        current = new Entry(entry.credentials, now + retryDelay);
+        schedule(new ScheduledRefresh(this), retryDelay);
+    }
+
+    /**
+     * Returns the wait before the next retry, which doubles with each retry,
+     * from the minimum retry delay up to the specified limit or the maximum
+     * retry delay. Called with loadLock held.
+     */
+    private long nextRetryDelay(long limitMillis) {
+        long delay = Math.min(MIN_RETRY_DELAY_MILLIS << Math.min(retries, 16), MAX_RETRY_DELAY_MILLIS);
+        retries++;
+        return Math.max(Math.min(delay, limitMillis), MIN_RETRY_DELAY_MILLIS);
+    }
+
+    private void refreshInBackground() {
+        if (!refreshing.compareAndSet(false, true)) return;
+
+        try {
+            Scheduler.instance.execute(new Runnable() {
+                public void run() {
+                    try {
+                        synchronized (loadLock) {
+                            try {
+                                install(load());
+                            } catch (RuntimeException e) {
+                                log.warn("Unable to refresh credentials in the background, will retry: " + e.getMessage(), e);
+                                retryLater();
+                            }
+                        }
+                    } finally {
+                        refreshing.set(false);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The next caller will try again
+            refreshing.set(false);
+        }
+    }
+
+    private static void schedule(Runnable task, long delayMillis) {
+        try {
+            Scheduler.instance.schedule(task, Math.max(delayMillis, 0), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Callers still start a refresh when the credentials are due
+        }
+    }
+
+    /**
+     * Credentials loaded from a service, with their expiration.
+     */
+    static final class ExpiringCredentials {
+        final AWSCredentials credentials;
+
+        /** Null if the credentials don't expire */
+        final Date expiration;
+
+        ExpiringCredentials(AWSCredentials credentials, Date expiration) {
+            this.credentials = credentials;
+            this.expiration = expiration;
+        }
+
+        boolean isExpired(long now) {
+            return expiration != null && expiration.getTime() < now;
+        }
+    }
+
+    private static final class Entry {
+        final ExpiringCredentials credentials;
+        final long refreshAtMillis;
+
+        Entry(ExpiringCredentials credentials, long refreshAtMillis) {
+            this.credentials = credentials;
+            this.refreshAtMillis = refreshAtMillis;
+        }
+
+        /** Returns when the credentials are treated as expired, ahead of their expiration */
+        long expiresAtMillis() {
+            if (credentials.expiration == null) return Long.MAX_VALUE;
+            return credentials.expiration.getTime() - EXPIRY_SKEW_MILLIS;
+        }
+
+        boolean isExpired(long now) {
+            return expiresAtMillis() < now;
+        }
+    }
+
+    /**
+     * Starts a background refresh when it is due, unless the refresher has
+     * been garbage collected or its credentials have been refreshed since.
+     */
+    private static final class ScheduledRefresh implements Runnable {
+        private final WeakReference<CredentialsRefresher> refresher;
+
+        ScheduledRefresh(CredentialsRefresher refresher) {
+            this.refresher = new WeakReference<CredentialsRefresher>(refresher);
+        }
+
+        public void run() {
+            CredentialsRefresher target = refresher.get();
+            if (target == null) return;
+            Entry entry = target.current;
+            long now = System.currentTimeMillis();
+            if (entry != null && now >= entry.refreshAtMillis && !entry.isExpired(now)) {
+                target.refreshInBackground();
+            }
+        }
+    }
+
+    /**
+     * The single daemon thread shared by all refreshers, started the first
+     * time it is needed.
+     */
+    private static final class Scheduler {
+        static final ScheduledThreadPoolExecutor instance =
+                new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r);
+                        thread.setDaemon(true);
+                        thread.setName("aws-credentials-refresher");
+                        return thread;
+                    }
+                });
+    }
+}
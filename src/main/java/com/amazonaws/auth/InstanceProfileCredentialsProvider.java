@@ -19,6 +19,7 @@ import java.text.ParseException;
 import java.util.Date;
 
 import com.amazonaws.AmazonClientException;
+import com.amazonaws.auth.CredentialsRefresher.ExpiringCredentials;
 import com.amazonaws.internal.EC2MetadataClient;
 import com.amazonaws.util.DateUtils;
 import com.amazonaws.util.json.JSONException;
@@ -27,25 +28,54 @@ import com.amazonaws.util.json.JSONObject;
 /**
  * Credentials provider implementation that loads credentials from the Amazon
  * EC2 Instance Metadata Service.
+ * <p>
+ * The credentials are refreshed in the background, starting between 10 and 15
+ * minutes before they expire, so request threads never wait for the metadata
+ * service unless the credentials have expired or are within a minute of it.
  */
 public class InstanceProfileCredentialsProvider implements AWSCredentialsProvider {
 
-    protected AWSCredentials credentials;
-    protected Date credentialsExpiration;
+    /** How long before their expiration credentials are refreshed */
+    private static final long PREFETCH_MILLIS = 1000 * 60 * 10;
+
+    /** The most time randomly added to the prefetch window */
+    private static final long JITTER_MILLIS = 1000 * 60 * 5;
+
+    protected volatile AWSCredentials credentials;
+    protected volatile Date credentialsExpiration;
+
+    private final CredentialsRefresher refresher = new CredentialsRefresher(PREFETCH_MILLIS, JITTER_MILLIS) {
+        @Override
+        protected ExpiringCredentials load() {
+            return loadCredentials();
+        }
+
+        @Override
+        protected void loaded(ExpiringCredentials loaded) {
+            credentials = loaded.credentials;
+            credentialsExpiration = loaded.expiration;
+        }
+    };
 
     public AWSCredentials getCredentials() {
-        if (needsToLoadCredentials()) loadCredentials();
-        if (expired()) {
+        ExpiringCredentials current = refresher.getCredentials();
+        if (current.isExpired(System.currentTimeMillis())) {
             throw new AmazonClientException("The credentials received from the Amazon EC2 metadata service have expired");
         }
 
-        return credentials;
+        return current.credentials;
     }
 
     public void refresh() {
-        loadCredentials();
+        refresher.refresh();
     }
 
+    /**
+     * @deprecated No longer called. Credentials are refreshed in the
+     *             background before they expire, and loaded by the calling
+     *             thread only once they have expired.
+     */
+    @Deprecated
     protected boolean needsToLoadCredentials() {
         if (credentials == null) return true;
 
@@ -58,21 +88,12 @@ public class InstanceProfileCredentialsProvider implements AWSCredentialsProvide
         return false;
     }
 
-    private boolean expired() {
-        if (credentialsExpiration != null) {
-            if (credentialsExpiration.getTime() < System.currentTimeMillis()) {
-                return true;
-            }
-        }
-
-        return false;
-    }
-
-    private synchronized void loadCredentials() {
+    private ExpiringCredentials loadCredentials() {
         try {
             String credentialsResponse = new EC2MetadataClient().getDefaultCredentials();
             JSONObject jsonObject = new JSONObject(credentialsResponse);
 
+            AWSCredentials credentials;
             if (jsonObject.has("Token")) {
                 credentials = new BasicSessionCredentials(
                         jsonObject.getString("AccessKeyId"),
@@ -93,8 +114,9 @@ public class InstanceProfileCredentialsProvider implements AWSCredentialsProvide
                 String expiration = jsonObject.getString("Expiration");
                 expiration = expiration.replaceAll("\\+0000$", "Z");
 
-                credentialsExpiration = new DateUtils().parseIso8601Date(expiration);
+                return new ExpiringCredentials(credentials, new DateUtils().parseIso8601Date(expiration));
             }
+            return new ExpiringCredentials(credentials, null);
         } catch (IOException e) {
             throw new AmazonClientException("Unable to load credentials from Amazon EC2 metadata service", e);
         } catch (JSONException e) {
@@ -15,9 +15,8 @@
 
 package com.amazonaws.auth;
 
-import java.util.Date;
-
 import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.CredentialsRefresher.ExpiringCredentials;
 import com.amazonaws.services.securitytoken.AWSSecurityTokenService;
 import com.amazonaws.services.securitytoken.AWSSecurityTokenServiceClient;
 import com.amazonaws.services.securitytoken.model.Credentials;
@@ -27,20 +26,32 @@ import com.amazonaws.services.securitytoken.model.GetSessionTokenResult;
 /**
  * AWSCredentialsProvider implementation that uses the AWS Security Token
  * Service to create temporary, short-lived sessions to use for authentication.
+ * <p>
+ * A new session is started in the background between 5 and 7 minutes before
+ * the current one expires, so request threads never wait for STS unless the
+ * session has expired or is within a minute of it.
  */
 public class STSSessionCredentialsProvider implements AWSCredentialsProvider {
 
     /** Default duration for started sessions */
     public static final int DEFAULT_DURATION_SECONDS = 3600;
 
+    /** How long before their expiration sessions are renewed */
+    private static final long PREFETCH_MILLIS = 1000 * 60 * 5;
+
+    /** The most time randomly added to the prefetch window */
+    private static final long JITTER_MILLIS = 1000 * 60 * 2;
+
     /** The client for starting STS sessions */
     private final AWSSecurityTokenService securityTokenService;
 
-    /** The current session credentials */
-    private AWSSessionCredentials sessionCredentials;
-
-    /** The expiration time for the current session credentials */
-    private Date sessionCredentialsExpiration;
+    /** Keeps the current session credentials, and renews them */
+    private final CredentialsRefresher refresher = new CredentialsRefresher(PREFETCH_MILLIS, JITTER_MILLIS) {
+        @Override
+        protected ExpiringCredentials load() {
+            return startSession();
+        }
+    };
 
 
     /**
@@ -107,14 +118,12 @@ public class STSSessionCredentialsProvider implements AWSCredentialsProvider {
 
     @Override
     public AWSCredentials getCredentials() {
-        if (needsNewSession()) startSession();
-
-        return sessionCredentials;
+        return refresher.getCredentials().credentials;
     }
 
     @Override
     public void refresh() {
-        startSession();
+        refresher.refresh();
     }
 
     /**
@@ -122,30 +131,16 @@ public class STSSessionCredentialsProvider implements AWSCredentialsProvider {
      * Service (STS) with the long lived AWS credentials. This class then vends
      * the short lived session credentials sent back from STS.
      */
-    private void startSession() {
+    private ExpiringCredentials startSession() {
         GetSessionTokenResult sessionTokenResult = securityTokenService
                 .getSessionToken(new GetSessionTokenRequest().withDurationSeconds(DEFAULT_DURATION_SECONDS));
         Credentials stsCredentials = sessionTokenResult.getCredentials();
 
-        sessionCredentials = new BasicSessionCredentials(
+        AWSSessionCredentials sessionCredentials = new BasicSessionCredentials(
                 stsCredentials.getAccessKeyId(),
                 stsCredentials.getSecretAccessKey(),
                 stsCredentials.getSessionToken());
-        sessionCredentialsExpiration = stsCredentials.getExpiration();
-    }
-
-    /**
-     * Returns true if a new STS session needs to be started. A new STS session
-     * is needed when no session has been started yet, or if the last session is
-     * within 60 seconds of expiring.
-     *
-     * @return True if a new STS session needs to be started.
-     */
-    private boolean needsNewSession() {
-        if (sessionCredentials == null) return true;
-
-        long timeRemaining = sessionCredentialsExpiration.getTime() - System.currentTimeMillis();
-        return timeRemaining < (60 * 1000);
+        return new ExpiringCredentials(sessionCredentials, stsCredentials.getExpiration());
     }
 
 }
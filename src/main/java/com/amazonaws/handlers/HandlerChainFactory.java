@@ -18,15 +18,26 @@ import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.amazonaws.AmazonClientException;
 
 /**
  * Factory for creating request/response handler chains.
+ * <p>
+ * The handler classes listed in each resource are only read and loaded once
+ * per process, so that creating many clients doesn't read the same classpath
+ * resources over and over. Every chain still gets its own handler instances.
  */
 public class HandlerChainFactory {
 
+    /** The handler classes listed in each resource that has been read */
+    private static final ConcurrentMap<String, List<Class<? extends RequestHandler>>> handlerClasses =
+            new ConcurrentHashMap<String, List<Class<? extends RequestHandler>>>();
+
     /**
      * Constructs a new request handler chain by analyzing the specified
      * classpath resource.
@@ -39,12 +50,38 @@ public class HandlerChainFactory {
      *         the specified resource.
      */
     public List<RequestHandler> newRequestHandlerChain(String resource) {
-        List<RequestHandler> handlers = new ArrayList<RequestHandler>();
+        List<Class<? extends RequestHandler>> classes = handlerClasses.get(resource);
+        if (classes == null) {
+            classes = loadRequestHandlerClasses(resource);
+            // Loading the same resource twice is harmless, so racing threads just keep the first list
+            List<Class<? extends RequestHandler>> existing = handlerClasses.putIfAbsent(resource, classes);
+            if (existing != null) classes = existing;
+        }
 
+        List<RequestHandler> handlers = new ArrayList<RequestHandler>(classes.size());
         try {
-            InputStream input = getClass().getResourceAsStream(resource);
-            if (input == null) return handlers;
+            for (Class<? extends RequestHandler> requestHandlerClass : classes) {
+                handlers.add(requestHandlerClass.newInstance());
+            }
+        } catch (Exception e) {
+            throw new AmazonClientException("Unable to instantiate request handler chain for client: "
+                    + e.getMessage(), e);
+        }
+
+        return handlers;
+    }
+
+    /**
+     * Reads the names of the request handlers listed in the specified classpath
+     * resource, and loads their classes.
+     */
+    private List<Class<? extends RequestHandler>> loadRequestHandlerClasses(String resource) {
+        List<Class<? extends RequestHandler>> classes = new ArrayList<Class<? extends RequestHandler>>();
+
+        InputStream input = getClass().getResourceAsStream(resource);
+        if (input == null) return Collections.emptyList();
 
+        try {
             BufferedReader reader = new BufferedReader(new InputStreamReader(input));
             while (true) {
                 String requestHandlerClassName = reader.readLine();
@@ -53,20 +90,22 @@ public class HandlerChainFactory {
                 if (requestHandlerClassName.equals("")) continue;
 
                 Class<?> requestHandlerClass = getClass().getClassLoader().loadClass(requestHandlerClassName);
-                Object requestHandlerObject = requestHandlerClass.newInstance();
-                if (requestHandlerObject instanceof RequestHandler) {
-                    handlers.add((RequestHandler)requestHandlerObject);
-                } else {
+                if (!RequestHandler.class.isAssignableFrom(requestHandlerClass)) {
                     throw new AmazonClientException("Unable to instantiate request handler chain for client.  "
                             + "Listed request handler ('" + requestHandlerClassName + "') "
                             + "does not implement the RequestHandler interface.");
                 }
+                classes.add(requestHandlerClass.asSubclass(RequestHandler.class));
             }
+        } catch (AmazonClientException e) {
+            throw e;
         } catch (Exception e) {
             throw new AmazonClientException("Unable to instantiate request handler chain for client: "
                     + e.getMessage(), e);
+        } finally {
+            try {input.close();} catch (Exception e) {}
         }
 
-        return handlers;
+        return Collections.unmodifiableList(classes);
     }
 }
@@ -662,7 +662,7 @@ public class AmazonHttpClient {
      *             from the HttpClient method object.
      */
     private HttpResponse createResponse(HttpRequestBase method, Request<?> request, org.apache.http.HttpResponse apacheHttpResponse) throws IOException {
-        HttpResponse httpResponse = new HttpResponse(request, method);
+        HttpResponse httpResponse = new HttpResponse(request, method, apacheHttpResponse.getAllHeaders());
 
         if (apacheHttpResponse.getEntity() != null) {
             httpResponse.setContent(apacheHttpResponse.getEntity().getContent());
@@ -670,9 +670,6 @@ public class AmazonHttpClient {
 
         httpResponse.setStatusCode(apacheHttpResponse.getStatusLine().getStatusCode());
         httpResponse.setStatusText(apacheHttpResponse.getStatusLine().getReasonPhrase());
-        for (Header header : apacheHttpResponse.getAllHeaders()) {
-            httpResponse.addHeader(header.getName(), header.getValue());
-        }
 
         return httpResponse;
     }
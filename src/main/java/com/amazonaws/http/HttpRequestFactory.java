@@ -34,6 +34,7 @@ import com.amazonaws.AmazonClientException;
 import com.amazonaws.ClientConfiguration;
 import com.amazonaws.Request;
 import com.amazonaws.util.HttpUtils;
+import com.amazonaws.util.ParsedEndpoint;
 
 /** Responsible for creating Apache HttpClient 4 request objects. */
 class HttpRequestFactory {
@@ -149,12 +150,7 @@ class HttpRequestFactory {
          * and started honoring our explicit host with endpoint), we follow this
          * same behavior here and in the QueryString signer.
          */
-        URI endpoint = request.getEndpoint();
-        String hostHeader = endpoint.getHost();
-        if (HttpUtils.isUsingNonDefaultPort(endpoint)) {
-            hostHeader += ":" + endpoint.getPort();
-        }
-        httpRequest.addHeader("Host", hostHeader);
+        httpRequest.addHeader("Host", ParsedEndpoint.get(request.getEndpoint()).getHostHeader());
 
         // Copy over any other headers already in our request
         for (Entry<String, String> entry : request.getHeaders().entrySet()) {
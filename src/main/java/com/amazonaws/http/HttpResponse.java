@@ -15,16 +15,26 @@
 package com.amazonaws.http;
 
 import java.io.InputStream;
+import java.text.ParseException;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.apache.http.Header;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.message.BasicHeader;
 
 import com.amazonaws.Request;
+import com.amazonaws.util.DateUtils;
 
 /**
  * Represents an HTTP response returned by an AWS service in response to a
  * service request.
+ * <p>
+ * The headers of a response received from the HTTP client are read straight
+ * from the underlying response; the map returned by {@link #getHeaders()} is
+ * only built if something asks for it. The common headers also have typed
+ * accessors which parse their values the first time they are used.
  */
 public class HttpResponse {
     
@@ -34,7 +44,18 @@ public class HttpResponse {
     private String statusText;
     private int statusCode;
     private InputStream content;
-    private Map<String, String> headers = new HashMap<String, String>();
+
+    /** The headers of the underlying response, until the header map is built */
+    private Header[] rawHeaders;
+
+    /** Null until it is first needed, if the response has raw headers */
+    private Map<String, String> headers;
+
+    /** Parsed header values, cleared whenever a header is added */
+    private long contentLength = Long.MIN_VALUE;
+    private Date lastModified;
+
+    private static final DateUtils dateUtils = new DateUtils();
 
     /**
      * Constructs a new HttpResponse associated with the specified request.
@@ -45,8 +66,26 @@ public class HttpResponse {
      *            The underlying http request that generated this response.
      */
     public HttpResponse(Request<?> request, HttpRequestBase httpRequest) {
+        this(request, httpRequest, null);
+    }
+
+    /**
+     * Constructs a new HttpResponse associated with the specified request,
+     * whose headers are read from the specified headers of the underlying
+     * response.
+     *
+     * @param request
+     *            The associated request that generated this response.
+     * @param httpRequest
+     *            The underlying http request that generated this response.
+     * @param rawHeaders
+     *            The headers of the underlying response, which are not copied.
+     */
+    public HttpResponse(Request<?> request, HttpRequestBase httpRequest, Header[] rawHeaders) {
         this.request = request;
         this.httpRequest = httpRequest;
+        this.rawHeaders = rawHeaders;
+        if (rawHeaders == null) headers = new HashMap<String, String>();
     }
 
     /**
@@ -73,9 +112,55 @@ public class HttpResponse {
      * @return The set of HTTP headers returned with this HTTP response.
      */
     public Map<String, String> getHeaders() {
+        if (headers == null) {
+            Map<String, String> map = new HashMap<String, String>(rawHeaders.length * 2);
+            for (Header header : rawHeaders) {
+                map.put(header.getName(), header.getValue());
+            }
+            headers = map;
+            rawHeaders = null;
+        }
         return headers;
     }
 
+    /**
+     * Returns the value of the specified HTTP header, or null if it wasn't
+     * returned with this response. As with {@link #getHeaders()}, the header
+     * name is case sensitive, and the last value wins if the header was
+     * returned more than once.
+     *
+     * @param name
+     *            The name of the HTTP header.
+     *
+     * @return The value of the header, or null if it isn't present.
+     */
+    public String getHeader(String name) {
+        if (headers != null) return headers.get(name);
+
+        for (int i = rawHeaders.length - 1; i >= 0; i--) {
+            if (rawHeaders[i].getName().equals(name)) return rawHeaders[i].getValue();
+        }
+        return null;
+    }
+
+    /**
+     * Returns all the HTTP headers returned with this response, without
+     * building a map from them when they haven't been copied yet. Callers must
+     * not modify the returned array.
+     *
+     * @return The HTTP headers returned with this response.
+     */
+    public Header[] getAllHeaders() {
+        if (rawHeaders != null) return rawHeaders;
+
+        Header[] all = new Header[headers.size()];
+        int i = 0;
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            all[i++] = new BasicHeader(entry.getKey(), entry.getValue());
+        }
+        return all;
+    }
+
     /**
      * Adds an HTTP header to the set associated with this response.
      *
@@ -85,7 +170,60 @@ public class HttpResponse {
      *            The value of the HTTP header.
      */
     public void addHeader(String name, String value) {
-        headers.put(name, value);
+        getHeaders().put(name, value);
+        contentLength = Long.MIN_VALUE;
+        lastModified = null;
+    }
+
+    /**
+     * Returns the value of the Content-Length header, or -1 if it isn't
+     * present or isn't a valid number.
+     */
+    public long getContentLength() {
+        if (contentLength == Long.MIN_VALUE) {
+            long length = -1;
+            String value = getHeader("Content-Length");
+            if (value != null) {
+                try {
+                    length = Long.parseLong(value.trim());
+                } catch (NumberFormatException e) {
+                    // Treated as missing
+                }
+            }
+            contentLength = length;
+        }
+        return contentLength;
+    }
+
+    /**
+     * Returns the value of the ETag header, or null if it isn't present.
+     */
+    public String getETag() {
+        return getHeader("ETag");
+    }
+
+    /**
+     * Returns the date in the Last-Modified header, or null if it isn't
+     * present.
+     *
+     * @throws ParseException
+     *             If the header isn't a valid RFC 822 date.
+     */
+    public Date getLastModified() throws ParseException {
+        if (lastModified == null) {
+            String value = getHeader("Last-Modified");
+            if (value == null) return null;
+            lastModified = dateUtils.parseRfc822Date(value);
+        }
+        return new Date(lastModified.getTime());
+    }
+
+    /**
+     * Returns the value of the x-amz-request-id header, or null if it isn't
+     * present.
+     */
+    public String getRequestId() {
+        return getHeader("x-amz-request-id");
     }
 
     /**
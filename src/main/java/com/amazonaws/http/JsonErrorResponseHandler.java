@@ -18,7 +18,8 @@ import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.List;
-import java.util.Map.Entry;
+
+import org.apache.http.Header;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
@@ -60,9 +61,9 @@ public class JsonErrorResponseHandler implements HttpResponseHandler<AmazonServi
             ase.setErrorType(ErrorType.Service);
         }
 
-        for (Entry<String, String> headerEntry : response.getHeaders().entrySet()) {
-            if (headerEntry.getKey().equalsIgnoreCase("X-Amzn-RequestId")) {
-                ase.setRequestId(headerEntry.getValue());
+        for (Header header : response.getAllHeaders()) {
+            if (header.getName().equalsIgnoreCase("X-Amzn-RequestId")) {
+                ase.setRequestId(header.getValue());
             }
         }
 
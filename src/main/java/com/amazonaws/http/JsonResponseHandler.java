@@ -14,7 +14,10 @@
  */
 package com.amazonaws.http;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Map;
+import java.util.zip.CRC32;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -23,15 +26,21 @@ import org.codehaus.jackson.JsonParser;
 
 import com.amazonaws.AmazonWebServiceResponse;
 import com.amazonaws.ResponseMetadata;
+import com.amazonaws.internal.ByteArrayPool;
 import com.amazonaws.internal.CRC32MismatchException;
 import com.amazonaws.transform.JsonUnmarshallerContext;
 import com.amazonaws.transform.Unmarshaller;
 import com.amazonaws.transform.VoidJsonUnmarshaller;
-import com.amazonaws.util.CRC32ChecksumCalculatingInputStream;
+
 /**
  * Default implementation of HttpResponseHandler that handles a successful
  * response from an AWS service and unmarshalls the result using a StAX
  * unmarshaller.
+ * <p>
+ * Responses that carry a CRC32 checksum of their body, such as DynamoDB's,
+ * are read in full into a pooled buffer and checked before they are parsed,
+ * so that a corrupted response is retried without being unmarshalled first.
+ * The buffer is then parsed in place and returned to the pool.
  *
  * @param <T>
  *            Indicates the type being unmarshalled by this response handler.
@@ -46,6 +55,12 @@ public class JsonResponseHandler<T> implements HttpResponseHandler<AmazonWebServ
 
     private static JsonFactory jsonFactory = new JsonFactory();
 
+    /**
+     * Buffers for checksummed response bodies; bodies of up to 1MB are read
+     * into recycled buffers, and at most 16MB of buffers are kept
+     */
+    private static final ByteArrayPool bufferPool = new ByteArrayPool(16 * 1024, 1024 * 1024, 16 * 1024 * 1024);
+
     public boolean needsConnectionLeftOpen = false;
 
 
@@ -80,15 +95,21 @@ public class JsonResponseHandler<T> implements HttpResponseHandler<AmazonWebServ
     public AmazonWebServiceResponse<T> handle(HttpResponse response) throws Exception {
         log.trace("Parsing service response JSON");
 
-        String CRC32Checksum = response.getHeaders().get("x-amz-crc32");
-        CRC32ChecksumCalculatingInputStream crc32ChecksumInputStream = null;
+        String CRC32Checksum = response.getHeader("x-amz-crc32");
 
         JsonParser jsonParser = null;
+        BufferedContent content = null;
 
         if (!needsConnectionLeftOpen) {
             if (CRC32Checksum != null) {
-                crc32ChecksumInputStream = new CRC32ChecksumCalculatingInputStream(response.getContent());
-                jsonParser = jsonFactory.createJsonParser(crc32ChecksumInputStream);
+                content = readContent(response);
+                CRC32 crc32 = new CRC32();
+                crc32.update(content.buffer, 0, content.length);
+                if (crc32.getValue() != Long.parseLong(CRC32Checksum)) {
+                    bufferPool.release(content.buffer);
+                    throw new CRC32MismatchException("Client calculated crc32 checksum didn't match that calculated by server side");
+                }
+                jsonParser = jsonFactory.createJsonParser(content.buffer, 0, content.length);
             } else {
                 jsonParser = jsonFactory.createJsonParser(response.getContent());
             }
@@ -101,18 +122,10 @@ public class JsonResponseHandler<T> implements HttpResponseHandler<AmazonWebServ
 
             T result = responseUnmarshaller.unmarshall(unmarshallerContext);
 
-            if (CRC32Checksum != null) {
-                long serverSideCRC = Long.parseLong(CRC32Checksum);
-                long clientSideCRC = crc32ChecksumInputStream.getCRC32Checksum();
-                if (clientSideCRC != serverSideCRC) {
-                    throw new CRC32MismatchException("Client calculated crc32 checksum didn't match that calculated by server side");
-                }
-            }
-
             awsResponse.setResult(result);
 
             Map<String, String> metadata = unmarshallerContext.getMetadata();
-            metadata.put(ResponseMetadata.AWS_REQUEST_ID, response.getHeaders().get("x-amzn-RequestId"));
+            metadata.put(ResponseMetadata.AWS_REQUEST_ID, response.getHeader("x-amzn-RequestId"));
             awsResponse.setResponseMetadata(new ResponseMetadata(metadata));
 
             log.trace("Done parsing service response");
@@ -121,6 +134,51 @@ public class JsonResponseHandler<T> implements HttpResponseHandler<AmazonWebServ
             if (!needsConnectionLeftOpen) {
                 try {jsonParser.close();} catch (Exception e) {}
             }
+            // The unmarshalled result doesn't refer to the buffer
+            if (content != null) bufferPool.release(content.buffer);
+        }
+    }
+
+    /**
+     * Reads the whole body of a response into a buffer from the pool, sized
+     * after its Content-Length when there is one.
+     */
+    private static BufferedContent readContent(HttpResponse response) throws IOException {
+        // Without a usable Content-Length, read until the end of the stream
+        long contentLength = response.getContentLength();
+        int expectedLength = contentLength < Integer.MAX_VALUE ? (int)contentLength : -1;
+
+        InputStream input = response.getContent();
+        // One more byte than expected so that the end of the stream is seen
+        // without growing the buffer
+        byte[] buffer = bufferPool.acquire(expectedLength < 0 ? 0 : expectedLength + 1);
+        int length = 0;
+        try {
+            while (true) {
+                if (length == buffer.length) {
+                    byte[] larger = new byte[buffer.length * 2];
+                    System.arraycopy(buffer, 0, larger, 0, length);
+                    bufferPool.release(buffer);
+                    buffer = larger;
+                }
+                int read = input.read(buffer, length, buffer.length - length);
+                if (read == -1) break;
+                length += read;
+            }
+        } catch (IOException e) {
+            bufferPool.release(buffer);
+            throw e;
+        }
+        return new BufferedContent(buffer, length);
+    }
+
+    private static final class BufferedContent {
+        final byte[] buffer;
+        final int length;
+
+        BufferedContent(byte[] buffer, int length) {
+            this.buffer = buffer;
+            this.length = length;
         }
     }
 
@@ -18,8 +18,8 @@ import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.util.Map;
 
-import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -46,8 +46,16 @@ public class StaxResponseHandler<T> implements HttpResponseHandler<AmazonWebServ
     /** Shared logger for profiling information */
     private static final Log log = LogFactory.getLog("com.amazonaws.request");
 
-    /** Shared factory for creating XML event readers */
-    private static XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+    /**
+     * Shared factory for creating XML stream readers. It is configured once,
+     * before any reader is created, and only used to create readers after
+     * that, which is thread safe. Adjacent text is coalesced by the parser so
+     * that element text is usually read as a single chunk.
+     */
+    private static final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+    static {
+        xmlInputFactory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+    }
 
 
     /**
@@ -82,10 +90,10 @@ public class StaxResponseHandler<T> implements HttpResponseHandler<AmazonWebServ
         log.trace("Parsing service response XML");
         InputStream content = response.getContent();
         if (content == null) content = new ByteArrayInputStream("<eof/>".getBytes());
-        XMLEventReader eventReader = xmlInputFactory.createXMLEventReader(content);
+        XMLStreamReader streamReader = xmlInputFactory.createXMLStreamReader(content);
         try {
             AmazonWebServiceResponse<T> awsResponse = new AmazonWebServiceResponse<T>();
-            StaxUnmarshallerContext unmarshallerContext = new StaxUnmarshallerContext(eventReader, response.getHeaders());
+            StaxUnmarshallerContext unmarshallerContext = new StaxUnmarshallerContext(streamReader, response.getHeaders());
             unmarshallerContext.registerMetadataExpression("ResponseMetadata/RequestId", 2, ResponseMetadata.AWS_REQUEST_ID);
             unmarshallerContext.registerMetadataExpression("requestId", 2, ResponseMetadata.AWS_REQUEST_ID);
             registerAdditionalMetadataExpressions(unmarshallerContext);
@@ -99,7 +107,7 @@ public class StaxResponseHandler<T> implements HttpResponseHandler<AmazonWebServ
             log.trace("Done parsing service response");
             return awsResponse;
         } finally {
-            try {eventReader.close();} catch (Exception e) {}
+            try {streamReader.close();} catch (Exception e) {}
         }
     }
 
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.internal;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.amazonaws.ExecutorConfiguration;
+
+/**
+ * A thread pool with a bounded number of named daemon threads and a bounded
+ * task queue. Tasks submitted while all the threads are busy and the queue
+ * is full are rejected with a {@link RejectedExecutionException}, so that
+ * callers see the backpressure instead of the pool growing without limit.
+ * <p>
+ * Threads are started on demand up to the configured maximum, and are
+ * stopped again once they have been idle for the configured keep alive time.
+ * The queue depth, number of active threads and number of rejected tasks are
+ * available as gauges for monitoring.
+ */
+public class BoundedExecutor extends ThreadPoolExecutor {
+
+    private final AtomicLong rejectedTaskCount = new AtomicLong();
+
+    public BoundedExecutor(ExecutorConfiguration config) {
+        super(config.getMaxThreads(), config.getMaxThreads(),
+              config.getKeepAliveTime(), TimeUnit.MILLISECONDS,
+              new LinkedBlockingQueue<Runnable>(config.getMaxQueuedTasks()),
+              new NamedDaemonThreadFactory(config.getThreadNamePrefix()));
+        setRejectedExecutionHandler(new CountingAbortPolicy());
+        // Core threads are only kept while there is work for them
+        allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns the number of tasks waiting for a thread.
+     */
+    public int getQueueDepth() {
+        return getQueue().size();
+    }
+
+    /**
+     * Returns the number of tasks that can still be queued before new tasks
+     * are rejected.
+     */
+    public int getRemainingQueueCapacity() {
+        return getQueue().remainingCapacity();
+    }
+
+    /**
+     * Returns the number of tasks rejected because the executor was saturated
+     * or shut down.
+     */
+    public long getRejectedTaskCount() {
+        return rejectedTaskCount.get();
+    }
+
+    private class CountingAbortPolicy implements RejectedExecutionHandler {
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            rejectedTaskCount.incrementAndGet();
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("The executor has been shut down");
+            }
+            throw new RejectedExecutionException("Unable to run task: all " + executor.getMaximumPoolSize()
+                    + " threads are busy and " + getQueueDepth() + " tasks are already queued");
+        }
+    }
+
+    /**
+     * Creates daemon threads, so that the executor doesn't keep the process
+     * running, with names that identify which executor they belong to.
+     */
+    private static class NamedDaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadCount = new AtomicInteger(0);
+        private final String prefix;
+
+        NamedDaemonThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            thread.setName(prefix + "-" + threadCount.incrementAndGet());
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.internal;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of byte arrays used to read response bodies in full before they are
+ * parsed.
+ * <p>
+ * The memory held by the pool is bounded: arrays larger than the maximum
+ * pooled array size are never kept, and arrays returned while the pool
+ * already holds its maximum number of bytes are left to the garbage
+ * collector. Arrays borrowed from the pool are not counted, so the pool never
+ * blocks or fails a caller.
+ * <p>
+ * Instances of {@code ByteArrayPool} are thread-safe.
+ */
+public class ByteArrayPool {
+
+    private final int initialArraySize;
+    private final int maxPooledArraySize;
+    private final long maxPooledBytes;
+
+    private final ConcurrentLinkedQueue<byte[]> arrays = new ConcurrentLinkedQueue<byte[]>();
+
+    /** The total size of the arrays in the pool */
+    private final AtomicLong pooledBytes = new AtomicLong();
+
+    /**
+     * Creates a new, empty pool.
+     *
+     * @param initialArraySize
+     *            The size of the arrays allocated when the pool is empty and
+     *            the size of the content is unknown.
+     * @param maxPooledArraySize
+     *            The size of the largest array kept by the pool.
+     * @param maxPooledBytes
+     *            The maximum total size of the arrays kept by the pool.
+     */
+    public ByteArrayPool(int initialArraySize, int maxPooledArraySize, long maxPooledBytes) {
+        this.initialArraySize = initialArraySize;
+        this.maxPooledArraySize = maxPooledArraySize;
+        this.maxPooledBytes = maxPooledBytes;
+    }
+
+    /**
+     * Returns an array of at least the specified size, from the pool if it
+     * holds one.
+     */
+    public byte[] acquire(int minimumSize) {
+        byte[] array = arrays.poll();
+        if (array != null) {
+            pooledBytes.addAndGet(-array.length);
+            if (array.length >= minimumSize) return array;
+            release(array);
+        }
+        return new byte[Math.max(minimumSize, initialArraySize)];
+    }
+
+    /**
+     * Returns an array to the pool, unless it is too large or the pool is
+     * full. The array must not be used by the caller afterwards.
+     */
+    public void release(byte[] array) {
+        if (array == null || array.length > maxPooledArraySize) return;
+        if (pooledBytes.addAndGet(array.length) > maxPooledBytes) {
+            pooledBytes.addAndGet(-array.length);
+            return;
+        }
+        arrays.offer(array);
+    }
+
+    /**
+     * Returns the total size of the arrays currently kept by the pool.
+     */
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.internal;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An ExecutorService that runs its tasks on an executor shared with other
+ * clients. Shutting down the view only stops it from accepting new tasks and
+ * lets callers wait for the tasks it submitted; the shared executor itself
+ * keeps running for everyone else. Running tasks are never interrupted.
+ */
+public class SharedExecutorView extends AbstractExecutorService {
+
+    private final Executor executor;
+
+    /** Guards shutdown and runningTasks */
+    private final Object lock = new Object();
+    private boolean shutdown = false;
+    private int runningTasks = 0;
+
+    public SharedExecutorView(Executor executor) {
+        this.executor = executor;
+    }
+
+    public void execute(final Runnable command) {
+        synchronized (lock) {
+            if (shutdown) {
+                throw new RejectedExecutionException("The executor has been shut down");
+            }
+            runningTasks++;
+        }
+
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        command.run();
+                    } finally {
+                        taskFinished();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            taskFinished();
+            throw e;
+        }
+    }
+
+    private void taskFinished() {
+        synchronized (lock) {
+            runningTasks--;
+            if (runningTasks == 0) lock.notifyAll();
+        }
+    }
+
+    public void shutdown() {
+        synchronized (lock) {
+            shutdown = true;
+            if (runningTasks == 0) lock.notifyAll();
+        }
+    }
+
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        return Collections.emptyList();
+    }
+
+    public boolean isShutdown() {
+        synchronized (lock) {
+            return shutdown;
+        }
+    }
+
+    public boolean isTerminated() {
+        synchronized (lock) {
+            return shutdown && runningTasks == 0;
+        }
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (lock) {
+            while (!(shutdown && runningTasks == 0)) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) return false;
+                TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+            }
+            return true;
+        }
+    }
+}
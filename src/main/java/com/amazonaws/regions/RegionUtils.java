@@ -21,8 +21,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -40,10 +43,25 @@ import com.amazonaws.util.VersionInfoUtils;
 
 /**
  * Utilities for working with regions.
+ * <p>
+ * The region metadata is loaded once, the first time it is needed, and then
+ * read without any locking; lookups by region name and by endpoint host use
+ * indexes built when the metadata is loaded.
  */
 public class RegionUtils {
 
     private static final String CLOUDFRONT_DISTRO = "http://aws-sdk-configurations.amazonwebservices.com/";
+
+    /**
+     * Null until a call to init manages to load the regions, then replaced as
+     * a whole by each successful call
+     */
+    private static volatile RegionMetadata metadata;
+
+    /** Returned while no regions could be loaded; never cached, so that the next access tries again */
+    private static final RegionMetadata NO_METADATA = new RegionMetadata(Collections.<Region>emptyList());
+
+    /** Set by initRegions while init is running; guarded by RegionUtils.class */
     private static List<Region> regions;
     private static final String REGIONS_FILE_OVERRIDE = RegionUtils.class.getName() + ".fileOverride";
 
@@ -53,12 +71,21 @@ public class RegionUtils {
     /**
      * Returns a list of the available AWS regions.
      */
-    public synchronized static List<Region> getRegions() {
-        if ( regions == null ) {
-            init();
-        }
+    public static List<Region> getRegions() {
+        return getMetadata().regions;
+    }
 
-        return regions;
+    private static RegionMetadata getMetadata() {
+        RegionMetadata current = metadata;
+        if ( current == null ) {
+            synchronized ( RegionUtils.class ) {
+                if ( metadata == null ) {
+                    init();
+                }
+                current = metadata;
+            }
+        }
+        return current != null ? current : NO_METADATA;
     }
 
     /**
@@ -66,7 +93,7 @@ public class RegionUtils {
      * 
      * @see ServiceAbbreviations
      */
-    public synchronized static List<Region> getRegionsForService(String serviceAbbreviation) {
+    public static List<Region> getRegionsForService(String serviceAbbreviation) {
         List<Region> regions = new LinkedList<Region>();
         for ( Region r : getRegions() ) {
             if ( r.isServiceSupported(serviceAbbreviation) ) {
@@ -81,13 +108,7 @@ public class RegionUtils {
      * null.
      */
     public static Region getRegion(String regionName) {
-        for ( Region r : getRegions() ) {
-            if ( r.getName().equals(regionName) ) {
-                return r;
-            }
-        }
-
-        return null;
+        return getMetadata().regionsByName.get(regionName);
     }
 
     /**
@@ -112,13 +133,9 @@ public class RegionUtils {
             throw new RuntimeException("Unable to parse service endpoint: " + e.getMessage());
         }
 
-        String targetHost = targetEndpointUrl.getHost();
-        for ( Region region : getRegions() ) {
-            for ( String serviceEndpoint : region.getServiceEndpoints().values() ) {
-                URL serviceEndpointUrl = new URL(serviceEndpoint);
-                if ( serviceEndpointUrl.getHost().equals(targetHost) )
-                    return region;
-            }
+        Region region = getMetadata().regionsByHost.get(targetEndpointUrl.getHost());
+        if ( region != null ) {
+            return region;
         }
 
         throw new RuntimeException("No region found with any service for endpoint " + endpoint);
@@ -149,6 +166,11 @@ public class RegionUtils {
         if ( regions == null ) {
             initSDKRegions();
         }
+
+        if ( regions != null ) {
+            metadata = new RegionMetadata(regions);
+        }
+        regions = null;
     }
 
     private static void loadRegionsFromOverrideFile() throws FileNotFoundException {
@@ -180,6 +202,56 @@ public class RegionUtils {
         initRegions(inputStream);
     }
 
+    /**
+     * An immutable snapshot of the region metadata, indexed for lookups.
+     */
+    private static final class RegionMetadata {
+        private final List<Region> regions;
+        private final Map<String, Region> regionsByName = new HashMap<String, Region>();
+        private final Map<String, Region> regionsByHost = new HashMap<String, Region>();
+
+        RegionMetadata(List<Region> regions) {
+            this.regions = Collections.unmodifiableList(regions);
+            for ( Region region : regions ) {
+                if ( !regionsByName.containsKey(region.getName()) ) {
+                    regionsByName.put(region.getName(), region);
+                }
+                for ( String serviceEndpoint : region.getServiceEndpoints().values() ) {
+                    String host = getHost(serviceEndpoint);
+                    if ( host != null && !regionsByHost.containsKey(host) ) {
+                        regionsByHost.put(host, region);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns the host of a service endpoint, which may or may not include
+         * the protocol, or null if it can't be parsed.
+         */
+        private static String getHost(String serviceEndpoint) {
+            if ( serviceEndpoint == null ) {
+                return null;
+            }
+            if ( serviceEndpoint.contains("://") ) {
+                try {
+                    return new URL(serviceEndpoint).getHost();
+                } catch ( MalformedURLException e ) {
+                    return null;
+                }
+            }
+            int end = serviceEndpoint.length();
+            for ( int i = 0; i < serviceEndpoint.length(); i++ ) {
+                char c = serviceEndpoint.charAt(i);
+                if ( c == '/' || c == ':' ) {
+                    end = i;
+                    break;
+                }
+            }
+            return serviceEndpoint.substring(0, end);
+        }
+    }
+
     /**
      * Caches the regions file to the location given
      */
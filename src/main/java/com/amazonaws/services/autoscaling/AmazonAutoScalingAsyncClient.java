@@ -16,11 +16,11 @@ package com.amazonaws.services.autoscaling;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AsyncClientExecutors;
 import com.amazonaws.handlers.AsyncHandler;
 import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSCredentials;
@@ -108,14 +108,15 @@ public class AmazonAutoScalingAsyncClient extends AmazonAutoScalingClient
      * @see DefaultAWSCredentialsProvider
      */
     public AmazonAutoScalingAsyncClient(ClientConfiguration clientConfiguration) {
-        this(new DefaultAWSCredentialsProviderChain(), clientConfiguration, Executors.newCachedThreadPool());
+        this(new DefaultAWSCredentialsProviderChain(), clientConfiguration, AsyncClientExecutors.newDefaultExecutorService());
     }
 
     /**
      * Constructs a new asynchronous client to invoke service methods on
      * AmazonAutoScaling using the specified AWS account credentials.
-     * Default client settings will be used, and a default cached thread pool will be
-     * created for executing the asynchronous tasks.
+     * Default client settings will be used, and the bounded executor shared by
+     * all asynchronous clients (see {@link AsyncClientExecutors}) will be used
+     * for executing the asynchronous tasks.
      *
      * <p>
      * All calls made using this new client object are non-blocking, and will immediately
@@ -126,7 +127,7 @@ public class AmazonAutoScalingAsyncClient extends AmazonAutoScalingClient
      *                       when authenticating with AWS services.
      */
     public AmazonAutoScalingAsyncClient(AWSCredentials awsCredentials) {
-        this(awsCredentials, Executors.newCachedThreadPool());
+        this(awsCredentials, AsyncClientExecutors.newDefaultExecutorService());
     }
 
     /**
@@ -180,8 +181,9 @@ public class AmazonAutoScalingAsyncClient extends AmazonAutoScalingClient
     /**
      * Constructs a new asynchronous client to invoke service methods on
      * AmazonAutoScaling using the specified AWS account credentials provider.
-     * Default client settings will be used, and a default cached thread pool will be
-     * created for executing the asynchronous tasks.
+     * Default client settings will be used, and the bounded executor shared by
+     * all asynchronous clients (see {@link AsyncClientExecutors}) will be used
+     * for executing the asynchronous tasks.
      *
      * <p>
      * All calls made using this new client object are non-blocking, and will immediately
@@ -193,7 +195,7 @@ public class AmazonAutoScalingAsyncClient extends AmazonAutoScalingClient
      *            to authenticate requests with AWS services.
      */
     public AmazonAutoScalingAsyncClient(AWSCredentialsProvider awsCredentialsProvider) {
-        this(awsCredentialsProvider, Executors.newCachedThreadPool());
+        this(awsCredentialsProvider, AsyncClientExecutors.newDefaultExecutorService());
     }
 
     /**
@@ -236,7 +238,7 @@ public class AmazonAutoScalingAsyncClient extends AmazonAutoScalingClient
      */
     public AmazonAutoScalingAsyncClient(AWSCredentialsProvider awsCredentialsProvider,
                 ClientConfiguration clientConfiguration) {
-        this(awsCredentialsProvider, clientConfiguration, Executors.newCachedThreadPool());
+        this(awsCredentialsProvider, clientConfiguration, AsyncClientExecutors.newDefaultExecutorService());
     }
 
     /**
@@ -16,11 +16,11 @@ package com.amazonaws.services.cloudformation;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AsyncClientExecutors;
 import com.amazonaws.handlers.AsyncHandler;
 import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSCredentials;
@@ -103,14 +103,15 @@ public class AmazonCloudFormationAsyncClient extends AmazonCloudFormationClient
      * @see DefaultAWSCredentialsProvider
      */
     public AmazonCloudFormationAsyncClient(ClientConfiguration clientConfiguration) {
-        this(new DefaultAWSCredentialsProviderChain(), clientConfiguration, Executors.newCachedThreadPool());
+        this(new DefaultAWSCredentialsProviderChain(), clientConfiguration, AsyncClientExecutors.newDefaultExecutorService());
     }
 
     /**
      * Constructs a new asynchronous client to invoke service methods on
      * AmazonCloudFormation using the specified AWS account credentials.
-     * Default client settings will be used, and a default cached thread pool will be
-     * created for executing the asynchronous tasks.
+     * Default client settings will be used, and the bounded executor shared by
+     * all asynchronous clients (see {@link AsyncClientExecutors}) will be used
+     * for executing the asynchronous tasks.
      *
      * <p>
      * All calls made using this new client object are non-blocking, and will immediately
@@ -121,7 +122,7 @@ public class AmazonCloudFormationAsyncClient extends AmazonCloudFormationClient
      *                       when authenticating with AWS services.
      */
     public AmazonCloudFormationAsyncClient(AWSCredentials awsCredentials) {
-        this(awsCredentials, Executors.newCachedThreadPool());
+        this(awsCredentials, AsyncClientExecutors.newDefaultExecutorService());
     }
 
     /**
@@ -175,8 +176,9 @@ public class AmazonCloudFormationAsyncClient extends AmazonCloudFormationClient
     /**
      * Constructs a new asynchronous client to invoke service methods on
      * AmazonCloudFormation using the specified AWS account credentials provider.
-     * Default client settings will be used, and a default cached thread pool will be
-     * created for executing the asynchronous tasks.
+     * Default client settings will be used, and the bounded executor shared by
+     * all asynchronous clients (see {@link AsyncClientExecutors}) will be used
+     * for executing the asynchronous tasks.
      *
      * <p>
      * All calls made using this new client object are non-blocking, and will immediately
@@ -188,7 +190,7 @@ public class AmazonCloudFormationAsyncClient extends AmazonCloudFormationClient
      *            to authenticate requests with AWS services.
      */
     public AmazonCloudFormationAsyncClient(AWSCredentialsProvider awsCredentialsProvider) {
-        this(awsCredentialsProvider, Executors.newCachedThreadPool());
+        this(awsCredentialsProvider, AsyncClientExecutors.newDefaultExecutorService());
     }
 
     /**
@@ -231,7 +233,7 @@ public class AmazonCloudFormationAsyncClient extends AmazonCloudFormationClient
      */
     public AmazonCloudFormationAsyncClient(AWSCredentialsProvider awsCredentialsProvider,
                 ClientConfiguration clientConfiguration) {
-        this(awsCredentialsProvider, clientConfiguration, Executors.newCachedThreadPool());
+        this(awsCredentialsProvider, clientConfiguration, AsyncClientExecutors.newDefaultExecutorService());
     }
 
     /**
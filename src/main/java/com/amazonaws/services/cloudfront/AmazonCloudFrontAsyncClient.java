@@ -16,11 +16,11 @@ package com.amazonaws.services.cloudfront;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AsyncClientExecutors;
 import com.amazonaws.handlers.AsyncHandler;
 import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSCredentials;
@@ -87,14 +87,15 @@ public class AmazonCloudFrontAsyncClient extends AmazonCloudFrontClient
      * @see DefaultAWSCredentialsProvider
      */
     public AmazonCloudFrontAsyncClient(ClientConfiguration clientConfiguration) {
-        this(new DefaultAWSCredentialsProviderChain(), clientConfiguration, Executors.newCachedThreadPool());
+        this(new DefaultAWSCredentialsProviderChain(), clientConfiguration, AsyncClientExecutors.newDefaultExecutorService());
     }
 
     /**
      * Constructs a new asynchronous client to invoke service methods on
      * AmazonCloudFront using the specified AWS account credentials.
-     * Default client settings will be used, and a default cached thread pool will be
-     * created for executing the asynchronous tasks.
+     * Default client settings will be used, and the bounded executor shared by
+     * all asynchronous clients (see {@link AsyncClientExecutors}) will be used
+     * for executing the asynchronous tasks.
      *
      * <p>
      * All calls made using this new client object are non-blocking, and will immediately
@@ -105,7 +106,7 @@ public class AmazonCloudFrontAsyncClient extends AmazonCloudFrontClient
      *                       when authenticating with AWS services.
      */
     public AmazonCloudFrontAsyncClient(AWSCredentials awsCredentials) {
-        this(awsCredentials, Executors.newCachedThreadPool());
+        this(awsCredentials, AsyncClientExecutors.newDefaultExecutorService());
     }
 
     /**
@@ -159,8 +160,9 @@ public class AmazonCloudFrontAsyncClient extends AmazonCloudFrontClient
     /**
      * Constructs a new asynchronous client to invoke service methods on
      * AmazonCloudFront using the specified AWS account credentials provider.
-     * Default client settings will be used, and a default cached thread pool will be
-     * created for executing the asynchronous tasks.
+     * Default client settings will be used, and the bounded executor shared by
+     * all asynchronous clients (see {@link AsyncClientExecutors}) will be used
+     * for executing the asynchronous tasks.
      *
      * <p>
      * All calls made using this new client object are non-blocking, and will immediately
@@ -172,7 +174,7 @@ public class AmazonCloudFrontAsyncClient extends AmazonCloudFrontClient
      *            to authenticate requests with AWS services.
      */
     public AmazonCloudFrontAsyncClient(AWSCredentialsProvider awsCredentialsProvider) {
-        this(awsCredentialsProvider, Executors.newCachedThreadPool());
+        this(awsCredentialsProvider, AsyncClientExecutors.newDefaultExecutorService());
     }
 
     /**
@@ -215,7 +217,7 @@ public class AmazonCloudFrontAsyncClient extends AmazonCloudFrontClient
      */
     public AmazonCloudFrontAsyncClient(AWSCredentialsProvider awsCredentialsProvider,
                 ClientConfiguration clientConfiguration) {
-        this(awsCredentialsProvider, clientConfiguration, Executors.newCachedThreadPool());
+        this(awsCredentialsProvider, clientConfiguration, AsyncClientExecutors.newDefaultExecutorService());
     }
 
     /**
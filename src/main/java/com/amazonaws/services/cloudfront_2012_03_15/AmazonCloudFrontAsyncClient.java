@@ -16,11 +16,11 @@ package com.amazonaws.services.cloudfront_2012_03_15;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AsyncClientExecutors;
 import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.AWSCredentialsProvider;
@@ -87,8 +87,9 @@ public class AmazonCloudFrontAsyncClient extends AmazonCloudFrontClient
     /**
      * Constructs a new asynchronous client to invoke service methods on
      * AmazonCloudFront using the specified AWS account credentials.
-     * Default client settings will be used, and a default cached thread pool will be
-     * created for executing the asynchronous tasks.
+     * Default client settings will be used, and the bounded executor shared by
+     * all asynchronous clients (see {@link AsyncClientExecutors}) will be used
+     * for executing the asynchronous tasks.
      *
      * <p>
      * All calls made using this new client object are non-blocking, and will immediately
@@ -99,7 +100,7 @@ public class AmazonCloudFrontAsyncClient extends AmazonCloudFrontClient
      *                       when authenticating with AWS services.
      */
     public AmazonCloudFrontAsyncClient(AWSCredentials awsCredentials) {
-        this(awsCredentials, Executors.newCachedThreadPool());
+        this(awsCredentials, AsyncClientExecutors.newDefaultExecutorService());
     }
 
     /**
@@ -153,8 +154,9 @@ public class AmazonCloudFrontAsyncClient extends AmazonCloudFrontClient
     /**
      * Constructs a new asynchronous client to invoke service methods on
      * AmazonCloudFront using the specified AWS account credentials provider.
-     * Default client settings will be used, and a default cached thread pool will be
-     * created for executing the asynchronous tasks.
+     * Default client settings will be used, and the bounded executor shared by
+     * all asynchronous clients (see {@link AsyncClientExecutors}) will be used
+     * for executing the asynchronous tasks.
      *
      * <p>
      * All calls made using this new client object are non-blocking, and will immediately
@@ -166,7 +168,7 @@ public class AmazonCloudFrontAsyncClient extends AmazonCloudFrontClient
      *            to authenticate requests with AWS services.
      */
     public AmazonCloudFrontAsyncClient(AWSCredentialsProvider awsCredentialsProvider) {
-        this(awsCredentialsProvider, Executors.newCachedThreadPool());
+        this(awsCredentialsProvider, AsyncClientExecutors.newDefaultExecutorService());
     }
 
     /**
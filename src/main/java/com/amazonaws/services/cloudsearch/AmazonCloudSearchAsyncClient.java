@@ -16,11 +16,11 @@ package com.amazonaws.services.cloudsearch;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AsyncClientExecutors;
 import com.amazonaws.handlers.AsyncHandler;
 import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSCredentials;
@@ -90,14 +90,15 @@ public class AmazonCloudSearchAsyncClient extends AmazonCloudSearchClient
      * @see DefaultAWSCredentialsProvider
      */
     public AmazonCloudSearchAsyncClient(ClientConfiguration clientConfiguration) {
-        this(new DefaultAWSCredentialsProviderChain(), clientConfiguration, Executors.newCachedThreadPool());
+        this(new DefaultAWSCredentialsProviderChain(), clientConfiguration, AsyncClientExecutors.newDefaultExecutorService());
     }
 
     /**
      * Constructs a new asynchronous client to invoke service methods on
      * AmazonCloudSearch using the specified AWS account credentials.
-     * Default client settings will be used, and a default cached thread pool will be
-     * created for executing the asynchronous tasks.
+     * Default client settings will be used, and the bounded executor shared by
+     * all asynchronous clients (see {@link AsyncClientExecutors}) will be used
+     * for executing the asynchronous tasks.
      *
      * <p>
      * All calls made using this new client object are non-blocking, and will immediately
@@ -108,7 +109,7 @@ public class AmazonCloudSearchAsyncClient extends AmazonCloudSearchClient
      *                       when authenticating with AWS services.
      */
     public AmazonCloudSearchAsyncClient(AWSCredentials awsCredentials) {
-        this(awsCredentials, Executors.newCachedThreadPool());
+        this(awsCredentials, AsyncClientExecutors.newDefaultExecutorService());
     }
 
     /**
@@ -162,8 +163,9 @@ public class AmazonCloudSearchAsyncClient extends AmazonCloudSearchClient
     /**
      * Constructs a new asynchronous client to invoke service methods on
      * AmazonCloudSearch using the specified AWS account credentials provider.
-     * Default client settings will be used, and a default cached thread pool will be
-     * created for executing the asynchronous tasks.
+     * Default client settings will be used, and the bounded executor shared by
+     * all asynchronous clients (see {@link AsyncClientExecutors}) will be used
+     * for executing the asynchronous tasks.
      *
      * <p>
      * All calls made using this new client object are non-blocking, and will immediately
@@ -175,7 +177,7 @@ public class AmazonCloudSearchAsyncClient extends AmazonCloudSearchClient
      *            to authenticate requests with AWS services.
      */
     public AmazonCloudSearchAsyncClient(AWSCredentialsProvider awsCredentialsProvider) {
-        this(awsCredentialsProvider, Executors.newCachedThreadPool());
+        this(awsCredentialsProvider, AsyncClientExecutors.newDefaultExecutorService());
     }
 
     /**
@@ -218,7 +220,7 @@ public class AmazonCloudSearchAsyncClient extends AmazonCloudSearchClient
      */
     public AmazonCloudSearchAsyncClient(AWSCredentialsProvider awsCredentialsProvider,
                 ClientConfiguration clientConfiguration) {
-        this(awsCredentialsProvider, clientConfiguration, Executors.newCachedThreadPool());
+        this(awsCredentialsProvider, clientConfiguration, AsyncClientExecutors.newDefaultExecutorService());
     }
 
     /**
@@ -16,11 +16,11 @@ package com.amazonaws.services.cloudwatch;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AsyncClientExecutors;
 import com.amazonaws.handlers.AsyncHandler;
 import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSCredentials;
@@ -114,14 +114,15 @@ public class AmazonCloudWatchAsyncClient extends AmazonCloudWatchClient
      * @see DefaultAWSCredentialsProvider
      */
     public AmazonCloudWatchAsyncClient(ClientConfiguration clientConfiguration) {
-        this(new DefaultAWSCredentialsProviderChain(), clientConfiguration, Executors.newCachedThreadPool());
+        this(new DefaultAWSCredentialsProviderChain(), clientConfiguration, AsyncClientExecutors.newDefaultExecutorService());
     }
 
     /**
      * Constructs a new asynchronous client to invoke service methods on
      * AmazonCloudWatch using the specified AWS account credentials.
-     * Default client settings will be used, and a default cached thread pool will be
-     * created for executing the asynchronous tasks.
+     * Default client settings will be used, and the bounded executor shared by
+     * all asynchronous clients (see {@link AsyncClientExecutors}) will be used
+     * for executing the asynchronous tasks.
      *
      * <p>
      * All calls made using this new client object are non-blocking, and will immediately
@@ -132,7 +133,7 @@ public class AmazonCloudWatchAsyncClient extends AmazonCloudWatchClient
      *                       when authenticating with AWS services.
      */
     public AmazonCloudWatchAsyncClient(AWSCredentials awsCredentials) {
-        this(awsCredentials, Executors.newCachedThreadPool());
+        this(awsCredentials, AsyncClientExecutors.newDefaultExecutorService());
     }
 
     /**
@@ -186,8 +187,9 @@ public class AmazonCloudWatchAsyncClient extends AmazonCloudWatchClient
     /**
      * Constructs a new asynchronous client to invoke service methods on
      * AmazonCloudWatch using the specified AWS account credentials provider.
-     * Default client settings will be used, and a default cached thread pool will be
-     * created for executing the asynchronous tasks.
+     * Default client settings will be used, and the bounded executor shared by
+     * all asynchronous clients (see {@link AsyncClientExecutors}) will be used
+     * for executing the asynchronous tasks.
      *
      * <p>
      * All calls made using this new client object are non-blocking, and will immediately
@@ -199,7 +201,7 @@ public class AmazonCloudWatchAsyncClient extends AmazonCloudWatchClient
      *            to authenticate requests with AWS services.
      */
     public AmazonCloudWatchAsyncClient(AWSCredentialsProvider awsCredentialsProvider) {
-        this(awsCredentialsProvider, Executors.newCachedThreadPool());
+        this(awsCredentialsProvider, AsyncClientExecutors.newDefaultExecutorService());
     }
 
     /**
@@ -242,7 +244,7 @@ public class AmazonCloudWatchAsyncClient extends AmazonCloudWatchClient
      */
     public AmazonCloudWatchAsyncClient(AWSCredentialsProvider awsCredentialsProvider,
                 ClientConfiguration clientConfiguration) {
-        this(awsCredentialsProvider, clientConfiguration, Executors.newCachedThreadPool());
+        this(awsCredentialsProvider, clientConfiguration, AsyncClientExecutors.newDefaultExecutorService());
     }
 
     /**
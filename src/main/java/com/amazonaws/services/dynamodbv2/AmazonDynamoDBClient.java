@@ -276,6 +276,43 @@ public class AmazonDynamoDBClient extends AmazonWebServiceClient implements Amaz
 
         
 
+        return invoke(request, responseHandler, executionContext);
+    }
+
+    /**
+     * Runs a scan like {@link #scan(ScanRequest)}, and returns the page of
+     * results as an {@link ItemCursor} instead of a list of maps of attribute
+     * values, which is much cheaper to build and walk when a scan returns
+     * many items.
+     *
+     * @param scanRequest Container for the necessary parameters to
+     *           execute the Scan service method on AmazonDynamoDBv2.
+     * 
+     * @return A cursor over the items of the page, which also gives the last
+     *         evaluated key and the counts of the result.
+     * 
+     * @throws AmazonClientException
+     *             If any internal errors are encountered inside the client while
+     *             attempting to make the request or handle the response.  For example
+     *             if a network connection is not available.
+     * @throws AmazonServiceException
+     *             If an error response is returned by AmazonDynamoDBv2 indicating
+     *             either a problem with the data in the request, or a server side issue.
+     */
+    public ItemCursor scanItems(ScanRequest scanRequest)
+            throws AmazonServiceException, AmazonClientException {
+
+        /* Create execution context */
+        ExecutionContext executionContext = createExecutionContext();
+
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.RequestMarshallTime.name());
+        Request<ScanRequest> request = new ScanRequestMarshaller().marshall(scanRequest);
+        awsRequestMetrics.endEvent(Field.RequestMarshallTime.name());
+
+        Unmarshaller<ItemCursor, JsonUnmarshallerContext> unmarshaller = new ItemCursorJsonUnmarshaller();
+        JsonResponseHandler<ItemCursor> responseHandler = new JsonResponseHandler<ItemCursor>(unmarshaller);
+
         return invoke(request, responseHandler, executionContext);
     }
     
@@ -861,6 +898,43 @@ public class AmazonDynamoDBClient extends AmazonWebServiceClient implements Amaz
 
         
 
+        return invoke(request, responseHandler, executionContext);
+    }
+
+    /**
+     * Runs a query like {@link #query(QueryRequest)}, and returns the page of
+     * results as an {@link ItemCursor} instead of a list of maps of attribute
+     * values, which is much cheaper to build and walk when a query returns
+     * many items.
+     *
+     * @param queryRequest Container for the necessary parameters to
+     *           execute the Query service method on AmazonDynamoDBv2.
+     * 
+     * @return A cursor over the items of the page, which also gives the last
+     *         evaluated key and the counts of the result.
+     * 
+     * @throws AmazonClientException
+     *             If any internal errors are encountered inside the client while
+     *             attempting to make the request or handle the response.  For example
+     *             if a network connection is not available.
+     * @throws AmazonServiceException
+     *             If an error response is returned by AmazonDynamoDBv2 indicating
+     *             either a problem with the data in the request, or a server side issue.
+     */
+    public ItemCursor queryItems(QueryRequest queryRequest)
+            throws AmazonServiceException, AmazonClientException {
+
+        /* Create execution context */
+        ExecutionContext executionContext = createExecutionContext();
+
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.RequestMarshallTime.name());
+        Request<QueryRequest> request = new QueryRequestMarshaller().marshall(queryRequest);
+        awsRequestMetrics.endEvent(Field.RequestMarshallTime.name());
+
+        Unmarshaller<ItemCursor, JsonUnmarshallerContext> unmarshaller = new ItemCursorJsonUnmarshaller();
+        JsonResponseHandler<ItemCursor> responseHandler = new JsonResponseHandler<ItemCursor>(unmarshaller);
+
         return invoke(request, responseHandler, executionContext);
     }
     
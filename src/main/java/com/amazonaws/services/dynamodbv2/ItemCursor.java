@@ -0,0 +1,462 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.util.BinaryUtils;
+
+/**
+ * A page of items returned by a scan or a query, read one item at a time
+ * through a cursor instead of as a list of maps of {@link AttributeValue}.
+ * <p>
+ * The attributes of all the items of the page are kept in a few flat arrays
+ * as they were parsed: their names, which the parser shares between items,
+ * their types and the text of their values. No map or
+ * {@link AttributeValue} is created per item, and binary values are only
+ * decoded when they are asked for, which makes a large scan much cheaper to
+ * process when only some attributes of each item are used. The
+ * {@link com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper} can
+ * create objects straight from the current item.
+ * <p>
+ * Instances of {@code ItemCursor} are not thread-safe.
+ *
+ * @see AmazonDynamoDBClient#scanItems(com.amazonaws.services.dynamodbv2.model.ScanRequest)
+ * @see AmazonDynamoDBClient#queryItems(com.amazonaws.services.dynamodbv2.model.QueryRequest)
+ */
+public class ItemCursor {
+
+    static final byte S = 1;
+    static final byte N = 2;
+    static final byte B = 3;
+    static final byte SS = 4;
+    static final byte NS = 5;
+    static final byte BS = 6;
+
+    /* Attributes of all the items, in the order they were read */
+    private String[] names = new String[64];
+    private byte[] types = new byte[64];
+    /** Index in values of the first value of each attribute, plus one last entry */
+    private int[] valueStarts = new int[65];
+    private int attributeCount;
+
+    private String[] values = new String[64];
+    private int valueCount;
+
+    /** Index of the first attribute of each item, plus one last entry */
+    private int[] itemStarts = new int[17];
+    private int itemCount;
+
+    /** First and last attributes of the last evaluated key, or -1 */
+    private int keyStart = -1;
+    private int keyEnd = -1;
+
+    private Integer count;
+    private Integer scannedCount;
+    private ConsumedCapacity consumedCapacity;
+
+    /** Index of the current item, -1 before the first call to next() */
+    private int item = -1;
+    private int first;
+    private int end;
+
+    /**
+     * Moves to the next item of the page.
+     *
+     * @return true if there is a next item, false if the end of the page has
+     *         been reached.
+     */
+    public boolean next() {
+        if (item + 1 >= itemCount) {
+            item = itemCount;
+            first = end = 0;
+            return false;
+        }
+        item++;
+        first = itemStarts[item];
+        end = itemStarts[item + 1];
+        return true;
+    }
+
+    /**
+     * Moves the cursor back before the first item of the page.
+     */
+    public void rewind() {
+        item = -1;
+        first = end = 0;
+    }
+
+    /**
+     * Returns the number of items in the page.
+     */
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    /**
+     * Returns the number of attributes of the current item.
+     */
+    public int getAttributeCount() {
+        return end - first;
+    }
+
+    /**
+     * Returns the name of an attribute of the current item.
+     *
+     * @param index
+     *            The index of the attribute, from 0 to
+     *            {@link #getAttributeCount()} excluded.
+     */
+    public String getAttributeName(int index) {
+        return names[attribute(index)];
+    }
+
+    /**
+     * Returns the index of the attribute with the specified name in the
+     * current item, or -1 if the item doesn't have it.
+     */
+    public int indexOf(String name) {
+        for (int a = first; a < end; a++) {
+            if (names[a] == name) return a - first;
+        }
+        for (int a = first; a < end; a++) {
+            if (names[a].equals(name)) return a - first;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns true if the current item has an attribute with the specified
+     * name.
+     */
+    public boolean hasAttribute(String name) {
+        return indexOf(name) >= 0;
+    }
+
+    /**
+     * Returns the value of a string attribute of the current item, or null if
+     * the item doesn't have it or it isn't a string.
+     */
+    public String getS(String name) {
+        return getScalar(name, S);
+    }
+
+    /**
+     * Returns the value of a number attribute of the current item, or null if
+     * the item doesn't have it or it isn't a number.
+     */
+    public String getN(String name) {
+        return getScalar(name, N);
+    }
+
+    /**
+     * Returns the value of a number attribute of the current item as a long.
+     *
+     * @param defaultValue
+     *            The value returned if the item doesn't have the attribute or
+     *            it isn't a number.
+     *
+     * @throws NumberFormatException
+     *             If the number isn't an integer that fits in a long.
+     */
+    public long getLong(String name, long defaultValue) {
+        String n = getScalar(name, N);
+        return n == null ? defaultValue : Long.parseLong(n);
+    }
+
+    /**
+     * Returns the value of a number attribute of the current item as a
+     * double.
+     *
+     * @param defaultValue
+     *            The value returned if the item doesn't have the attribute or
+     *            it isn't a number.
+     */
+    public double getDouble(String name, double defaultValue) {
+        String n = getScalar(name, N);
+        return n == null ? defaultValue : Double.parseDouble(n);
+    }
+
+    /**
+     * Returns the decoded value of a binary attribute of the current item, or
+     * null if the item doesn't have it or it isn't binary.
+     */
+    public ByteBuffer getB(String name) {
+        String b = getScalar(name, B);
+        return b == null ? null : ByteBuffer.wrap(BinaryUtils.fromBase64(b));
+    }
+
+    /**
+     * Returns the values of a string set attribute of the current item, or
+     * null if the item doesn't have it or it isn't a string set.
+     */
+    public List<String> getSS(String name) {
+        return getSet(name, SS);
+    }
+
+    /**
+     * Returns the values of a number set attribute of the current item, or
+     * null if the item doesn't have it or it isn't a number set.
+     */
+    public List<String> getNS(String name) {
+        return getSet(name, NS);
+    }
+
+    /**
+     * Returns the decoded values of a binary set attribute of the current
+     * item, or null if the item doesn't have it or it isn't a binary set.
+     */
+    public List<ByteBuffer> getBS(String name) {
+        List<String> encoded = getSet(name, BS);
+        if (encoded == null) return null;
+        List<ByteBuffer> result = new ArrayList<ByteBuffer>(encoded.size());
+        for (String b : encoded) {
+            result.add(ByteBuffer.wrap(BinaryUtils.fromBase64(b)));
+        }
+        return result;
+    }
+
+    /**
+     * Returns an attribute of the current item as an {@link AttributeValue},
+     * or null if the item doesn't have it.
+     */
+    public AttributeValue getAttributeValue(String name) {
+        int index = indexOf(name);
+        if (index < 0) return null;
+        return getAttributeValue(index, new AttributeValue());
+    }
+
+    /**
+     * Sets an attribute of the current item into the specified
+     * {@link AttributeValue}, clearing its other fields, so that the same
+     * instance can be reused for every attribute of every item. The byte
+     * buffers and lists set into it are new ones, which can be kept.
+     *
+     * @param index
+     *            The index of the attribute, from 0 to
+     *            {@link #getAttributeCount()} excluded.
+     * @param value
+     *            The attribute value to fill.
+     *
+     * @return The specified attribute value.
+     */
+    public AttributeValue getAttributeValue(int index, AttributeValue value) {
+        int a = attribute(index);
+        value.setS(null);
+        value.setN(null);
+        value.setB(null);
+        value.setSS(null);
+        value.setNS(null);
+        value.setBS(null);
+
+        int start = valueStarts[a];
+        switch (types[a]) {
+        case S:
+            value.setS(values[start]);
+            break;
+        case N:
+            value.setN(values[start]);
+            break;
+        case B:
+            value.setB(ByteBuffer.wrap(BinaryUtils.fromBase64(values[start])));
+            break;
+        case SS:
+            value.setSS(valueList(a));
+            break;
+        case NS:
+            value.setNS(valueList(a));
+            break;
+        case BS:
+            List<ByteBuffer> buffers = new ArrayList<ByteBuffer>(valueStarts[a + 1] - start);
+            for (int v = start; v < valueStarts[a + 1]; v++) {
+                buffers.add(ByteBuffer.wrap(BinaryUtils.fromBase64(values[v])));
+            }
+            value.setBS(buffers);
+            break;
+        }
+        return value;
+    }
+
+    /**
+     * Returns the current item as a map of attribute values, as it would have
+     * been returned in a scan or query result.
+     */
+    public Map<String, AttributeValue> getItem() {
+        return toMap(first, end);
+    }
+
+    /**
+     * Returns the primary key of the item where the operation stopped, to
+     * use as the exclusive start key of the request for the next page, or
+     * null if this is the last page.
+     */
+    public Map<String, AttributeValue> getLastEvaluatedKey() {
+        if (keyStart < 0) return null;
+        return toMap(keyStart, keyEnd);
+    }
+
+    /**
+     * Returns the number of items in the response, as reported by the
+     * service.
+     */
+    public Integer getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the number of items scanned or evaluated before the filter was
+     * applied, as reported by the service.
+     */
+    public Integer getScannedCount() {
+        return scannedCount;
+    }
+
+    /**
+     * Returns the capacity units consumed by the operation, if they were
+     * requested.
+     */
+    public ConsumedCapacity getConsumedCapacity() {
+        return consumedCapacity;
+    }
+
+    /*
+     * Loading, by ItemCursorJsonUnmarshaller
+     */
+
+    void setCount(Integer count) {
+        this.count = count;
+    }
+
+    void setScannedCount(Integer scannedCount) {
+        this.scannedCount = scannedCount;
+    }
+
+    void setConsumedCapacity(ConsumedCapacity consumedCapacity) {
+        this.consumedCapacity = consumedCapacity;
+    }
+
+    void startItem() {
+        if (itemCount + 1 == itemStarts.length) {
+            itemStarts = grow(itemStarts);
+        }
+        itemStarts[itemCount] = attributeCount;
+    }
+
+    void endItem() {
+        itemCount++;
+        itemStarts[itemCount] = attributeCount;
+    }
+
+    void startKey() {
+        keyStart = attributeCount;
+    }
+
+    void endKey() {
+        keyEnd = attributeCount;
+    }
+
+    void startAttribute(String name, byte type) {
+        if (attributeCount == names.length) {
+            names = grow(names);
+            byte[] newTypes = new byte[types.length * 2];
+            System.arraycopy(types, 0, newTypes, 0, attributeCount);
+            types = newTypes;
+        }
+        if (attributeCount + 1 == valueStarts.length) {
+            valueStarts = grow(valueStarts);
+        }
+        names[attributeCount] = name;
+        types[attributeCount] = type;
+        valueStarts[attributeCount] = valueCount;
+    }
+
+    void addValue(String value) {
+        if (valueCount == values.length) {
+            values = grow(values);
+        }
+        values[valueCount++] = value;
+    }
+
+    void endAttribute() {
+        attributeCount++;
+        valueStarts[attributeCount] = valueCount;
+    }
+
+    /*
+     * Private Interface
+     */
+
+    private int attribute(int index) {
+        if (index < 0 || index >= end - first) {
+            throw new IndexOutOfBoundsException("No attribute " + index + " in the current item");
+        }
+        return first + index;
+    }
+
+    private String getScalar(String name, byte type) {
+        int index = indexOf(name);
+        if (index < 0 || types[first + index] != type) return null;
+        return values[valueStarts[first + index]];
+    }
+
+    private List<String> getSet(String name, byte type) {
+        int index = indexOf(name);
+        if (index < 0 || types[first + index] != type) return null;
+        return valueList(first + index);
+    }
+
+    private List<String> valueList(int a) {
+        List<String> list = new ArrayList<String>(valueStarts[a + 1] - valueStarts[a]);
+        for (int v = valueStarts[a]; v < valueStarts[a + 1]; v++) {
+            list.add(values[v]);
+        }
+        return list;
+    }
+
+    private Map<String, AttributeValue> toMap(int from, int to) {
+        Map<String, AttributeValue> map = new HashMap<String, AttributeValue>();
+        int savedFirst = first;
+        int savedEnd = end;
+        first = from;
+        end = to;
+        try {
+            for (int a = from; a < to; a++) {
+                map.put(names[a], getAttributeValue(a - from, new AttributeValue()));
+            }
+        } finally {
+            first = savedFirst;
+            end = savedEnd;
+        }
+        return map;
+    }
+
+    private static int[] grow(int[] array) {
+        int[] larger = new int[array.length * 2];
+        System.arraycopy(array, 0, larger, 0, array.length);
+        return larger;
+    }
+
+    private static String[] grow(String[] array) {
+        String[] larger = new String[array.length * 2];
+        System.arraycopy(array, 0, larger, 0, array.length);
+        return larger;
+    }
+}
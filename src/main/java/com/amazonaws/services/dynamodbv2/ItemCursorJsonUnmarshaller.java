@@ -0,0 +1,139 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2;
+
+import static org.codehaus.jackson.JsonToken.END_ARRAY;
+import static org.codehaus.jackson.JsonToken.FIELD_NAME;
+import static org.codehaus.jackson.JsonToken.START_ARRAY;
+import static org.codehaus.jackson.JsonToken.START_OBJECT;
+
+import java.io.IOException;
+
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.transform.JsonUnmarshallerContext;
+import com.amazonaws.transform.Unmarshaller;
+
+/**
+ * Reads a scan or query response into an {@link ItemCursor}, straight from
+ * the JSON parser rather than through the generic unmarshalling context,
+ * since only the shape of these two responses needs to be known.
+ */
+class ItemCursorJsonUnmarshaller implements Unmarshaller<ItemCursor, JsonUnmarshallerContext> {
+
+    public ItemCursor unmarshall(JsonUnmarshallerContext context) throws Exception {
+        ItemCursor cursor = new ItemCursor();
+        JsonParser parser = context.getJsonParser();
+
+        JsonToken token = parser.getCurrentToken();
+        if (token == null) token = parser.nextToken();
+        if (token == null) return cursor;
+        if (token != START_OBJECT) {
+            throw new AmazonClientException("Expected a JSON object but got " + token);
+        }
+
+        while (parser.nextToken() == FIELD_NAME) {
+            String field = parser.getCurrentName();
+            token = parser.nextToken();
+            if (field.equals("Items") && token == START_ARRAY) {
+                while (parser.nextToken() == START_OBJECT) {
+                    cursor.startItem();
+                    readAttributes(parser, cursor);
+                    cursor.endItem();
+                }
+            } else if (field.equals("LastEvaluatedKey") && token == START_OBJECT) {
+                cursor.startKey();
+                readAttributes(parser, cursor);
+                cursor.endKey();
+            } else if (field.equals("Count") && token.isNumeric()) {
+                cursor.setCount(parser.getIntValue());
+            } else if (field.equals("ScannedCount") && token.isNumeric()) {
+                cursor.setScannedCount(parser.getIntValue());
+            } else if (field.equals("ConsumedCapacity") && token == START_OBJECT) {
+                cursor.setConsumedCapacity(readConsumedCapacity(parser));
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return cursor;
+    }
+
+    /**
+     * Reads the attributes of an item, or of a key, from the parser positioned
+     * on the start of the item.
+     */
+    private static void readAttributes(JsonParser parser, ItemCursor cursor) throws IOException {
+        while (parser.nextToken() == FIELD_NAME) {
+            String name = parser.getCurrentName();
+            if (parser.nextToken() != START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == FIELD_NAME) {
+                byte type = getType(parser.getCurrentName());
+                JsonToken token = parser.nextToken();
+                if (type == 0) {
+                    parser.skipChildren();
+                    continue;
+                }
+                cursor.startAttribute(name, type);
+                if (token == START_ARRAY) {
+                    while (parser.nextToken() != END_ARRAY) {
+                        cursor.addValue(parser.getText());
+                    }
+                } else {
+                    cursor.addValue(parser.getText());
+                }
+                cursor.endAttribute();
+            }
+        }
+    }
+
+    private static byte getType(String type) {
+        if (type.length() == 1) {
+            switch (type.charAt(0)) {
+            case 'S': return ItemCursor.S;
+            case 'N': return ItemCursor.N;
+            case 'B': return ItemCursor.B;
+            }
+        } else if (type.length() == 2 && type.charAt(1) == 'S') {
+            switch (type.charAt(0)) {
+            case 'S': return ItemCursor.SS;
+            case 'N': return ItemCursor.NS;
+            case 'B': return ItemCursor.BS;
+            }
+        }
+        return 0;
+    }
+
+    private static ConsumedCapacity readConsumedCapacity(JsonParser parser) throws IOException {
+        ConsumedCapacity consumedCapacity = new ConsumedCapacity();
+        while (parser.nextToken() == FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if (field.equals("TableName") && token == JsonToken.VALUE_STRING) {
+                consumedCapacity.setTableName(parser.getText());
+            } else if (field.equals("CapacityUnits") && token.isNumeric()) {
+                consumedCapacity.setCapacityUnits(parser.getDoubleValue());
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return consumedCapacity;
+    }
+}
@@ -31,6 +31,8 @@ import java.util.Map.Entry;
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonWebServiceRequest;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+import com.amazonaws.services.dynamodbv2.ItemCursor;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig.ConsistentReads;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig.SaveBehavior;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
@@ -422,6 +424,62 @@ public class DynamoDBMapper {
         return toReturn;
     }
 
+    /**
+     * Creates and fills in the attributes on an instance of the class given
+     * with the attributes of the current item of the cursor given, without
+     * creating a map of attribute values for it.
+     * <p>
+     * Mappers that transform the attributes they load, by overriding
+     * {@link #untransformAttributes(String, String, Map)}, get the item as a
+     * map as usual.
+     *
+     * @param clazz
+     *            The class to instantiate and hydrate
+     * @param cursor
+     *            A cursor positioned on an item, as returned by
+     *            {@link AmazonDynamoDBClient#scanItems(ScanRequest)} or
+     *            {@link AmazonDynamoDBClient#queryItems(QueryRequest)}.
+     */
+    public <T> T marshallIntoObject(Class<T> clazz, ItemCursor cursor) {
+        if ( getClass() != DynamoDBMapper.class )
+            return marshallIntoObject(clazz, cursor.getItem());
+
+        T toReturn = null;
+        try {
+            toReturn = clazz.newInstance();
+        } catch ( InstantiationException e ) {
+            throw new DynamoDBMappingException("Failed to instantiate new instance of class", e);
+        } catch ( IllegalAccessException e ) {
+            throw new DynamoDBMappingException("Failed to instantiate new instance of class", e);
+        }
+
+        // The unmarshallers only keep the buffers and lists of a value, which
+        // the cursor creates anew, so a single value serves every attribute
+        AttributeValue value = new AttributeValue();
+        for ( Method m : reflector.getRelevantGetters(clazz) ) {
+            int index = cursor.indexOf(reflector.getAttributeName(m));
+            if ( index >= 0 ) {
+                setValue(toReturn, m, cursor.getAttributeValue(index, value));
+            }
+        }
+
+        return toReturn;
+    }
+
+    /**
+     * Marshalls the items of the cursor given, from its current position to
+     * the end of the page, into objects of type clazz
+     *
+     * @see DynamoDBMapper#marshallIntoObject(Class, ItemCursor)
+     */
+    public <T> List<T> marshallIntoObjects(Class<T> clazz, ItemCursor cursor) {
+        List<T> result = new ArrayList<T>(cursor.getItemCount());
+        while (cursor.next()) {
+            result.add(marshallIntoObject(clazz, cursor));
+        }
+        return result;
+    }
+
     /**
      * Marshalls the list of item attributes into objects of type clazz
      *
@@ -1104,6 +1162,14 @@ public class DynamoDBMapper {
 
         ScanRequest scanRequest = createScanRequestFromExpression(clazz, scanExpression, config);
 
+        // The client can return the pages as item cursors, which are much
+        // cheaper to turn into objects than lists of maps
+        if ( db instanceof AmazonDynamoDBClient ) {
+            AmazonDynamoDBClient client = (AmazonDynamoDBClient) db;
+            ItemCursor firstPage = client.scanItems(applyUserAgent(scanRequest));
+            return new PaginatedScanList<T>(this, clazz, client, scanRequest, firstPage);
+        }
+
         ScanResult scanResult = db.scan(applyUserAgent(scanRequest));
         return new PaginatedScanList<T>(this, clazz, db, scanRequest, scanResult);
     }
@@ -1161,6 +1227,12 @@ public class DynamoDBMapper {
 
         QueryRequest queryRequest = createQueryRequestFromExpression(clazz, queryExpression, config);
 
+        if ( db instanceof AmazonDynamoDBClient ) {
+            AmazonDynamoDBClient client = (AmazonDynamoDBClient) db;
+            ItemCursor firstPage = client.queryItems(applyUserAgent(queryRequest));
+            return new PaginatedQueryList<T>(this, clazz, client, queryRequest, firstPage);
+        }
+
         QueryResult queryResult = db.query(applyUserAgent(queryRequest));
         return new PaginatedQueryList<T>(this, clazz, db, queryRequest, queryResult);
     }
@@ -15,8 +15,12 @@
 package com.amazonaws.services.dynamodbv2.datamodeling;
 
 import java.util.List;
+import java.util.Map;
 
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+import com.amazonaws.services.dynamodbv2.ItemCursor;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.QueryRequest;
 import com.amazonaws.services.dynamodbv2.model.QueryResult;
 
@@ -40,28 +44,51 @@ public class PaginatedQueryList<T> extends PaginatedList<T> {
     /** The current query request */
     private final QueryRequest queryRequest;
 
-    /** The current results for the last executed query operation */
-    private QueryResult queryResult;
+    /** The client that returns the pages as item cursors, or null */
+    private final AmazonDynamoDBClient cursorClient;
+
+    /** The last evaluated key of the last executed query operation */
+    private Map<String, AttributeValue> lastEvaluatedKey;
 
 
     public PaginatedQueryList(DynamoDBMapper mapper, Class<T> clazz, AmazonDynamoDB dynamo, QueryRequest queryRequest, QueryResult queryResult) {
         super(mapper, clazz, dynamo);
 
         this.queryRequest = queryRequest;
-        this.queryResult  = queryResult;
+        this.cursorClient = null;
+        this.lastEvaluatedKey = queryResult.getLastEvaluatedKey();
 
         allResults.addAll(mapper.marshallIntoObjects(clazz, queryResult.getItems()));
     }
 
+    /**
+     * Creates a list that reads every page through an item cursor.
+     */
+    PaginatedQueryList(DynamoDBMapper mapper, Class<T> clazz, AmazonDynamoDBClient dynamo, QueryRequest queryRequest, ItemCursor firstPage) {
+        super(mapper, clazz, dynamo);
+
+        this.queryRequest = queryRequest;
+        this.cursorClient = dynamo;
+        this.lastEvaluatedKey = firstPage.getLastEvaluatedKey();
+
+        allResults.addAll(mapper.marshallIntoObjects(clazz, firstPage));
+    }
+
     @Override    
     protected boolean atEndOfResults() {
-        return queryResult.getLastEvaluatedKey() == null;
+        return lastEvaluatedKey == null;
     }
 
     @Override    
     protected synchronized List<T> fetchNextPage() {
-        queryRequest.setExclusiveStartKey(queryResult.getLastEvaluatedKey());
-        queryResult = dynamo.query(DynamoDBMapper.applyUserAgent(queryRequest));
+        queryRequest.setExclusiveStartKey(lastEvaluatedKey);
+        if (cursorClient != null) {
+            ItemCursor page = cursorClient.queryItems(DynamoDBMapper.applyUserAgent(queryRequest));
+            lastEvaluatedKey = page.getLastEvaluatedKey();
+            return mapper.marshallIntoObjects(clazz, page);
+        }
+        QueryResult queryResult = dynamo.query(DynamoDBMapper.applyUserAgent(queryRequest));
+        lastEvaluatedKey = queryResult.getLastEvaluatedKey();
         return mapper.marshallIntoObjects(clazz, queryResult.getItems());
     }
 }
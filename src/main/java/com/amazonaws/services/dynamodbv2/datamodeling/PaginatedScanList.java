@@ -15,8 +15,12 @@
 package com.amazonaws.services.dynamodbv2.datamodeling;
 
 import java.util.List;
+import java.util.Map;
 
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+import com.amazonaws.services.dynamodbv2.ItemCursor;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.ScanRequest;
 import com.amazonaws.services.dynamodbv2.model.ScanResult;
 
@@ -40,28 +44,51 @@ public class PaginatedScanList<T> extends PaginatedList<T> {
     /** The current scan request */
     private final ScanRequest scanRequest;
 
-    /** The current results for the last executed scan operation */
-    private ScanResult scanResult;
+    /** The client that returns the pages as item cursors, or null */
+    private final AmazonDynamoDBClient cursorClient;
+
+    /** The last evaluated key of the last executed scan operation */
+    private Map<String, AttributeValue> lastEvaluatedKey;
 
 
     public PaginatedScanList(DynamoDBMapper mapper, Class<T> clazz, AmazonDynamoDB dynamo, ScanRequest scanRequest, ScanResult scanResult) {
         super(mapper, clazz, dynamo);
 
         this.scanRequest = scanRequest;
-        this.scanResult = scanResult;
+        this.cursorClient = null;
+        this.lastEvaluatedKey = scanResult.getLastEvaluatedKey();
 
         allResults.addAll(mapper.marshallIntoObjects(clazz, scanResult.getItems()));
     }
 
+    /**
+     * Creates a list that reads every page through an item cursor.
+     */
+    PaginatedScanList(DynamoDBMapper mapper, Class<T> clazz, AmazonDynamoDBClient dynamo, ScanRequest scanRequest, ItemCursor firstPage) {
+        super(mapper, clazz, dynamo);
+
+        this.scanRequest = scanRequest;
+        this.cursorClient = dynamo;
+        this.lastEvaluatedKey = firstPage.getLastEvaluatedKey();
+
+        allResults.addAll(mapper.marshallIntoObjects(clazz, firstPage));
+    }
+
     @Override
     protected boolean atEndOfResults() {
-        return scanResult.getLastEvaluatedKey() == null;
+        return lastEvaluatedKey == null;
     }
     
     @Override
     protected synchronized List<T> fetchNextPage() {
-        scanRequest.setExclusiveStartKey(scanResult.getLastEvaluatedKey());
-        scanResult = dynamo.scan(DynamoDBMapper.applyUserAgent(scanRequest));
+        scanRequest.setExclusiveStartKey(lastEvaluatedKey);
+        if (cursorClient != null) {
+            ItemCursor page = cursorClient.scanItems(DynamoDBMapper.applyUserAgent(scanRequest));
+            lastEvaluatedKey = page.getLastEvaluatedKey();
+            return mapper.marshallIntoObjects(clazz, page);
+        }
+        ScanResult scanResult = dynamo.scan(DynamoDBMapper.applyUserAgent(scanRequest));
+        lastEvaluatedKey = scanResult.getLastEvaluatedKey();
         return mapper.marshallIntoObjects(clazz, scanResult.getItems());
     }
 
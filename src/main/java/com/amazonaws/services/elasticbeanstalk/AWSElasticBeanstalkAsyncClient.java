@@ -16,11 +16,11 @@ package com.amazonaws.services.elasticbeanstalk;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AsyncClientExecutors;
 import com.amazonaws.handlers.AsyncHandler;
 import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSCredentials;
@@ -110,14 +110,15 @@ public class AWSElasticBeanstalkAsyncClient extends AWSElasticBeanstalkClient
      * @see DefaultAWSCredentialsProvider
      */
     public AWSElasticBeanstalkAsyncClient(ClientConfiguration clientConfiguration) {
-        this(new DefaultAWSCredentialsProviderChain(), clientConfiguration, Executors.newCachedThreadPool());
+        this(new DefaultAWSCredentialsProviderChain(), clientConfiguration, AsyncClientExecutors.newDefaultExecutorService());
     }
 
     /**
      * Constructs a new asynchronous client to invoke service methods on
      * AWSElasticBeanstalk using the specified AWS account credentials.
-     * Default client settings will be used, and a default cached thread pool will be
-     * created for executing the asynchronous tasks.
+     * Default client settings will be used, and the bounded executor shared by
+     * all asynchronous clients (see {@link AsyncClientExecutors}) will be used
+     * for executing the asynchronous tasks.
      *
      * <p>
      * All calls made using this new client object are non-blocking, and will immediately
@@ -128,7 +129,7 @@ public class AWSElasticBeanstalkAsyncClient extends AWSElasticBeanstalkClient
      *                       when authenticating with AWS services.
      */
     public AWSElasticBeanstalkAsyncClient(AWSCredentials awsCredentials) {
-        this(awsCredentials, Executors.newCachedThreadPool());
+        this(awsCredentials, AsyncClientExecutors.newDefaultExecutorService());
     }
 
     /**
@@ -182,8 +183,9 @@ public class AWSElasticBeanstalkAsyncClient extends AWSElasticBeanstalkClient
     /**
      * Constructs a new asynchronous client to invoke service methods on
      * AWSElasticBeanstalk using the specified AWS account credentials provider.
-     * Default client settings will be used, and a default cached thread pool will be
-     * created for executing the asynchronous tasks.
+     * Default client settings will be used, and the bounded executor shared by
+     * all asynchronous clients (see {@link AsyncClientExecutors}) will be used
+     * for executing the asynchronous tasks.
      *
      * <p>
      * All calls made using this new client object are non-blocking, and will immediately
@@ -195,7 +197,7 @@ public class AWSElasticBeanstalkAsyncClient extends AWSElasticBeanstalkClient
      *            to authenticate requests with AWS services.
      */
     public AWSElasticBeanstalkAsyncClient(AWSCredentialsProvider awsCredentialsProvider) {
-        this(awsCredentialsProvider, Executors.newCachedThreadPool());
+        this(awsCredentialsProvider, AsyncClientExecutors.newDefaultExecutorService());
     }
 
     /**
@@ -238,7 +240,7 @@ public class AWSElasticBeanstalkAsyncClient extends AWSElasticBeanstalkClient
      */
     public AWSElasticBeanstalkAsyncClient(AWSCredentialsProvider awsCredentialsProvider,
                 ClientConfiguration clientConfiguration) {
-        this(awsCredentialsProvider, clientConfiguration, Executors.newCachedThreadPool());
+        this(awsCredentialsProvider, clientConfiguration, AsyncClientExecutors.newDefaultExecutorService());
     }
 
     /**
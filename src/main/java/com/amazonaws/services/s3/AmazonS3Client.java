@@ -964,13 +964,22 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
         assertParameterNotNull(destinationFile,
                 "The destination file parameter must be specified when downloading an object directly to a file");
 
-        S3Object s3Object = ServiceUtils.retryableDownloadS3ObjectToFile(destinationFile, new ServiceUtils.RetryableS3DownloadTask() {
+        S3Object s3Object = ServiceUtils.retryableDownloadS3ObjectToFile(destinationFile, new ServiceUtils.ResumableS3DownloadTask() {
 
 			@Override
 			public S3Object getS3ObjectStream() {
 				return getObject(getObjectRequest);
 			}
 
+			@Override
+			public S3Object getS3ObjectStreamFrom(S3Object previous, long startingByte) {
+				// Ranged requests can't be decrypted, so encrypted downloads always start over
+				if (AmazonS3Client.this instanceof AmazonS3EncryptionClient) return null;
+				GetObjectRequest resumeRequest = ServiceUtils.createResumeRequest(getObjectRequest, previous, startingByte);
+				if (resumeRequest == null) return null;
+				return getObject(resumeRequest);
+			}
+
 			@Override
 			public boolean needIntegrityCheck() {
 				return getObjectRequest.getRange()== null;
@@ -23,6 +23,11 @@ import java.io.OutputStream;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
@@ -34,10 +39,12 @@ import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.AmazonWebServiceRequest;
 import com.amazonaws.ClientConfiguration;
+import com.amazonaws.ExecutorConfiguration;
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.AWSCredentialsProvider;
-import com.amazonaws.services.s3.internal.crypto.ByteRangeCapturingInputStream;
+import com.amazonaws.internal.BoundedExecutor;
 import com.amazonaws.services.s3.internal.crypto.CipherFactory;
+import com.amazonaws.services.s3.internal.crypto.ContentKeyCache;
 import com.amazonaws.services.s3.internal.crypto.EncryptedUploadContext;
 import com.amazonaws.services.s3.internal.crypto.EncryptionInstruction;
 import com.amazonaws.services.s3.internal.crypto.EncryptionUtils;
@@ -75,6 +82,25 @@ public class AmazonS3EncryptionClient extends AmazonS3Client {
     private EncryptionMaterialsProvider encryptionMaterialsProvider;
     private CryptoConfiguration cryptoConfig;
 
+    /** Decrypted envelope keys of recently read objects */
+    private ContentKeyCache contentKeyCache;
+
+    /** Number of instruction files retrieved concurrently with their object */
+    private final AtomicLong instructionFilePrefetchCount = new AtomicLong();
+
+    /** The maximum number of instruction files retrieved in the background at the same time */
+    private static final int MAX_INSTRUCTION_FILE_PREFETCHES = 10;
+
+    /**
+     * Retrieves instruction files in the background. It belongs to this client
+     * and only ever runs instruction file GETs, so a prefetch never waits for
+     * a thread held by a task that is itself waiting.
+     */
+    private final BoundedExecutor instructionFilePrefetchExecutor = new BoundedExecutor(new ExecutorConfiguration()
+            .withMaxThreads(MAX_INSTRUCTION_FILE_PREFETCHES)
+            .withMaxQueuedTasks(MAX_INSTRUCTION_FILE_PREFETCHES)
+            .withThreadNamePrefix("s3-encryption-instruction-file-prefetch"));
+
     private static final String USER_AGENT = AmazonS3EncryptionClient.class.getName() + "/" + VersionInfoUtils.getVersion();
 
     /** Shared logger for encryption client events */
@@ -372,6 +398,7 @@ public class AmazonS3EncryptionClient extends AmazonS3Client {
         assertParameterNotNull(cryptoConfig, "CryptoConfiguration parameter must not be null.");
         this.encryptionMaterialsProvider = encryptionMaterialsProvider;
         this.cryptoConfig = cryptoConfig;
+        this.contentKeyCache = new ContentKeyCache(cryptoConfig.getContentKeyCacheSize(), cryptoConfig.getContentKeyCacheTtl());
     }
 
     public AmazonS3EncryptionClient(AWSCredentialsProvider credentialsProvider,
@@ -383,6 +410,7 @@ public class AmazonS3EncryptionClient extends AmazonS3Client {
         assertParameterNotNull(cryptoConfig, "CryptoConfiguration parameter must not be null.");
         this.encryptionMaterialsProvider = encryptionMaterialsProvider;
         this.cryptoConfig = cryptoConfig;
+        this.contentKeyCache = new ContentKeyCache(cryptoConfig.getContentKeyCacheSize(), cryptoConfig.getContentKeyCacheTtl());
     }
 
     /* (non-Javadoc)
@@ -418,25 +446,43 @@ public class AmazonS3EncryptionClient extends AmazonS3Client {
             getObjectRequest.setRange(adjustedCryptoRange[0], adjustedCryptoRange[1]);
         }
 
+        // In InstructionFile mode the object most likely has an instruction file, so retrieve it
+        // at the same time as the object instead of after it.
+        InstructionFilePrefetch prefetch = null;
+        if (this.cryptoConfig.getStorageMode() == CryptoStorageMode.InstructionFile) {
+            prefetch = prefetchInstructionFile(getObjectRequest);
+        }
+
         // Get the object from S3
-        S3Object retrievedObject = super.getObject(getObjectRequest);
+        S3Object retrievedObject;
+        try {
+            retrievedObject = super.getObject(getObjectRequest);
+        } catch (RuntimeException e) {
+            if (prefetch != null) prefetch.abandon();
+            throw e;
+        }
 
         // If the caller has specified constraints, it's possible that super.getObject(...)
         // would return null, so we simply return null as well.
-        if (retrievedObject == null) return null;
+        if (retrievedObject == null) {
+            if (prefetch != null) prefetch.abandon();
+            return null;
+        }
 
+        long startingByte = (adjustedCryptoRange == null) ? 0 : adjustedCryptoRange[0];
         S3Object objectToBeReturned;
         try {
             // Check if encryption info is in object metadata
             if (EncryptionUtils.isEncryptionInfoInMetadata(retrievedObject)) {
-                objectToBeReturned = decryptObjectUsingMetadata(retrievedObject);
+                if (prefetch != null) prefetch.abandon();
+                objectToBeReturned = decryptObjectUsingMetadata(retrievedObject, startingByte);
             } else {
                 // Check if encrypted info is in an instruction file
                 S3Object instructionFile = null;
                 try {
-                    instructionFile = getInstructionFile(getObjectRequest);
+                    instructionFile = (prefetch != null) ? prefetch.getInstructionFile() : getInstructionFile(getObjectRequest);
                     if (EncryptionUtils.isEncryptionInfoInInstructionFile(instructionFile)) {
-                        objectToBeReturned = decryptObjectUsingInstructionFile(retrievedObject, instructionFile);
+                        objectToBeReturned = decryptObjectUsingInstructionFile(retrievedObject, instructionFile, startingByte);
                     } else {
                         // The object was not encrypted to begin with.  Return the object without decrypting it.
                         log.warn(String.format("Unable to detect encryption information for object '%s' in bucket '%s'. " +
@@ -452,6 +498,7 @@ public class AmazonS3EncryptionClient extends AmazonS3Client {
             }
         } catch (AmazonClientException ace) {
             // If we're unable to set up the decryption, make sure we close the HTTP connection
+            if (prefetch != null) prefetch.abandon();
             try {retrievedObject.getObjectContent().close();} catch (Exception e) {}
             throw ace;
         }
@@ -539,7 +586,8 @@ public class AmazonS3EncryptionClient extends AmazonS3Client {
             Cipher symmetricCipher = EncryptionUtils.createSymmetricCipher(
                     encryptedUploadContext.getEnvelopeEncryptionKey(),
                     Cipher.ENCRYPT_MODE, cryptoConfig.getCryptoProvider(),
-                    encryptedUploadContext.getFirstInitializationVector());
+                    encryptedUploadContext.getFirstInitializationVector(),
+                    JceEncryptionConstants.COUNTER_MODE_SYMMETRIC_CIPHER_METHOD);
 
             EncryptionMaterials encryptionMaterials = encryptionMaterialsProvider.getEncryptionMaterials();
 
@@ -565,9 +613,11 @@ public class AmazonS3EncryptionClient extends AmazonS3Client {
 
         appendUserAgent(initiateMultipartUploadRequest, USER_AGENT);
 
-        // Generate a one-time use symmetric key and initialize a cipher to encrypt object data
+        // Generate a one-time use symmetric key and initialize a cipher to encrypt object data.  Parts are
+        // encrypted in counter mode, so that each part can be encrypted without the ones before it.
         SecretKey envelopeSymmetricKey = EncryptionUtils.generateOneTimeUseSymmetricKey();
-        Cipher symmetricCipher = EncryptionUtils.createSymmetricCipher(envelopeSymmetricKey, Cipher.ENCRYPT_MODE, cryptoConfig.getCryptoProvider(), null);
+        Cipher symmetricCipher = EncryptionUtils.createSymmetricCipher(envelopeSymmetricKey, Cipher.ENCRYPT_MODE,
+                cryptoConfig.getCryptoProvider(), null, JceEncryptionConstants.COUNTER_MODE_SYMMETRIC_CIPHER_METHOD);
 
         if (cryptoConfig.getStorageMode() == CryptoStorageMode.ObjectMetadata) {
       EncryptionMaterials encryptionMaterials = encryptionMaterialsProvider.getEncryptionMaterials();
@@ -583,7 +633,6 @@ public class AmazonS3EncryptionClient extends AmazonS3Client {
 
         InitiateMultipartUploadResult result = super.initiateMultipartUpload(initiateMultipartUploadRequest);
         EncryptedUploadContext encryptedUploadContext = new EncryptedUploadContext(initiateMultipartUploadRequest.getBucketName(), initiateMultipartUploadRequest.getKey(), envelopeSymmetricKey);
-        encryptedUploadContext.setNextInitializationVector(symmetricCipher.getIV());
         encryptedUploadContext.setFirstInitializationVector(symmetricCipher.getIV());
         currentMultipartUploadSecretKeys.put(result.getUploadId(), encryptedUploadContext);
 
@@ -594,11 +643,21 @@ public class AmazonS3EncryptionClient extends AmazonS3Client {
      * {@inheritDoc}
      *
      * <p>
-     * <b>NOTE:</b> Because the encryption process requires context from block
-     * N-1 in order to encrypt block N, parts uploaded with the
-     * AmazonS3EncryptionClient (as opposed to the normal AmazonS3Client) must
-     * be uploaded serially, and in order. Otherwise, the previous encryption
-     * context isn't available to use when encrypting the current part.
+     * <b>NOTE:</b> Parts are encrypted in counter mode, starting from the
+     * counter block of their offset in the object, which is worked out from
+     * the part number: a part follows the previous part when it has been
+     * uploaded, and otherwise all the parts but the last are taken to have the
+     * same size. Parts of the same size can therefore be uploaded concurrently
+     * and in any order, while parts of different sizes must be uploaded in
+     * order: once a part size has been seen, a part of another size, other
+     * than the last part, is only accepted when all the parts before it have
+     * been uploaded and none after it. Every part but the last must be a
+     * multiple of the cipher block size.
+     * <p>
+     * Counter mode doesn't authenticate the data, so a modified object
+     * decrypts without any error. Clients older than this one don't know that
+     * the object was encrypted in counter mode, and don't decrypt it
+     * correctly.
      */
     @Override
     public UploadPartResult uploadPart(UploadPartRequest uploadPartRequest)
@@ -608,55 +667,41 @@ public class AmazonS3EncryptionClient extends AmazonS3Client {
 
         boolean isLastPart = uploadPartRequest.isLastPart();
         String uploadId = uploadPartRequest.getUploadId();
+        int cipherBlockSize = JceEncryptionConstants.SYMMETRIC_CIPHER_BLOCK_SIZE;
 
-        boolean partSizeMultipleOfCipherBlockSize = uploadPartRequest.getPartSize() % JceEncryptionConstants.SYMMETRIC_CIPHER_BLOCK_SIZE == 0;
+        boolean partSizeMultipleOfCipherBlockSize = uploadPartRequest.getPartSize() % cipherBlockSize == 0;
         if (!isLastPart && !partSizeMultipleOfCipherBlockSize) {
             throw new AmazonClientException("Invalid part size: part sizes for encrypted multipart uploads must be multiples " +
-                    "of the cipher block size (" + JceEncryptionConstants.SYMMETRIC_CIPHER_BLOCK_SIZE + ") with the exception of the last part.  " +
-                    "Otherwise encryption adds extra padding that will corrupt the final object.");
+                    "of the cipher block size (" + cipherBlockSize + ") with the exception of the last part.  " +
+                    "Otherwise the next part can't continue the encrypted data where this one ends.");
         }
 
-        // Generate the envelope symmetric key and initialize a cipher to encrypt the object's data
         EncryptedUploadContext encryptedUploadContext = currentMultipartUploadSecretKeys.get(uploadId);
         if (encryptedUploadContext == null) throw new AmazonClientException("No client-side information available on upload ID " + uploadId);
 
-        SecretKey envelopeSymmetricKey = encryptedUploadContext.getEnvelopeEncryptionKey();
-        byte[] iv = encryptedUploadContext.getNextInitializationVector();
-        CipherFactory cipherFactory = new CipherFactory(envelopeSymmetricKey, Cipher.ENCRYPT_MODE, iv, this.cryptoConfig.getCryptoProvider());
+        // Find where the part starts in the object, and start the counter at that block.  The offset
+        // always comes from the upload context, so that no two parts are encrypted with the same
+        // counter blocks.
+        long partOffset = encryptedUploadContext.reservePart(uploadPartRequest.getPartNumber(),
+                uploadPartRequest.getPartSize(), isLastPart);
+        byte[] counterBlock = EncryptionUtils.getCounterBlock(encryptedUploadContext.getFirstInitializationVector(), partOffset);
+        CipherFactory cipherFactory = new CipherFactory(encryptedUploadContext.getEnvelopeEncryptionKey(), Cipher.ENCRYPT_MODE,
+                counterBlock, this.cryptoConfig.getCryptoProvider(), JceEncryptionConstants.COUNTER_MODE_SYMMETRIC_CIPHER_METHOD);
 
-        // Create encrypted input stream
+        // Create encrypted input stream.  Counter mode doesn't pad the data, so the part size doesn't change.
         InputStream encryptedInputStream = EncryptionUtils.getEncryptedInputStream(uploadPartRequest, cipherFactory);
         uploadPartRequest.setInputStream(encryptedInputStream);
 
-        // The last part of the multipart upload will contain extra padding from the encryption process, which
-        // changes the
-        if (uploadPartRequest.isLastPart()) {
-            // We only change the size of the last part
-            long cryptoContentLength = EncryptionUtils.calculateCryptoContentLength(cipherFactory.createCipher(), uploadPartRequest);
-            if (cryptoContentLength > 0) uploadPartRequest.setPartSize(cryptoContentLength);
-
-            if (encryptedUploadContext.hasFinalPartBeenSeen()) {
-                throw new AmazonClientException("This part was specified as the last part in a multipart upload, but a previous part was already marked as the last part.  " +
-                        "Only the last part of the upload should be marked as the last part, otherwise it will cause the encrypted data to be corrupted.");
-            }
-
-            encryptedUploadContext.setHasFinalPartBeenSeen(true);
+        if (isLastPart && !encryptedUploadContext.markFinalPartSeen()) {
+            throw new AmazonClientException("This part was specified as the last part in a multipart upload, but a previous part was already marked as the last part.  " +
+                    "Only the last part of the upload should be marked as the last part, otherwise it will cause the encrypted data to be corrupted.");
         }
 
         // Treat all encryption requests as input stream upload requests, not as file upload requests.
         uploadPartRequest.setFile(null);
         uploadPartRequest.setFileOffset(0);
 
-        UploadPartResult result = super.uploadPart(uploadPartRequest);
-
-        if (encryptedInputStream instanceof ByteRangeCapturingInputStream) {
-            ByteRangeCapturingInputStream bris = (ByteRangeCapturingInputStream)encryptedInputStream;
-            encryptedUploadContext.setNextInitializationVector(bris.getBlock());
-        } else {
-            throw new AmazonClientException("Unable to access last block of encrypted data");
-        }
-
-        return result;
+        return super.uploadPart(uploadPartRequest);
     }
 
     @Override
@@ -671,6 +716,46 @@ public class AmazonS3EncryptionClient extends AmazonS3Client {
         return super.copyPart(copyPartRequest);
     }
 
+    /**
+     * Returns the number of times a decrypted envelope key was found in the
+     * content key cache, each of which saved a decryption with the master key.
+     *
+     * @return The number of content key cache hits.
+     */
+    public long getContentKeyCacheHitCount() {
+        return contentKeyCache.getHitCount();
+    }
+
+    /**
+     * Returns the number of times an envelope key had to be decrypted with the
+     * master key because it wasn't in the content key cache.
+     *
+     * @return The number of content key cache misses.
+     */
+    public long getContentKeyCacheMissCount() {
+        return contentKeyCache.getMissCount();
+    }
+
+    /**
+     * Returns the number of instruction files that were retrieved at the same
+     * time as their object, instead of in a second round trip after it.
+     *
+     * @return The number of prefetched instruction files.
+     */
+    public long getInstructionFilePrefetchCount() {
+        return instructionFilePrefetchCount.get();
+    }
+
+    /**
+     * Shuts down this client, including the threads it uses to retrieve
+     * instruction files in the background.
+     */
+    @Override
+    public void shutdown() {
+        instructionFilePrefetchExecutor.shutdownNow();
+        super.shutdown();
+    }
+
     /*
      * Private helper methods
      */
@@ -746,15 +831,17 @@ public class AmazonS3EncryptionClient extends AmazonS3Client {
      *
      * @param object
      *      The S3Object to be decrypted.
+     * @param startingByte
+     *      The position of the first retrieved byte in the whole object.
      * @return
      *      An S3Object with decrypted object contents.  If decryption is not possible, returns null.
      */
-    private S3Object decryptObjectUsingMetadata(S3Object object) {
+    private S3Object decryptObjectUsingMetadata(S3Object object, long startingByte) {
         // Create an instruction object from the object headers
-        EncryptionInstruction instruction = EncryptionUtils.buildInstructionFromObjectMetadata( object, this.encryptionMaterialsProvider, this.cryptoConfig.getCryptoProvider() );
+        EncryptionInstruction instruction = EncryptionUtils.buildInstructionFromObjectMetadata( object, this.encryptionMaterialsProvider, this.cryptoConfig.getCryptoProvider(), this.contentKeyCache );
 
         // Decrypt the object file with the instruction
-        return EncryptionUtils.decryptObjectUsingInstruction(object, instruction);
+        return EncryptionUtils.decryptObjectUsingInstruction(object, instruction, startingByte);
     }
 
     /**
@@ -764,15 +851,17 @@ public class AmazonS3EncryptionClient extends AmazonS3Client {
      *      The S3Object to be decrypted.
      * @param instructionFile
      *      The S3Object instruction file to be used to decrypt the object.
+     * @param startingByte
+     *      The position of the first retrieved byte in the whole object.
      * @return
      *      An S3Object with decrypted object contents.
      */
-    private S3Object decryptObjectUsingInstructionFile(S3Object object, S3Object instructionFile) {
+    private S3Object decryptObjectUsingInstructionFile(S3Object object, S3Object instructionFile, long startingByte) {
         // Create an instruction object from the retrieved instruction file
-        EncryptionInstruction instruction = EncryptionUtils.buildInstructionFromInstructionFile(instructionFile, this.encryptionMaterialsProvider, this.cryptoConfig.getCryptoProvider());
+        EncryptionInstruction instruction = EncryptionUtils.buildInstructionFromInstructionFile(instructionFile, this.encryptionMaterialsProvider, this.cryptoConfig.getCryptoProvider(), this.contentKeyCache);
 
         // Decrypt the object file with the instruction
-        return EncryptionUtils.decryptObjectUsingInstruction(object, instruction);
+        return EncryptionUtils.decryptObjectUsingInstruction(object, instruction, startingByte);
     }
 
     /**
@@ -795,6 +884,89 @@ public class AmazonS3EncryptionClient extends AmazonS3Client {
         }
     }
 
+    /**
+     * Starts retrieving the instruction file of an object in the background.
+     * Returns null if too many instruction files are already being retrieved,
+     * in which case the instruction file is retrieved after the object as
+     * usual.
+     */
+    private InstructionFilePrefetch prefetchInstructionFile(GetObjectRequest getObjectRequest) {
+        InstructionFilePrefetch prefetch = new InstructionFilePrefetch(getObjectRequest);
+        try {
+            prefetch.future = instructionFilePrefetchExecutor.submit(prefetch);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+        instructionFilePrefetchCount.incrementAndGet();
+        return prefetch;
+    }
+
+    /**
+     * Retrieves an instruction file in the background. An instruction file
+     * that turns out not to be needed is closed as soon as it's available, so
+     * that its HTTP connection is released.
+     */
+    private class InstructionFilePrefetch implements Callable<S3Object> {
+        private final GetObjectRequest getObjectRequest;
+        private Future<S3Object> future;
+
+        /** Guarded by this */
+        private S3Object instructionFile;
+        private boolean abandoned;
+
+        InstructionFilePrefetch(GetObjectRequest getObjectRequest) {
+            this.getObjectRequest = getObjectRequest;
+        }
+
+        public S3Object call() {
+            S3Object retrieved = AmazonS3EncryptionClient.this.getInstructionFile(getObjectRequest);
+            synchronized (this) {
+                if (abandoned) {
+                    closeQuietly(retrieved);
+                    return null;
+                }
+                instructionFile = retrieved;
+            }
+            return retrieved;
+        }
+
+        /**
+         * Waits for the instruction file, which the caller must close, and
+         * returns it, or null if the object doesn't have one.
+         */
+        S3Object getInstructionFile() {
+            try {
+                S3Object retrieved = future.get();
+                synchronized (this) {
+                    instructionFile = null;
+                }
+                return retrieved;
+            } catch (InterruptedException e) {
+                abandon();
+                Thread.currentThread().interrupt();
+                throw new AmazonClientException("Interrupted while retrieving the instruction file", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+                throw new AmazonClientException("Unable to retrieve the instruction file: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+
+        /**
+         * Discards the instruction file, now or when it arrives.
+         */
+        synchronized void abandon() {
+            abandoned = true;
+            closeQuietly(instructionFile);
+            instructionFile = null;
+        }
+
+        private void closeQuietly(S3Object object) {
+            if (object != null) {
+                try {object.getObjectContent().close();} catch (Exception e) {}
+            }
+        }
+    }
+
     /**
      * Asserts that the specified parameter value is not null and if it is,
      * throws an IllegalArgumentException with the specified error message.
@@ -116,6 +116,13 @@ public interface Headers {
     /** Initialization vector (IV) header that is used in the symmetric and envelope encryption mechanisms */
     public static final String CRYPTO_IV = "x-amz-iv";
 
+    /**
+     * Symmetric cipher transformation used to encrypt the object data, if it
+     * isn't the default AES/CBC/PKCS5Padding. The only other value accepted
+     * when decrypting is AES/CTR/NoPadding, used for multipart uploads.
+     */
+    public static final String CRYPTO_CEK_ALGORITHM = "x-amz-cek-alg";
+
     /** JSON-encoded description of encryption materials used during encryption */
     public static final String MATERIALS_DESCRIPTION = "x-amz-matdesc";
 
@@ -19,11 +19,11 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.http.Header;
 
 import com.amazonaws.AmazonWebServiceResponse;
 import com.amazonaws.ResponseMetadata;
@@ -82,8 +82,8 @@ public abstract class AbstractS3ResponseHandler<T>
      */
     protected AmazonWebServiceResponse<T> parseResponseMetadata(HttpResponse response) {
         AmazonWebServiceResponse<T> awsResponse = new AmazonWebServiceResponse<T>();
-        String awsRequestId = response.getHeaders().get(Headers.REQUEST_ID);
-        String hostId = response.getHeaders().get(Headers.EXTENDED_REQUEST_ID);
+        String awsRequestId = response.getRequestId();
+        String hostId = response.getHeader(Headers.EXTENDED_REQUEST_ID);
 
         Map<String, String> metadataMap = new HashMap<String, String>();
         metadataMap.put(ResponseMetadata.AWS_REQUEST_ID, awsRequestId);
@@ -104,8 +104,10 @@ public abstract class AbstractS3ResponseHandler<T>
      *            The metadata object to populate from the response's headers.
      */
     protected void populateObjectMetadata(HttpResponse response, ObjectMetadata metadata) {
-        for (Entry<String, String> header : response.getHeaders().entrySet()) {
-            String key = header.getKey();
+        // Reads the headers of the underlying response without copying them
+        // into a map, and uses the values the response has already parsed
+        for (Header header : response.getAllHeaders()) {
+            String key = header.getName();
             if (key.startsWith(Headers.S3_USER_METADATA_PREFIX)) {
                 key = key.substring(Headers.S3_USER_METADATA_PREFIX.length());
                 metadata.addUserMetadata(key, header.getValue());
@@ -113,15 +115,16 @@ public abstract class AbstractS3ResponseHandler<T>
                 // ignore...
             } else if (key.equals(Headers.LAST_MODIFIED)) {
                 try {
-                    metadata.setHeader(key, ServiceUtils.parseRfc822Date(header.getValue()));
+                    metadata.setHeader(key, response.getLastModified());
                 } catch (ParseException pe) {
                     log.warn("Unable to parse last modified date: " + header.getValue(), pe);
                 }
             } else if (key.equals(Headers.CONTENT_LENGTH)) {
-                try {
-                    metadata.setHeader(key, Long.parseLong(header.getValue()));
-                } catch (NumberFormatException nfe) {
-                    log.warn("Unable to parse content length: " + header.getValue(), nfe);
+                long contentLength = response.getContentLength();
+                if (contentLength != -1) {
+                    metadata.setHeader(key, contentLength);
+                } else {
+                    log.warn("Unable to parse content length: " + header.getValue());
                 }
             } else if (key.equals(Headers.ETAG)) {
                 metadata.setHeader(key, ServiceUtils.removeQuotes(header.getValue()));
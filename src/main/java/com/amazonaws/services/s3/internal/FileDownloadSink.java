@@ -0,0 +1,205 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import com.amazonaws.AmazonClientException;
+
+/**
+ * Writes downloaded object data directly to a file through a
+ * {@link FileChannel}, using explicit write offsets and a reusable,
+ * per-thread direct buffer. The MD5 digest of the data is computed in the
+ * same pass, so the file doesn't have to be read back to validate the
+ * download.
+ * <p>
+ * The sink keeps track of how many bytes have been written, which lets a
+ * failed download be resumed with a ranged GET from {@link #getPosition()}
+ * without discarding the data (or the digest state) already on disk.
+ * <p>
+ * Instances are not thread safe.
+ */
+public class FileDownloadSink {
+
+    /** Size of the direct buffer used to move data from the socket to disk */
+    private static final int BUFFER_SIZE = 128 * 1024;
+
+    /**
+     * Direct buffers are expensive to allocate and are only reclaimed by the
+     * garbage collector, so each download thread reuses its own.
+     */
+    private static final ThreadLocal<ByteBuffer> buffers = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+    };
+
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel channel;
+    private final MessageDigest md5;
+
+    /** The offset in the file at which the next byte will be written */
+    private long position;
+
+    /**
+     * Opens a new sink writing to the specified file. Any existing contents
+     * of the file are discarded.
+     *
+     * @param destinationFile
+     *            The file to store the object's data in.
+     * @param computeMd5
+     *            Whether the MD5 digest of the written data should be
+     *            computed.
+     */
+    public FileDownloadSink(File destinationFile, boolean computeMd5) {
+        this.file = destinationFile;
+
+        // attempt to create the parent if it doesn't exist
+        File parentDirectory = destinationFile.getParentFile();
+        if ( parentDirectory != null && !parentDirectory.exists() ) {
+            parentDirectory.mkdirs();
+        }
+
+        try {
+            this.md5 = computeMd5 ? MessageDigest.getInstance("MD5") : null;
+        } catch (NoSuchAlgorithmException e) {
+            throw new AmazonClientException("Unable to compute MD5 hash: " + e.getMessage(), e);
+        }
+
+        try {
+            this.randomAccessFile = new RandomAccessFile(destinationFile, "rw");
+            this.channel = randomAccessFile.getChannel();
+            this.channel.truncate(0);
+        } catch (IOException e) {
+            close();
+            throw new AmazonClientException(
+                    "Unable to open file for writing: " + destinationFile.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Copies all the remaining data from the specified stream into the file,
+     * starting at the current position.
+     *
+     * @param input
+     *            The stream containing the object's data.
+     *
+     * @return The number of bytes written.
+     *
+     * @throws IOException
+     *             If the data couldn't be read from the stream or written to
+     *             the file. All the data written before the failure is
+     *             accounted for in {@link #getPosition()}.
+     */
+    public long transferFrom(InputStream input) throws IOException {
+        ReadableByteChannel source = Channels.newChannel(input);
+        ByteBuffer buffer = buffers.get();
+        buffer.clear();
+
+        long startPosition = position;
+        try {
+            // Socket reads only return a few KB at a time, so the buffer is
+            // only written out to the file once it is full
+            while (source.read(buffer) > -1) {
+                if (!buffer.hasRemaining()) flush(buffer);
+            }
+        } catch (IOException e) {
+            // Keep what was read before the failure, so that the download
+            // can resume from getPosition()
+            try {
+                flush(buffer);
+            } catch (IOException flushFailure) {
+                // The read failure is the one worth reporting
+            }
+            throw e;
+        }
+        flush(buffer);
+
+        // Discard anything left over from a previous, longer file
+        channel.truncate(position);
+        return position - startPosition;
+    }
+
+    private void flush(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        ByteBuffer written = buffer.duplicate();
+        try {
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        } finally {
+            // Only digest what made it to the file, which is what a resumed
+            // download continues from
+            if (md5 != null) {
+                written.limit(buffer.position());
+                md5.update(written);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Discards everything written so far, so that the download can be
+     * restarted from the beginning of the object.
+     */
+    public void reset() throws IOException {
+        channel.truncate(0);
+        position = 0;
+        if (md5 != null) md5.reset();
+    }
+
+    /**
+     * Returns the number of bytes written to the file, which is also the
+     * offset in the object at which a resumed download should start.
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Returns the MD5 digest of all the data written to the file, or null if
+     * this sink wasn't asked to compute one. Calling this method resets the
+     * digest.
+     */
+    public byte[] getMd5Digest() {
+        return md5 == null ? null : md5.digest();
+    }
+
+    /**
+     * Returns the file this sink is writing to.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Closes the underlying file, quietly ignoring any errors.
+     */
+    public void close() {
+        try {if (channel != null) channel.close();} catch (Exception e) {}
+        try {if (randomAccessFile != null) randomAccessFile.close();} catch (Exception e) {}
+    }
+}
@@ -45,7 +45,7 @@ public class ObjectExpirationHeaderHandler<T extends ObjectExpirationResult> imp
      */
     @Override
     public void handle(T result, HttpResponse response) {
-        String expirationHeader = response.getHeaders().get(Headers.EXPIRATION);
+        String expirationHeader = response.getHeader(Headers.EXPIRATION);
         if ( expirationHeader != null ) {
             result.setExpirationTime(parseDate(expirationHeader));
             result.setExpirationTimeRuleId(parseRuleId(expirationHeader));
@@ -43,7 +43,7 @@ public class ObjectRestoreHeaderHandler<T extends ObjectRestoreResult> implement
      */
     @Override
     public void handle(T result, HttpResponse response) {
-        String restoreHeader = response.getHeaders().get(Headers.RESTORE);
+        String restoreHeader = response.getHeader(Headers.RESTORE);
         if ( restoreHeader != null ) {
             result.setRestoreExpirationTime(parseDate(restoreHeader));
             result.setOngoingRestore(parseBoolean(restoreHeader));
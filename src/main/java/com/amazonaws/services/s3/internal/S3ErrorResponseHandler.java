@@ -50,8 +50,8 @@ public class S3ErrorResponseHandler
          */
         if (errorResponse.getContent() == null
                 || errorResponse.getRequest().getHttpMethod() == HttpMethodName.HEAD) {
-            String requestId = errorResponse.getHeaders().get(Headers.REQUEST_ID);
-            String extendedRequestId = errorResponse.getHeaders().get(Headers.EXTENDED_REQUEST_ID);
+            String requestId = errorResponse.getHeader(Headers.REQUEST_ID);
+            String extendedRequestId = errorResponse.getHeader(Headers.EXTENDED_REQUEST_ID);
             AmazonS3Exception ase = new AmazonS3Exception(errorResponse.getStatusText());
             ase.setStatusCode(errorResponse.getStatusCode());
             ase.setRequestId(requestId);
@@ -40,13 +40,13 @@ public class S3ObjectResponseHandler extends AbstractS3ResponseHandler<S3Object>
          */
         S3Object object = new S3Object();
         AmazonWebServiceResponse<S3Object> awsResponse = parseResponseMetadata(response);
-        if (response.getHeaders().get(Headers.REDIRECT_LOCATION) != null) {
-            object.setRedirectLocation(response.getHeaders().get(Headers.REDIRECT_LOCATION));
+        if (response.getHeader(Headers.REDIRECT_LOCATION) != null) {
+            object.setRedirectLocation(response.getHeader(Headers.REDIRECT_LOCATION));
         }
         ObjectMetadata metadata = object.getObjectMetadata();
         populateObjectMetadata(response, metadata);
         boolean hasServerSideCalculatedChecksum = !ServiceUtils.isMultipartUploadETag(metadata.getETag());
-        boolean responseContainsEntireObject = response.getHeaders().get("Content-Range") == null;
+        boolean responseContainsEntireObject = response.getHeader("Content-Range") == null;
 
         if (hasServerSideCalculatedChecksum && responseContainsEntireObject) {
             byte[] expectedChecksum = BinaryUtils.fromHex(metadata.getETag());
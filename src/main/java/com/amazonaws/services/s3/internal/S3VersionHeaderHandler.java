@@ -33,6 +33,6 @@ public class S3VersionHeaderHandler implements HeaderHandler<CopyObjectResultHan
      */
     @Override
     public void handle(CopyObjectResultHandler result, HttpResponse response) {
-        result.setVersionId(response.getHeaders().get(Headers.S3_VERSION_ID));
+        result.setVersionId(response.getHeader(Headers.S3_VERSION_ID));
     }
 }
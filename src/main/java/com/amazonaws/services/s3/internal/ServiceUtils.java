@@ -17,12 +17,8 @@
  */
 package com.amazonaws.services.s3.internal;
 
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -41,10 +37,10 @@ import org.apache.commons.logging.LogFactory;
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.Request;
 import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.util.BinaryUtils;
 import com.amazonaws.util.DateUtils;
-import com.amazonaws.util.Md5Utils;
 
 /**
  * General utility methods used throughout the AWS S3 Java client.
@@ -228,40 +224,54 @@ public class ServiceUtils {
      *
      */
     public static void downloadObjectToFile(S3Object s3Object, File destinationFile, boolean performIntegrityCheck) {
-
-        // attempt to create the parent if it doesn't exist
-        File parentDirectory = destinationFile.getParentFile();
-        if ( parentDirectory != null && !parentDirectory.exists() ) {
-            parentDirectory.mkdirs();
+        FileDownloadSink sink = new FileDownloadSink(destinationFile, needsClientSideHash(s3Object));
+        try {
+            transferObjectToSink(s3Object, sink);
+        } catch (IOException e) {
+            throw new AmazonClientException(
+                    "Unable to store object contents to disk: " + e.getMessage(), e);
+        } finally {
+            sink.close();
         }
 
-        OutputStream outputStream = null;
+        verifyDownloadIntegrity(s3Object, sink, performIntegrityCheck);
+    }
+
+    /**
+     * Copies the contents of the specified S3Object into the sink, aborting
+     * the underlying HTTP request if the copy fails.
+     */
+    private static void transferObjectToSink(S3Object s3Object, FileDownloadSink sink) throws IOException {
         try {
-            outputStream = new BufferedOutputStream(new FileOutputStream(destinationFile));
-            byte[] buffer = new byte[1024*10];
-            int bytesRead;
-            while ((bytesRead = s3Object.getObjectContent().read(buffer)) > -1) {
-                outputStream.write(buffer, 0, bytesRead);
-            }
+            sink.transferFrom(s3Object.getObjectContent());
         } catch (IOException e) {
             try {
                 s3Object.getObjectContent().abort();
             } catch ( IOException abortException ) {
                 log.warn("Couldn't abort stream", e);
             }
-            throw new AmazonClientException(
-                    "Unable to store object contents to disk: " + e.getMessage(), e);
+            throw e;
         } finally {
-            try {outputStream.close();} catch (Exception e) {}
             try {s3Object.getObjectContent().close();} catch (Exception e) {}
         }
+    }
 
+    /**
+     * Returns true if the ETag of the specified object is the MD5 digest of its
+     * data, so that the client side hash is worth computing. Multipart
+     * Uploads don't have an MD5 calculated on the service side.
+     */
+    private static boolean needsClientSideHash(S3Object s3Object) {
+        String eTag = s3Object.getObjectMetadata().getETag();
+        return eTag != null && ServiceUtils.isMultipartUploadETag(eTag) == false;
+    }
+
+    private static void verifyDownloadIntegrity(S3Object s3Object, FileDownloadSink sink, boolean performIntegrityCheck) {
         byte[] clientSideHash = null;
         byte[] serverSideHash = null;
         try {
-            // Multipart Uploads don't have an MD5 calculated on the service side
-            if (ServiceUtils.isMultipartUploadETag(s3Object.getObjectMetadata().getETag()) == false) {
-                clientSideHash = Md5Utils.computeMD5Hash(new FileInputStream(destinationFile));
+            clientSideHash = sink.getMd5Digest();
+            if (clientSideHash != null) {
                 serverSideHash = BinaryUtils.fromHex(s3Object.getObjectMetadata().getETag());
             }
         } catch (Exception e) {
@@ -271,7 +281,7 @@ public class ServiceUtils {
         if (performIntegrityCheck && clientSideHash != null && serverSideHash != null && !Arrays.equals(clientSideHash, serverSideHash)) {
             throw new AmazonClientException("Unable to verify integrity of data download.  " +
                     "Client calculated content hash didn't match hash calculated by Amazon S3.  " +
-                    "The data stored in '" + destinationFile.getAbsolutePath() + "' may be corrupt.");
+                    "The data stored in '" + sink.getFile().getAbsolutePath() + "' may be corrupt.");
         }
     }
     
@@ -298,12 +308,74 @@ public class ServiceUtils {
     	 */
     	public boolean needIntegrityCheck ();
     }
+
+    /**
+     * A {@link RetryableS3DownloadTask} that can also fetch the remainder of
+     * an object, so that a download that fails part way through can carry on
+     * from the last byte written to disk instead of starting over.
+     */
+    public interface ResumableS3DownloadTask extends RetryableS3DownloadTask {
+        /**
+         * Gets the remainder of the object previously returned by
+         * {@link #getS3ObjectStream()}, starting at the specified byte.
+         * Implementations should make sure the object hasn't changed since
+         * the first request (e.g. with a matching ETag constraint).
+         *
+         * @param previous
+         *            The object returned by the previous request.
+         * @param startingByte
+         *            The offset of the first byte to retrieve.
+         *
+         * @return The S3Object containing the rest of the object's data, or
+         *         null if the download can't be resumed and has to be
+         *         restarted from the beginning.
+         */
+        public S3Object getS3ObjectStreamFrom (S3Object previous, long startingByte);
+    }
     
+    /**
+     * Creates a request for the remainder of an object whose download stopped
+     * part way through. The new request only matches the same version of the
+     * object, so that data from different versions can't end up in the same
+     * file.
+     *
+     * @param originalRequest
+     *            The request used to start the download.
+     * @param previous
+     *            The object returned for the original request.
+     * @param startingByte
+     *            The offset of the first byte that hasn't been downloaded yet.
+     *
+     * @return A request for the rest of the object, or null if the original
+     *         request can't be resumed (e.g. because it already asked for a
+     *         range of the object).
+     */
+    public static GetObjectRequest createResumeRequest(GetObjectRequest originalRequest, S3Object previous, long startingByte) {
+        String eTag = previous.getObjectMetadata().getETag();
+        long contentLength = previous.getObjectMetadata().getContentLength();
+        if (originalRequest.getRange() != null || eTag == null || startingByte >= contentLength) {
+            return null;
+        }
+
+        GetObjectRequest resumeRequest = new GetObjectRequest(
+                originalRequest.getBucketName(), originalRequest.getKey(), originalRequest.getVersionId())
+            .withRange(startingByte, contentLength - 1)
+            .withMatchingETagConstraint(eTag)
+            .withResponseHeaders(originalRequest.getResponseHeaders())
+            .withProgressListener(originalRequest.getProgressListener());
+        resumeRequest.setRequestCredentials(originalRequest.getRequestCredentials());
+        return resumeRequest;
+    }
+
     /**
      * Gets an object stored in S3 and downloads it into the specified file.
      * This method includes the one-time retry mechanism after integrity check failure
      * on the downloaded file. It will also return immediately after getting null valued
      * S3Object (when getObject request does not meet the specified constraints).
+     * <p>
+     * If the task is a {@link ResumableS3DownloadTask} and the transfer fails
+     * part way through, the retry only requests the bytes that haven't been
+     * written to the file yet.
      * 
      * @param file
      * 			The file to store the object's data in.
@@ -314,36 +386,68 @@ public class ServiceUtils {
     public static S3Object retryableDownloadS3ObjectToFile (File file, RetryableS3DownloadTask retryableS3DownloadTask) { 	
     	boolean hasRetried = false;
         boolean needRetry = false;
-        S3Object s3Object;
-        do {
-        	s3Object = retryableS3DownloadTask.getS3ObjectStream();
-	        if ( s3Object == null )
-	        	return null;
-	        
-	        try {
-	        	ServiceUtils.downloadObjectToFile(s3Object, file, retryableS3DownloadTask.needIntegrityCheck());	
-            } catch (AmazonClientException ace) {
-            	// Determine whether an immediate retry is needed according to the captured AmazonClientException.
-            	// (There are three cases when downloadObjectToFile() throws AmazonClientException:
-            	// 		1) SocketException or SSLProtocolException when writing to disk (e.g. when user aborts the download)
-            	//		2) Other IOException when writing to disk
-            	//		3) MD5 hashes don't match
-            	// The current code will retry the download only when case 2) or 3) happens.
-            	if (ace.getCause() instanceof SocketException || ace.getCause() instanceof SSLProtocolException) {
-            		throw ace;
-            	} else {
-            		needRetry = true;
-                	if ( hasRetried )
-                		throw ace;
-                	else {
-                		log.info("Retry the download of object " + s3Object.getKey() + " (bucket " + s3Object.getBucketName() + ")", ace);
-                		hasRetried = true;
-                	}
-            	}	
-            } finally {
-            	try { s3Object.getObjectContent().abort(); } catch (IOException e) {}
-            }  
-        } while ( needRetry );
+        boolean resume = false;
+        // The object as returned by the first full request, used for the integrity check
+        S3Object s3Object = null;
+        FileDownloadSink sink = null;
+        try {
+            do {
+                needRetry = false;
+                S3Object currentObject = null;
+                if ( resume ) {
+                    currentObject = ((ResumableS3DownloadTask)retryableS3DownloadTask)
+                            .getS3ObjectStreamFrom(s3Object, sink.getPosition());
+                    if ( currentObject == null ) {
+                        log.info("Unable to resume the download of object " + s3Object.getKey()
+                                + " (bucket " + s3Object.getBucketName() + "), restarting it");
+                        resume = false;
+                    }
+                }
+                if ( !resume ) {
+                    currentObject = s3Object = retryableS3DownloadTask.getS3ObjectStream();
+                    if ( s3Object == null )
+                        return null;
+                }
+
+                try {
+                    if ( sink == null ) {
+                        sink = new FileDownloadSink(file, needsClientSideHash(s3Object));
+                    } else if ( !resume ) {
+                        sink.reset();
+                    }
+                    transferObjectToSink(currentObject, sink);
+                    verifyDownloadIntegrity(s3Object, sink, retryableS3DownloadTask.needIntegrityCheck());
+                } catch (IOException e) {
+                    AmazonClientException ace = new AmazonClientException(
+                            "Unable to store object contents to disk: " + e.getMessage(), e);
+                    // Determine whether an immediate retry is needed according to the captured IOException.
+                    // (There are two cases when the transfer throws an IOException:
+                    // 		1) SocketException or SSLProtocolException (e.g. when user aborts the download)
+                    //		2) Other IOException when reading the object or writing to disk
+                    // The current code will retry the download only when case 2) happens, resuming it
+                    // from the last byte written if the task allows it.)
+                    if ( e instanceof SocketException || e instanceof SSLProtocolException || hasRetried )
+                        throw ace;
+                    log.info("Retry the download of object " + s3Object.getKey() + " (bucket " + s3Object.getBucketName() + ")", ace);
+                    hasRetried = true;
+                    needRetry = true;
+                    resume = retryableS3DownloadTask instanceof ResumableS3DownloadTask && sink.getPosition() > 0;
+                } catch (AmazonClientException ace) {
+                    // The file couldn't be opened or the MD5 hashes don't match,
+                    // so the whole object has to be downloaded again
+                    if ( hasRetried )
+                        throw ace;
+                    log.info("Retry the download of object " + s3Object.getKey() + " (bucket " + s3Object.getBucketName() + ")", ace);
+                    hasRetried = true;
+                    needRetry = true;
+                    resume = false;
+                } finally {
+                    try { currentObject.getObjectContent().abort(); } catch (IOException e) {}
+                }
+            } while ( needRetry );
+        } finally {
+            if ( sink != null ) sink.close();
+        }
         return s3Object;
     }
 }
@@ -33,6 +33,7 @@ public class CipherFactory {
     private int cipherMode;
     private byte[] initVectorBytes;
     private Provider cryptoProvider;
+    private String cipherMethod;
 
 
     /**
@@ -51,10 +52,33 @@ public class CipherFactory {
      *            alternate crypto provider is to be used.
      */
     public CipherFactory(SecretKey symmetricKey, int cipherMode, byte[] initVectorBytes, Provider cryptoProvider) {
+        this(symmetricKey, cipherMode, initVectorBytes, cryptoProvider, JceEncryptionConstants.SYMMETRIC_CIPHER_METHOD);
+    }
+
+    /**
+     * Creates a new CipherFactory that will produce ciphers using the specified
+     * key, mode, IV, provider and cipher transformation.
+     *
+     * @param symmetricKey
+     *            The symmetric key used in the ciphers created by this factory.
+     * @param cipherMode
+     *            The mode indicating whether the created ciphers are for
+     *            encrypting or decrypting.
+     * @param initVectorBytes
+     *            The optional crypto IV used to initialize the ciphers.
+     * @param cryptoProvider
+     *            The optional Java crypto provider implementation, if an
+     *            alternate crypto provider is to be used.
+     * @param cipherMethod
+     *            The algorithm, mode and padding of the created ciphers, for
+     *            example "AES/CBC/PKCS5Padding".
+     */
+    public CipherFactory(SecretKey symmetricKey, int cipherMode, byte[] initVectorBytes, Provider cryptoProvider, String cipherMethod) {
         this.symmetricKey = symmetricKey;
         this.cipherMode = cipherMode;
         this.initVectorBytes = initVectorBytes;
         this.cryptoProvider = cryptoProvider;
+        this.cipherMethod = cipherMethod;
     }
 
     /**
@@ -66,7 +90,7 @@ public class CipherFactory {
      *         factory instance.
      */
     public Cipher createCipher() {
-        Cipher cipher = EncryptionUtils.createSymmetricCipher(symmetricKey, cipherMode, cryptoProvider, initVectorBytes);
+        Cipher cipher = EncryptionUtils.createSymmetricCipher(symmetricKey, cipherMode, cryptoProvider, initVectorBytes, cipherMethod);
 
         // If we weren't given an IV to use, make sure we store the one the first Cipher
         // used so we can use it for all future Ciphers created by this instance.
@@ -75,4 +99,38 @@ public class CipherFactory {
         return cipher;
     }
 
+    /**
+     * Returns the algorithm, mode and padding of the ciphers created by this
+     * factory.
+     */
+    public String getCipherMethod() {
+        return cipherMethod;
+    }
+
+    /**
+     * Returns true if the ciphers created by this factory run in counter mode,
+     * where any cipher block can be encrypted or decrypted without the blocks
+     * that precede it.
+     */
+    public boolean isCounterMode() {
+        return JceEncryptionConstants.COUNTER_MODE_SYMMETRIC_CIPHER_METHOD.equals(cipherMethod);
+    }
+
+    /**
+     * Returns a new counter mode CipherFactory whose ciphers start at the
+     * specified byte offset of the data encrypted by the ciphers of this
+     * factory.
+     *
+     * @param byteOffset
+     *            The offset of the first byte to encrypt or decrypt; must be
+     *            a multiple of the cipher block size.
+     */
+    public CipherFactory createCipherFactoryAtOffset(long byteOffset) {
+        if (!isCounterMode()) {
+            throw new IllegalStateException("Only counter mode ciphers can start at an arbitrary offset");
+        }
+        if (initVectorBytes == null) createCipher();
+        return new CipherFactory(symmetricKey, cipherMode,
+                EncryptionUtils.getCounterBlock(initVectorBytes, byteOffset), cryptoProvider, cipherMethod);
+    }
 }
\ No newline at end of file
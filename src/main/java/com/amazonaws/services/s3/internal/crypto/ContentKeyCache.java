@@ -0,0 +1,177 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.internal.crypto;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.crypto.SecretKey;
+
+/**
+ * A bounded cache of decrypted envelope (content) keys, keyed by the
+ * encrypted key bytes and the description of the materials that encrypted
+ * them.
+ * <p>
+ * Decrypting an envelope key with the master key is the most expensive part
+ * of reading an encrypted object, especially with asymmetric materials, and
+ * every object written by the same multipart upload or re-read several times
+ * carries the same encrypted key. Entries expire a fixed time after they were
+ * added, and the least recently used entries are discarded when the cache is
+ * full.
+ * <p>
+ * Instances of {@code ContentKeyCache} are thread-safe.
+ */
+public class ContentKeyCache {
+
+    private final int maxEntries;
+    private final long timeToLiveNanos;
+
+    /** Guarded by itself */
+    private final LinkedHashMap<CacheKey, CachedKey> entries;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxEntries
+     *            The maximum number of keys kept in the cache. Zero disables
+     *            the cache.
+     * @param timeToLive
+     *            The time (in milliseconds) a key is kept after it was added.
+     */
+    public ContentKeyCache(final int maxEntries, long timeToLive) {
+        this.maxEntries = maxEntries;
+        this.timeToLiveNanos = TimeUnit.NANOSECONDS.convert(timeToLive, TimeUnit.MILLISECONDS);
+        this.entries = new LinkedHashMap<CacheKey, CachedKey>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, CachedKey> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the decrypted key for the specified encrypted key, or null if
+     * it isn't in the cache or has expired.
+     */
+    public SecretKey get(byte[] encryptedKey, Map<String, String> materialsDescription) {
+        if (maxEntries <= 0) return null;
+
+        CacheKey cacheKey = new CacheKey(encryptedKey, materialsDescription);
+        synchronized (entries) {
+            CachedKey entry = entries.get(cacheKey);
+            if (entry != null && System.nanoTime() - entry.expiresAtNanos < 0) {
+                hitCount.incrementAndGet();
+                return entry.key;
+            }
+            if (entry != null) entries.remove(cacheKey);
+        }
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Adds the decrypted key of the specified encrypted key to the cache.
+     */
+    public void put(byte[] encryptedKey, Map<String, String> materialsDescription, SecretKey key) {
+        if (maxEntries <= 0) return;
+
+        CacheKey cacheKey = new CacheKey(encryptedKey, materialsDescription);
+        CachedKey entry = new CachedKey(key, System.nanoTime() + timeToLiveNanos);
+        synchronized (entries) {
+            entries.put(cacheKey, entry);
+        }
+    }
+
+    /**
+     * Discards all the keys in the cache.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Returns the number of keys currently in the cache, including expired
+     * keys that haven't been discarded yet.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Returns the number of lookups that found a key, each of which saved a
+     * decryption with the master key.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns the number of lookups that didn't find a key.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    private static final class CachedKey {
+        final SecretKey key;
+        final long expiresAtNanos;
+
+        CachedKey(SecretKey key, long expiresAtNanos) {
+            this.key = key;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+    private static final class CacheKey {
+        private final byte[] encryptedKey;
+        private final Map<String, String> materialsDescription;
+        private final int hashCode;
+
+        CacheKey(byte[] encryptedKey, Map<String, String> materialsDescription) {
+            this.encryptedKey = encryptedKey;
+            this.materialsDescription = materialsDescription;
+            this.hashCode = 31 * Arrays.hashCode(encryptedKey)
+                    + (materialsDescription == null ? 0 : materialsDescription.hashCode());
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof CacheKey)) return false;
+            CacheKey other = (CacheKey)obj;
+            if (!Arrays.equals(encryptedKey, other.encryptedKey)) return false;
+            return materialsDescription == null
+                    ? other.materialsDescription == null
+                    : materialsDescription.equals(other.materialsDescription);
+        }
+    }
+}
@@ -14,13 +14,21 @@
  */
 package com.amazonaws.services.s3.internal.crypto;
 
+import java.util.SortedMap;
+import java.util.TreeMap;
+
 import javax.crypto.SecretKey;
 
+import com.amazonaws.AmazonClientException;
+
 /**
  * State information for an in-progress, encrypted multipart upload,
  * including the envelope encryption key used to encrypt each individual
- * part in a multipart upload, and the next initialization vector (IV) for
- * the next part to encrypt.
+ * part in a multipart upload, the initial counter block (IV) of the upload,
+ * and the range of the object each part number covers, which determines the
+ * counter blocks the part is encrypted with.
+ * <p>
+ * Parts may be uploaded concurrently, so the mutable state is synchronized.
  */
 public class EncryptedUploadContext {
 	private final String bucketName;
@@ -31,6 +39,18 @@ public class EncryptedUploadContext {
 	private byte[] nextIV;
 	private boolean hasFinalPartBeenSeen;
 
+	/** The {offset, size} of each part, by part number */
+	private final TreeMap<Integer, long[]> parts = new TreeMap<Integer, long[]>();
+
+	/**
+	 * The size of the parts other than the last one, zero until the first of
+	 * them is seen, or -1 if they don't all have the same size.
+	 */
+	private long uniformPartSize;
+
+	/** The number of the last part, zero until it is seen */
+	private int lastPartNumber;
+
 	public EncryptedUploadContext(String bucketName, String key, SecretKey envelopeEncryptionKey) {
 		this.bucketName = bucketName;
 		this.key = key;
@@ -49,27 +69,124 @@ public class EncryptedUploadContext {
 		return envelopeEncryptionKey;
 	}
 
-	public void setNextInitializationVector(byte[] nextIV) {
+	public synchronized void setNextInitializationVector(byte[] nextIV) {
 		this.nextIV = nextIV;
 	}
 
-	public byte[] getNextInitializationVector() {
+	public synchronized byte[] getNextInitializationVector() {
 		return nextIV;
 	}
 	
-	public boolean hasFinalPartBeenSeen() {
+	public synchronized boolean hasFinalPartBeenSeen() {
 		return hasFinalPartBeenSeen;
 	}
 	
-	public void setHasFinalPartBeenSeen(boolean hasFinalPartBeenSeen) {
+	public synchronized void setHasFinalPartBeenSeen(boolean hasFinalPartBeenSeen) {
 		this.hasFinalPartBeenSeen = hasFinalPartBeenSeen;
 	}
 
-	public void setFirstInitializationVector(byte[] firstIV) {
+	public synchronized void setFirstInitializationVector(byte[] firstIV) {
 		this.firstIV = firstIV;
 	}
 
-	public byte[] getFirstInitializationVector() {
+	public synchronized byte[] getFirstInitializationVector() {
 		return firstIV;
 	}
+
+	/**
+	 * Marks the final part of the upload as seen, unless it had already been
+	 * seen.
+	 *
+	 * @return True if this is the first time the final part is seen.
+	 */
+	public synchronized boolean markFinalPartSeen() {
+		if (hasFinalPartBeenSeen) return false;
+		hasFinalPartBeenSeen = true;
+		return true;
+	}
+
+	/**
+	 * Returns the offset in the object of the specified part, recording the
+	 * range of the object it covers. The offset follows the end of the
+	 * previous part when it is known; otherwise all the parts but the last are
+	 * taken to have the same size. A part other than the last one whose size
+	 * differs from the size of the parts seen so far is therefore only
+	 * accepted when it is uploaded in order, after all the parts before it and
+	 * before any part after it. Uploading the same part number again with the
+	 * same size returns the same offset.
+	 *
+	 * @param partNumber
+	 *            The number of the part.
+	 * @param partSize
+	 *            The size of the part.
+	 * @param isLastPart
+	 *            True if this is the last part of the upload.
+	 *
+	 * @return The offset of the part in the object.
+	 *
+	 * @throws AmazonClientException
+	 *             If the offset of the part can't be worked out, or the part
+	 *             would overlap another part, which would encrypt different
+	 *             data with the same counter blocks, or leave a gap before the
+	 *             next part, which would decrypt that part with the wrong
+	 *             counter blocks.
+	 */
+	public synchronized long reservePart(int partNumber, long partSize, boolean isLastPart) {
+		long[] existing = parts.get(partNumber);
+		long offset;
+		if (existing != null) {
+			if (existing[1] != partSize) {
+				throw new AmazonClientException("Part " + partNumber + " was already uploaded with a different size");
+			}
+			offset = existing[0];
+		} else {
+			long[] previous = parts.get(partNumber - 1);
+			if (partNumber <= 1) {
+				offset = 0;
+			} else if (previous != null) {
+				offset = previous[0] + previous[1];
+			} else if (uniformPartSize > 0) {
+				offset = (partNumber - 1) * uniformPartSize;
+			} else if (uniformPartSize == 0 && !isLastPart) {
+				offset = (partNumber - 1) * partSize;
+			} else {
+				throw new AmazonClientException("Part " + partNumber + " can't be uploaded before part " + (partNumber - 1)
+						+ ": parts of different sizes must be uploaded in order");
+			}
+		}
+
+		if (existing != null) return offset;
+
+		SortedMap<Integer, long[]> lowerParts = parts.headMap(partNumber);
+		SortedMap<Integer, long[]> higherParts = parts.tailMap(partNumber + 1);
+		long[] lower = lowerParts.isEmpty() ? null : lowerParts.get(lowerParts.lastKey());
+		long[] higher = higherParts.isEmpty() ? null : higherParts.get(higherParts.firstKey());
+		if ((lower != null && lower[0] + lower[1] > offset) || (higher != null && offset + partSize > higher[0])) {
+			throw new AmazonClientException("Part " + partNumber + " would overlap another part of the upload");
+		}
+		if ((lastPartNumber > 0 && partNumber > lastPartNumber) || (isLastPart && higher != null)) {
+			throw new AmazonClientException("Part " + partNumber + " comes after the last part of the upload");
+		}
+		long[] next = parts.get(partNumber + 1);
+		if (next != null && offset + partSize != next[0]) {
+			throw new AmazonClientException("Part " + partNumber + " doesn't end where part " + (partNumber + 1)
+					+ " starts: parts of different sizes must be uploaded in order");
+		}
+		boolean inOrder = higher == null && lowerParts.size() == partNumber - 1;
+		if (!isLastPart && uniformPartSize != 0 && uniformPartSize != partSize && !inOrder) {
+			throw new AmazonClientException("Part " + partNumber + " has a different size than the parts before it:"
+					+ " parts of different sizes must be uploaded in order");
+		}
+
+		if (!isLastPart) {
+			if (uniformPartSize == 0) {
+				uniformPartSize = partSize;
+			} else if (uniformPartSize != partSize) {
+				uniformPartSize = -1;
+			}
+		}
+		if (isLastPart) lastPartNumber = partNumber;
+		parts.put(partNumber, new long[] {offset, partSize});
+		return offset;
+	}
 }
@@ -178,6 +178,32 @@ public class EncryptionUtils {
      *      A non-null instruction object containing encryption information
      */
     public static EncryptionInstruction buildInstructionFromInstructionFile(S3Object instructionFile, EncryptionMaterialsProvider materialsProvider, Provider cryptoProvider) {
+        return buildInstructionFromInstructionFile(instructionFile, materialsProvider, cryptoProvider, null);
+    }
+
+    /**
+     * Builds an instruction object from the contents of an instruction file, reusing the decrypted
+     * envelope key from the specified cache when it's there.
+     *
+     * @param instructionFile
+     *      A non-null instruction file retrieved from S3 that contains encryption information
+     * @param materialsProvider
+     *      The non-null encryption materials provider to be used to encrypt and decrypt data.
+     * @param cryptoProvider
+     *      The crypto provider whose encryption implementation will be used to encrypt and decrypt data.  Null is ok and uses the
+     *      preferred provider from Security.getProviders().
+     * @param keyCache
+     *      The cache of decrypted envelope keys; null disables caching.
+     * @return
+     *      A non-null instruction object containing encryption information
+     *
+     * @throws AmazonClientException
+     *      if encryption information is missing in the instruction file, the
+     *      instruction file is malformed or unreadable, or the encryption
+     *      materials used to encrypt the object are not available via the materials Accessor
+     */
+    public static EncryptionInstruction buildInstructionFromInstructionFile(S3Object instructionFile, EncryptionMaterialsProvider materialsProvider,
+            Provider cryptoProvider, ContentKeyCache keyCache) {
         JSONObject instructionJSON = parseJSONInstruction(instructionFile);
         try {
             // Get fields from instruction object
@@ -185,6 +211,8 @@ public class EncryptionUtils {
             byte[] initVectorBytes = instructionJSON.getString(Headers.CRYPTO_IV).getBytes();
             String materialsDescriptionString = instructionJSON.getString(Headers.MATERIALS_DESCRIPTION);
             Map<String, String> materialsDescription = convertJSONToMap(materialsDescriptionString);
+            String cipherMethod = checkCipherMethod(instructionJSON.optString(Headers.CRYPTO_CEK_ALGORITHM,
+                    JceEncryptionConstants.SYMMETRIC_CIPHER_METHOD));
 
             // Decode from Base 64 to standard binary bytes
             encryptedSymmetricKeyBytes = Base64.decodeBase64(encryptedSymmetricKeyBytes);
@@ -208,8 +236,8 @@ public class EncryptionUtils {
             }
 
             // Decrypt the symmetric key and create the symmetric cipher
-            SecretKey symmetricKey = getDecryptedSymmetricKey(encryptedSymmetricKeyBytes, materials, cryptoProvider);
-            CipherFactory cipherFactory = new CipherFactory(symmetricKey, Cipher.DECRYPT_MODE, initVectorBytes, cryptoProvider);
+            SecretKey symmetricKey = getDecryptedSymmetricKey(encryptedSymmetricKeyBytes, materialsDescription, materials, cryptoProvider, keyCache);
+            CipherFactory cipherFactory = new CipherFactory(symmetricKey, Cipher.DECRYPT_MODE, initVectorBytes, cryptoProvider, cipherMethod);
 
             return new EncryptionInstruction(materialsDescription, encryptedSymmetricKeyBytes, symmetricKey, cipherFactory);
         } catch (JSONException e) {
@@ -257,6 +285,31 @@ public class EncryptionUtils {
      *      materials used to encrypt the object are not available via the materials Accessor
      */
     public static EncryptionInstruction buildInstructionFromObjectMetadata(S3Object object, EncryptionMaterialsProvider materialsProvider, Provider cryptoProvider) {
+        return buildInstructionFromObjectMetadata(object, materialsProvider, cryptoProvider, null);
+    }
+
+    /**
+     * Builds an instruction object from the object metadata, reusing the decrypted envelope key
+     * from the specified cache when it's there.
+     *
+     * @param object
+     *      A non-null object that contains encryption information in its headers
+     * @param materialsProvider
+     *      The non-null encryption materials provider to be used to encrypt and decrypt data.
+     * @param cryptoProvider
+     *      The crypto provider whose encryption implementation will be used to encrypt and decrypt data.  Null is ok and uses the
+     *      preferred provider from Security.getProviders().
+     * @param keyCache
+     *      The cache of decrypted envelope keys; null disables caching.
+     * @return
+     *      A non-null instruction object containing encryption information
+     *
+     * @throws AmazonClientException
+     *      if encryption information is missing in the metadata, or the encryption
+     *      materials used to encrypt the object are not available via the materials Accessor
+     */
+    public static EncryptionInstruction buildInstructionFromObjectMetadata(S3Object object, EncryptionMaterialsProvider materialsProvider,
+            Provider cryptoProvider, ContentKeyCache keyCache) {
         ObjectMetadata metadata = object.getObjectMetadata();
 
         // Get encryption info from metadata.
@@ -264,6 +317,9 @@ public class EncryptionUtils {
         byte[] initVectorBytes = getCryptoBytesFromMetadata(Headers.CRYPTO_IV, metadata);
         String materialsDescriptionString = getStringFromMetadata(Headers.MATERIALS_DESCRIPTION, metadata);
         Map<String, String> materialsDescription = convertJSONToMap(materialsDescriptionString);
+        String cipherMethod = getStringFromMetadata(Headers.CRYPTO_CEK_ALGORITHM, metadata);
+        if (cipherMethod == null) cipherMethod = JceEncryptionConstants.SYMMETRIC_CIPHER_METHOD;
+        checkCipherMethod(cipherMethod);
 
         if (encryptedSymmetricKeyBytes == null || initVectorBytes == null || materialsDescription == null) {
             // If necessary encryption info was not found in the instruction file, throw an exception.
@@ -283,8 +339,8 @@ public class EncryptionUtils {
         }
 
         // Decrypt the symmetric key and create the symmetric cipher
-        SecretKey symmetricKey = getDecryptedSymmetricKey(encryptedSymmetricKeyBytes, materials, cryptoProvider);
-        CipherFactory cipherFactory = new CipherFactory(symmetricKey, Cipher.DECRYPT_MODE, initVectorBytes, cryptoProvider);
+        SecretKey symmetricKey = getDecryptedSymmetricKey(encryptedSymmetricKeyBytes, materialsDescription, materials, cryptoProvider, keyCache);
+        CipherFactory cipherFactory = new CipherFactory(symmetricKey, Cipher.DECRYPT_MODE, initVectorBytes, cryptoProvider, cipherMethod);
 
         return new EncryptionInstruction(materialsDescription, encryptedSymmetricKeyBytes, symmetricKey, cipherFactory);
     }
@@ -343,9 +399,34 @@ public class EncryptionUtils {
      *      The updated object where the object content input stream contains the decrypted contents.
      */
     public static S3Object decryptObjectUsingInstruction(S3Object object, EncryptionInstruction instruction) {
+        return decryptObjectUsingInstruction(object, instruction, 0);
+    }
+
+    /**
+     * Returns an updated object where the object content input stream contains the decrypted contents.
+     *
+     * @param object
+     *      The object whose contents are to be decrypted.
+     * @param instruction
+     *      The instruction that will be used to decrypt the object data.
+     * @param startingByte
+     *      The position, in the whole encrypted object, of the first byte of the object content;
+     *      non zero when only a range of the object was retrieved.  Must be a multiple of the
+     *      cipher block size.
+     * @return
+     *      The updated object where the object content input stream contains the decrypted contents.
+     */
+    public static S3Object decryptObjectUsingInstruction(S3Object object, EncryptionInstruction instruction, long startingByte) {
         S3ObjectInputStream objectContent = object.getObjectContent();
 
-        InputStream decryptedInputStream = new RepeatableCipherInputStream(objectContent, instruction.getCipherFactory());
+        // Chained block ciphers recover from a wrong starting point after the first block, which
+        // the ranged get retrieves for that purpose, but a counter has to start at the right value.
+        CipherFactory cipherFactory = instruction.getCipherFactory();
+        if (startingByte > 0 && cipherFactory.isCounterMode()) {
+            cipherFactory = cipherFactory.createCipherFactoryAtOffset(startingByte);
+        }
+
+        InputStream decryptedInputStream = new RepeatableCipherInputStream(objectContent, cipherFactory);
         object.setObjectContent(new S3ObjectInputStream(decryptedInputStream, objectContent.getHttpRequest()));
         return object;
     }
@@ -535,12 +616,22 @@ public class EncryptionUtils {
      * the default JCE crypto provider will be used.
      */
     public static Cipher createSymmetricCipher(SecretKey symmetricCryptoKey, int encryptMode, Provider cryptoProvider, byte[] initVector) {
+        return createSymmetricCipher(symmetricCryptoKey, encryptMode, cryptoProvider, initVector,
+                JceEncryptionConstants.SYMMETRIC_CIPHER_METHOD);
+    }
+
+    /**
+     * Creates a symmetric cipher with the specified algorithm, mode and padding, from the given
+     * symmetric key and IV.  The given crypto provider will provide the encryption implementation.
+     * If the crypto provider is null, then the default JCE crypto provider will be used.
+     */
+    public static Cipher createSymmetricCipher(SecretKey symmetricCryptoKey, int encryptMode, Provider cryptoProvider, byte[] initVector, String cipherMethod) {
         try {
             Cipher cipher;
             if (cryptoProvider != null) {
-                cipher = Cipher.getInstance(JceEncryptionConstants.SYMMETRIC_CIPHER_METHOD, cryptoProvider);
+                cipher = Cipher.getInstance(cipherMethod, cryptoProvider);
             } else {
-                cipher = Cipher.getInstance(JceEncryptionConstants.SYMMETRIC_CIPHER_METHOD);
+                cipher = Cipher.getInstance(cipherMethod);
             }
             if (initVector != null) {
                 cipher.init(encryptMode, symmetricCryptoKey, new IvParameterSpec(initVector));
@@ -555,6 +646,36 @@ public class EncryptionUtils {
         }
     }
 
+    /**
+     * Returns the counter block that encrypts the cipher block at the specified byte offset of
+     * data encrypted in counter mode with the given initial counter block.  The counter is the
+     * whole block, taken as a big-endian integer, which matches the JCE counter mode ciphers.
+     *
+     * @param initVector
+     *      The initial counter block, used for the first block of data.
+     * @param byteOffset
+     *      The offset of a block in the data; must be a multiple of the cipher block size.
+     * @return
+     *      A new counter block, incremented once for each cipher block before the offset.
+     */
+    public static byte[] getCounterBlock(byte[] initVector, long byteOffset) {
+        int cipherBlockSize = JceEncryptionConstants.SYMMETRIC_CIPHER_BLOCK_SIZE;
+        if (byteOffset < 0 || byteOffset % cipherBlockSize != 0) {
+            throw new AmazonClientException("Invalid offset " + byteOffset + ": encryption in counter mode " +
+                    "can only start on a cipher block boundary (a multiple of " + cipherBlockSize + " bytes)");
+        }
+        byte[] counterBlock = initVector.clone();
+        long increment = byteOffset / cipherBlockSize;
+        int carry = 0;
+        for (int i = counterBlock.length - 1; i >= 0 && (increment != 0 || carry != 0); i--) {
+            int sum = (counterBlock[i] & 0xff) + (int)(increment & 0xff) + carry;
+            counterBlock[i] = (byte)sum;
+            carry = sum >>> 8;
+            increment >>>= 8;
+        }
+        return counterBlock;
+    }
+
     /**
      * Encrypts a symmetric key using the provided encryption materials and returns
      * it in raw byte array form.
@@ -583,6 +704,23 @@ public class EncryptionUtils {
         }
     }
 
+    /**
+     * Decrypts an encrypted symmetric key, unless it's already in the specified cache, and
+     * returns it as a SecretKey object.
+     */
+    private static SecretKey getDecryptedSymmetricKey(byte[] encryptedSymmetricKeyBytes, Map<String, String> materialsDescription,
+            EncryptionMaterials materials, Provider cryptoProvider, ContentKeyCache keyCache) {
+        if (keyCache == null) {
+            return getDecryptedSymmetricKey(encryptedSymmetricKeyBytes, materials, cryptoProvider);
+        }
+        SecretKey symmetricKey = keyCache.get(encryptedSymmetricKeyBytes, materialsDescription);
+        if (symmetricKey == null) {
+            symmetricKey = getDecryptedSymmetricKey(encryptedSymmetricKeyBytes, materials, cryptoProvider);
+            keyCache.put(encryptedSymmetricKeyBytes, materialsDescription, symmetricKey);
+        }
+        return symmetricKey;
+    }
+
     /**
      * Decrypts an encrypted symmetric key using the provided encryption materials and returns
      * it as a SecretKey object.
@@ -633,6 +771,9 @@ public class EncryptionUtils {
 
             originalInputStream = new RepeatableCipherInputStream(originalInputStream, cipherFactory);
 
+            // Counter mode neither pads the data nor chains one part to the next
+            if (cipherFactory.isCounterMode()) return originalInputStream;
+
             if (request.isLastPart() == false) {
                 // We want to prevent the final padding from being sent on the stream...
                 originalInputStream = new InputSubstream(originalInputStream, 0, request.getPartSize(), false);
@@ -723,6 +864,25 @@ public class EncryptionUtils {
         request.setMetadata( metadata );
     }
 
+    /**
+     * Checks that the cipher recorded in the encryption information of an
+     * object is one this client encrypts with. The encryption information is
+     * stored with the object, so it can't be trusted to name an arbitrary
+     * cipher, such as one without padding or in ECB mode.
+     *
+     * @return the cipher method, if it is accepted
+     *
+     * @throws AmazonClientException
+     *      if the cipher method isn't AES/CBC/PKCS5Padding or AES/CTR/NoPadding
+     */
+    private static String checkCipherMethod(String cipherMethod) {
+        if (!JceEncryptionConstants.SYMMETRIC_CIPHER_METHOD.equals(cipherMethod)
+                && !JceEncryptionConstants.COUNTER_MODE_SYMMETRIC_CIPHER_METHOD.equals(cipherMethod)) {
+            throw new AmazonClientException("Unsupported cipher '" + cipherMethod + "' in the encryption information of the object");
+        }
+        return cipherMethod;
+    }
+
     private static void updateMetadata(ObjectMetadata metadata, byte[] keyBytesToStoreInMetadata, Cipher symmetricCipher, Map<String, String> materialsDescription) {
         // If we generated a symmetric key to encrypt the data, store it in the object metadata.
         if (keyBytesToStoreInMetadata != null) {
@@ -735,6 +895,12 @@ public class EncryptionUtils {
         initVectorBytes = Base64.encodeBase64(initVectorBytes);
         metadata.addUserMetadata(Headers.CRYPTO_IV, new String(initVectorBytes));
 
+        // Record the cipher used if it isn't the default one, which older clients assume
+        String cipherMethod = symmetricCipher.getAlgorithm();
+        if (!JceEncryptionConstants.SYMMETRIC_CIPHER_METHOD.equals(cipherMethod)) {
+            metadata.addUserMetadata(Headers.CRYPTO_CEK_ALGORITHM, cipherMethod);
+        }
+
         // Put the materials description into the object metadata as JSON
         JSONObject descriptionJSON = new JSONObject(materialsDescription);
         metadata.addUserMetadata(Headers.MATERIALS_DESCRIPTION, descriptionJSON.toString());
@@ -834,6 +1000,11 @@ public class EncryptionUtils {
             instructionJSON.put(Headers.CRYPTO_KEY, new String(encryptedKeyBytes));
             instructionJSON.put(Headers.CRYPTO_IV, new String(initVector));
 
+            String cipherMethod = instruction.getSymmetricCipher().getAlgorithm();
+            if (!JceEncryptionConstants.SYMMETRIC_CIPHER_METHOD.equals(cipherMethod)) {
+                instructionJSON.put(Headers.CRYPTO_CEK_ALGORITHM, cipherMethod);
+            }
+
         } catch (JSONException e) {} // Keys are never null, so JSONException will never be thrown.
         return instructionJSON;
     }
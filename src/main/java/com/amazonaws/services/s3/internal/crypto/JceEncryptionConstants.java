@@ -26,6 +26,18 @@ public class JceEncryptionConstants {
     /** Name of the algorithm, mode, and padding we will use in the symmetric cipher for encryption */
     public static String SYMMETRIC_CIPHER_METHOD = "AES/CBC/PKCS5Padding";
     
+    /**
+     * Name of the algorithm, mode, and padding used to encrypt multipart uploads.  In counter mode
+     * each cipher block can be encrypted independently of the others, so parts can be encrypted
+     * and uploaded in any order.
+     * <p>
+     * Counter mode doesn't authenticate the data: a modified object decrypts to garbage without
+     * any error.  Objects encrypted this way record the cipher in their encryption information,
+     * which clients older than this one ignore; they decrypt these objects in CBC mode and get
+     * garbage back.
+     */
+    public static String COUNTER_MODE_SYMMETRIC_CIPHER_METHOD = "AES/CTR/NoPadding";
+    
     /** Minimum length of the generated symmetric key */
     public static int SYMMETRIC_KEY_LENGTH = 256;
     
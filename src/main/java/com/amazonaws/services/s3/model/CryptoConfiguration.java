@@ -25,8 +25,19 @@ import java.security.Provider;
  */
 public class CryptoConfiguration {
 
+    /**
+     * The default maximum number of decrypted envelope keys kept in memory: none, the
+     * cache must be enabled explicitly.
+     */
+    public static final int DEFAULT_CONTENT_KEY_CACHE_SIZE = 0;
+
+    /** The default time (in milliseconds) a decrypted envelope key is kept in memory. */
+    public static final long DEFAULT_CONTENT_KEY_CACHE_TTL = 5 * 60 * 1000;
+
     private CryptoStorageMode storageMode;
     private Provider cryptoProvider;
+    private int contentKeyCacheSize = DEFAULT_CONTENT_KEY_CACHE_SIZE;
+    private long contentKeyCacheTtl = DEFAULT_CONTENT_KEY_CACHE_TTL;
 
     /**
      * Creates a new CryptoConfiguration object with default storage mode and crypto provider settings.
@@ -104,4 +115,83 @@ public class CryptoConfiguration {
     public Provider getCryptoProvider() {
         return this.cryptoProvider;
     }
+
+    /**
+     * Sets the maximum number of decrypted envelope keys the encryption client keeps in memory,
+     * so that reading objects encrypted with the same envelope key doesn't decrypt it with the
+     * master key each time.  Zero, the default, disables the cache.
+     * <p>
+     * Cached keys stay in memory in the clear for up to the cache time to live, and a key
+     * revoked in the meantime can still be used to read objects until its entry expires.
+     *
+     * @param contentKeyCacheSize
+     *     The maximum number of decrypted envelope keys kept in memory.
+     */
+    public void setContentKeyCacheSize(int contentKeyCacheSize) {
+        if (contentKeyCacheSize < 0) {
+            throw new IllegalArgumentException("The content key cache size must not be negative");
+        }
+        this.contentKeyCacheSize = contentKeyCacheSize;
+    }
+
+    /**
+     * Sets the maximum number of decrypted envelope keys the encryption client keeps in memory,
+     * and returns the updated CryptoConfiguration object.  Zero disables the cache.
+     *
+     * @param contentKeyCacheSize
+     *     The maximum number of decrypted envelope keys kept in memory.
+     * @return
+     *     The updated CryptoConfiguration object.
+     */
+    public CryptoConfiguration withContentKeyCacheSize(int contentKeyCacheSize) {
+        setContentKeyCacheSize(contentKeyCacheSize);
+        return this;
+    }
+
+    /**
+     * Returns the maximum number of decrypted envelope keys the encryption client keeps in memory.
+     *
+     * @return the maximum number of decrypted envelope keys kept in memory.
+     */
+    public int getContentKeyCacheSize() {
+        return this.contentKeyCacheSize;
+    }
+
+    /**
+     * Sets the time (in milliseconds) a decrypted envelope key is kept in memory after it was
+     * decrypted.
+     *
+     * @param contentKeyCacheTtl
+     *     The time (in milliseconds) a decrypted envelope key is kept in memory.
+     */
+    public void setContentKeyCacheTtl(long contentKeyCacheTtl) {
+        if (contentKeyCacheTtl < 0) {
+            throw new IllegalArgumentException("The content key cache time to live must not be negative");
+        }
+        this.contentKeyCacheTtl = contentKeyCacheTtl;
+    }
+
+    /**
+     * Sets the time (in milliseconds) a decrypted envelope key is kept in memory after it was
+     * decrypted, and returns the updated CryptoConfiguration object.
+     *
+     * @param contentKeyCacheTtl
+     *     The time (in milliseconds) a decrypted envelope key is kept in memory.
+     * @return
+     *     The updated CryptoConfiguration object.
+     */
+    public CryptoConfiguration withContentKeyCacheTtl(long contentKeyCacheTtl) {
+        setContentKeyCacheTtl(contentKeyCacheTtl);
+        return this;
+    }
+
+    /**
+     * Returns the time (in milliseconds) a decrypted envelope key is kept in memory after it was
+     * decrypted.
+     *
+     * @return the time (in milliseconds) a decrypted envelope key is kept in memory.
+     */
+    public long getContentKeyCacheTtl() {
+        return this.contentKeyCacheTtl;
+    }
 }
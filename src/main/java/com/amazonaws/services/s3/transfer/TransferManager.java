@@ -502,7 +502,7 @@ public class TransferManager {
                          }
                      }
                     download.setState(TransferState.InProgress);
-                    S3Object s3Object = ServiceUtils.retryableDownloadS3ObjectToFile(file, new ServiceUtils.RetryableS3DownloadTask() {
+                    S3Object s3Object = ServiceUtils.retryableDownloadS3ObjectToFile(file, new ServiceUtils.ResumableS3DownloadTask() {
 						
 						@Override
 						public S3Object getS3ObjectStream() {
@@ -510,6 +510,19 @@ public class TransferManager {
 							download.setS3Object(s3Object);
 							return s3Object;
 						}
+
+						@Override
+						public S3Object getS3ObjectStreamFrom(S3Object previous, long startingByte) {
+							// Ranged requests can't be decrypted, so encrypted downloads always start over
+							if (s3 instanceof AmazonS3EncryptionClient) return null;
+							GetObjectRequest resumeRequest = ServiceUtils.createResumeRequest(getObjectRequest, previous, startingByte);
+							if (resumeRequest == null) return null;
+							S3Object s3Object = s3.getObject(resumeRequest);
+							// The download keeps the metadata of the whole object; it only
+							// takes the new stream, so that aborting it still stops the transfer
+							if (s3Object != null) previous.setObjectContent(s3Object.getObjectContent());
+							return s3Object;
+						}
 						
 						@Override
 						public boolean needIntegrityCheck() {
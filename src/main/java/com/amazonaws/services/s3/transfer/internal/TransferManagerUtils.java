@@ -55,16 +55,16 @@ public class TransferManagerUtils {
 	 *            The request to check.
 	 * @param isUsingEncryption
 	 *            True if the upload is an encrypted upload, otherwise false.
+	 *            Encrypted parts are encrypted in counter mode, independently
+	 *            of each other, so encryption doesn't prevent parallel part
+	 *            uploads.
 	 * 
 	 * @return True if this request can use parallel part uploads for faster
 	 *         uploads.
 	 */
     public static boolean isUploadParallelizable(final PutObjectRequest putObjectRequest, final boolean isUsingEncryption) {
-    	// Each uploaded part in an encrypted upload depends on the encryption context
-    	// from the previous upload, so we cannot parallelize encrypted upload parts.
-    	if (isUsingEncryption) return false;
-
-    	// Otherwise, if there's a file, we can process the uploads concurrently.
+    	// If there's a file, we can process the uploads concurrently.  Parts read from a
+    	// stream have to be read (and, if encrypted, have their offsets tracked) in order.
         return (getRequestFile(putObjectRequest) != null);
     }
 
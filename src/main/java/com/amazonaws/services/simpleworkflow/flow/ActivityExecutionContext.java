@@ -72,6 +72,18 @@ public abstract class ActivityExecutionContext {
     public abstract void recordActivityHeartbeat(String details)
             throws AmazonServiceException, AmazonClientException, CancellationException;
 
+    /**
+     * @return true if a heartbeat sent after the last call to
+     *         {@link #recordActivityHeartbeat(String)} reported that
+     *         cancellation of the activity was requested. The next call to
+     *         {@link #recordActivityHeartbeat(String)} throws
+     *         {@link CancellationException} in this case.
+     */
+    public boolean isCancelRequested() {
+        // Provided to not break existing subclasses
+        return false;
+    }
+
     /**
      * @return an instance of the Simple Workflow Java client that is the same
      *         used by the invoked activity worker.
@@ -22,6 +22,7 @@ import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
 import com.amazonaws.services.simpleworkflow.flow.generic.ActivityImplementation;
 import com.amazonaws.services.simpleworkflow.flow.pojo.POJOActivityImplementationFactory;
 import com.amazonaws.services.simpleworkflow.flow.worker.GenericActivityWorker;
+import com.amazonaws.services.simpleworkflow.flow.worker.PollMetrics;
 import com.amazonaws.services.simpleworkflow.model.ActivityType;
 
 public class ActivityWorker implements WorkerBase {
@@ -228,6 +229,18 @@ public class ActivityWorker implements WorkerBase {
         genericWorker.setPollThreadCount(threadCount);
     }
 
+    public int getMinimumPollThreadCount() {
+        return genericWorker.getMinimumPollThreadCount();
+    }
+
+    public void setMinimumPollThreadCount(int minimumPollThreadCount) {
+        genericWorker.setMinimumPollThreadCount(minimumPollThreadCount);
+    }
+
+    public PollMetrics getPollMetrics() {
+        return genericWorker.getPollMetrics();
+    }
+
     @Override
     public void setDisableTypeRegistrationOnStart(boolean disableTypeRegistrationOnStart) {
         genericWorker.setDisableTypeRegistrationOnStart(disableTypeRegistrationOnStart);
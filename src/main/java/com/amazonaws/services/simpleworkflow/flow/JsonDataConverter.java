@@ -14,16 +14,25 @@
  */
 package com.amazonaws.services.simpleworkflow.flow;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import org.codehaus.jackson.JsonGenerationException;
 import org.codehaus.jackson.JsonParseException;
 import org.codehaus.jackson.map.JsonMappingException;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.codehaus.jackson.map.ObjectMapper.DefaultTyping;
+import org.codehaus.jackson.map.ObjectReader;
+import org.codehaus.jackson.map.ObjectWriter;
 import org.codehaus.jackson.map.SerializationConfig;
 import org.codehaus.jackson.map.DeserializationConfig;
 
+import com.amazonaws.util.BinaryUtils;
+
 /**
  * Implements conversion through Jackson JSON processor. Consult its
  * documentation on how to ensure that classes are serializable, configure their
@@ -36,12 +45,36 @@ import org.codehaus.jackson.map.DeserializationConfig;
  * disable polymorphic support as it produces much more concise and portable
  * output.
  * 
+ * <p>
+ * Readers and the writer are created from the mapper on first use and reused
+ * for all the following conversions, so the mapper has to be fully configured
+ * before the converter is first used.
+ * 
+ * <p>
+ * Values whose JSON is longer than {@link #getCompressionThreshold()}
+ * characters can optionally be gzip compressed and Base64 encoded, which
+ * usually makes large inputs and results several times smaller. Compressed
+ * values are always accepted by {@link #fromData(String, Class)}, whether or
+ * not compression is enabled, so workers can be switched over one at a time.
+ * 
  * @author fateev
  */
 public class JsonDataConverter extends DataConverter {
 
+    /**
+     * Prefix of compressed values. It can't start a JSON value, so it
+     * distinguishes them from uncompressed ones.
+     */
+    private static final char COMPRESSED_PREFIX = '#';
+
     protected final ObjectMapper mapper;
 
+    private volatile ObjectWriter writer;
+
+    private final ConcurrentHashMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<Class<?>, ObjectReader>();
+
+    private volatile int compressionThreshold = -1;
+
     /**
      * Create instance of the converter that uses ObjectMapper with
      * {@link Feature#FAIL_ON_UNKNOWN_PROPERTIES} set to <code>false</code> and
@@ -66,10 +99,32 @@ public class JsonDataConverter extends DataConverter {
         this.mapper = mapper;
     }
 
+    /**
+     * @see #setCompressionThreshold(int)
+     */
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * Values whose JSON is longer than the threshold (in characters) are gzip
+     * compressed and Base64 encoded, unless that doesn't make them any
+     * shorter. Only workers using this version of the converter can read
+     * compressed values. The default of -1 disables compression.
+     */
+    public void setCompressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
     @Override
     public String toData(Object value) throws DataConverterException {
         try {
-            return mapper.writeValueAsString(value);
+            String result = getWriter().writeValueAsString(value);
+            int threshold = compressionThreshold;
+            if (threshold >= 0 && result.length() > threshold) {
+                result = compress(result);
+            }
+            return result;
         }
         catch (JsonGenerationException e) {
             throwDataConverterException(e, value);
@@ -93,7 +148,18 @@ public class JsonDataConverter extends DataConverter {
     @Override
     public <T> T fromData(String serialized, Class<T> valueType) throws DataConverterException {
         try {
-            return mapper.readValue(serialized, valueType);
+            ObjectReader reader = getReader(valueType);
+            if (serialized != null && serialized.length() > 0 && serialized.charAt(0) == COMPRESSED_PREFIX) {
+                byte[] compressed = BinaryUtils.fromBase64(serialized.substring(1));
+                GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed));
+                try {
+                    return reader.<T> readValue(in);
+                }
+                finally {
+                    in.close();
+                }
+            }
+            return reader.<T> readValue(serialized);
         }
         catch (JsonParseException e) {
             throw new DataConverterException(e);
@@ -105,4 +171,39 @@ public class JsonDataConverter extends DataConverter {
             throw new DataConverterException(e);
         }
     }
+
+    private ObjectWriter getWriter() {
+        ObjectWriter result = writer;
+        if (result == null) {
+            result = mapper.writer();
+            writer = result;
+        }
+        return result;
+    }
+
+    private ObjectReader getReader(Class<?> valueType) {
+        ObjectReader result = readers.get(valueType);
+        if (result == null) {
+            // Losing a race only creates an extra reader
+            result = mapper.reader(valueType);
+            readers.put(valueType, result);
+        }
+        return result;
+    }
+
+    private static String compress(String json) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length() / 4 + 32);
+        GZIPOutputStream out = new GZIPOutputStream(bytes);
+        try {
+            out.write(json.getBytes("UTF-8"));
+        }
+        finally {
+            out.close();
+        }
+        String encoded = BinaryUtils.toBase64(bytes.toByteArray());
+        if (encoded.length() + 1 >= json.length()) {
+            return json;
+        }
+        return COMPRESSED_PREFIX + encoded;
+    }
 }
@@ -0,0 +1,398 @@
+/*
+ * Copyright 2012-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ * use this file except in compliance with the License. A copy of the License is
+ * located at
+ * 
+ * http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.simpleworkflow.flow;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+
+import com.amazonaws.services.simpleworkflow.flow.generic.WorkflowDefinitionFactoryFactory;
+import com.amazonaws.services.simpleworkflow.flow.pojo.POJOWorkflowDefinitionFactoryFactory;
+import com.amazonaws.services.simpleworkflow.model.Decision;
+import com.amazonaws.services.simpleworkflow.model.DecisionType;
+import com.amazonaws.services.simpleworkflow.model.EventType;
+import com.amazonaws.services.simpleworkflow.model.FailWorkflowExecutionDecisionAttributes;
+import com.amazonaws.services.simpleworkflow.model.History;
+import com.amazonaws.services.simpleworkflow.model.HistoryEvent;
+import com.amazonaws.services.simpleworkflow.model.RespondDecisionTaskCompletedRequest;
+import com.amazonaws.services.simpleworkflow.model.WorkflowExecution;
+import com.amazonaws.services.simpleworkflow.model.transform.HistoryJsonUnmarshaller;
+import com.amazonaws.transform.JsonUnmarshallerContext;
+
+/**
+ * Replays many workflow histories concurrently, for example to check that a
+ * new version of a workflow implementation is still deterministic with respect
+ * to the executions recorded by the previous one.
+ * <p>
+ * Histories are read from JSON exports in the format returned by
+ * GetWorkflowExecutionHistory, that is objects with an <code>events</code>
+ * array. Each history is replayed on a thread of its own with a new decider,
+ * so replays don't share any state besides the workflow definition factory
+ * factory, which has to be thread safe as it is when used by a worker.
+ * <p>
+ * A replay fails if it throws, or if it decides to fail the workflow
+ * execution while the history doesn't record such a failure, which is how the
+ * decider reports histories it can't replay.
+ */
+public class WorkflowBatchReplayer {
+
+    /**
+     * Outcome of the replay of a single history.
+     */
+    public static class ReplayResult {
+
+        private final String name;
+
+        private final boolean passed;
+
+        private final String failureReason;
+
+        private final Throwable failure;
+
+        private final int eventCount;
+
+        private final long replayTimeMillis;
+
+        ReplayResult(String name, boolean passed, String failureReason, Throwable failure, int eventCount,
+                long replayTimeMillis) {
+            this.name = name;
+            this.passed = passed;
+            this.failureReason = failureReason;
+            this.failure = failure;
+            this.eventCount = eventCount;
+            this.replayTimeMillis = replayTimeMillis;
+        }
+
+        /**
+         * @return name of the history: the file name for histories read from
+         *         a directory, the index in the stream for histories read from
+         *         a stream
+         */
+        public String getName() {
+            return name;
+        }
+
+        public boolean isPassed() {
+            return passed;
+        }
+
+        /**
+         * @return reason of the workflow failure decided by the replay, or the
+         *         message of the exception thrown by it, null if it passed
+         */
+        public String getFailureReason() {
+            return failureReason;
+        }
+
+        /**
+         * @return exception thrown by the replay, null if it didn't throw
+         */
+        public Throwable getFailure() {
+            return failure;
+        }
+
+        public int getEventCount() {
+            return eventCount;
+        }
+
+        public long getReplayTimeMillis() {
+            return replayTimeMillis;
+        }
+
+        @Override
+        public String toString() {
+            return (passed ? "PASSED " : "FAILED ") + name + " events=" + eventCount + " replayTimeMillis=" + replayTimeMillis
+                    + (passed ? "" : " reason=" + failureReason);
+        }
+    }
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    private final WorkflowDefinitionFactoryFactory workflowDefinitionFactoryFactory;
+
+    private final int threadCount;
+
+    private int replayUpToEventId;
+
+    public WorkflowBatchReplayer(WorkflowDefinitionFactoryFactory workflowDefinitionFactoryFactory, int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("0 or negative threadCount");
+        }
+        this.workflowDefinitionFactoryFactory = workflowDefinitionFactoryFactory;
+        this.threadCount = threadCount;
+    }
+
+    public WorkflowBatchReplayer(Class<?> workflowImplementationType, int threadCount) throws InstantiationException,
+            IllegalAccessException {
+        this(createFactoryFactory(workflowImplementationType), threadCount);
+    }
+
+    /**
+     * Creates a replayer that uses as many threads as there are processors.
+     */
+    public WorkflowBatchReplayer(Class<?> workflowImplementationType) throws InstantiationException, IllegalAccessException {
+        this(workflowImplementationType, Runtime.getRuntime().availableProcessors());
+    }
+
+    private static WorkflowDefinitionFactoryFactory createFactoryFactory(Class<?> workflowImplementationType)
+            throws InstantiationException, IllegalAccessException {
+        POJOWorkflowDefinitionFactoryFactory ff = new POJOWorkflowDefinitionFactoryFactory();
+        ff.addWorkflowImplementationType(workflowImplementationType);
+        return ff;
+    }
+
+    public int getReplayUpToEventId() {
+        return replayUpToEventId;
+    }
+
+    /**
+     * The replay of every history stops at the event with the given eventId.
+     * Default is 0.
+     * 
+     * @param replayUpToEventId
+     *            0 means the whole history.
+     */
+    public void setReplayUpToEventId(int replayUpToEventId) {
+        this.replayUpToEventId = replayUpToEventId;
+    }
+
+    /**
+     * Replays the histories of all the <code>.json</code> files of a
+     * directory. Each file is only read when a thread is available to replay
+     * it.
+     * 
+     * @return results in the order of the file names
+     */
+    public List<ReplayResult> replayDirectory(File directory) throws InterruptedException {
+        File[] files = directory.listFiles(new FilenameFilter() {
+
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(".json");
+            }
+        });
+        if (files == null) {
+            throw new IllegalArgumentException("Not a directory: " + directory);
+        }
+        Arrays.sort(files);
+        ExecutorService executor = createExecutor();
+        try {
+            List<Future<ReplayResult>> futures = new ArrayList<Future<ReplayResult>>(files.length);
+            for (final File file : files) {
+                futures.add(executor.submit(new Callable<ReplayResult>() {
+
+                    @Override
+                    public ReplayResult call() {
+                        String name = file.getName();
+                        List<HistoryEvent> events;
+                        try {
+                            InputStream in = new BufferedInputStream(new FileInputStream(file));
+                            try {
+                                events = readHistory(in);
+                            }
+                            finally {
+                                in.close();
+                            }
+                        }
+                        catch (Exception e) {
+                            return new ReplayResult(name, false, "Unable to read history: " + e.getMessage(), e, 0, 0);
+                        }
+                        if (events == null) {
+                            return new ReplayResult(name, false, "No history found", null, 0, 0);
+                        }
+                        return replay(name, events);
+                    }
+                }));
+            }
+            return getResults(futures);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Replays the histories of a stream containing one or more consecutive
+     * JSON history exports. The stream is read by the calling thread, at most
+     * twice as many histories as there are threads ahead of the replays, which
+     * bounds the memory used.
+     * 
+     * @return results in the order of the histories in the stream, named by
+     *         their index starting from 0
+     */
+    public List<ReplayResult> replayStream(InputStream in) throws IOException, InterruptedException {
+        final Semaphore inFlight = new Semaphore(threadCount * 2);
+        JsonParser parser = jsonFactory.createJsonParser(in);
+        ExecutorService executor = createExecutor();
+        try {
+            List<Future<ReplayResult>> futures = new ArrayList<Future<ReplayResult>>();
+            while (true) {
+                final List<HistoryEvent> events = readHistory(parser);
+                if (events == null) {
+                    break;
+                }
+                final String name = String.valueOf(futures.size());
+                inFlight.acquire();
+                futures.add(executor.submit(new Callable<ReplayResult>() {
+
+                    @Override
+                    public ReplayResult call() {
+                        try {
+                            return replay(name, events);
+                        }
+                        finally {
+                            inFlight.release();
+                        }
+                    }
+                }));
+            }
+            return getResults(futures);
+        }
+        finally {
+            executor.shutdownNow();
+            parser.close();
+        }
+    }
+
+    /**
+     * Replays a single history in the calling thread.
+     */
+    public ReplayResult replay(String name, List<HistoryEvent> events) {
+        long start = System.nanoTime();
+        try {
+            WorkflowExecution execution = new WorkflowExecution().withWorkflowId(name).withRunId(name);
+            WorkflowReplayer<Object> replayer = new WorkflowReplayer<Object>(events, execution,
+                    workflowDefinitionFactoryFactory);
+            replayer.setReplayUpToEventId(replayUpToEventId);
+            RespondDecisionTaskCompletedRequest response = replayer.replay();
+            String failureReason = getUnexpectedFailureReason(events, response);
+            return new ReplayResult(name, failureReason == null, failureReason, null, events.size(), elapsedMillis(start));
+        }
+        catch (Throwable e) {
+            return new ReplayResult(name, false, String.valueOf(e), e, events.size(), elapsedMillis(start));
+        }
+    }
+
+    /**
+     * Reads a single history from a JSON export.
+     * 
+     * @return events of the history, null if the stream doesn't contain any
+     */
+    public static List<HistoryEvent> readHistory(InputStream in) throws IOException {
+        JsonParser parser = jsonFactory.createJsonParser(in);
+        try {
+            return readHistory(parser);
+        }
+        finally {
+            parser.close();
+        }
+    }
+
+    private static List<HistoryEvent> readHistory(JsonParser parser) throws IOException {
+        JsonUnmarshallerContext context = new JsonUnmarshallerContext(parser);
+        // History.getEvents() never returns null, so the end of the input has
+        // to be detected before unmarshalling
+        if (context.peek() == null) {
+            return null;
+        }
+        History history;
+        try {
+            history = HistoryJsonUnmarshaller.getInstance().unmarshall(context);
+        }
+        catch (IOException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            IOException ioe = new IOException("Unable to parse history: " + e.getMessage());
+            ioe.initCause(e);
+            throw ioe;
+        }
+        return history.getEvents();
+    }
+
+    private String getUnexpectedFailureReason(List<HistoryEvent> events, RespondDecisionTaskCompletedRequest response) {
+        FailWorkflowExecutionDecisionAttributes failure = null;
+        for (Decision decision : response.getDecisions()) {
+            if (DecisionType.FailWorkflowExecution.toString().equals(decision.getDecisionType())) {
+                failure = decision.getFailWorkflowExecutionDecisionAttributes();
+            }
+        }
+        if (failure == null) {
+            return null;
+        }
+        for (HistoryEvent event : events) {
+            if (EventType.WorkflowExecutionFailed.toString().equals(event.getEventType())) {
+                // The recorded execution failed as well
+                return null;
+            }
+        }
+        return failure.getReason() == null ? "Replay failed the workflow execution" : failure.getReason();
+    }
+
+    private ExecutorService createExecutor() {
+        ThreadPoolExecutor result = new ThreadPoolExecutor(threadCount, threadCount, 1, TimeUnit.MINUTES,
+                new LinkedBlockingQueue<Runnable>());
+        result.setThreadFactory(new ThreadFactory() {
+
+            private final AtomicInteger threadIndex = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "SWF Replay " + threadIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        return result;
+    }
+
+    private static List<ReplayResult> getResults(List<Future<ReplayResult>> futures) throws InterruptedException {
+        List<ReplayResult> results = new ArrayList<ReplayResult>(futures.size());
+        for (Future<ReplayResult> future : futures) {
+            try {
+                results.add(future.get());
+            }
+            catch (ExecutionException e) {
+                // replay() doesn't throw
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        return results;
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
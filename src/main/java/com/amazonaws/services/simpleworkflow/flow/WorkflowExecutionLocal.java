@@ -15,7 +15,9 @@
 package com.amazonaws.services.simpleworkflow.flow;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Contains value that is bound to a currently executing workflow. Has the same
@@ -68,6 +70,43 @@ public class WorkflowExecutionLocal<T> {
         }
     }
 
+    /**
+     * Returns the values of all the workflow execution locals of the decision
+     * running in the current thread, so that the workflow execution can be
+     * continued later, possibly on another thread, through
+     * {@link #restore(Map)}. It is not a good idea to call this method from non
+     * framework code for non testing scenarios.
+     */
+    public static Map<WorkflowExecutionLocal<?>, Object> capture() {
+        List<WorkflowExecutionLocal<?>> currentLocals;
+        synchronized (locals) {
+            currentLocals = new ArrayList<WorkflowExecutionLocal<?>>(locals);
+        }
+        Map<WorkflowExecutionLocal<?>, Object> result = new IdentityHashMap<WorkflowExecutionLocal<?>, Object>();
+        for (WorkflowExecutionLocal<?> local : currentLocals) {
+            Wrapper<?> w = local.value.get();
+            if (w != null) {
+                result.put(local, w);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Binds the values returned by {@link #capture()} to the current thread,
+     * in place of {@link #before()}. Locals created since then get their
+     * initial value. It is not a good idea to call this method from non
+     * framework code for non testing scenarios.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public static void restore(Map<WorkflowExecutionLocal<?>, Object> captured) {
+        before();
+        for (Map.Entry<WorkflowExecutionLocal<?>, Object> entry : captured.entrySet()) {
+            WorkflowExecutionLocal local = entry.getKey();
+            local.value.set((Wrapper) entry.getValue());
+        }
+    }
+
     @SuppressWarnings({ "unchecked", "rawtypes" })
     public WorkflowExecutionLocal() {
         Wrapper w = new Wrapper();
@@ -22,6 +22,7 @@ import java.util.concurrent.TimeUnit;
 import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
 import com.amazonaws.services.simpleworkflow.flow.pojo.POJOWorkflowDefinitionFactoryFactory;
 import com.amazonaws.services.simpleworkflow.flow.worker.GenericWorkflowWorker;
+import com.amazonaws.services.simpleworkflow.flow.worker.PollMetrics;
 
 public class WorkflowWorker implements WorkerBase {
 
@@ -161,6 +162,26 @@ public class WorkflowWorker implements WorkerBase {
         genericWorker.setPollThreadCount(threadCount);
     }
 
+    public int getMinimumPollThreadCount() {
+        return genericWorker.getMinimumPollThreadCount();
+    }
+
+    public void setMinimumPollThreadCount(int minimumPollThreadCount) {
+        genericWorker.setMinimumPollThreadCount(minimumPollThreadCount);
+    }
+
+    public PollMetrics getPollMetrics() {
+        return genericWorker.getPollMetrics();
+    }
+
+    public int getDeciderCacheSize() {
+        return genericWorker.getDeciderCacheSize();
+    }
+
+    public void setDeciderCacheSize(int deciderCacheSize) {
+        genericWorker.setDeciderCacheSize(deciderCacheSize);
+    }
+
     @Override
     public void registerTypesToPoll() {
         genericWorker.registerTypesToPoll();
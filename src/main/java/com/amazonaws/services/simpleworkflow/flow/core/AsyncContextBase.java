@@ -54,7 +54,7 @@ abstract class AsyncContextBase implements Runnable, AsyncParentContext {
         this.name = parent == null ? null : parent.getName();
         AsyncStackTrace parentStack = parent.getStackTrace();
         if (parentStack != null) {
-            stackTrace = new AsyncStackTrace(parentStack, Thread.currentThread().getStackTrace(), skipStackLines);
+            stackTrace = new AsyncStackTrace(parentStack, new Throwable(), skipStackLines);
             stackTrace.setStartFrom(parent.getParentTaskMethodName());
             stackTrace.setHideStartFromMethod(parent.getHideStartFromMethod());
         }
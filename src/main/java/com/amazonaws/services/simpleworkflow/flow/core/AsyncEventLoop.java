@@ -14,19 +14,50 @@
  */
 package com.amazonaws.services.simpleworkflow.flow.core;
 
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
 
+/**
+ * Run queue of an {@link AsyncScope}. Most tasks are queued by the code of the
+ * scope, which runs in the thread that drives the scope from
+ * {@link #executeAllQueued()}; those go straight to a growable circular array
+ * that isn't synchronized and doesn't allocate per task once it has grown to
+ * the fan-out of the workflow. Tasks queued by any other thread, such as the
+ * completion of an external task, go to a concurrent queue that the loop
+ * moves to the array before running the next task.
+ */
 class AsyncEventLoop implements Executor {
 
-    private final Queue<Runnable> tasks = new LinkedList<Runnable>();
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Runnable[] tasks = new Runnable[INITIAL_CAPACITY];
+
+    /** Index of the first queued task */
+    private int head;
+
+    private int size;
+
+    /** Tasks queued by threads other than the one running the loop */
+    private final ConcurrentLinkedQueue<Runnable> externalTasks = new ConcurrentLinkedQueue<Runnable>();
+
+    /** The thread running queued tasks, null when the loop isn't running */
+    private volatile Thread loopThread;
 
     @Override
     public void execute(Runnable task) {
-        synchronized (tasks) {
-            tasks.add(task);
+        if (Thread.currentThread() != loopThread) {
+            externalTasks.add(task);
+            return;
         }
+        enqueue(task);
+    }
+
+    private void enqueue(Runnable task) {
+        if (size == tasks.length) {
+            grow();
+        }
+        tasks[(head + size) & (tasks.length - 1)] = task;
+        size++;
     }
 
     public void executeAllQueued() {
@@ -36,15 +67,37 @@ class AsyncEventLoop implements Executor {
     }
 
     public boolean executeQueuedTask() {
-        synchronized (tasks) {
-            Runnable task = tasks.peek();
-            if (task == null) {
+        Thread previousLoopThread = loopThread;
+        loopThread = Thread.currentThread();
+        try {
+            Runnable externalTask;
+            while ((externalTask = externalTasks.poll()) != null) {
+                enqueue(externalTask);
+            }
+            if (size == 0) {
                 return false;
             }
+            // The task stays queued while it runs, so a task that throws is not lost
+            Runnable task = tasks[head];
             task.run();
-            tasks.remove();
+            // Running the task might have grown the array and moved its head
+            tasks[head] = null;
+            head = (head + 1) & (tasks.length - 1);
+            size--;
             return true;
         }
+        finally {
+            loopThread = previousLoopThread;
+        }
+    }
+
+    private void grow() {
+        Runnable[] grown = new Runnable[tasks.length * 2];
+        int firstPart = Math.min(size, tasks.length - head);
+        System.arraycopy(tasks, head, grown, 0, firstPart);
+        System.arraycopy(tasks, 0, grown, firstPart, size - firstPart);
+        tasks = grown;
+        head = 0;
     }
 
 }
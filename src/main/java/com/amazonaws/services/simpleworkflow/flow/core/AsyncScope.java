@@ -25,6 +25,16 @@ import java.util.List;
  */
 public abstract class AsyncScope extends AsyncContextAware implements Cancelable {
 
+    /**
+     * System property that disables capturing of asynchronous stack traces by
+     * all scopes when set to <code>true</code>. Capturing them costs a stack
+     * walk for every task and promise continuation, which is worth saving in
+     * production when asynchronous thread dumps aren't used.
+     */
+    public static final String DISABLE_ASYNC_STACK_TRACE_PROPERTY = "com.amazonaws.services.simpleworkflow.flow.disableAsyncStackTrace";
+
+    static final boolean ASYNC_STACK_TRACE_DISABLED = Boolean.getBoolean(DISABLE_ASYNC_STACK_TRACE_PROPERTY);
+
     private final AsyncScopeContext context;
 
     public AsyncScope() {
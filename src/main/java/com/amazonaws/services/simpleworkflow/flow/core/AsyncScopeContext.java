@@ -129,7 +129,7 @@ class AsyncScopeContext {
 
     public AsyncScopeContext(AsyncScope asyncScope, boolean disableAsyncStackTrace, boolean excludeAsyncScopeStack) {
         this.asyncScope = asyncScope;
-        if (!disableAsyncStackTrace) {
+        if (!disableAsyncStackTrace && !AsyncScope.ASYNC_STACK_TRACE_DISABLED) {
             stackTrace = new AsyncStackTrace(null, new StackTraceElement[0], 0);
         }
         executor = new AsyncEventLoop();
@@ -46,7 +46,13 @@ import java.util.List;
  */
 class AsyncStackTrace {
 
-    private final StackTraceElement[] stackTrace;
+    /**
+     * Where the stack was captured, for traces whose elements are only
+     * materialized when first needed. Null once they are.
+     */
+    private Throwable capturedAt;
+
+    private StackTraceElement[] stackTrace;
 
     private final AsyncStackTrace parentTrace;
 
@@ -69,6 +75,31 @@ class AsyncStackTrace {
         this.skip = skip;
     }
 
+    /**
+     * Creates a trace of the stack at the time the specified throwable was
+     * created. Building the stack trace elements is the most expensive part of
+     * capturing a stack, and most async stack traces are never looked at, so
+     * they are only built when the trace is first printed.
+     * 
+     * @param skip
+     *            number of frames to skip, counted as in
+     *            {@link Thread#getStackTrace()} which includes its own frame
+     */
+    public AsyncStackTrace(AsyncStackTrace parentTrace, Throwable capturedAt, int skip) {
+        super();
+        this.parentTrace = parentTrace;
+        this.capturedAt = capturedAt;
+        this.skip = skip == Integer.MAX_VALUE ? skip : Math.max(skip - 1, 0);
+    }
+
+    private StackTraceElement[] getElements() {
+        if (capturedAt != null) {
+            stackTrace = capturedAt.getStackTrace();
+            capturedAt = null;
+        }
+        return stackTrace;
+    }
+
     public StackTraceElement[] getStackTrace() {
         if (printRawTrace) {
             return printRawTrace();
@@ -79,6 +110,7 @@ class AsyncStackTrace {
     }
 
     private void getStackTrace(List<StackTraceElement> result) {
+        StackTraceElement[] stackTrace = getElements();
         for (int i = skip; i < stackTrace.length; i++) {
             StackTraceElement element = stackTrace[i];
             if (i == skip && result.size() > 0) {
@@ -99,6 +131,7 @@ class AsyncStackTrace {
     }
 
     private StackTraceElement[] printRawTrace() {
+        StackTraceElement[] stackTrace = getElements();
         if (parentTrace != null) {
             StackTraceElement[] parentStack = parentTrace.getStackTrace();
             int parentLength = parentStack.length;
@@ -23,6 +23,7 @@ import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
 import com.amazonaws.services.simpleworkflow.flow.DataConverter;
 import com.amazonaws.services.simpleworkflow.flow.WorkerBase;
 import com.amazonaws.services.simpleworkflow.flow.worker.GenericWorkflowWorker;
+import com.amazonaws.services.simpleworkflow.flow.worker.PollMetrics;
 import com.amazonaws.services.simpleworkflow.model.WorkflowType;
 
 /**
@@ -205,6 +206,26 @@ public class SpringWorkflowWorker implements WorkerBase, SmartLifecycle {
         genericWorker.setPollThreadCount(threadCount);
     }
 
+    public int getMinimumPollThreadCount() {
+        return genericWorker.getMinimumPollThreadCount();
+    }
+
+    public void setMinimumPollThreadCount(int minimumPollThreadCount) {
+        genericWorker.setMinimumPollThreadCount(minimumPollThreadCount);
+    }
+
+    public PollMetrics getPollMetrics() {
+        return genericWorker.getPollMetrics();
+    }
+
+    public int getDeciderCacheSize() {
+        return genericWorker.getDeciderCacheSize();
+    }
+
+    public void setDeciderCacheSize(int deciderCacheSize) {
+        genericWorker.setDeciderCacheSize(deciderCacheSize);
+    }
+
     @Override
     public void suspendPolling() {
         genericWorker.suspendPolling();
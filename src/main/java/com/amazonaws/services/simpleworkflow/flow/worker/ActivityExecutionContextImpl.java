@@ -19,8 +19,6 @@ import java.util.concurrent.CancellationException;
 import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
 import com.amazonaws.services.simpleworkflow.flow.ActivityExecutionContext;
 import com.amazonaws.services.simpleworkflow.model.ActivityTask;
-import com.amazonaws.services.simpleworkflow.model.ActivityTaskStatus;
-import com.amazonaws.services.simpleworkflow.model.RecordActivityTaskHeartbeatRequest;
 import com.amazonaws.services.simpleworkflow.model.WorkflowExecution;
 
 /**
@@ -39,6 +37,8 @@ class ActivityExecutionContextImpl extends ActivityExecutionContext {
     
     private final ActivityTask task;
 
+    private final ActivityHeartbeatManager heartbeatManager;
+
     /**
      * Create an ActivityExecutionContextImpl with the given attributes.
      * 
@@ -52,9 +52,24 @@ class ActivityExecutionContextImpl extends ActivityExecutionContext {
      * @see ActivityExecutionContext
      */
     public ActivityExecutionContextImpl(AmazonSimpleWorkflow service, String domain, ActivityTask task) {
+        this(service, domain, task, 0);
+    }
+
+    /**
+     * Create an ActivityExecutionContextImpl that sends at most one heartbeat
+     * per heartbeat interval.
+     * 
+     * @param heartbeatInterval
+     *            minimum time in milliseconds between two heartbeats sent to
+     *            the service. Heartbeats recorded in between are coalesced to
+     *            the last details. 0 sends every heartbeat right away.
+     */
+    public ActivityExecutionContextImpl(AmazonSimpleWorkflow service, String domain, ActivityTask task,
+            long heartbeatInterval) {
         this.domain = domain;
         this.service = service;
         this.task = task;
+        this.heartbeatManager = new ActivityHeartbeatManager(service, task.getTaskToken(), heartbeatInterval);
     }
 
     /**
@@ -63,16 +78,22 @@ class ActivityExecutionContextImpl extends ActivityExecutionContext {
      */
     @Override
     public void recordActivityHeartbeat(String details) throws CancellationException {
-        //TODO: call service with the specified minimal interval (through @ActivityExecutionOptions)
-        // allowing more frequent calls of this method.
-        RecordActivityTaskHeartbeatRequest r = new RecordActivityTaskHeartbeatRequest();
-        r.setTaskToken(task.getTaskToken());
-        r.setDetails(details);
-        ActivityTaskStatus status;
-        status = service.recordActivityTaskHeartbeat(r);
-        if (status.isCancelRequested()) {
-            throw new CancellationException();
-        }
+        heartbeatManager.recordHeartbeat(details);
+    }
+
+    /**
+     * @see ActivityExecutionContext#isCancelRequested()
+     */
+    @Override
+    public boolean isCancelRequested() {
+        return heartbeatManager.isCancelRequested();
+    }
+
+    /**
+     * Drops any heartbeat that hasn't been sent yet.
+     */
+    void close() {
+        heartbeatManager.close();
     }
 
     /**
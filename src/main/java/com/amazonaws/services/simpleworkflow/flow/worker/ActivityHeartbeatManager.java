@@ -0,0 +1,241 @@
+/*
+ * Copyright 2012-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ * use this file except in compliance with the License. A copy of the License is
+ * located at
+ * 
+ * http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.simpleworkflow.flow.worker;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
+import com.amazonaws.services.simpleworkflow.model.ActivityTaskStatus;
+import com.amazonaws.services.simpleworkflow.model.RecordActivityTaskHeartbeatRequest;
+
+/**
+ * Coalesces the heartbeats of a single activity task. The first heartbeat is
+ * sent right away. Heartbeats recorded less than the heartbeat interval after
+ * the last one sent only replace the pending details, which are sent once the
+ * interval has elapsed. So an activity can call
+ * {@link ActivityExecutionContextImpl#recordActivityHeartbeat(String)} as
+ * often as it likes while the service sees at most one heartbeat per
+ * interval, carrying the latest details.
+ * <p>
+ * Delayed heartbeats of all the activities of the process are scheduled and
+ * sent by a few shared daemon threads that do nothing else, so a delayed
+ * heartbeat never waits for a thread held by unrelated work. A cancellation
+ * request or a failure returned to a
+ * delayed heartbeat is reported by the following call to
+ * {@link #recordHeartbeat(String)}, and the cancellation request is also
+ * visible right away through {@link #isCancelRequested()}.
+ */
+class ActivityHeartbeatManager {
+
+    private static final Log log = LogFactory.getLog(ActivityHeartbeatManager.class);
+
+    private static final String THREAD_NAME = "SWF Activity Heartbeat";
+
+    /**
+     * Number of threads sending delayed heartbeats, so that a slow heartbeat
+     * of one activity doesn't hold back the heartbeats of the others.
+     */
+    private static final int SCHEDULER_THREADS = 4;
+
+    /**
+     * Fraction of the heartbeat timeout used as the heartbeat interval, which
+     * leaves time for a delayed heartbeat to reach the service before the
+     * timeout even if it has to be retried.
+     */
+    private static final int HEARTBEAT_TIMEOUT_DIVISOR = 3;
+
+    /** Interval used when the activity type doesn't have a heartbeat timeout */
+    static final long DEFAULT_HEARTBEAT_INTERVAL_MILLISECONDS = 5000;
+
+    private static ScheduledThreadPoolExecutor scheduler;
+
+    private final AmazonSimpleWorkflow service;
+
+    private final String taskToken;
+
+    private final long intervalNanos;
+
+    /** Guarded by this */
+    private boolean sent;
+
+    /** Guarded by this */
+    private long lastSentNanos;
+
+    /** Guarded by this */
+    private String pendingDetails;
+
+    /** Guarded by this */
+    private ScheduledFuture<?> scheduledSend;
+
+    /** Guarded by this */
+    private RuntimeException failure;
+
+    /** Guarded by this */
+    private boolean closed;
+
+    private volatile boolean cancelRequested;
+
+    /**
+     * @param intervalMilliseconds
+     *            minimum time between two heartbeats sent to the service, 0 to
+     *            send every heartbeat right away
+     */
+    ActivityHeartbeatManager(AmazonSimpleWorkflow service, String taskToken, long intervalMilliseconds) {
+        this.service = service;
+        this.taskToken = taskToken;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMilliseconds);
+    }
+
+    /**
+     * Returns the heartbeat interval of a task from its heartbeat timeout.
+     * 
+     * @param heartbeatTimeoutSeconds
+     *            heartbeat timeout of the activity type, null or not positive
+     *            if the type doesn't have one
+     */
+    static long getHeartbeatInterval(Long heartbeatTimeoutSeconds) {
+        if (heartbeatTimeoutSeconds == null || heartbeatTimeoutSeconds <= 0) {
+            return DEFAULT_HEARTBEAT_INTERVAL_MILLISECONDS;
+        }
+        return Math.min(TimeUnit.SECONDS.toMillis(heartbeatTimeoutSeconds) / HEARTBEAT_TIMEOUT_DIVISOR,
+                DEFAULT_HEARTBEAT_INTERVAL_MILLISECONDS);
+    }
+
+    private static synchronized ScheduledThreadPoolExecutor getScheduler() {
+        if (scheduler == null) {
+            scheduler = new ScheduledThreadPoolExecutor(SCHEDULER_THREADS, new ThreadFactory() {
+
+                private final AtomicInteger threadCount = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread result = new Thread(r, THREAD_NAME + " " + threadCount.incrementAndGet());
+                    result.setDaemon(true);
+                    return result;
+                }
+            });
+        }
+        return scheduler;
+    }
+
+    /**
+     * Records a heartbeat, sending it right away unless a heartbeat was sent
+     * less than the heartbeat interval ago.
+     * 
+     * @throws CancellationException
+     *             if the service reported that cancellation of the activity
+     *             was requested
+     */
+    void recordHeartbeat(String details) throws CancellationException {
+        synchronized (this) {
+            if (failure != null) {
+                RuntimeException e = failure;
+                failure = null;
+                throw e;
+            }
+            if (cancelRequested) {
+                throw new CancellationException();
+            }
+            long now = System.nanoTime();
+            if (sent && now - lastSentNanos < intervalNanos) {
+                pendingDetails = details;
+                if (scheduledSend == null) {
+                    scheduledSend = getScheduler().schedule(new Runnable() {
+
+                        @Override
+                        public void run() {
+                            sendPending();
+                        }
+                    }, lastSentNanos + intervalNanos - now, TimeUnit.NANOSECONDS);
+                }
+                return;
+            }
+            markSent(now);
+        }
+        send(details);
+        if (cancelRequested) {
+            throw new CancellationException();
+        }
+    }
+
+    boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    /**
+     * Drops the pending heartbeat, if any, once the activity is done.
+     */
+    synchronized void close() {
+        closed = true;
+        pendingDetails = null;
+        if (scheduledSend != null) {
+            scheduledSend.cancel(false);
+            scheduledSend = null;
+        }
+    }
+
+    private void markSent(long now) {
+        sent = true;
+        lastSentNanos = now;
+        pendingDetails = null;
+        if (scheduledSend != null) {
+            scheduledSend.cancel(false);
+            scheduledSend = null;
+        }
+    }
+
+    /**
+     * Sends the latest pending details, on the scheduler thread.
+     */
+    private void sendPending() {
+        String details;
+        synchronized (this) {
+            if (closed || scheduledSend == null) {
+                return;
+            }
+            details = pendingDetails;
+            markSent(System.nanoTime());
+        }
+        try {
+            send(details);
+        }
+        catch (RuntimeException e) {
+            if (log.isWarnEnabled()) {
+                log.warn("Failure sending heartbeat of activity task " + taskToken, e);
+            }
+            synchronized (this) {
+                failure = e;
+            }
+        }
+    }
+
+    private void send(String details) {
+        RecordActivityTaskHeartbeatRequest r = new RecordActivityTaskHeartbeatRequest();
+        r.setTaskToken(taskToken);
+        r.setDetails(details);
+        ActivityTaskStatus status = service.recordActivityTaskHeartbeat(r);
+        if (status.isCancelRequested()) {
+            cancelRequested = true;
+        }
+    }
+}
@@ -83,11 +83,13 @@ public class ActivityTaskPoller extends SynchronousActivityTaskPoller {
                 return false;
             }
             semaphoreNeedsRelease = false;
+            final long polledNanos = System.nanoTime();
             try {
                 taskExecutorService.execute(new Runnable() {
 
                     @Override
                     public void run() {
+                        getPollMetrics().recordTaskStarted(System.nanoTime() - polledNanos);
                         try {
                             execute(task);
                         }
@@ -116,6 +118,14 @@ public class ActivityTaskPoller extends SynchronousActivityTaskPoller {
         return true;
     }
 
+    /**
+     * @return true if all the threads of the task executor are busy, so a
+     *         newly polled task would have to wait for one of them
+     */
+    public boolean isSaturated() {
+        return taskExecutorService.getActiveCount() >= taskExecutorService.getMaximumPoolSize();
+    }
+
     private Exception wrapFailure(final ActivityTask task, Throwable failure) {
         WorkflowExecution execution = task.getWorkflowExecution();
 
@@ -14,6 +14,8 @@
  */
 package com.amazonaws.services.simpleworkflow.flow.worker;
 
+import com.amazonaws.services.simpleworkflow.flow.common.FlowConstants;
+
 public class ActivityTypeExecutionOptions {
 	private boolean manualActivityCompletion;
 	private long respondTaskCompletedRetryInitialInterval = 1000;
@@ -21,6 +23,7 @@ public class ActivityTypeExecutionOptions {
     private int respondTaskCompletedMaximumRetries = 5;
     private double respondTaskCompletedBackoffCoefficient = 2;
     private boolean doNotRetryTaskFailed;
+    private long minimumHeartbeatInterval = FlowConstants.USE_REGISTERED_DEFAULTS;
     
     public double getRespondTaskCompletedBackoffCoefficient() {
         return respondTaskCompletedBackoffCoefficient;
@@ -70,6 +73,21 @@ public class ActivityTypeExecutionOptions {
         this.doNotRetryTaskFailed = doNotRetryTaskFailed;
     }
 
+    public long getMinimumHeartbeatInterval() {
+        return minimumHeartbeatInterval;
+    }
+
+    /**
+     * Minimum time in milliseconds between two heartbeats sent to the
+     * service. Heartbeats recorded more often are coalesced and only the last
+     * details are sent. The default of
+     * {@link FlowConstants#USE_REGISTERED_DEFAULTS} derives it from the
+     * registered heartbeat timeout. 0 sends every heartbeat right away.
+     */
+    public void setMinimumHeartbeatInterval(long minimumHeartbeatInterval) {
+        this.minimumHeartbeatInterval = minimumHeartbeatInterval;
+    }
+
     @Override
     public String toString() {
         return "ActivityTypeExecutionOptions [isAsynchronous=" + manualActivityCompletion + "]";
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2012-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ * use this file except in compliance with the License. A copy of the License is
+ * located at
+ * 
+ * http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.simpleworkflow.flow.worker;
+
+/**
+ * Limits the number of concurrent polls of a worker to a target that adapts
+ * to the observed load. Every poll that returns a task raises the target by
+ * one, up to the maximum, as more tasks are likely waiting. Every poll that
+ * times out empty, or returns a task while the task executor is saturated,
+ * lowers it by one, down to the minimum. Poll threads above the target wait
+ * without holding an open poll request.
+ */
+class AdaptivePollConcurrency {
+
+    private final int minimum;
+
+    private final int maximum;
+
+    /** Guarded by this */
+    private int target;
+
+    /** Guarded by this */
+    private int active;
+
+    /** Guarded by this */
+    private boolean closed;
+
+    AdaptivePollConcurrency(int minimum, int maximum) {
+        if (minimum < 1 || minimum > maximum) {
+            throw new IllegalArgumentException("expected 1 <= minimum <= maximum: minimum=" + minimum + ", maximum="
+                    + maximum);
+        }
+        this.minimum = minimum;
+        this.maximum = maximum;
+        this.target = minimum;
+    }
+
+    /**
+     * Waits until a poll is allowed.
+     * 
+     * @return false if closed, in which case no poll should be made
+     */
+    synchronized boolean acquire() throws InterruptedException {
+        while (!closed && active >= target) {
+            wait();
+        }
+        if (closed) {
+            return false;
+        }
+        active++;
+        return true;
+    }
+
+    /**
+     * Ends a poll acquired through {@link #acquire()} and adjusts the target
+     * according to its outcome.
+     * 
+     * @param taskReceived
+     *            if the poll returned a task
+     * @param saturated
+     *            if there is no capacity left to execute more tasks
+     */
+    synchronized void release(boolean taskReceived, boolean saturated) {
+        if (taskReceived && !saturated) {
+            if (target < maximum) {
+                target++;
+            }
+        }
+        else if (target > minimum) {
+            target--;
+        }
+        release();
+    }
+
+    /**
+     * Ends a poll acquired through {@link #acquire()} that failed, leaving
+     * the target unchanged.
+     */
+    synchronized void release() {
+        active--;
+        notifyAll();
+    }
+
+    /**
+     * Wakes up all waiting poll threads and makes any further
+     * {@link #acquire()} return false.
+     */
+    synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    synchronized int getTarget() {
+        return target;
+    }
+}
@@ -16,6 +16,7 @@ package com.amazonaws.services.simpleworkflow.flow.worker;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CancellationException;
 
 import org.apache.commons.logging.Log;
@@ -25,6 +26,7 @@ import com.amazonaws.AmazonServiceException;
 import com.amazonaws.AmazonServiceException.ErrorType;
 import com.amazonaws.services.simpleworkflow.flow.DecisionContext;
 import com.amazonaws.services.simpleworkflow.flow.WorkflowException;
+import com.amazonaws.services.simpleworkflow.flow.WorkflowExecutionLocal;
 import com.amazonaws.services.simpleworkflow.flow.core.AsyncScope;
 import com.amazonaws.services.simpleworkflow.flow.core.AsyncTaskInfo;
 import com.amazonaws.services.simpleworkflow.flow.core.Promise;
@@ -131,7 +133,7 @@ class AsyncDecider {
 
     private WorkflowDefinition definition;
 
-    private final HistoryHelper historyHelper;
+    private HistoryHelper historyHelper;
 
     private final DecisionsHelper decisionsHelper;
 
@@ -155,6 +157,17 @@ class AsyncDecider {
 
     private Throwable failure;
 
+    /**
+     * Id of the DecisionTaskStarted event of the last decision, or 0 if this
+     * decider can't continue with the next decision task.
+     */
+    private long continuableAfterEventId;
+
+    /** Values of the workflow execution locals while suspended */
+    private Map<WorkflowExecutionLocal<?>, Object> suspendedLocals;
+
+    private boolean released;
+
     public AsyncDecider(WorkflowDefinitionFactory workflowDefinitionFactory, HistoryHelper historyHelper,
             DecisionsHelper decisionsHelper) throws Exception {
         this.workflowDefinitionFactory = workflowDefinitionFactory;
@@ -425,8 +438,27 @@ class AsyncDecider {
     }
 
     public void decide() throws Exception {
+        decide(true);
+    }
+
+    /**
+     * Replays the history and makes the decisions of the current decision
+     * task. If this decider was {@link #resume(HistoryHelper) resumed}, only
+     * the events that follow its previous decision are processed.
+     * 
+     * @param release
+     *            if false the workflow definition is kept alive and the caller
+     *            must either {@link #suspend()} or {@link #release()} this
+     *            decider once it's done with it.
+     */
+    void decide(boolean release) throws Exception {
+        long resumeAfterEventId = continuableAfterEventId;
+        continuableAfterEventId = 0;
+        boolean decided = false;
         try {
-            definition = workflowDefinitionFactory.getWorkflowDefinition(context);
+            if (definition == null) {
+                definition = workflowDefinitionFactory.getWorkflowDefinition(context);
+            }
             if (definition == null) {
                 throw new IllegalStateException("Unknown workflow type: " + context.getWorkflowContext().getWorkflowType());
             }
@@ -434,10 +466,19 @@ class AsyncDecider {
             // Buffer events until the next DecisionTaskStarted and then process them
             // setting current time to the time of DecisionTaskStarted event
             EventsIterator eventsIterator = historyHelper.getEvents();
-            List<HistoryEvent> reordered = null;
+            if (resumeAfterEventId > 0) {
+                // Everything up to the previous decision has already been processed by this decider
+                while (eventsIterator.hasNext()) {
+                    if (eventsIterator.next().getEventId() == resumeAfterEventId) {
+                        break;
+                    }
+                }
+            }
+            // Reused for every decision so that replaying a long history doesn't allocate per decision.
+            // They are cleared as soon as their events are processed to not hold on to them.
+            List<HistoryEvent> decisionStartToCompletionEvents = new ArrayList<HistoryEvent>();
+            List<HistoryEvent> decisionCompletionToStartEvents = new ArrayList<HistoryEvent>();
             do {
-                List<HistoryEvent> decisionStartToCompletionEvents = new ArrayList<HistoryEvent>();
-                List<HistoryEvent> decisionCompletionToStartEvents = new ArrayList<HistoryEvent>();
                 boolean concurrentToDecision = true;
                 int lastDecisionIndex = -1;
                 while (eventsIterator.hasNext()) {
@@ -471,35 +512,26 @@ class AsyncDecider {
                         }
                     }
                 }
-                int size = decisionStartToCompletionEvents.size() + decisionStartToCompletionEvents.size();
-                // Reorder events to correspond to the order that decider sees them. 
+                // Process events in the order that decider sees them. 
                 // The main difference is that events that were added during decision task execution 
                 // should be processed after events that correspond to the decisions. 
                 // Otherwise the replay is going to break.
-                reordered = new ArrayList<HistoryEvent>(size);
                 // First are events that correspond to the previous task decisions
-                if (lastDecisionIndex >= 0) {
-                    reordered.addAll(decisionCompletionToStartEvents.subList(0, lastDecisionIndex + 1));
-                }
+                processEvents(decisionCompletionToStartEvents, 0, lastDecisionIndex + 1, lastNonReplayedEventId);
                 // Second are events that were added during previous task execution
-                reordered.addAll(decisionStartToCompletionEvents);
+                processEvents(decisionStartToCompletionEvents, 0, decisionStartToCompletionEvents.size(), lastNonReplayedEventId);
                 // The last are events that were added after previous task completion
-                if (decisionCompletionToStartEvents.size() > lastDecisionIndex + 1) {
-                    reordered.addAll(decisionCompletionToStartEvents.subList(lastDecisionIndex + 1,
-                            decisionCompletionToStartEvents.size()));
-                }
-                for (HistoryEvent event : reordered) {
-                    if (event.getEventId() >= lastNonReplayedEventId) {
-                        workflowClock.setReplaying(false);
-                    }
-                    EventType eventType = EventType.valueOf(event.getEventType());
-                    processEvent(event, eventType);
-                    eventLoop(event);
-                }
+                processEvents(decisionCompletionToStartEvents, lastDecisionIndex + 1, decisionCompletionToStartEvents.size(),
+                        lastNonReplayedEventId);
+                decisionStartToCompletionEvents.clear();
+                decisionCompletionToStartEvents.clear();
                 completeWorkflow();
 
             }
             while (eventsIterator.hasNext());
+            // A decider that hit an unhandled decision doesn't match what a replay of the
+            // next decision task would rebuild, so it can't be continued.
+            decided = !completed && !unhandledDecision;
             if (unhandledDecision) {
                 unhandledDecision = false;
                 completeWorkflow();
@@ -534,7 +566,82 @@ class AsyncDecider {
             catch (Throwable e) {
                 decisionsHelper.setWorkflowContextData(e.getMessage());
             }
-            workflowDefinitionFactory.deleteWorkflowDefinition(this.definition);
+            if (decided && !decisionsHelper.isWorkflowFailed()) {
+                continuableAfterEventId = historyHelper.getDecisionTask().getStartedEventId();
+            }
+            if (release) {
+                release();
+            }
+        }
+    }
+
+    /**
+     * @return true if this decider can continue with the decision task that
+     *         follows the one it last decided, instead of a new decider
+     *         replaying the whole history.
+     */
+    boolean isContinuable() {
+        return continuableAfterEventId > 0;
+    }
+
+    /**
+     * @return true if the specified decision task follows the one this decider
+     *         last decided, with no other decision in between.
+     */
+    boolean isContinuedBy(DecisionTask decisionTask) {
+        Long previousStartedEventId = decisionTask.getPreviousStartedEventId();
+        return continuableAfterEventId > 0 && previousStartedEventId != null
+                && previousStartedEventId.longValue() == continuableAfterEventId;
+    }
+
+    /**
+     * Detaches this decider, including the workflow execution locals of its
+     * workflow, from the current thread so that it can be resumed later.
+     */
+    void suspend() {
+        suspendedLocals = WorkflowExecutionLocal.capture();
+        WorkflowExecutionLocal.after();
+    }
+
+    /**
+     * Attaches a suspended decider to the current thread, to continue with the
+     * events of the specified history that follow its last decision.
+     */
+    void resume(HistoryHelper historyHelper) {
+        this.historyHelper = historyHelper;
+        if (suspendedLocals != null) {
+            WorkflowExecutionLocal.restore(suspendedLocals);
+            suspendedLocals = null;
+        }
+    }
+
+    /**
+     * Deletes the workflow definition of this decider, which can't be used
+     * any more.
+     */
+    void release() {
+        continuableAfterEventId = 0;
+        if (released || definition == null) {
+            return;
+        }
+        released = true;
+        if (suspendedLocals != null) {
+            WorkflowExecutionLocal.restore(suspendedLocals);
+            suspendedLocals = null;
+        }
+        workflowDefinitionFactory.deleteWorkflowDefinition(this.definition);
+    }
+
+    private void processEvents(List<HistoryEvent> events, int fromIndex, int toIndex, long lastNonReplayedEventId)
+            throws Throwable {
+        for (int i = fromIndex; i < toIndex; i++) {
+            HistoryEvent event = events.get(i);
+            if (event.getEventId() >= lastNonReplayedEventId) {
+                workflowClock.setReplaying(false);
+            }
+            EventType eventType = EventType.valueOf(event.getEventType());
+            processEvent(event, eventType);
+            eventLoop(event);
         }
     }
 
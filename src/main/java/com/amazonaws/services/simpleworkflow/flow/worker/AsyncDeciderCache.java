@@ -0,0 +1,79 @@
+/*
+ * Copyright 2012-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ * use this file except in compliance with the License. A copy of the License is
+ * located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.simpleworkflow.flow.worker;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Least recently used cache of suspended deciders keyed by workflow run id.
+ * A decider is removed from the cache while it decides, so each one is only
+ * used by a single thread at a time. Deciders dropped from the cache are
+ * released by the thread that dropped them.
+ */
+class AsyncDeciderCache {
+
+    private final int maximumSize;
+
+    /** Guarded by this */
+    private final LinkedHashMap<String, AsyncDecider> deciders = new LinkedHashMap<String, AsyncDecider>(16, 0.75f, true);
+
+    AsyncDeciderCache(int maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Removes and returns the decider of the specified run, or null if it
+     * isn't in the cache.
+     */
+    synchronized AsyncDecider remove(String runId) {
+        return deciders.remove(runId);
+    }
+
+    /**
+     * Adds a suspended decider, releasing the least recently used deciders if
+     * the cache is full.
+     */
+    void put(String runId, AsyncDecider decider) {
+        List<AsyncDecider> evicted = null;
+        synchronized (this) {
+            AsyncDecider previous = deciders.put(runId, decider);
+            if (previous != null && previous != decider) {
+                evicted = new ArrayList<AsyncDecider>();
+                evicted.add(previous);
+            }
+            Iterator<Map.Entry<String, AsyncDecider>> iterator = deciders.entrySet().iterator();
+            while (deciders.size() > maximumSize && iterator.hasNext()) {
+                if (evicted == null) {
+                    evicted = new ArrayList<AsyncDecider>();
+                }
+                evicted.add(iterator.next().getValue());
+                iterator.remove();
+            }
+        }
+        if (evicted != null) {
+            for (AsyncDecider d : evicted) {
+                d.release();
+            }
+        }
+    }
+
+    synchronized int size() {
+        return deciders.size();
+    }
+}
@@ -17,6 +17,7 @@ package com.amazonaws.services.simpleworkflow.flow.worker;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -39,15 +40,73 @@ public class AsyncDecisionTaskHandler extends DecisionTaskHandler {
 
     private final WorkflowDefinitionFactoryFactory definitionFactoryFactory;
 
+    private final AsyncDeciderCache deciderCache;
+
+    private final AtomicLong deciderCacheHitCount = new AtomicLong();
+
+    private final AtomicLong deciderCacheMissCount = new AtomicLong();
+
     public AsyncDecisionTaskHandler(WorkflowDefinitionFactoryFactory definitionFactoryFactory) {
+        this(definitionFactoryFactory, 0);
+    }
+
+    /**
+     * @param deciderCacheSize
+     *            maximum number of workflow runs whose deciders are kept in
+     *            memory between decision tasks. A decision task that directly
+     *            follows the previous decision of a cached run only processes
+     *            the new events instead of replaying the whole history. 0
+     *            disables the cache.
+     */
+    public AsyncDecisionTaskHandler(WorkflowDefinitionFactoryFactory definitionFactoryFactory, int deciderCacheSize) {
         this.definitionFactoryFactory = definitionFactoryFactory;
+        this.deciderCache = deciderCacheSize > 0 ? new AsyncDeciderCache(deciderCacheSize) : null;
+    }
+
+    /**
+     * @return number of decision tasks that continued a cached decider
+     */
+    public long getDeciderCacheHitCount() {
+        return deciderCacheHitCount.get();
+    }
+
+    /**
+     * @return number of decision tasks that had to replay the whole history
+     *         while the decider cache was enabled
+     */
+    public long getDeciderCacheMissCount() {
+        return deciderCacheMissCount.get();
     }
 
     @Override
     public RespondDecisionTaskCompletedRequest handleDecisionTask(Iterator<DecisionTask> decisionTaskIterator) throws Exception {
         HistoryHelper historyHelper = new HistoryHelper(decisionTaskIterator);
-        AsyncDecider decider = createDecider(historyHelper);
-        decider.decide();
+        AsyncDecider decider = null;
+        if (deciderCache != null) {
+            decider = resumeCachedDecider(historyHelper);
+        }
+        if (decider == null) {
+            decider = createDecider(historyHelper);
+        }
+        if (deciderCache == null) {
+            decider.decide();
+        }
+        else {
+            try {
+                decider.decide(false);
+            }
+            catch (Exception e) {
+                decider.release();
+                throw e;
+            }
+            if (decider.isContinuable()) {
+                decider.suspend();
+                deciderCache.put(historyHelper.getDecisionTask().getWorkflowExecution().getRunId(), decider);
+            }
+            else {
+                decider.release();
+            }
+        }
         DecisionsHelper decisionsHelper = decider.getDecisionsHelper();
         Collection<Decision> decisions = decisionsHelper.getDecisions();
         String context = decisionsHelper.getWorkflowContextDataToReturn();
@@ -95,6 +154,33 @@ public class AsyncDecisionTaskHandler extends DecisionTaskHandler {
         return decider.getAsynchronousThreadDumpAsString();
     }
 
+    /**
+     * Returns the cached decider of the workflow run of the decision task,
+     * resumed and ready to decide, or null if there is no cached decider or
+     * the decision task doesn't follow its last decision, for example because
+     * that decision failed or timed out.
+     */
+    private AsyncDecider resumeCachedDecider(HistoryHelper historyHelper) {
+        DecisionTask decisionTask = historyHelper.getDecisionTask();
+        AsyncDecider decider = deciderCache.remove(decisionTask.getWorkflowExecution().getRunId());
+        if (decider != null && !decider.isContinuedBy(decisionTask)) {
+            if (log.isDebugEnabled()) {
+                log.debug("Replaying the whole history of " + decisionTask.getWorkflowExecution()
+                        + " as it diverged from the cached decider: previousStartedEventId="
+                        + decisionTask.getPreviousStartedEventId());
+            }
+            decider.release();
+            decider = null;
+        }
+        if (decider == null) {
+            deciderCacheMissCount.incrementAndGet();
+            return null;
+        }
+        deciderCacheHitCount.incrementAndGet();
+        decider.resume(historyHelper);
+        return decider;
+    }
+
     private AsyncDecider createDecider(HistoryHelper historyHelper) throws Exception {
         DecisionTask decisionTask = historyHelper.getDecisionTask();
         WorkflowType workflowType = decisionTask.getWorkflowType();
@@ -111,7 +197,7 @@ public class AsyncDecisionTaskHandler extends DecisionTaskHandler {
                 throw new IllegalArgumentException("No implementation was found for " + decisionTask.getWorkflowType());
             }
         }
-        DecisionsHelper decisionsHelper = new DecisionsHelper(decisionTask);
+        DecisionsHelper decisionsHelper = new DecisionsHelper();
         AsyncDecider decider = new AsyncDecider(workflowDefinitionFactory, historyHelper, decisionsHelper);
         return decider;
     }
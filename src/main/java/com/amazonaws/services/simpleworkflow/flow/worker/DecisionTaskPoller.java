@@ -16,11 +16,18 @@ package com.amazonaws.services.simpleworkflow.flow.worker;
 
 import java.lang.management.ManagementFactory;
 import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import com.amazonaws.ExecutorConfiguration;
+import com.amazonaws.internal.BoundedExecutor;
 import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
 import com.amazonaws.services.simpleworkflow.flow.common.WorkflowExecutionUtils;
 import com.amazonaws.services.simpleworkflow.model.DecisionTask;
@@ -34,18 +41,31 @@ public class DecisionTaskPoller implements TaskPoller {
 
     private static final Log decisionsLog = LogFactory.getLog(DecisionTaskPoller.class.getName() + ".decisions");
 
+    /** The maximum number of history pages retrieved in the background at the same time */
+    private static final int MAX_PAGE_PREFETCHES = 4;
+
+    /**
+     * Iterates over the pages of a decision task. As soon as a page is
+     * returned the following one is requested in the background, so that
+     * fetching it overlaps with the replay of the returned one.
+     */
     private class DecisionTaskIterator implements Iterator<DecisionTask> {
 
         private final DecisionTask firstDecisionTask;
 
         private DecisionTask next;
 
+        private Future<DecisionTask> nextPage;
+
         public DecisionTaskIterator() {
             next = firstDecisionTask = poll(null);
         }
 
         @Override
         public boolean hasNext() {
+            if (next == null && nextPage != null) {
+                next = getNextPage();
+            }
             return next != null;
         }
 
@@ -55,15 +75,13 @@ public class DecisionTaskPoller implements TaskPoller {
                 throw new IllegalStateException("hasNext() == false");
             }
             DecisionTask result = next;
-            if (next.getNextPageToken() == null) {
-                next = null;
+            next = null;
+            if (result.getNextPageToken() != null) {
+                nextPage = prefetch(result.getNextPageToken());
             }
-            else {
-                next = poll(next.getNextPageToken());
-                // Just to not keep around the history page
-                if (firstDecisionTask != result) {
-                    firstDecisionTask.setEvents(null);
-                }
+            // Just to not keep around the history page
+            if (firstDecisionTask != result) {
+                firstDecisionTask.setEvents(null);
             }
             return result;
         }
@@ -77,6 +95,39 @@ public class DecisionTaskPoller implements TaskPoller {
             return firstDecisionTask;
         }
 
+        /**
+         * Abandons the page being fetched in the background, if any.
+         */
+        public void close() {
+            if (nextPage != null) {
+                nextPage.cancel(false);
+                nextPage = null;
+            }
+        }
+
+        private DecisionTask getNextPage() {
+            Future<DecisionTask> page = nextPage;
+            nextPage = null;
+            try {
+                return page.get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                page.cancel(true);
+                throw new IllegalStateException("Interrupted while retrieving a history page", e);
+            }
+            catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException("Failure retrieving a history page", cause);
+            }
+        }
+
     }
 
     private AmazonSimpleWorkflow service;
@@ -91,6 +142,18 @@ public class DecisionTaskPoller implements TaskPoller {
 
     private DecisionTaskHandler decisionTaskHandler;
 
+    private PollMetrics pollMetrics = new PollMetrics();
+
+    /**
+     * Retrieves history pages in the background. It belongs to this poller
+     * and only ever runs page polls, so a replay never waits for a thread held
+     * by a task that is itself waiting.
+     */
+    private final BoundedExecutor pagePrefetchExecutor = new BoundedExecutor(new ExecutorConfiguration()
+            .withMaxThreads(MAX_PAGE_PREFETCHES)
+            .withMaxQueuedTasks(MAX_PAGE_PREFETCHES)
+            .withThreadNamePrefix("swf-decision-history-prefetch"));
+
     public DecisionTaskPoller() {
         identity = ManagementFactory.getRuntimeMXBean().getName();
     }
@@ -135,6 +198,14 @@ public class DecisionTaskPoller implements TaskPoller {
         this.service = service;
     }
 
+    public PollMetrics getPollMetrics() {
+        return pollMetrics;
+    }
+
+    public void setPollMetrics(PollMetrics pollMetrics) {
+        this.pollMetrics = pollMetrics;
+    }
+
     public void setDomain(String domain) {
         this.domain = domain;
     }
@@ -147,6 +218,28 @@ public class DecisionTaskPoller implements TaskPoller {
         this.taskListToPoll = pollTaskList;
     }
 
+    /**
+     * Starts polling for the history page with the specified token in the
+     * background, or in the current thread when too many pages are already
+     * being retrieved or the poller has been shut down.
+     */
+    private Future<DecisionTask> prefetch(final String nextPageToken) {
+        FutureTask<DecisionTask> result = new FutureTask<DecisionTask>(new Callable<DecisionTask>() {
+
+            @Override
+            public DecisionTask call() throws Exception {
+                return poll(nextPageToken);
+            }
+        });
+        try {
+            pagePrefetchExecutor.execute(result);
+        }
+        catch (RejectedExecutionException e) {
+            result.run();
+        }
+        return result;
+    }
+
     /**
      * Poll for a task using {@link #getPollTimeoutInSeconds()}
      * 
@@ -168,7 +261,12 @@ public class DecisionTaskPoller implements TaskPoller {
         if (log.isDebugEnabled()) {
             log.debug("poll request begin: " + pollRequest);
         }
+        long start = System.nanoTime();
         DecisionTask result = service.pollForDecisionTask(pollRequest);
+        if (nextResultToken == null) {
+            // Pages of a task already received aren't polls for new tasks
+            pollMetrics.recordPoll(System.nanoTime() - start, result == null || result.getTaskToken() == null);
+        }
         if (log.isDebugEnabled()) {
             log.debug("poll request returned decision task: workflowType=" + result.getWorkflowType() + ", workflowExecution="
                     + result.getWorkflowExecution() + ", startedEventId=" + result.getStartedEventId() + ", previousStartedEventId=" + result.getPreviousStartedEventId());
@@ -224,6 +322,11 @@ public class DecisionTaskPoller implements TaskPoller {
             }
             throw e;
         }
+        finally {
+            if (tasks != null) {
+                tasks.close();
+            }
+        }
         return true;
     }
 
@@ -256,15 +359,17 @@ public class DecisionTaskPoller implements TaskPoller {
 
     @Override
     public void shutdown() {
+        pagePrefetchExecutor.shutdown();
     }
 
     @Override
     public void shutdownNow() {
+        pagePrefetchExecutor.shutdownNow();
     }
 
     @Override
     public boolean awaitTermination(long left, TimeUnit milliseconds) throws InterruptedException {
-        //TODO: Waiting for all currently running pollAndProcessSingleTask to complete 
-        return false;
+        // Running pollAndProcessSingleTask calls are waited for by the worker's poll executor
+        return pagePrefetchExecutor.awaitTermination(left, milliseconds);
     }
 }
@@ -40,7 +40,6 @@ import com.amazonaws.services.simpleworkflow.model.ChildWorkflowExecutionStarted
 import com.amazonaws.services.simpleworkflow.model.CompleteWorkflowExecutionDecisionAttributes;
 import com.amazonaws.services.simpleworkflow.model.ContinueAsNewWorkflowExecutionDecisionAttributes;
 import com.amazonaws.services.simpleworkflow.model.Decision;
-import com.amazonaws.services.simpleworkflow.model.DecisionTask;
 import com.amazonaws.services.simpleworkflow.model.DecisionTaskCompletedEventAttributes;
 import com.amazonaws.services.simpleworkflow.model.DecisionType;
 import com.amazonaws.services.simpleworkflow.model.FailWorkflowExecutionDecisionAttributes;
@@ -70,8 +69,6 @@ class DecisionsHelper {
 
     static final String FORCE_IMMEDIATE_DECISION_TIMER = "FORCE_IMMEDIATE_DECISION";
 
-    private final DecisionTask task;
-
     private long idCounter;
 
     private final Map<Long, String> activitySchedulingEventIdToActivityId = new HashMap<Long, String>();
@@ -91,8 +88,7 @@ class DecisionsHelper {
 
     private String workfowContextFromLastDecisionCompletion;
 
-    DecisionsHelper(DecisionTask task) {
-        this.task = task;
+    DecisionsHelper() {
     }
 
     void scheduleActivityTask(ScheduleActivityTaskDecisionAttributes schedule) {
@@ -491,10 +487,6 @@ class DecisionsHelper {
         workfowContextFromLastDecisionCompletion = decisionTaskCompletedEventAttributes.getExecutionContext();
     }
 
-    DecisionTask getTask() {
-        return task;
-    }
-
     String getActivityId(ActivityTaskCanceledEventAttributes attributes) {
         Long sourceId = attributes.getScheduledEventId();
         return activitySchedulingEventIdToActivityId.get(sourceId);
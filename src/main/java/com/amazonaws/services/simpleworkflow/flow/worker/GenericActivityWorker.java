@@ -45,6 +45,8 @@ public class GenericActivityWorker extends GenericWorker {
 
     private int taskExecutorThreadPoolSize = 100;
 
+    private ActivityTaskPoller activityTaskPoller;
+
     public GenericActivityWorker(AmazonSimpleWorkflow service, String domain, String taskListToPoll) {
         super(service, domain, taskListToPoll);
         if (service == null) {
@@ -97,7 +99,17 @@ public class GenericActivityWorker extends GenericWorker {
                 new SynchronousQueue<Runnable>());
         tasksExecutor.setThreadFactory(new ExecutorThreadFactory(ACTIVITY_THREAD_NAME_PREFIX + " " + getTaskListToPoll() + " "));
         tasksExecutor.setRejectedExecutionHandler(new BlockCallerPolicy());
-        return new ActivityTaskPoller(service, domain, getTaskListToPoll(), activityImplementationFactory, tasksExecutor);
+        ActivityTaskPoller poller = new ActivityTaskPoller(service, domain, getTaskListToPoll(),
+                activityImplementationFactory, tasksExecutor);
+        poller.setPollMetrics(pollMetrics);
+        activityTaskPoller = poller;
+        return poller;
+    }
+
+    @Override
+    protected boolean isTaskExecutorSaturated() {
+        ActivityTaskPoller poller = activityTaskPoller;
+        return poller != null && poller.isSaturated();
     }
 
     @Override
@@ -64,6 +64,7 @@ public abstract class GenericWorker implements WorkerBase {
 
         @Override
         public void run() {
+            boolean acquired = false;
             try {
                 if (log.isDebugEnabled()) {
                     log.debug("poll task begin");
@@ -91,7 +92,17 @@ public abstract class GenericWorker implements WorkerBase {
                 if (pollExecutor.isTerminating()) {
                     return;
                 }
-                poller.pollAndProcessSingleTask();
+                if (pollConcurrency != null) {
+                    if (!pollConcurrency.acquire()) {
+                        return;
+                    }
+                    acquired = true;
+                }
+                boolean taskReceived = poller.pollAndProcessSingleTask();
+                if (acquired) {
+                    acquired = false;
+                    pollConcurrency.release(taskReceived, isTaskExecutorSaturated());
+                }
                 pollBackoffThrottler.success();
             }
             catch (Throwable e) {
@@ -101,6 +112,9 @@ public abstract class GenericWorker implements WorkerBase {
                 }
             }
             finally {
+                if (acquired) {
+                    pollConcurrency.release();
+                }
                 // Resubmit itself back to pollExecutor
                 if (!pollExecutor.isShutdown()) {
                     pollExecutor.execute(this);
@@ -145,6 +159,12 @@ public abstract class GenericWorker implements WorkerBase {
 
     private int pollThreadCount = 1;
 
+    private int minimumPollThreadCount;
+
+    private AdaptivePollConcurrency pollConcurrency;
+
+    protected final PollMetrics pollMetrics = new PollMetrics();
+
     private BackoffThrottler pollBackoffThrottler;
 
     private Throttler pollRateThrottler;
@@ -338,6 +358,56 @@ public abstract class GenericWorker implements WorkerBase {
         this.pollThreadCount = threadCount;
     }
 
+    public int getMinimumPollThreadCount() {
+        return minimumPollThreadCount;
+    }
+
+    /**
+     * Enables adaptive polling when set to a value between 1 and
+     * {@link #getPollThreadCount()} (exclusive). Polls then start with this
+     * number of concurrent poll requests, which grows towards the poll thread
+     * count while polls keep returning tasks and shrinks back while they time
+     * out empty or the task executor is saturated. Poll threads above the
+     * current concurrency don't hold poll requests open, so idle task lists
+     * only cost the minimum number of open polls. The default of 0 always
+     * keeps {@link #getPollThreadCount()} polls open.
+     */
+    public void setMinimumPollThreadCount(int minimumPollThreadCount) {
+        checkStarted();
+        if (minimumPollThreadCount < 0) {
+            throw new IllegalArgumentException("negative minimumPollThreadCount: " + minimumPollThreadCount);
+        }
+        this.minimumPollThreadCount = minimumPollThreadCount;
+    }
+
+    /**
+     * @return counters of the polls of this worker: number of polls, empty
+     *         polls, poll latency and the time polled tasks wait to be
+     *         executed
+     */
+    public PollMetrics getPollMetrics() {
+        return pollMetrics;
+    }
+
+    /**
+     * @return current number of concurrent polls allowed by adaptive polling,
+     *         or {@link #getPollThreadCount()} if it is disabled
+     */
+    public int getCurrentPollConcurrency() {
+        AdaptivePollConcurrency concurrency = pollConcurrency;
+        return concurrency == null ? pollThreadCount : concurrency.getTarget();
+    }
+
+    /**
+     * Used by adaptive polling to stop raising the poll concurrency when
+     * polled tasks can't be executed right away anyway.
+     * 
+     * @return true if no more tasks can be executed without waiting
+     */
+    protected boolean isTaskExecutorSaturated() {
+        return false;
+    }
+
     @Override
     public void setDisableTypeRegistrationOnStart(boolean disableTypeRegistrationOnStart) {
         this.disableTypeRegitrationOnStart = disableTypeRegistrationOnStart;
@@ -379,6 +449,9 @@ public abstract class GenericWorker implements WorkerBase {
 
         pollBackoffThrottler = new BackoffThrottler(pollBackoffInitialInterval, pollBackoffMaximumInterval,
                 pollBackoffCoefficient);
+        if (minimumPollThreadCount > 0 && minimumPollThreadCount < pollThreadCount) {
+            pollConcurrency = new AdaptivePollConcurrency(minimumPollThreadCount, pollThreadCount);
+        }
         poller = createPoller();
         for (int i = 0; i < pollThreadCount; i++) {
             pollExecutor.execute(new PollServiceTask(poller));
@@ -438,6 +511,9 @@ public abstract class GenericWorker implements WorkerBase {
         if (!disableServiceShutdownOnStop) {
             service.shutdown();
         }
+        if (pollConcurrency != null) {
+            pollConcurrency.close();
+        }
         pollExecutor.shutdown();
         poller.shutdown();
     }
@@ -453,6 +529,9 @@ public abstract class GenericWorker implements WorkerBase {
         if (!disableServiceShutdownOnStop) {
             service.shutdown();
         }
+        if (pollConcurrency != null) {
+            pollConcurrency.close();
+        }
         pollExecutor.shutdownNow();
         poller.shutdownNow();
     }
@@ -475,6 +554,9 @@ public abstract class GenericWorker implements WorkerBase {
         if (!disableServiceShutdownOnStop) {
             service.shutdown();
         }
+        if (pollConcurrency != null) {
+            pollConcurrency.close();
+        }
         pollExecutor.shutdownNow();
         try {
             pollExecutor.awaitTermination(timeout, unit);
@@ -492,7 +574,7 @@ public abstract class GenericWorker implements WorkerBase {
         return this.getClass().getSimpleName() + "[service=" + service + ", domain=" + domain + ", taskListToPoll="
                 + taskListToPoll + ", identity=" + identity + ", backoffInitialInterval=" + pollBackoffInitialInterval
                 + ", backoffMaximumInterval=" + pollBackoffMaximumInterval + ", backoffCoefficient=" + pollBackoffCoefficient
-                + "]";
+                + ", pollThreadCount=" + pollThreadCount + ", minimumPollThreadCount=" + minimumPollThreadCount + "]";
     }
 
     @Override
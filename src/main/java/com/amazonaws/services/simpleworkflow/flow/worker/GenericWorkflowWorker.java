@@ -38,6 +38,8 @@ public class GenericWorkflowWorker extends GenericWorker {
 
     private WorkflowDefinitionFactoryFactory workflowDefinitionFactoryFactory;
 
+    private int deciderCacheSize;
+
     public GenericWorkflowWorker() {
         setIdentity(ManagementFactory.getRuntimeMXBean().getName());
     }
@@ -57,6 +59,21 @@ public class GenericWorkflowWorker extends GenericWorker {
         this.workflowDefinitionFactoryFactory = workflowDefinitionFactoryFactory;
     }
 
+    public int getDeciderCacheSize() {
+        return deciderCacheSize;
+    }
+
+    /**
+     * Maximum number of workflow runs whose deciders are kept in memory
+     * between decision tasks. A decision task that directly follows the
+     * previous decision of a cached run only processes the new history events
+     * instead of replaying the whole history. The default of 0 disables the
+     * cache, so each decision task replays the history from the beginning.
+     */
+    public void setDeciderCacheSize(int deciderCacheSize) {
+        this.deciderCacheSize = deciderCacheSize;
+    }
+
     protected DecisionTaskPoller createWorkflowPoller() {
         DecisionTaskPoller poller = new DecisionTaskPoller();
         return poller;
@@ -75,11 +92,12 @@ public class GenericWorkflowWorker extends GenericWorker {
     @Override
     protected TaskPoller createPoller() {
         DecisionTaskPoller result = new DecisionTaskPoller();
-        result.setDecisionTaskHandler(new AsyncDecisionTaskHandler(workflowDefinitionFactoryFactory));
+        result.setDecisionTaskHandler(new AsyncDecisionTaskHandler(workflowDefinitionFactoryFactory, deciderCacheSize));
         result.setDomain(getDomain());
         result.setIdentity(getIdentity());
         result.setService(getService());
         result.setTaskListToPoll(getTaskListToPoll());
+        result.setPollMetrics(pollMetrics);
         return result;
     }
 
@@ -15,6 +15,7 @@
 package com.amazonaws.services.simpleworkflow.flow.worker;
 
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 
 import org.apache.commons.logging.Log;
@@ -29,24 +30,30 @@ class HistoryHelper {
 
     private static final Log historyLog = LogFactory.getLog(HistoryHelper.class.getName() + ".history");
 
+    /**
+     * Iterates over the events of all the pages of a decision task. Pages are
+     * requested from the underlying iterator only when their events are
+     * needed, and only the page being consumed is referenced, so a page can be
+     * garbage collected as soon as its last event has been returned.
+     */
     class EventsIterator implements Iterator<HistoryEvent> {
 
         private final Iterator<DecisionTask> decisionTasks;
 
         private DecisionTask decisionTask;
 
-        private List<HistoryEvent> events;
+        private Iterator<HistoryEvent> pageEvents;
 
-        private int index;
+        /**
+         * Events read ahead of the current position by
+         * {@link #isNextDecisionTimedOut()}, possibly from the following pages.
+         */
+        private final LinkedList<HistoryEvent> lookahead = new LinkedList<HistoryEvent>();
 
         public EventsIterator(Iterator<DecisionTask> decisionTasks) {
             this.decisionTasks = decisionTasks;
             if (decisionTasks.hasNext()) {
-                decisionTask = decisionTasks.next();
-                events = decisionTask.getEvents();
-                if (historyLog.isTraceEnabled()) {
-                    historyLog.trace(WorkflowExecutionUtils.prettyPrintHistory(events, true));
-                }
+                nextPage();
             }
             else {
                 decisionTask = null;
@@ -55,35 +62,48 @@ class HistoryHelper {
 
         @Override
         public boolean hasNext() {
-            return decisionTask != null && (index < events.size() || decisionTasks.hasNext());
+            if (decisionTask == null) {
+                return false;
+            }
+            return !lookahead.isEmpty() || pageEvents.hasNext() || decisionTasks.hasNext();
         }
 
         @Override
         public HistoryEvent next() {
-            if (index == events.size()) {
-                decisionTask = decisionTasks.next();
-                events = decisionTask.getEvents();
-                if (historyLog.isTraceEnabled()) {
-                    historyLog.trace(WorkflowExecutionUtils.prettyPrintHistory(events, true));
-                }
-                index = 0;
+            if (!lookahead.isEmpty()) {
+                return lookahead.removeFirst();
+            }
+            if (!pageEvents.hasNext()) {
+                nextPage();
             }
-            return events.get(index++);
+            return pageEvents.next();
         }
 
         public DecisionTask getDecisionTask() {
             return decisionTask;
         }
 
+        /**
+         * @return events of the page currently being consumed
+         */
         public List<HistoryEvent> getEvents() {
-            return events;
+            return decisionTask == null ? null : decisionTask.getEvents();
         }
 
         public boolean isNextDecisionTimedOut() {
-            int i = index;
+            for (HistoryEvent event : lookahead) {
+                EventType eventType = EventType.fromValue(event.getEventType());
+                if (eventType.equals(EventType.DecisionTaskTimedOut)) {
+                    return true;
+                }
+                else if (eventType.equals(EventType.DecisionTaskCompleted)) {
+                    return false;
+                }
+            }
             while (true) {
-                for (; i < events.size(); i++) {
-                    HistoryEvent event = events.get(i);
+                while (pageEvents.hasNext()) {
+                    HistoryEvent event = pageEvents.next();
+                    lookahead.add(event);
                     EventType eventType = EventType.fromValue(event.getEventType());
                     if (eventType.equals(EventType.DecisionTaskTimedOut)) {
                         return true;
@@ -95,13 +115,17 @@ class HistoryHelper {
                 if (!decisionTasks.hasNext()) {
                     return false;
                 }
-                decisionTask = decisionTasks.next();
-                List<HistoryEvent> nextPageEvents = decisionTask.getEvents();
-                if (historyLog.isTraceEnabled()) {
-                    historyLog.trace(WorkflowExecutionUtils.prettyPrintHistory(nextPageEvents, true));
-                }
-                events.addAll(nextPageEvents);
+                nextPage();
+            }
+        }
+
+        private void nextPage() {
+            decisionTask = decisionTasks.next();
+            List<HistoryEvent> events = decisionTask.getEvents();
+            if (historyLog.isTraceEnabled()) {
+                historyLog.trace(WorkflowExecutionUtils.prettyPrintHistory(events, true));
             }
+            pageEvents = events.iterator();
         }
 
         @Override
@@ -122,7 +146,11 @@ class HistoryHelper {
     }
 
     public String toString() {
-        return WorkflowExecutionUtils.prettyPrintHistory(events.getEvents(), true);
+        List<HistoryEvent> pageEvents = events.getEvents();
+        if (pageEvents == null) {
+            return super.toString();
+        }
+        return WorkflowExecutionUtils.prettyPrintHistory(pageEvents, true);
     }
 
     public DecisionTask getDecisionTask() {
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2012-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ * use this file except in compliance with the License. A copy of the License is
+ * located at
+ * 
+ * http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.simpleworkflow.flow.worker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters describing the polls of a worker. They are updated concurrently by
+ * all the poll threads and can be read at any time, for example to publish
+ * them to a monitoring system.
+ */
+public class PollMetrics {
+
+    private final AtomicLong pollCount = new AtomicLong();
+
+    private final AtomicLong emptyPollCount = new AtomicLong();
+
+    private final AtomicLong totalPollLatencyNanos = new AtomicLong();
+
+    private final AtomicLong taskCount = new AtomicLong();
+
+    private final AtomicLong totalTaskQueueTimeNanos = new AtomicLong();
+
+    /**
+     * Records a completed poll request.
+     * 
+     * @param latencyNanos
+     *            time the request took
+     * @param empty
+     *            <code>true</code> if the poll timed out without a task
+     */
+    public void recordPoll(long latencyNanos, boolean empty) {
+        pollCount.incrementAndGet();
+        totalPollLatencyNanos.addAndGet(latencyNanos);
+        if (empty) {
+            emptyPollCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Records the start of the execution of a polled task.
+     * 
+     * @param queueTimeNanos
+     *            time between the poll returning the task and its execution
+     *            starting
+     */
+    public void recordTaskStarted(long queueTimeNanos) {
+        taskCount.incrementAndGet();
+        totalTaskQueueTimeNanos.addAndGet(queueTimeNanos);
+    }
+
+    public long getPollCount() {
+        return pollCount.get();
+    }
+
+    /**
+     * @return number of polls that timed out without returning a task
+     */
+    public long getEmptyPollCount() {
+        return emptyPollCount.get();
+    }
+
+    public long getTotalPollLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalPollLatencyNanos.get());
+    }
+
+    /**
+     * @return average duration of a poll request, 0 if there were no polls
+     */
+    public long getAveragePollLatencyMillis() {
+        long count = pollCount.get();
+        return count == 0 ? 0 : getTotalPollLatencyMillis() / count;
+    }
+
+    /**
+     * @return number of polled tasks whose execution started
+     */
+    public long getTaskCount() {
+        return taskCount.get();
+    }
+
+    public long getTotalTaskQueueTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalTaskQueueTimeNanos.get());
+    }
+
+    /**
+     * @return average time a polled task waited for a thread to execute it, 0
+     *         if no task was executed
+     */
+    public long getAverageTaskQueueTimeMillis() {
+        long count = taskCount.get();
+        return count == 0 ? 0 : getTotalTaskQueueTimeMillis() / count;
+    }
+
+    @Override
+    public String toString() {
+        return "PollMetrics[pollCount=" + getPollCount() + ", emptyPollCount=" + getEmptyPollCount()
+                + ", averagePollLatencyMillis=" + getAveragePollLatencyMillis() + ", taskCount=" + getTaskCount()
+                + ", averageTaskQueueTimeMillis=" + getAverageTaskQueueTimeMillis() + "]";
+    }
+}
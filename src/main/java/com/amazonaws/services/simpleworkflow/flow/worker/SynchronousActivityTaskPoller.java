@@ -24,8 +24,8 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
-import com.amazonaws.services.simpleworkflow.flow.ActivityExecutionContext;
 import com.amazonaws.services.simpleworkflow.flow.ActivityFailureException;
+import com.amazonaws.services.simpleworkflow.flow.common.FlowConstants;
 import com.amazonaws.services.simpleworkflow.flow.common.WorkflowExecutionUtils;
 import com.amazonaws.services.simpleworkflow.flow.generic.ActivityImplementation;
 import com.amazonaws.services.simpleworkflow.flow.generic.ActivityImplementationFactory;
@@ -58,6 +58,8 @@ public class SynchronousActivityTaskPoller implements TaskPoller {
 
     private boolean initialized;
 
+    private PollMetrics pollMetrics = new PollMetrics();
+
     public SynchronousActivityTaskPoller(AmazonSimpleWorkflow service, String domain, String taskListToPoll,
             ActivityImplementationFactory activityImplementationFactory) {
         this();
@@ -131,6 +133,14 @@ public class SynchronousActivityTaskPoller implements TaskPoller {
         this.reportFailureRetrier = new SynchronousRetrier(reportFailureRetryParameters, UnknownResourceException.class);
     }
 
+    public PollMetrics getPollMetrics() {
+        return pollMetrics;
+    }
+
+    public void setPollMetrics(PollMetrics pollMetrics) {
+        this.pollMetrics = pollMetrics;
+    }
+
     public String getTaskListToPoll() {
         return taskListToPoll;
     }
@@ -155,8 +165,11 @@ public class SynchronousActivityTaskPoller implements TaskPoller {
         if (log.isDebugEnabled()) {
             log.debug("poll request begin: " + pollRequest);
         }
+        long start = System.nanoTime();
         ActivityTask result = service.pollForActivityTask(pollRequest);
-        if (result == null || result.getTaskToken() == null) {
+        boolean empty = result == null || result.getTaskToken() == null;
+        pollMetrics.recordPoll(System.nanoTime() - start, empty);
+        if (empty) {
             if (log.isDebugEnabled()) {
                 log.debug("poll request returned no task");
             }
@@ -187,14 +200,17 @@ public class SynchronousActivityTaskPoller implements TaskPoller {
     protected void execute(final ActivityTask task) throws Exception {
         String output = null;
         ActivityType activityType = task.getActivityType();
+        ActivityExecutionContextImpl context = null;
+        boolean manualActivityCompletion = false;
         try {
-            ActivityExecutionContext context = new ActivityExecutionContextImpl(service, domain, task);
             ActivityImplementation activityImplementation = activityImplementationFactory.getActivityImplementation(activityType);
             if (activityImplementation == null) {
                 throw new ActivityFailureException("Unknown activity type: " + activityType);
             }
+            context = new ActivityExecutionContextImpl(service, domain, task, getHeartbeatInterval(activityImplementation));
+            manualActivityCompletion = activityImplementation.getExecutionOptions().isManualActivityCompletion();
             output = activityImplementation.execute(context);
-            if (!activityImplementation.getExecutionOptions().isManualActivityCompletion()) {
+            if (!manualActivityCompletion) {
                 respondActivityTaskCompletedWithRetry(task.getTaskToken(), output);
             }
         }
@@ -222,6 +238,22 @@ public class SynchronousActivityTaskPoller implements TaskPoller {
             String details = sw.toString();
             respondActivityTaskFailedWithRetry(task.getTaskToken(), reason, details);
         }
+        finally {
+            // Heartbeats of a manually completed activity are still meaningful after execute returns
+            if (context != null && !manualActivityCompletion) {
+                context.close();
+            }
+        }
+    }
+
+    private long getHeartbeatInterval(ActivityImplementation activityImplementation) {
+        long interval = activityImplementation.getExecutionOptions().getMinimumHeartbeatInterval();
+        if (interval != FlowConstants.USE_REGISTERED_DEFAULTS) {
+            return Math.max(interval, 0);
+        }
+        ActivityTypeRegistrationOptions registrationOptions = activityImplementation.getRegistrationOptions();
+        Long heartbeatTimeout = registrationOptions == null ? null : registrationOptions.getDefaultTaskHeartbeatTimeoutSeconds();
+        return ActivityHeartbeatManager.getHeartbeatInterval(heartbeatTimeout);
     }
 
     protected void respondActivityTaskFailedWithRetry(final String taskToken, final String reason, final String details) {
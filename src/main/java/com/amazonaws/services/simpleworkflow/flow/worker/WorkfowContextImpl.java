@@ -29,22 +29,29 @@ import com.amazonaws.services.simpleworkflow.model.WorkflowType;
 
 class WorkfowContextImpl implements WorkflowContext {
 
-    private final DecisionTask decisionTask;
+    private final WorkflowExecution workflowExecution;
+    private final WorkflowType workflowType;
+    private final WorkflowExecutionStartedEventAttributes workflowStartedEventAttributes;
     private boolean cancelRequested;
     private ContinueAsNewWorkflowExecutionParameters continueAsNewOnCompletion;
     
     public WorkfowContextImpl(DecisionTask decisionTask) {
-        this.decisionTask = decisionTask;
+        // Keep only what's needed from the first history page, which is released as soon as it is replayed
+        this.workflowExecution = decisionTask.getWorkflowExecution();
+        this.workflowType = decisionTask.getWorkflowType();
+        List<HistoryEvent> events = decisionTask.getEvents();
+        this.workflowStartedEventAttributes = (events == null || events.isEmpty()) ? null
+                : events.get(0).getWorkflowExecutionStartedEventAttributes();
     }
     
     @Override
     public WorkflowExecution getWorkflowExecution() {
-        return decisionTask.getWorkflowExecution();
+        return workflowExecution;
     }
 
     @Override
     public WorkflowType getWorkflowType() {
-        return decisionTask.getWorkflowType();
+        return workflowType;
     }
 
     @Override
@@ -104,9 +111,7 @@ class WorkfowContextImpl implements WorkflowContext {
     }
     
     private WorkflowExecutionStartedEventAttributes getWorkflowStartedEventAttributes() {
-        HistoryEvent firstHistoryEvent = decisionTask.getEvents().get(0);
-        WorkflowExecutionStartedEventAttributes attributes = firstHistoryEvent.getWorkflowExecutionStartedEventAttributes();
-        return attributes;
+        return workflowStartedEventAttributes;
     }
 
 }
@@ -14,12 +14,12 @@
  */
 package com.amazonaws.services.sqs;
 
-import java.net.URI;
 import java.net.URISyntaxException;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.Request;
 import com.amazonaws.handlers.AbstractRequestHandler;
+import com.amazonaws.util.ParsedEndpoint;
 
 /**
  * Custom request handler for SQS that processes the request before it gets
@@ -37,15 +37,14 @@ public class QueueUrlHandler extends AbstractRequestHandler {
             String queueUrl = (String)request.getParameters().remove(QUEUE_URL_PARAMETER);
 
             try {
-                URI uri = new URI(queueUrl);
-                request.setResourcePath(uri.getPath());
+                ParsedEndpoint parsedQueueUrl = ParsedEndpoint.get(queueUrl);
+                request.setResourcePath(parsedQueueUrl.getResourcePath());
 
-                if (uri.getHost() != null) {
+                if (parsedQueueUrl.getEndpointWithoutPath() != null) {
                     // If the URI has a host specified, set the request's endpoint to the queue URLs
                     // endpoint, so that queue URLs from different regions will send the request to
                     // the correct endpoint.
-                    URI uriWithoutPath = new URI(uri.toString().replace(uri.getPath(), ""));
-                    request.setEndpoint(uriWithoutPath);
+                    request.setEndpoint(parsedQueueUrl.getEndpointWithoutPath());
                 }
             } catch (URISyntaxException e) {
                 throw new AmazonClientException("Unable to parse SQS queue URL '" + queueUrl + "'", e);
@@ -17,7 +17,6 @@
 
 package com.amazonaws.services.sqs.buffered;
 
-import java.util.LinkedHashMap;
 import java.util.concurrent.Future;
 
 import com.amazonaws.AmazonClientException;
@@ -84,7 +83,7 @@ public class AmazonSQSBufferedAsyncClient implements AmazonSQSAsync {
     
     public static final String USER_AGENT = AmazonSQSBufferedAsyncClient.class.getSimpleName() + "/" + VersionInfoUtils.getVersion();
     
-    private final CachingMap buffers = new CachingMap( 16, (float) 0.75, true );
+    private final QueueBufferRegistry buffers;
     private final AmazonSQSAsync realSQS;
     private final QueueBufferConfig bufferConfigExemplar;
     
@@ -98,6 +97,7 @@ public class AmazonSQSBufferedAsyncClient implements AmazonSQSAsync {
         config.validate();
         realSQS = paramRealSQS;
         bufferConfigExemplar = config;
+        buffers = new QueueBufferRegistry( realSQS, bufferConfigExemplar );
     }
 
     
@@ -384,33 +384,13 @@ public class AmazonSQSBufferedAsyncClient implements AmazonSQSAsync {
      * Returns (creating it if necessary) a queue buffer for a particular queue
      * Since we are only storing a limited number of queue buffers, it is
      * possible that as a result of calling this method the least recently used
-     * queue buffer will be removed from our queue buffer cache
+     * queue buffers will be flushed and removed from our queue buffer registry
+     * in the background
      * 
      * @return a queue buffer associated with the provided queue URL. Never null
      */
-    private synchronized QueueBuffer getQBuffer(String qUrl) {
-        QueueBuffer toReturn = buffers.get(qUrl);
-        if ( null == toReturn ) {
-            QueueBufferConfig config = new QueueBufferConfig( bufferConfigExemplar );
-            toReturn = new QueueBuffer( config, qUrl, realSQS );
-            buffers.put(qUrl,toReturn);
-        }
-        return toReturn;
-    }
-    
-    class CachingMap extends LinkedHashMap<String, QueueBuffer > {
-        private static final long serialVersionUID = 1;
-        private static final int MAX_ENTRIES = 100;
-        
-        public CachingMap( int initial, float loadFactor, boolean accessOrder) {
-            super(initial, loadFactor, accessOrder);
-        }
-        
-        
-        protected boolean removeEldestEntry(java.util.Map.Entry< String, QueueBuffer > eldest) {
-            return size() > MAX_ENTRIES;
-        }
-        
+    private QueueBuffer getQBuffer(String qUrl) {
+        return buffers.get(qUrl);
     }
 
     public Future<Void> changeMessageVisibilityAsync(
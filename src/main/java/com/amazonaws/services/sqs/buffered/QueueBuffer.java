@@ -19,14 +19,15 @@ package com.amazonaws.services.sqs.buffered;
 
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import com.amazonaws.AmazonClientException;
+import com.amazonaws.ExecutorConfiguration;
 import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.internal.BoundedExecutor;
 import com.amazonaws.services.sqs.AmazonSQSAsync;
 import com.amazonaws.services.sqs.model.ChangeMessageVisibilityRequest;
 import com.amazonaws.services.sqs.model.DeleteMessageRequest;
@@ -59,20 +60,47 @@ class QueueBuffer {
     private final ReceiveQueueBuffer receiveBuffer;
     private final AmazonSQSAsync realSqs;
     QueueBufferConfig config;
+
+    /** When this buffer was last used, as given by System.nanoTime() */
+    private volatile long lastAccessNanos = System.nanoTime();
+
+    /** Set once the buffer starts being discarded */
+    private volatile boolean retired = false;
+
+    /**
+     * The maximum number of threads running batches for all the queue buffers.
+     * Receive batches hold their thread for the whole long poll, so this is well
+     * above the default number of connections.
+     */
+    static final int MAX_EXECUTOR_THREADS = 256;
     
     /** This executor that will be shared among all queue buffers. Since a single JVM can 
      * access hundreds of queues, it won't do to have hundreds of executors spinning up 
      * hundreds of threads for each queue.
      * 
-     *  The DaemonThreadFactory creates daemon threads, which means they won't block the JVM 
-     *  from exiting if only they are still around.
+     *  The executor is bounded, so that a slow SQS endpoint can't make it spawn an unlimited
+     *  number of threads; once it is saturated new batches are rejected. Its threads are daemon
+     *  threads, which means they won't block the JVM from exiting if only they are still around.
      *  */
-    static ExecutorService executor = Executors.newCachedThreadPool(new DaemonThreadFactory());;
-    
+    static final BoundedExecutor executor = new BoundedExecutor(new ExecutorConfiguration()
+            .withMaxThreads(MAX_EXECUTOR_THREADS)
+            .withThreadNamePrefix("SQSQueueBufferWorkerThread"));
+
+    /** This scheduler, shared among all queue buffers, closes outbound batches when their
+     * batch window expires, so that open batches don't hold a thread while they wait. */
+    static final ScheduledExecutorService batchTimer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            thread.setName("SQSQueueBufferBatchTimer");
+            return thread;
+        }
+    });
+
     QueueBuffer( QueueBufferConfig paramConfig, String url, AmazonSQSAsync sqs) {
         realSqs = sqs;
         config = paramConfig;
-        sendBuffer = new SendQueueBuffer(sqs, executor, paramConfig, url);
+        sendBuffer = new SendQueueBuffer(sqs, executor, batchTimer, paramConfig, url);
         receiveBuffer =  new ReceiveQueueBuffer(sqs, executor, paramConfig, url);
         
     }
@@ -171,15 +199,22 @@ class QueueBuffer {
         //only handle simple requests, because these are the settings we pre-fetch with
         boolean noAttributes = (rq.getAttributeNames() == null) || rq.getAttributeNames().isEmpty();   
         boolean bufferngEnabled = (config.getMaxInflightReceiveBatches() > 0) && (config.getMaxDoneReceiveBatches() > 0);
-        if (  noAttributes && bufferngEnabled && ( rq.getVisibilityTimeout() == null ) ) {
+        //a retired buffer no longer pre-fetches, so receive straight from SQS
+        if (  noAttributes && bufferngEnabled && ( rq.getVisibilityTimeout() == null ) && !retired ) {
             QueueBufferCallback<ReceiveMessageRequest,ReceiveMessageResult> callback = null;
             if ( handler != null ) {
                 callback = new QueueBufferCallback<ReceiveMessageRequest,ReceiveMessageResult> (handler, rq);
             }
 
             QueueBufferFuture<ReceiveMessageRequest, ReceiveMessageResult> future = receiveBuffer.receiveMessageAsync(rq, callback);
-            future.setBuffer(this);
-            return future;
+            if ( future != null ) {
+                future.setBuffer(this);
+                return future;
+            }
+            //the buffer has just been retired
+        }
+        if ( handler != null ) {
+            return realSqs.receiveMessageAsync(rq, handler);
         } else {
             return realSqs.receiveMessageAsync(rq); 
         }
@@ -205,6 +240,56 @@ class QueueBuffer {
         receiveBuffer.shutdown();
     }
     
+    /** Records that this buffer has just been used. */
+    void touch() {
+        lastAccessNanos = System.nanoTime();
+    }
+
+    /** @return when this buffer was last used, as given by System.nanoTime() */
+    long getLastAccessNanos() {
+        return lastAccessNanos;
+    }
+
+    /**
+     * @return true if no request submitted to this buffer is still waiting
+     *         for a result
+     */
+    boolean isIdle() {
+        return !sendBuffer.hasOutstandingRequests() && !receiveBuffer.hasPendingReceives();
+    }
+
+    /** @return true if this buffer is being, or has been, discarded */
+    boolean isRetired() {
+        return retired;
+    }
+
+    /** @return true if any receive request is waiting for messages */
+    boolean hasPendingReceives() {
+        return receiveBuffer.hasPendingReceives();
+    }
+
+    /**
+     * Prepares the queue buffer to be discarded: waits for outstanding
+     * outbound requests to complete, stops pre-fetching without waiting for
+     * the in-flight receive batches, and makes any pre-fetched messages
+     * visible again to other consumers. Receive requests made afterwards go
+     * straight to SQS; the ones still waiting are left for
+     * {@link #handOverPendingReceives(QueueBuffer)}.
+     * */
+    void retire() {
+        retired = true;
+        sendBuffer.flush();
+        receiveBuffer.retire();
+    }
+
+    /**
+     * Moves the receive requests still waiting for messages to another buffer
+     * of the same queue, which satisfies them as if they had been made to it.
+     */
+    void handOverPendingReceives(QueueBuffer successor) {
+        receiveBuffer.handOverPendingReceives(successor.receiveBuffer);
+    }
+    
     /**
      * this method carefully waits for futures. If waiting throws, it converts
      * the exceptions to the exceptions that SQS clients expect. This is what we
@@ -237,21 +322,4 @@ class QueueBuffer {
         return toReturn;
         
     }
-    
-    /**
-     * We need daemon threads in our executor so that we don't keep the process
-     * running if our executor threads are the only ones left in the process.
-     * */
-    private static class DaemonThreadFactory implements ThreadFactory {
-        static AtomicInteger threadCount = new AtomicInteger( 0 );
-        public Thread newThread( Runnable r) {
-            int threadNumber = threadCount.addAndGet(1);
-            Thread thread = new Thread( r );
-            thread.setDaemon(true);
-            thread.setName("SQSQueueBufferWorkerThread-" + threadNumber );
-            return thread;
-        }
-        
-    }
 }
-
@@ -40,6 +40,18 @@ public class QueueBufferConfig {
     /** 200 milliseconds */
     public static final long MAX_BATCH_OPEN_MS_DEFAULT = 200;
     
+    /**
+     * Should the time a send batch is held open adapt to the rate at which
+     * requests arrive? If enabled, maxBatchOpenMs is an upper bound: a batch
+     * is held open only as long as it is expected to take to fill up, and a
+     * batch that isn't expected to fill up is sent right away when no other
+     * batch of its type is in flight.
+     */
+    private boolean adaptiveBatching = ADAPTIVE_BATCHING_DEFAULT;
+
+    /** true */
+    public static final boolean ADAPTIVE_BATCHING_DEFAULT = true;
+    
     /**
      * Should we use long polling or not?
      * */
@@ -123,6 +135,40 @@ public class QueueBufferConfig {
     private int longPollWaitTimeoutSeconds;
     
     public static final int LONGPOLL_WAIT_TIMEOUT_SECONDS_DEFAULT = 20;
+
+    /**
+     * Should the number of pre-fetched receive batches adapt to the rate at
+     * which messages are consumed? If enabled, maxDoneReceiveBatches and
+     * maxInflightReceiveBatches are upper bounds, and the buffer only
+     * pre-fetches as many messages as it expects to hand out before their
+     * visibility timeout expires.
+     * */
+    private boolean adaptivePrefetching = ADAPTIVE_PREFETCHING_DEFAULT;
+
+    /** true */
+    public static final boolean ADAPTIVE_PREFETCHING_DEFAULT = true;
+
+    /**
+     * The maximum number of queues a buffered client keeps buffers for. When
+     * more queues are used, the buffers of the least recently used queues are
+     * flushed, their pre-fetched messages are returned to SQS, and the buffers
+     * are discarded.
+     * */
+    private int maxQueueBuffers = MAX_QUEUE_BUFFERS_DEFAULT;
+
+    /** 1000 queues */
+    public static final int MAX_QUEUE_BUFFERS_DEFAULT = 1000;
+
+    /**
+     * The time (milliseconds) after which the buffer of a queue that hasn't
+     * been used is flushed, its pre-fetched messages are returned to SQS, and
+     * it is discarded. Set it to 0 to only discard buffers when there are more
+     * than maxQueueBuffers of them.
+     * */
+    private long queueBufferIdleTimeoutMs = QUEUE_BUFFER_IDLE_TIMEOUT_MS_DEFAULT;
+
+    /** 5 minutes */
+    public static final long QUEUE_BUFFER_IDLE_TIMEOUT_MS_DEFAULT = 5 * 60 * 1000;
     
     public QueueBufferConfig( long maxBatchOpenMs, 
             int maxInflightOutboundBatches,
@@ -170,6 +216,10 @@ public class QueueBufferConfig {
         maxInflightOutboundBatches = other.maxInflightOutboundBatches;
         maxInflightReceiveBatches = other.maxInflightReceiveBatches;
         visibilityTimeoutSeconds = other.visibilityTimeoutSeconds;
+        adaptivePrefetching = other.adaptivePrefetching;
+        adaptiveBatching = other.adaptiveBatching;
+        maxQueueBuffers = other.maxQueueBuffers;
+        queueBufferIdleTimeoutMs = other.queueBufferIdleTimeoutMs;
     }
     
 
@@ -184,7 +234,11 @@ public class QueueBufferConfig {
                 + maxDoneReceiveBatches + ", maxBatchSizeBytes="
                 + maxBatchSizeBytes + ", visibilityTimeoutSeconds="
                 + visibilityTimeoutSeconds + ", longPollWaitTimeoutSeconds="
-                + longPollWaitTimeoutSeconds + "]";
+                + longPollWaitTimeoutSeconds + ", adaptivePrefetching="
+                + adaptivePrefetching + ", adaptiveBatching="
+                + adaptiveBatching + ", maxQueueBuffers="
+                + maxQueueBuffers + ", queueBufferIdleTimeoutMs="
+                + queueBufferIdleTimeoutMs + "]";
     }
 
     /**
@@ -216,6 +270,28 @@ public class QueueBufferConfig {
         return this;
     }
 
+    /**
+     * @return true if the time a send batch is held open adapts to the rate
+     * at which requests arrive, bounded by maxBatchOpenMs; false if batches
+     * are always held open for maxBatchOpenMs unless they fill up.
+     * */
+    public boolean isAdaptiveBatching() {
+        return adaptiveBatching;
+    }
+
+    /**
+     * Specify "true" for the time a send batch is held open to adapt to the
+     * rate at which requests arrive, bounded by maxBatchOpenMs.
+     * */
+    public void setAdaptiveBatching(boolean adaptiveBatching) {
+        this.adaptiveBatching = adaptiveBatching;
+    }
+
+    public QueueBufferConfig withAdaptiveBatching(boolean adaptiveBatching) {
+        this.adaptiveBatching = adaptiveBatching;
+        return this;
+    }
+
     /**
      * @return true if the queue buffer will use long polling while retrieveing
      * messages from the SQS server, false otherwise. 
@@ -440,6 +516,79 @@ public class QueueBufferConfig {
         return this;
     }
 
+    /**
+     * @return true if the number of pre-fetched receive batches adapts to the
+     * rate at which messages are consumed and to the visibility timeout,
+     * false if the buffer always pre-fetches up to maxDoneReceiveBatches.
+     * */
+    public boolean isAdaptivePrefetching() {
+        return adaptivePrefetching;
+    }
+
+    /**
+     * Specify "true" for the number of pre-fetched receive batches to adapt
+     * to the rate at which messages are consumed and to the visibility
+     * timeout, bounded by maxDoneReceiveBatches and maxInflightReceiveBatches.
+     * */
+    public void setAdaptivePrefetching(boolean adaptivePrefetching) {
+        this.adaptivePrefetching = adaptivePrefetching;
+    }
+
+    public QueueBufferConfig withAdaptivePrefetching(boolean adaptivePrefetching) {
+        this.adaptivePrefetching = adaptivePrefetching;
+        return this;
+    }
+
+    /**
+     * The maximum number of queues a buffered client keeps buffers for. When
+     * more queues are used, the buffers of the least recently used queues are
+     * flushed, their pre-fetched messages are returned to SQS, and the buffers
+     * are discarded.
+     * */
+    public int getMaxQueueBuffers() {
+        return maxQueueBuffers;
+    }
+
+    /**
+     * The maximum number of queues a buffered client keeps buffers for. When
+     * more queues are used, the buffers of the least recently used queues are
+     * flushed, their pre-fetched messages are returned to SQS, and the buffers
+     * are discarded.
+     * */
+    public void setMaxQueueBuffers(int maxQueueBuffers) {
+        this.maxQueueBuffers = maxQueueBuffers;
+    }
+
+    public QueueBufferConfig withMaxQueueBuffers(int maxQueueBuffers) {
+        this.maxQueueBuffers = maxQueueBuffers;
+        return this;
+    }
+
+    /**
+     * The time (milliseconds) after which the buffer of a queue that hasn't
+     * been used is flushed, its pre-fetched messages are returned to SQS, and
+     * it is discarded. 0 means that buffers are only discarded when there are
+     * more than maxQueueBuffers of them.
+     * */
+    public long getQueueBufferIdleTimeoutMs() {
+        return queueBufferIdleTimeoutMs;
+    }
+
+    /**
+     * The time (milliseconds) after which the buffer of a queue that hasn't
+     * been used is flushed, its pre-fetched messages are returned to SQS, and
+     * it is discarded. Set it to 0 to only discard buffers when there are
+     * more than maxQueueBuffers of them.
+     * */
+    public void setQueueBufferIdleTimeoutMs(long queueBufferIdleTimeoutMs) {
+        this.queueBufferIdleTimeoutMs = queueBufferIdleTimeoutMs;
+    }
+
+    public QueueBufferConfig withQueueBufferIdleTimeoutMs(long queueBufferIdleTimeoutMs) {
+        this.queueBufferIdleTimeoutMs = queueBufferIdleTimeoutMs;
+        return this;
+    }
+
     /**
      * this method checks the config for validity. If the config is deemed to be
      * invalid, an informative exception is thrown.
@@ -451,6 +600,12 @@ public class QueueBufferConfig {
         if (visibilityTimeoutSeconds == 0 ) {
             throw new AmazonClientException("Visibility timeout value may not be equal to zero ");
         }
+        if (maxQueueBuffers < 1 ) {
+            throw new AmazonClientException("The maximum number of queue buffers must be at least 1 ");
+        }
+        if (queueBufferIdleTimeoutMs < 0 ) {
+            throw new AmazonClientException("The queue buffer idle timeout may not be negative ");
+        }
     }
 
 }
@@ -20,6 +20,7 @@ package com.amazonaws.services.sqs.buffered;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -72,7 +73,7 @@ class QueueBufferFuture<Req extends AmazonWebServiceRequest, Res> implements Fut
         //it on a different thread. Who knows what this
         //thread is doing.
         if ( callback != null && issuingBuffer != null ) {
-            QueueBuffer.executor.submit(new Callable<Void>() {
+            invokeCallback(new Callable<Void>() {
                 public Void call() throws Exception {
                     callback.onSuccess(result);
                     return null;
@@ -95,7 +96,7 @@ class QueueBufferFuture<Req extends AmazonWebServiceRequest, Res> implements Fut
         //it on a different thread. Who knows what this
         //thread is doing.
         if ( callback != null && issuingBuffer != null ) {
-            QueueBuffer.executor.submit(new Callable<Void>() {
+            invokeCallback(new Callable<Void>() {
                 public Void call() throws Exception {
                     callback.onError(e);
                     return null;
@@ -106,6 +107,22 @@ class QueueBufferFuture<Req extends AmazonWebServiceRequest, Res> implements Fut
 
     }
 
+    /**
+     * Runs the callback on the shared executor or, if the executor is
+     * saturated, on the current thread so that it isn't lost.
+     */
+    private void invokeCallback(Callable<Void> callbackTask) {
+        try {
+            QueueBuffer.executor.submit(callbackTask);
+        } catch (RejectedExecutionException ree) {
+            try {
+                callbackTask.call();
+            } catch (Exception e) {
+                // Callbacks run on the executor have their exceptions swallowed too
+            }
+        }
+    }
+
     @Override
     public boolean cancel(boolean arg0) {
         // not cancellable
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2012-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.sqs.buffered;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.services.sqs.AmazonSQSAsync;
+
+/**
+ * Keeps the queue buffers of a buffered client, one per queue URL.
+ * <p>
+ * Lookups don't take any lock, so any number of threads can use any number of
+ * queues concurrently. Buffers that haven't been used for
+ * {@link QueueBufferConfig#getQueueBufferIdleTimeoutMs()}, and the least
+ * recently used buffers when there are more than
+ * {@link QueueBufferConfig#getMaxQueueBuffers()} of them, are retired: their
+ * outstanding outbound requests are completed and their pre-fetched messages
+ * are returned to SQS before they are discarded. Buffers that still have
+ * requests waiting for a result are never evicted. Eviction runs in the
+ * background on the executor shared by all queue buffers, never on the
+ * caller's thread, and evicted buffers are retired concurrently.
+ * <p>
+ * A caller may still get hold of a buffer just before it is evicted. Its
+ * outbound requests are still sent, and its receive requests go straight to
+ * SQS once the buffer has been retired. Receive requests that were already
+ * waiting are moved to a new buffer for the same queue.
+ * <p>
+ * Instances of {@code QueueBufferRegistry} are thread-safe.
+ */
+class QueueBufferRegistry {
+
+    private static Log log = LogFactory.getLog(QueueBufferRegistry.class);
+
+    /** The longest time between two checks for idle buffers */
+    private static final long MAX_SWEEP_INTERVAL_NANOS = TimeUnit.NANOSECONDS.convert(30, TimeUnit.SECONDS);
+
+    private final ConcurrentHashMap<String, QueueBuffer> buffers = new ConcurrentHashMap<String, QueueBuffer>();
+
+    /** The number of entries in buffers, which is expensive to count */
+    private final AtomicInteger bufferCount = new AtomicInteger();
+
+    private final AmazonSQSAsync realSQS;
+    private final QueueBufferConfig configExemplar;
+    private final long idleTimeoutNanos;
+    private final long sweepIntervalNanos;
+
+    /** When the next check for idle buffers is due, as given by System.nanoTime() */
+    private final AtomicLong nextSweepNanos;
+
+    /** Set while a sweep is scheduled or running, so that only one runs at a time */
+    private final AtomicBoolean sweeping = new AtomicBoolean(false);
+
+    QueueBufferRegistry(AmazonSQSAsync realSQS, QueueBufferConfig configExemplar) {
+        this.realSQS = realSQS;
+        this.configExemplar = configExemplar;
+        this.idleTimeoutNanos = TimeUnit.NANOSECONDS.convert(
+                configExemplar.getQueueBufferIdleTimeoutMs(), TimeUnit.MILLISECONDS);
+        this.sweepIntervalNanos = idleTimeoutNanos > 0
+                ? Math.min(idleTimeoutNanos / 2, MAX_SWEEP_INTERVAL_NANOS)
+                : MAX_SWEEP_INTERVAL_NANOS;
+        this.nextSweepNanos = new AtomicLong(System.nanoTime() + sweepIntervalNanos);
+    }
+
+    /**
+     * Returns (creating it if necessary) the queue buffer for a particular
+     * queue.
+     *
+     * @return a queue buffer associated with the provided queue URL. Never null
+     */
+    QueueBuffer get(String qUrl) {
+        while (true) {
+            QueueBuffer buffer = buffers.get(qUrl);
+            if (buffer == null) {
+                // Creating a buffer is cheap, so losing a race only wastes a little garbage
+                QueueBuffer created = new QueueBuffer(new QueueBufferConfig(configExemplar), qUrl, realSQS);
+                buffer = buffers.putIfAbsent(qUrl, created);
+                if (buffer == null) {
+                    buffer = created;
+                    bufferCount.incrementAndGet();
+                }
+            }
+            // Touching first lets a concurrent eviction see that the buffer is in use
+            buffer.touch();
+            if (buffer.isRetired()) {
+                if (buffers.remove(qUrl, buffer)) {
+                    bufferCount.decrementAndGet();
+                }
+                continue;
+            }
+            maybeScheduleSweep();
+            return buffer;
+        }
+    }
+
+    /**
+     * @return all the queue buffers currently in the registry
+     */
+    Collection<QueueBuffer> values() {
+        return buffers.values();
+    }
+
+    /**
+     * @return the number of queue buffers currently in the registry
+     */
+    int size() {
+        return bufferCount.get();
+    }
+
+    private void maybeScheduleSweep() {
+        long now = System.nanoTime();
+        long nextSweep = nextSweepNanos.get();
+        boolean overCapacity = bufferCount.get() > configExemplar.getMaxQueueBuffers();
+        if (!overCapacity && now - nextSweep < 0) {
+            return;
+        }
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        nextSweepNanos.set(now + sweepIntervalNanos);
+
+        try {
+            QueueBuffer.executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        sweep();
+                    } finally {
+                        sweeping.set(false);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ree) {
+            // The executor is saturated; the next call will try again
+            sweeping.set(false);
+        }
+    }
+
+    /**
+     * Retires idle buffers, and then the least recently used ones until the
+     * registry is back within its capacity. Buffers with requests waiting for
+     * a result are left alone.
+     */
+    private void sweep() {
+        long now = System.nanoTime();
+        List<Map.Entry<String, QueueBuffer>> remaining = new ArrayList<Map.Entry<String, QueueBuffer>>();
+        for (Map.Entry<String, QueueBuffer> entry : buffers.entrySet()) {
+            if (!entry.getValue().isIdle()) {
+                continue;
+            }
+            if (idleTimeoutNanos > 0 && now - entry.getValue().getLastAccessNanos() > idleTimeoutNanos) {
+                evict(entry.getKey(), entry.getValue(), now);
+            } else {
+                remaining.add(entry);
+            }
+        }
+
+        int excess = bufferCount.get() - configExemplar.getMaxQueueBuffers();
+        if (excess <= 0) {
+            return;
+        }
+
+        Collections.sort(remaining, new Comparator<Map.Entry<String, QueueBuffer>>() {
+            public int compare(Map.Entry<String, QueueBuffer> a, Map.Entry<String, QueueBuffer> b) {
+                long difference = a.getValue().getLastAccessNanos() - b.getValue().getLastAccessNanos();
+                return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+            }
+        });
+        for (int i = 0; i < excess && i < remaining.size(); i++) {
+            evict(remaining.get(i).getKey(), remaining.get(i).getValue(), now);
+        }
+    }
+
+    private void evict(final String qUrl, final QueueBuffer buffer, long sweepStartNanos) {
+        if (!buffers.remove(qUrl, buffer)) {
+            return;
+        }
+        bufferCount.decrementAndGet();
+
+        // The buffer may have been handed out since the sweep looked at it
+        if (buffer.getLastAccessNanos() - sweepStartNanos > 0 || !buffer.isIdle()) {
+            if (buffers.putIfAbsent(qUrl, buffer) == null) {
+                bufferCount.incrementAndGet();
+                return;
+            }
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Discarding the buffer of queue " + qUrl);
+        }
+        Runnable retire = new Runnable() {
+            public void run() {
+                try {
+                    buffer.retire();
+                    if (buffer.hasPendingReceives()) {
+                        buffer.handOverPendingReceives(get(qUrl));
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Unable to retire the buffer of queue " + qUrl, e);
+                }
+            }
+        };
+        try {
+            // Retiring waits for outstanding outbound batches, so buffers are retired concurrently
+            QueueBuffer.executor.execute(retire);
+        } catch (RejectedExecutionException ree) {
+            retire.run();
+        }
+    }
+}
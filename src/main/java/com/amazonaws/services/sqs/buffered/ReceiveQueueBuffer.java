@@ -21,8 +21,12 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -44,17 +48,29 @@ import com.amazonaws.services.sqs.model.ReceiveMessageResult;
  * pre-fetched and kept in the buffer, as well as the maximum number of threads used to retrieve
  * the messages are configurable. <p>
  * 
+ * With adaptive pre-fetching enabled, the number of pre-fetched batches follows the rate
+ * at which messages are handed out, so that the buffer holds enough messages to cover a
+ * receive round trip, but no more than can be consumed in half the visibility timeout. <p>
+ * 
  *  Synchronization strategy:
- *  - Threads must hold the TaskSpawnSyncPoint object monitor to spawn a new task or modify
- *    the number of inflight tasks
- *  - Threads must hold the monitor of the "futures" list to modify the list
- *  - Threads must hold the monitor of the "finishedTasks" list to modify the list
- *  - If you need to lock both futures and finishedTasks, lock futures first and
- *    finishedTasks second
+ *  - Threads must hold the TaskSpawnSyncPoint object monitor to spawn a new task, modify
+ *    the number of inflight tasks or update the consumption statistics
+ *  - Threads must hold the "futures" object monitor to add or remove futures. The monitor
+ *    is not held while a future is filled; a future that can't be filled is put back at the
+ *    head, and the buffer is checked again afterwards, so a batch finishing concurrently is
+ *    never missed and waiting requests are served in the order they were issued
+ *  - The "finishedTasks" queue is lock-free
+ *  - Only the thread that removes a batch from "finishedTasks" may adjust finishedTaskCount
  * */
 public class ReceiveQueueBuffer {
     
     private static Log log = LogFactory.getLog(ReceiveQueueBuffer.class);
+
+    /** How often the message consumption rate is sampled */
+    private static final long RATE_SAMPLE_INTERVAL_NANOS = TimeUnit.NANOSECONDS.convert(1, TimeUnit.SECONDS);
+
+    /** Weight of the latest sample in the moving averages */
+    private static final double SAMPLE_WEIGHT = 0.3;
     
     private final QueueBufferConfig config;
     
@@ -89,12 +105,48 @@ public class ReceiveQueueBuffer {
     
     /** shutdown buffer does not retrieve any more messages from sqs */
     volatile boolean shutDown = false;
+
+    /**
+     * retired buffer does not take any more receive requests, and returns the
+     * messages its in-flight batches bring back
+     */
+    private volatile boolean retired = false;
     
-    /** message delivery futures we gave out */ 
+    /** message delivery futures we gave out, in the order they were issued */ 
     private final LinkedList< ReceiveMessageFuture > futures = new LinkedList<ReceiveMessageFuture>();
     
-    /** finished batches are stored in this list. */
-    private LinkedList<ReceiveMessageBatchTask> finishedTasks = new LinkedList<ReceiveMessageBatchTask>();
+    /** finished batches are stored in this queue. */
+    private final ConcurrentLinkedQueue<ReceiveMessageBatchTask> finishedTasks = new ConcurrentLinkedQueue<ReceiveMessageBatchTask>();
+
+    /** the number of batches in finishedTasks, which is expensive to count */
+    private final AtomicInteger finishedTaskCount = new AtomicInteger();
+
+    /** the number of pre-fetched messages currently held in the buffer */
+    private final AtomicInteger bufferedMessages = new AtomicInteger();
+
+    /** the number of messages handed out to receive requests */
+    private final AtomicLong deliveredMessages = new AtomicLong();
+
+    /** the number of pre-fetched messages dropped because their visibility timeout expired */
+    private final AtomicLong expiredMessages = new AtomicLong();
+
+    /** the number of pre-fetched messages returned to the queue when the buffer was cleared */
+    private final AtomicLong returnedMessages = new AtomicLong();
+
+    /*
+     * Consumption statistics used to size the pre-fetch, all synchronized by
+     * taskSpawnSyncPoint. Negative values mean that there isn't any sample yet.
+     */
+    private long rateSampleStartNanos = System.nanoTime();
+    private long rateSampleDelivered = 0;
+    /** messages handed out per nanosecond */
+    private double consumptionRate = -1;
+    /** nanoseconds it takes to receive a non empty batch */
+    private double receiveLatencyNanos = -1;
+    /** messages in a non empty batch */
+    private double averageBatchSize = -1;
+    /** the number of batches the buffer currently tries to keep pre-fetched */
+    private volatile int prefetchDepth = 1;
         
     ReceiveQueueBuffer( AmazonSQS paramSQS, Executor paramExecutor, QueueBufferConfig paramConfig, String url ) {
         config = paramConfig;
@@ -118,16 +170,36 @@ public class ReceiveQueueBuffer {
         }
     }
     
+    /**
+     * Prevents spawning of new retrieval batches without waiting for the
+     * in-flight ones. Batches that haven't started yet don't call SQS, and the
+     * messages that the others bring back are handed to the receive requests
+     * still waiting, or made visible again. Messages already pre-fetched are
+     * made visible again right away.
+     * <p>
+     * Receive requests still waiting afterwards can be moved to another buffer
+     * with {@link #handOverPendingReceives(ReceiveQueueBuffer)}.
+     */
+    void retire() {
+        retired = true;
+        shutDown = true;
+        clear();
+    }
+
     /**
      * Submits the request for retrieval of messages from the queue and returns
      * a future that will be signalled when the request is satisfied.  The future
      * may already be signalled by the time it is returned.
      * 
-     * @return never null
+     * @return the future, or null if the buffer has been retired and the
+     *         request should be sent straight to SQS
      * */
     public QueueBufferFuture<ReceiveMessageRequest, ReceiveMessageResult > 
         receiveMessageAsync( ReceiveMessageRequest rq, QueueBufferCallback<ReceiveMessageRequest, ReceiveMessageResult > callback ) {
         
+        if (retired) {
+            return null;
+        }
         if (shutDown) {
             throw new AmazonClientException("The client has been shut down.");
         }
@@ -137,7 +209,17 @@ public class ReceiveQueueBuffer {
         if ( rq.getMaxNumberOfMessages() != null ) {
             numMessages = rq.getMaxNumberOfMessages();
         }
-        QueueBufferFuture<ReceiveMessageRequest,ReceiveMessageResult> toReturn = issueFuture(numMessages, callback);
+        ReceiveMessageFuture toReturn = issueFuture(numMessages, callback);
+        
+        //the buffer may have been retired while the future was issued. if it
+        //is still ours, take it back; otherwise it has been handed over.
+        if ( retired ) {
+            synchronized ( futures ) {
+                if ( futures.remove(toReturn) ) {
+                    return null;
+                }
+            }
+        }
         
         //attempt to satisfy it right away...
         satisfyFuturesFromBuffer();
@@ -147,19 +229,56 @@ public class ReceiveQueueBuffer {
         
         return toReturn;
     }
+
+    /**
+     * @return the number of pre-fetched messages currently held in the buffer
+     */
+    public int getBufferedMessageCount() {
+        return bufferedMessages.get();
+    }
+
+    /**
+     * @return the number of messages handed out to receive requests so far
+     */
+    public long getDeliveredMessageCount() {
+        return deliveredMessages.get();
+    }
+
+    /**
+     * @return the number of pre-fetched messages dropped so far because their
+     *         visibility timeout expired before they were handed out
+     */
+    public long getExpiredMessageCount() {
+        return expiredMessages.get();
+    }
+
+    /**
+     * @return the number of pre-fetched messages made visible again so far
+     *         because the buffer was cleared
+     */
+    public long getReturnedMessageCount() {
+        return returnedMessages.get();
+    }
+
+    /**
+     * @return the number of receive batches the buffer currently tries to keep
+     *         pre-fetched
+     */
+    public int getPrefetchDepth() {
+        return prefetchDepth;
+    }
     
     /**
-     * Creates and returns a new future object. Sleeps if the list of
-     * already-issued but as yet unsatisfied futures is over a throttle limit.
+     * Creates and returns a new future object.
      * 
      * @return never null
      */
     private ReceiveMessageFuture issueFuture( int size, QueueBufferCallback<ReceiveMessageRequest, ReceiveMessageResult> callback) {
-        synchronized( futures )    {
-            ReceiveMessageFuture theFuture = new ReceiveMessageFuture(callback, size);
+        ReceiveMessageFuture theFuture = new ReceiveMessageFuture(callback, size);
+        synchronized ( futures ) {
             futures.addLast(theFuture);
-            return theFuture;
         }
+        return theFuture;
     }
     
     /**
@@ -168,89 +287,86 @@ public class ReceiveQueueBuffer {
      * won't do anything.
      * */
     private void satisfyFuturesFromBuffer()    {
-        synchronized( futures )    {
-            synchronized( finishedTasks ) {
-                //attempt to satisfy futures until we run out of either futures or
-                //finished tasks
-                while ( (!futures.isEmpty())  &&  (!finishedTasks.isEmpty()) )    {
-                    ReceiveMessageFuture currentFuture = futures.poll();
-                    fillFuture( currentFuture);
+        //attempt to satisfy futures until we run out of either futures or
+        //finished tasks
+        while ( !finishedTasks.isEmpty() )    {
+            ReceiveMessageFuture currentFuture;
+            synchronized ( futures ) {
+                currentFuture = futures.poll();
+            }
+            if ( currentFuture == null ) {
+                return;
+            }
+            if ( !fillFuture( currentFuture ) ) {
+                //other threads drained the buffer first. put the future back
+                //where it was; the loop condition then re-checks the buffer, so
+                //a batch that finished in the meantime is not missed.
+                synchronized ( futures ) {
+                    futures.addFirst( currentFuture );
                 }
             }
         }
     }
     
     /** 
-     * Fills the future with whatever results were received by the full batch 
-     * currently at the head of the completed batch queue.  Those results may be retrieved
-     * messages, or an exception.  
+     * Fills the future with whatever results were received by the first full
+     * batch in the completed batch queue that still has something to offer.
+     * Those results may be retrieved messages, or an exception.
      * 
-     * this method assumes that you are holding the finished tasks lock 
-     * locks when invoking it.  violate this assumption at 
-     * your own peril */
-    private void fillFuture( ReceiveMessageFuture f ){
-        ReceiveMessageResult r = new ReceiveMessageResult();
-        LinkedList<Message> messages = new LinkedList<Message>();
-        r.setMessages(messages);
-        Exception exception = null;
-        
-        if ( !finishedTasks.isEmpty() ) {
-            ReceiveMessageBatchTask t = finishedTasks.getFirst();
-            
-            exception = t.getException();
-            int retrieved = 0;
-            
-            boolean batchDone = false;
-            while (  retrieved < f.getRequestedSize() )  
-            {
-                Message m = t.removeMessage();
-                
-                // a non-empty batch can still give back a null 
-                // message if the message expired.
-                if ( null != m) {
-                    messages.add(m);
-                    ++retrieved;
+     * @return true if the future was filled, false if the completed batch
+     *         queue ran out before that */
+    private boolean fillFuture( ReceiveMessageFuture f ){
+        if ( f.getRequestedSize() < 1 ) {
+            ReceiveMessageResult r = new ReceiveMessageResult();
+            r.setMessages(new LinkedList<Message>());
+            f.setSuccess(r);
+            return true;
+        }
+
+        ReceiveMessageBatchTask t;
+        while ( (t = finishedTasks.peek()) != null ) {
+            Exception exception = t.getException();
+            if ( exception != null ) {
+                //the finished batch has encountered an error, and we will
+                //report that in the Future, unless another thread already did.
+                if ( removeFinishedTask(t) ) {
+                    f.setFailure(exception);
+                    return true;
                 }
-                else {
-                    batchDone = true;
-                    break;
+                continue;
+            }
+
+            boolean receivedEmpty = t.isReceivedEmpty();
+            List<Message> messages = t.removeMessages(f.getRequestedSize());
+
+            //remove drained batches so we can get new ones.
+            if ( t.isEmpty() ) {
+                if ( !removeFinishedTask(t) && receivedEmpty ) {
+                    //another thread reported this empty receive
+                    continue;
                 }
-                
             }
-            
-            //we may have just drained the batch.
-            batchDone = batchDone || t.isEmpty() || ( exception != null );
-            
-            if ( batchDone) {
-                finishedTasks.removeFirst();
+
+            //an empty receive (e.g. a long poll that timed out) is reported as
+            //is. a batch whose messages were taken by other threads or have
+            //expired is skipped.
+            if ( !messages.isEmpty() || receivedEmpty ) {
+                deliveredMessages.addAndGet(messages.size());
+                ReceiveMessageResult r = new ReceiveMessageResult();
+                r.setMessages(messages);
+                f.setSuccess(r);
+                return true;
             }
-            r.setMessages(messages);
         }
-        
-        //if after the above runs the exception is not null, 
-        //the finished batch has encountered an error, and we will
-        //report that in the Future.  Otherwise, we will fill
-        //the future with the receive result
-        
-        if ( exception != null )
-            f.setFailure(exception);
-        else
-            f.setSuccess(r);
-        
-        //now, a bit of maintenance.  remove empty non-exception-bearing 
-        //batches so we can get new ones.
-        
-        while ( !finishedTasks.isEmpty() ) {
-            ReceiveMessageBatchTask t = finishedTasks.getFirst();
-            if ( (!t.isEmpty()) || (t.getException() != null) ) {
-                //if we found a finished task that has useful content,
-                //our cleanup is done
-                break;
-            }
-            
-            //throw away the empty batch.
-            finishedTasks.removeFirst();
+        return false;
+    }
+
+    private boolean removeFinishedTask( ReceiveMessageBatchTask t ) {
+        if ( finishedTasks.remove(t) ) {
+            finishedTaskCount.decrementAndGet();
+            return true;
         }
+        return false;
     }
     
     /**
@@ -263,20 +379,17 @@ public class ReceiveQueueBuffer {
         if( shutDown )
             return;
 
-        int desiredBatches = config.getMaxDoneReceiveBatches();
-        desiredBatches = desiredBatches < 1 ? 1 : desiredBatches;
-        
-        synchronized( finishedTasks ) {
-            if (  finishedTasks.size() >= desiredBatches )
-                return;
+        int desiredBatches = prefetchDepth;
+        int finishedBatches = finishedTaskCount.get();
+        if (  finishedBatches >= desiredBatches )
+            return;
             
-            //if we have some finished batches already, and 
-            //existing inflight batches will bring us to the limit, 
-            //don't spawn more. if our finished tasks cache is empty, we will
-            //always spawn a thread.
-            if ( finishedTasks.size() > 0 && ( finishedTasks.size() + inflightReceiveMessageBatches ) >= desiredBatches )
-                return;
-        }
+        //if we have some finished batches already, and 
+        //existing inflight batches will bring us to the limit, 
+        //don't spawn more. if our finished tasks cache is empty, we will
+        //always spawn a thread.
+        if ( finishedBatches > 0 && ( finishedBatches + inflightReceiveMessageBatches ) >= desiredBatches )
+            return;
 
         synchronized (taskSpawnSyncPoint) {
             if (visibilityTimeoutNanos == -1) {
@@ -299,54 +412,142 @@ public class ReceiveQueueBuffer {
                 ++bufferCounter;
                 if (log.isTraceEnabled()) {
                     log.trace("Spawned receive batch #" + bufferCounter + " (" + inflightReceiveMessageBatches 
-                            + " of " + max + " inflight) for queue " + qUrl);
+                            + " of " + max + " inflight, pre-fetch depth " + desiredBatches + ") for queue " + qUrl);
+                }
+                try {
+                    executor.execute(task);
+                } catch (RejectedExecutionException ree) {
+                    // The executor is saturated; try again on the next receive
+                    --inflightReceiveMessageBatches;
+                    log.warn("Unable to spawn a receive batch for queue " + qUrl, ree);
                 }
-                executor.execute(task);
             }
         }
     }
+
+    /**
+     * Recomputes the number of batches to keep pre-fetched from the
+     * consumption statistics. Must be called while holding taskSpawnSyncPoint.
+     */
+    private void updatePrefetchDepth() {
+        int maxDepth = config.getMaxDoneReceiveBatches();
+        maxDepth = maxDepth < 1 ? 1 : maxDepth;
+        if ( !config.isAdaptivePrefetching() ) {
+            prefetchDepth = maxDepth;
+            return;
+        }
+
+        long now = System.nanoTime();
+        long elapsed = now - rateSampleStartNanos;
+        if ( elapsed >= RATE_SAMPLE_INTERVAL_NANOS ) {
+            long delivered = deliveredMessages.get();
+            double sample = (double) (delivered - rateSampleDelivered) / elapsed;
+            consumptionRate = movingAverage(consumptionRate, sample);
+            rateSampleStartNanos = now;
+            rateSampleDelivered = delivered;
+        }
+
+        if ( consumptionRate < 0 || receiveLatencyNanos < 0 || averageBatchSize <= 0 ) {
+            //no statistics yet, start small; demand from waiting receive
+            //requests still spawns batches while the buffer is empty.
+            prefetchDepth = 1;
+            return;
+        }
+
+        //enough messages to cover a couple of receive round trips...
+        double wanted = 2 * consumptionRate * receiveLatencyNanos;
+
+        //...but not more than can be handed out before half of the
+        //visibility timeout has passed
+        long visibilityNanos = visibilityTimeoutNanos;
+        if ( config.getVisibilityTimeoutSeconds() > 0 ) {
+            visibilityNanos = TimeUnit.NANOSECONDS.convert(config.getVisibilityTimeoutSeconds(), TimeUnit.SECONDS);
+        }
+        if ( visibilityNanos > 0 ) {
+            wanted = Math.min(wanted, consumptionRate * visibilityNanos / 2);
+        }
+
+        int depth = (int) Math.ceil(wanted / averageBatchSize);
+        prefetchDepth = Math.max(1, Math.min(maxDepth, depth));
+    }
+
+    private static double movingAverage( double average, double sample ) {
+        return average < 0 ? sample : SAMPLE_WEIGHT * sample + (1 - SAMPLE_WEIGHT) * average;
+    }
     
     /**
      * This method is called by the batches after they have finished retrieving
      * the messages.
      * 
      * */
-    void reportBatchFinished( ReceiveMessageBatchTask batch )
+    void reportBatchFinished( ReceiveMessageBatchTask batch, long receiveLatency )
     {
-        synchronized( finishedTasks ) {
-            finishedTasks.addLast( batch );
-            if ( log.isTraceEnabled() ) {
-                log.info("Queue " + qUrl + " now has " + finishedTasks.size() + " receive results cached ");
-            }
+        bufferedMessages.addAndGet(batch.getSize());
+        finishedTasks.add( batch );
+        int finishedBatches = finishedTaskCount.incrementAndGet();
+        if ( log.isTraceEnabled() ) {
+            log.trace("Queue " + qUrl + " now has " + finishedBatches + " receive results cached ");
         }
         
         synchronized( taskSpawnSyncPoint )    {
             --inflightReceiveMessageBatches;
+            if ( batch.getException() == null && batch.getSize() > 0 ) {
+                receiveLatencyNanos = movingAverage(receiveLatencyNanos, receiveLatency);
+                averageBatchSize = movingAverage(averageBatchSize, batch.getSize());
+            }
+            updatePrefetchDepth();
         }
         
         satisfyFuturesFromBuffer();
         
+        if ( retired ) {
+            //nobody will come for the rest
+            clear();
+            return;
+        }
+        
         spawnMoreReceiveTasks();
     }
 
     
+    /**
+     * @return true if any receive request is waiting for messages
+     */
+    boolean hasPendingReceives() {
+        synchronized ( futures ) {
+            return !futures.isEmpty();
+        }
+    }
+
+    /**
+     * Moves the receive requests still waiting for messages to another buffer
+     * of the same queue, ahead of the requests that buffer already has. Used
+     * once this buffer has been retired.
+     */
+    void handOverPendingReceives( ReceiveQueueBuffer successor ) {
+        List<ReceiveMessageFuture> pending;
+        synchronized ( futures ) {
+            pending = new ArrayList<ReceiveMessageFuture>(futures);
+            futures.clear();
+        }
+        if ( pending.isEmpty() ) {
+            return;
+        }
+        synchronized ( successor.futures ) {
+            successor.futures.addAll(0, pending);
+        }
+        successor.satisfyFuturesFromBuffer();
+        successor.spawnMoreReceiveTasks();
+    }
+
     /**
      * Clears and nacks any pre-fetched messages in this buffer.
      */
     public void clear() {
-        boolean done = false;
-        while ( !done ) {
-            ReceiveMessageBatchTask currentBatch = null;
-            synchronized (finishedTasks) {
-                currentBatch = finishedTasks.poll();
-            }
-            
-            if ( currentBatch != null ) {
-                currentBatch.clear();
-            } else {
-                //ran out of batches to clear
-                done = true;
-            }
+        ReceiveMessageBatchTask currentBatch;
+        while ( (currentBatch = finishedTasks.poll()) != null ) {
+            finishedTaskCount.decrementAndGet();
+            currentBatch.clear();
         }
     }
 
@@ -383,6 +584,7 @@ public class ReceiveQueueBuffer {
         private List<Message> messages;
         private long visibilityDeadlineNano;
         private boolean open = false;
+        private boolean receivedEmpty = false;
         private ReceiveQueueBuffer parentBuffer;
         
 
@@ -423,27 +625,47 @@ public class ReceiveQueueBuffer {
         }
         
         
+        /** @return true if the receive call succeeded but returned no messages */
+        synchronized boolean isReceivedEmpty() {
+            if (!open)
+                throw new IllegalStateException("batch is not open");
+
+            return receivedEmpty;
+        }
+        
         /**
-         * Returns a message if one is available.
+         * Returns up to the specified number of messages, if any are available.
          * <p>
          * The call adjusts the message count.
          * 
-         * @return a message or {@code null} if none is available
+         * @return the messages removed from the batch, never null
          */
-        synchronized Message removeMessage() {
+        synchronized List<Message> removeMessages(int max) {
             if (!open)
                 throw new IllegalStateException("batch is not open");
 
+            List<Message> removed = new LinkedList<Message>();
+
             // our messages expired.
             if ( System.nanoTime() > visibilityDeadlineNano ) { 
-                messages.clear();
-                return null;
+                discardExpired();
+                return removed;
             }
             
-            if (messages.isEmpty())
-                return null;
-            else
-                return messages.remove(messages.size() - 1);
+            //hand the messages out in the order they were received
+            List<Message> head = messages.subList(0, Math.min(max, messages.size()));
+            removed.addAll(head);
+            head.clear();
+            bufferedMessages.addAndGet(-removed.size());
+            return removed;
+        }
+
+        private void discardExpired() {
+            if ( !messages.isEmpty() ) {
+                expiredMessages.addAndGet(messages.size());
+                bufferedMessages.addAndGet(-messages.size());
+                messages.clear();
+            }
         }
 
         /**
@@ -453,6 +675,10 @@ public class ReceiveQueueBuffer {
             if (!open)
                 throw new IllegalStateException("batch is not open");
 
+            if (messages.isEmpty()) {
+                return;
+            }
+
             if (System.nanoTime() < visibilityDeadlineNano) {
                 ChangeMessageVisibilityBatchRequest batchRequest = new ChangeMessageVisibilityBatchRequest()
                 .withQueueUrl(qUrl);
@@ -474,11 +700,15 @@ public class ReceiveQueueBuffer {
                 try {
                     batchRequest.setEntries(entries);
                     sqsClient.changeMessageVisibilityBatch(batchRequest);
+                    returnedMessages.addAndGet(entries.size());
                 } catch (AmazonClientException e) {
                     // Log and ignore.
                     log.warn("ReceiveMessageBatchTask: changeMessageVisibility failed "    + e);
                 }
+            } else {
+                discardExpired();
             }
+            bufferedMessages.addAndGet(-messages.size());
             messages.clear();
         }
 
@@ -488,7 +718,14 @@ public class ReceiveQueueBuffer {
          * */
         public void run() {
             
+            long startNanos = System.nanoTime();
+            //a batch that hasn't started by the time the buffer is retired
+            //is not needed anymore
+            boolean cancelled = retired;
             try {
+                if ( cancelled ) {
+                    return;
+                }
                 visibilityDeadlineNano = System.nanoTime() + visibilityTimeoutNanos;
                 ReceiveMessageRequest request = new ReceiveMessageRequest(qUrl).withMaxNumberOfMessages(config.getMaxBatchSize());
                 ResultConverter.appendUserAgent(request, AmazonSQSBufferedAsyncClient.USER_AGENT);
@@ -507,8 +744,11 @@ public class ReceiveQueueBuffer {
                 exception = e;
             } finally {
                 //whatever happened, we are done and can be considered open
-                open = true;
-                parentBuffer.reportBatchFinished(this);
+                synchronized (this) {
+                    receivedEmpty = !cancelled && exception == null && messages.isEmpty();
+                    open = true;
+                }
+                parentBuffer.reportBatchFinished(this, System.nanoTime() - startNanos);
             }
             
         }
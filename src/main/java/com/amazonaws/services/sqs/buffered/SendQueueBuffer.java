@@ -20,6 +20,9 @@ package com.amazonaws.services.sqs.buffered;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -53,10 +56,17 @@ import com.amazonaws.services.sqs.model.SendMessageResult;
  * This class is responsible for buffering outgoing SQS requests, i.e. requests
  * to send a message, delete a message and change the visibility of the message. <br>
  * 
- * When a request arrives, the buffer adds the message to a message batch of an
- * appropriate type (creating such a batch if there currently isn't one
- * outstanding). When the outstanding batch becomes full, or when a configurable
- * timeout expires, the buffer makes a call to SQS to execute the current batch. <br>
+ * When a request arrives, the buffer adds the message to the first open message
+ * batch of an appropriate type that has room for it (creating such a batch if
+ * there currently isn't one). When a batch becomes full, or when its batch
+ * window expires, the buffer makes a call to SQS to execute the batch. Open
+ * batches don't hold a thread; their windows are timers on a shared scheduler. <br>
+ * 
+ * With adaptive batching, the window of a new batch is the time it is expected
+ * to take to fill up at the current arrival rate, bounded by maxBatchOpenMs. If
+ * it isn't expected to fill up in time, it is sent right away when no other
+ * batch of its type is in flight, and otherwise held until one completes, much
+ * like Nagle's algorithm. <br>
  * 
  * Internally, the batch objects maintain a list of futures corresponding to the
  * requests added to them. When a batch completes, it loads the results into the
@@ -83,11 +93,25 @@ public class SendQueueBuffer {
      */
     private final AmazonSQS sqsClient;
 
+    /** The maximum number of open batches of each type */
+    private static final int MAX_OPEN_BATCHES = 2;
+
+    /** Weight of the latest sample in the moving average of arrival times */
+    private static final double SAMPLE_WEIGHT = 0.2;
+
     /**
      * The executor service for the batching tasks.
      */
     private final Executor executor;
 
+    /**
+     * The scheduler used to close batches when their batch window expires.
+     */
+    private final ScheduledExecutorService batchTimer;
+
+    /** The number of permits of each of the inflight batch semaphores */
+    private final int maxInflightBatches;
+
     /**
      * Object used to serialize sendMessage calls.
      */
@@ -104,23 +128,35 @@ public class SendQueueBuffer {
     private final Object changeMessageVisibilityLock = new Object();
 
     /**
-     * Current batching task for sendMessage. Using a size 1 array to allow
-     * "passing by reference". Synchronized by {@code sendMessageLock}.
+     * Current batching tasks for sendMessage. Null or closed entries are free
+     * slots. Synchronized by {@code sendMessageLock}.
      */
-    private final SendMessageBatchTask[] openSendMessageBatchTask = new SendMessageBatchTask[1];
+    private final SendMessageBatchTask[] openSendMessageBatchTask = new SendMessageBatchTask[MAX_OPEN_BATCHES];
 
     /**
-     * Current batching task for deleteMessage. Using a size 1 array to allow
-     * "passing by reference". Synchronized by {@code deleteMessageLock}.
+     * Current batching tasks for deleteMessage. Null or closed entries are
+     * free slots. Synchronized by {@code deleteMessageLock}.
      */
-    private final DeleteMessageBatchTask[] openDeleteMessageBatchTask = new DeleteMessageBatchTask[1];
+    private final DeleteMessageBatchTask[] openDeleteMessageBatchTask = new DeleteMessageBatchTask[MAX_OPEN_BATCHES];
 
     /**
-     * Current batching task for changeMessageVisibility. Using a size 1 array
-     * to allow "passing by reference". Synchronized by
+     * Current batching tasks for changeMessageVisibility. Null or closed
+     * entries are free slots. Synchronized by
      * {@code changeMessageVisibilityLock}.
      */
-    private final ChangeMessageVisibilityBatchTask[] openChangeMessageVisibilityBatchTask = new ChangeMessageVisibilityBatchTask[1];
+    private final ChangeMessageVisibilityBatchTask[] openChangeMessageVisibilityBatchTask = new ChangeMessageVisibilityBatchTask[MAX_OPEN_BATCHES];
+
+    /** Arrival statistics of sendMessage calls. Synchronized by {@code sendMessageLock}. */
+    private final ArrivalRate sendMessageArrivals = new ArrivalRate();
+
+    /** Arrival statistics of deleteMessage calls. Synchronized by {@code deleteMessageLock}. */
+    private final ArrivalRate deleteMessageArrivals = new ArrivalRate();
+
+    /**
+     * Arrival statistics of changeMessageVisibility calls. Synchronized by
+     * {@code changeMessageVisibilityLock}.
+     */
+    private final ArrivalRate changeMessageVisibilityArrivals = new ArrivalRate();
 
     /**
      * Permits controlling the number of in flight SendMessage batches.
@@ -138,15 +174,18 @@ public class SendQueueBuffer {
      */
     private final Semaphore inflightChangeMessageVisibilityBatches;
 
-    SendQueueBuffer(AmazonSQS sqsClient, Executor executor, QueueBufferConfig paramConfig, String url) {
+    SendQueueBuffer(AmazonSQS sqsClient, Executor executor, ScheduledExecutorService batchTimer,
+            QueueBufferConfig paramConfig, String url) {
         this.sqsClient = sqsClient;
         this.executor = executor;
+        this.batchTimer = batchTimer;
         this.config = paramConfig;
         qUrl = url;
         int maxBatch = config.getMaxInflightOutboundBatches();
         
         //must allow at least one outbound batch.
         maxBatch = maxBatch > 0 ? maxBatch : 1;
+        this.maxInflightBatches = maxBatch;
 
         this.inflightSendMessageBatches = new Semaphore( maxBatch);
         this.inflightDeleteMessageBatches = new Semaphore( maxBatch);
@@ -163,7 +202,8 @@ public class SendQueueBuffer {
       public QueueBufferFuture< SendMessageRequest, SendMessageResult > sendMessage( SendMessageRequest request, QueueBufferCallback<SendMessageRequest, SendMessageResult> callback)
       {
           QueueBufferFuture<SendMessageRequest, SendMessageResult>  result = 
-                  submitOutboundRequest(sendMessageLock, openSendMessageBatchTask, request, inflightSendMessageBatches, callback);
+                  submitOutboundRequest(sendMessageLock, openSendMessageBatchTask, request, inflightSendMessageBatches,
+                          sendMessageArrivals, callback);
           return result;
       }
       
@@ -175,6 +215,7 @@ public class SendQueueBuffer {
                   openDeleteMessageBatchTask,
                   request, 
                   inflightDeleteMessageBatches,
+                  deleteMessageArrivals,
                   callback);
       }
       
@@ -187,6 +228,7 @@ public class SendQueueBuffer {
                 openChangeMessageVisibilityBatchTask,
                 request,
                 inflightChangeMessageVisibilityBatches,
+                changeMessageVisibilityArrivals,
                 callback);
       }
       
@@ -218,28 +260,42 @@ public class SendQueueBuffer {
 
         try {
             synchronized (sendMessageLock) {
+                dispatchAll(openSendMessageBatchTask);
                 inflightSendMessageBatches
-                        .acquire(config.getMaxInflightOutboundBatches());
+                        .acquire(maxInflightBatches);
                 inflightSendMessageBatches
-                        .release(config.getMaxInflightOutboundBatches());
+                        .release(maxInflightBatches);
             }
             synchronized (deleteMessageLock) {
+                dispatchAll(openDeleteMessageBatchTask);
                 inflightDeleteMessageBatches
-                        .acquire(config.getMaxInflightOutboundBatches());
+                        .acquire(maxInflightBatches);
                 inflightDeleteMessageBatches
-                        .release(config.getMaxInflightOutboundBatches());
+                        .release(maxInflightBatches);
             }
             synchronized (changeMessageVisibilityLock) {
+                dispatchAll(openChangeMessageVisibilityBatchTask);
                 inflightChangeMessageVisibilityBatches
-                        .acquire(config.getMaxInflightOutboundBatches());
+                        .acquire(maxInflightBatches);
                 inflightChangeMessageVisibilityBatches
-                        .release(config.getMaxInflightOutboundBatches());
+                        .release(maxInflightBatches);
             }
         } catch( InterruptedException e) {
             Thread.currentThread().interrupt();
         }
     }
 
+    /**
+     * @return true if any outbound request submitted to this buffer hasn't
+     *         completed yet, either because its batch is still open or because
+     *         the batch is being sent
+     */
+    boolean hasOutstandingRequests() {
+        return inflightSendMessageBatches.availablePermits() < maxInflightBatches
+                || inflightDeleteMessageBatches.availablePermits() < maxInflightBatches
+                || inflightChangeMessageVisibilityBatches.availablePermits() < maxInflightBatches;
+    }
+
     /**
      * Submits an outbound request for delivery to the queue associated with
      * this buffer.
@@ -249,59 +305,102 @@ public class SendQueueBuffer {
      *            the lock synchronizing calls for the call type (
      *            {@code sendMessage}, {@code deleteMessage},
      *            {@code changeMessageVisibility} )
-     * @param openOutboundBatchTask
-     *            the open batch task for this call type
+     * @param openOutboundBatchTasks
+     *            the open batch tasks for this call type
      * @param request
      *            the request to submit
      * @param inflightOperationBatches
      *            the permits controlling the batches for this type of request
+     * @param arrivals
+     *            the arrival statistics for this call type
      * @return never null
      * @throws AmazonClientException
      *             (see the various outbound calls for details)
      */
     @SuppressWarnings("unchecked")
     <OBT extends OutboundBatchTask<R, Result>, R extends AmazonWebServiceRequest, Result> QueueBufferFuture<R, Result> submitOutboundRequest(
-            Object operationLock, 
-            OBT[] openOutboundBatchTask, 
+            final Object operationLock, 
+            final OBT[] openOutboundBatchTasks, 
             R request,
             final Semaphore inflightOperationBatches, 
+            ArrivalRate arrivals,
             QueueBufferCallback<R, Result> callback) {
         /*
-         * Callers add requests to a single batch task (openOutboundBatchTask)
-         * until it is full or maxBatchOpenMs elapses. The total number of batch
-         * task in flight is controlled by the inflightOperationBatch semaphore
-         * capped at maxInflightOutboundBatches.
+         * Callers add requests to the first open batch task with room for them
+         * (openOutboundBatchTasks) until it is full or its batch window
+         * elapses. The total number of batch tasks, open or in flight, is
+         * controlled by the inflightOperationBatch semaphore capped at
+         * maxInflightOutboundBatches.
          */
         QueueBufferFuture<R, Result> theFuture = null;
         try {
             synchronized (operationLock) {
-                if (openOutboundBatchTask[0] == null || ((theFuture = openOutboundBatchTask[0].addRequest(request, callback))) == null) {
-                    OBT obt = (OBT) newOutboundBatchTask(request);
-                    inflightOperationBatches.acquire();
-                    openOutboundBatchTask[0] = obt;
-                    // Register a listener for the event signaling that the
-                    // batch task has completed (successfully or not).
-                    openOutboundBatchTask[0].onCompleted = new Listener<OutboundBatchTask<R, Result>>() {
-                        public void invoke(OutboundBatchTask<R, Result> task) {
-                            inflightOperationBatches.release();
-                        }
-                    };
-                    
-                    if ( log.isTraceEnabled() ) {
-                        log.trace("Queue " + qUrl + " created new batch for " + request.getClass().toString()
-                                + " " + inflightOperationBatches.availablePermits() 
-                                + " free slots remain");
+                arrivals.recordArrival(System.nanoTime());
+
+                int freeSlot = -1;
+                int fullestSlot = -1;
+                for (int i = 0; i < openOutboundBatchTasks.length; i++) {
+                    OBT batch = openOutboundBatchTasks[i];
+                    if (batch == null || !batch.isOpen()) {
+                        if (freeSlot < 0) freeSlot = i;
+                        continue;
                     }
-                    
-                    theFuture = openOutboundBatchTask[0].addRequest(request, callback);
-                    executor.execute(openOutboundBatchTask[0]);
-                    if ( null == theFuture ) {
-                        //this can happen only if the request itself is flawed, 
-                        //so that it can't be added to any batch, even a brand
-                        //new one
-                        throw new AmazonClientException("Failed to schedule request "+ request + " for execution" );
+                    theFuture = batch.addRequest(request, callback);
+                    if (theFuture != null) {
+                        return theFuture;
+                    }
+                    if (fullestSlot < 0 || batch.size() > openOutboundBatchTasks[fullestSlot].size()) {
+                        fullestSlot = i;
+                    }
+                }
+
+                if (freeSlot < 0) {
+                    //none of the open batches can take this request, send
+                    //the fullest one to make room for a new batch.
+                    openOutboundBatchTasks[fullestSlot].dispatch();
+                    freeSlot = fullestSlot;
+                }
+
+                if (inflightOperationBatches.availablePermits() == 0) {
+                    //no new batch can start until another one completes, so
+                    //there is no point in holding the open ones back.
+                    dispatchAll(openOutboundBatchTasks);
+                }
+
+                OBT obt = (OBT) newOutboundBatchTask(request);
+                inflightOperationBatches.acquire();
+                // Register a listener for the event signaling that the
+                // batch task has completed (successfully or not).
+                obt.onCompleted = new Listener<OutboundBatchTask<R, Result>>() {
+                    public void invoke(OutboundBatchTask<R, Result> task) {
+                        inflightOperationBatches.release();
+                        //batches held back while this one was in flight can go now
+                        synchronized (operationLock) {
+                            for (OBT batch : openOutboundBatchTasks) {
+                                if (batch != null && batch.holdUntilIdle) {
+                                    batch.dispatch();
+                                }
+                            }
+                        }
                     }
+                };
+                openOutboundBatchTasks[freeSlot] = obt;
+
+                if ( log.isTraceEnabled() ) {
+                    log.trace("Queue " + qUrl + " created new batch for " + request.getClass().toString()
+                            + " " + inflightOperationBatches.availablePermits() 
+                            + " free slots remain");
                 }
+
+                theFuture = obt.addRequest(request, callback);
+                if ( null == theFuture ) {
+                    //this can happen only if the request itself is flawed, 
+                    //so that it can't be added to any batch, even a brand
+                    //new one. sending the empty batch releases its permit.
+                    obt.dispatch();
+                    throw new AmazonClientException("Failed to schedule request "+ request + " for execution" );
+                }
+                scheduleBatch(obt, inflightOperationBatches, arrivals);
             }
 
         } catch (InterruptedException e) {
@@ -314,6 +413,95 @@ public class SendQueueBuffer {
         return theFuture;
     }
 
+    /**
+     * Sets the batch window of a new batch. Must be called while holding the
+     * operation lock of the batch type.
+     */
+    private void scheduleBatch(OutboundBatchTask<?, ?> batch, Semaphore inflightOperationBatches, ArrivalRate arrivals) {
+        if (!batch.isOpen()) {
+            //already full, and on its way
+            return;
+        }
+
+        long maxWindowNanos = TimeUnit.NANOSECONDS.convert(config.getMaxBatchOpenMs(), TimeUnit.MILLISECONDS);
+        if (!config.isAdaptiveBatching()) {
+            batch.dispatchAfter(maxWindowNanos);
+            return;
+        }
+
+        //wait just long enough for the batch to fill up at the current rate...
+        double interArrivalNanos = arrivals.getAverageInterArrivalNanos();
+        if (interArrivalNanos >= 0) {
+            double fillNanos = interArrivalNanos * batch.remainingCapacity();
+            if (fillNanos <= maxWindowNanos) {
+                batch.dispatchAfter((long) fillNanos);
+                return;
+            }
+        }
+
+        //...and if it won't fill up in time, don't make it wait for nothing
+        //when the connection is idle. otherwise, hold it until a batch in
+        //flight completes, or the window elapses.
+        boolean othersInflight = inflightOperationBatches.availablePermits() < maxInflightBatches - 1;
+        if (othersInflight) {
+            batch.holdUntilIdle = true;
+            batch.dispatchAfter(maxWindowNanos);
+        } else {
+            batch.dispatch();
+        }
+    }
+
+    private void dispatchAll(OutboundBatchTask<?, ?>[] batches) {
+        for (OutboundBatchTask<?, ?> batch : batches) {
+            if (batch != null) batch.dispatch();
+        }
+    }
+
+    /**
+     * Moving average of the time between two requests of the same type.
+     * Instances are not thread-safe; they are guarded by the operation lock of
+     * their request type.
+     */
+    private static class ArrivalRate {
+        private long lastArrivalNanos = -1;
+        private double averageInterArrivalNanos = -1;
+
+        void recordArrival(long now) {
+            if (lastArrivalNanos >= 0) {
+                double sample = now - lastArrivalNanos;
+                averageInterArrivalNanos = averageInterArrivalNanos < 0 ? sample
+                        : SAMPLE_WEIGHT * sample + (1 - SAMPLE_WEIGHT) * averageInterArrivalNanos;
+            }
+            lastArrivalNanos = now;
+        }
+
+        /** @return the average time between two requests, or -1 if unknown */
+        double getAverageInterArrivalNanos() {
+            return averageInterArrivalNanos;
+        }
+    }
+
+    /**
+     * @return the number of bytes of the UTF-8 encoding of the string
+     */
+    static int utf8Length(String s) {
+        int length = 0;
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
 
     /**
      * Task to send a batch of outbound requests to SQS.
@@ -336,6 +524,18 @@ public class SendQueueBuffer {
         AtomicBoolean open = new AtomicBoolean(true);
         volatile Listener<OutboundBatchTask<R, Result>> onCompleted = null;
 
+        /** Set once the batch has been handed to the executor */
+        private final AtomicBoolean dispatched = new AtomicBoolean(false);
+
+        /** The pending timer closing the batch, if any */
+        private volatile ScheduledFuture<?> timer = null;
+
+        /**
+         * Whether the batch is waiting for another batch of its type to
+         * complete before being sent. Synchronized by the operation lock.
+         */
+        boolean holdUntilIdle = false;
+
         OutboundBatchTask() {
             requests = new ArrayList<R>(config.getMaxBatchSize());
             futures = new ArrayList<QueueBufferFuture<R, Result>>(config.getMaxBatchSize());
@@ -343,6 +543,7 @@ public class SendQueueBuffer {
 
         /**
          * Adds a request to the batch if it is still open and has capacity.
+         * A batch that becomes full is sent right away.
          * 
          * @return the future that can be used to get the results of the 
          * execution, or null if the addition failed. 
@@ -353,16 +554,11 @@ public class SendQueueBuffer {
 
             QueueBufferFuture<R, Result> theFuture = addIfAllowed(request, callback);
 
-            // if the addition did not work, or this addition made us full,
-            // we can close the request
-            if ((null == theFuture) || isFull()) {
-                open.set(false);
-            }
-
             // the batch request is as full as it will ever be. no need to wait
             // for the timeout, we can run it now.
-            if (!open.get())
-                notify();
+            if ((null != theFuture) && isFull()) {
+                dispatch();
+            }
 
             return theFuture;
         }
@@ -403,29 +599,84 @@ public class SendQueueBuffer {
             return requests.size() >= config.getMaxBatchSize();
         }
 
+        /**
+         * @return the number of requests in the batch
+         */
+        synchronized int size() {
+            return requests.size();
+        }
+
+        /**
+         * @return the number of requests that can still be added to the batch
+         */
+        synchronized int remainingCapacity() {
+            return Math.max(0, config.getMaxBatchSize() - requests.size());
+        }
+
+        /**
+         * @return whether requests can still be added to the batch
+         */
+        boolean isOpen() {
+            return open.get();
+        }
+
+        /**
+         * Sends the batch once the specified time has elapsed, unless it is
+         * sent earlier.
+         */
+        void dispatchAfter(long delayNanos) {
+            if (delayNanos <= 0) {
+                dispatch();
+                return;
+            }
+            try {
+                timer = batchTimer.schedule(new Runnable() {
+                    public void run() {
+                        dispatch();
+                    }
+                }, delayNanos, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                dispatch();
+            }
+        }
+
+        /**
+         * Hands the batch to the executor, unless that has already been done.
+         * Requests can still join the batch until it starts running.
+         */
+        void dispatch() {
+            if (!dispatched.compareAndSet(false, true))
+                return;
+
+            ScheduledFuture<?> pendingTimer = timer;
+            if (pendingTimer != null)
+                pendingTimer.cancel(false);
+
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                open.set(false);
+                synchronized (this) {
+                    // wait for any addition in progress to complete
+                }
+                failAll(new AmazonClientException("Unable to send batch for queue " + qUrl
+                        + ": too many batches are in progress", e));
+                complete();
+            }
+        }
+
         /**
          * Processes the batch once closed.
          */
         abstract void process();
 
         @Override
-        public synchronized void run() {
+        public void run() {
             try {
-                long deadlineMs = TimeUnit.MILLISECONDS.convert(System.nanoTime(), TimeUnit.NANOSECONDS ) + 
-                        config.getMaxBatchOpenMs() +1;
-                long t = TimeUnit.MILLISECONDS.convert(System.nanoTime(), TimeUnit.NANOSECONDS );
-                while (open.get()  && (t  < deadlineMs ) ) {
-                    t = TimeUnit.MILLISECONDS.convert(System.nanoTime(), TimeUnit.NANOSECONDS );
-                    
-                    //zero means "wait forever", can't have that.
-                    long toWait = Math.max(1, deadlineMs - t);
-                    wait(toWait);
+                synchronized (this) {
+                    open.set(false);
                 }
-                    
-                open.set(false);
                 process();
-            } catch (InterruptedException e) {
-                failAll( e );
             } catch (AmazonClientException e) {
                 failAll( e );
             } catch (RuntimeException e) {
@@ -435,12 +686,16 @@ public class SendQueueBuffer {
                 failAll( new AmazonClientException("Error encountered", e) );
                 throw e;
             } finally {
-                //make a copy of the listener since it can be modified from outside
-                Listener<OutboundBatchTask<R, Result>> completionListener = onCompleted;
-                if (completionListener != null)
-                    completionListener.invoke(this);
+                complete();
             }
         }
+
+        private void complete() {
+            //make a copy of the listener since it can be modified from outside
+            Listener<OutboundBatchTask<R, Result>> completionListener = onCompleted;
+            if (completionListener != null)
+                completionListener.invoke(this);
+        }
         
         private void failAll( Exception e) {
             for( QueueBufferFuture<R, Result> f : futures ) {
@@ -453,15 +708,31 @@ public class SendQueueBuffer {
             OutboundBatchTask<SendMessageRequest, SendMessageResult> {
         int batchSizeBytes = 0;
 
+        /** size of the request last checked by isOkToAdd, so it is only computed once */
+        int lastRequestBytes = 0;
+
         @Override
         protected synchronized boolean isOkToAdd(SendMessageRequest request) {
+            lastRequestBytes = utf8Length(request.getMessageBody());
             return ( requests.size() < config.getMaxBatchSize() ) && 
-                    ((request.getMessageBody().getBytes().length + batchSizeBytes) < config.getMaxBatchSizeBytes()); 
+                    ((lastRequestBytes + batchSizeBytes) <= config.getMaxBatchSizeBytes()); 
+        }
+
+        @Override
+        protected synchronized void onRequestAdded(SendMessageRequest request) {
+            batchSizeBytes += lastRequestBytes;
         }
 
         @Override
-        protected void onRequestAdded(SendMessageRequest request) {
-            batchSizeBytes += request.getMessageBody().getBytes().length;
+        synchronized int remainingCapacity() {
+            int byCount = super.remainingCapacity();
+            if (requests.isEmpty() || batchSizeBytes == 0)
+                return byCount;
+
+            //estimate how many more messages of the average size fit
+            long averageBytes = batchSizeBytes / requests.size();
+            long bytesLeft = config.getMaxBatchSizeBytes() - batchSizeBytes;
+            return (int) Math.min(byCount, bytesLeft / Math.max(1, averageBytes));
         }
 
         @Override
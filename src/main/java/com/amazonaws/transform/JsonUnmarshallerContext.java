@@ -25,19 +25,39 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Stack;
 
 import org.codehaus.jackson.JsonParser;
 import org.codehaus.jackson.JsonToken;
 
 import com.amazonaws.http.HttpResponse;
 
+/**
+ * Tracks the position of a JSON parser in the document it reads, so that
+ * unmarshallers can match it against pseudo-xpath expressions.
+ * <p>
+ * The position is kept as an array of the names of the enclosing fields, and
+ * expressions are matched against it in place, so moving from one token to the
+ * next doesn't allocate anything. The field names come from the parser, which
+ * interns them, so the same names are shared by all the elements of a large
+ * response.
+ */
 public class JsonUnmarshallerContext {
 
+    private static final int INITIAL_PATH_CAPACITY = 16;
+
     private final JsonParser jsonParser;
 
-    private final Stack<String> stack = new Stack<String>();
-    private String stackString = "";
+    /** Names of the fields whose value contains the current token, outermost first */
+    private String[] pathNames = new String[INITIAL_PATH_CAPACITY];
+
+    /** Token that opened the value of each field in pathNames */
+    private JsonToken[] pathTokens = new JsonToken[INITIAL_PATH_CAPACITY];
+
+    /** Number of entries used in pathNames and pathTokens */
+    private int pathLength;
+
+    /** Number of entries of pathTokens that are START_ARRAY */
+    private int arrayCount;
 
     private String currentField;
 
@@ -72,7 +92,7 @@ public class JsonUnmarshallerContext {
     public String getHeader(String header) {
         if (httpResponse == null) return null;
 
-        return httpResponse.getHeaders().get(header);
+        return httpResponse.getHeader(header);
     }
 
     public HttpResponse getHttpResponse() {
@@ -87,12 +107,9 @@ public class JsonUnmarshallerContext {
      *         document being parsed.
      */
     public int getCurrentDepth() {
-        int depth = 0;
-        for (String s : stack) {
-            if (!(s.equals(START_OBJECT.asString()) || s.equals(START_ARRAY.toString()))) {
-                 depth++;
-            }
-        }
+        // Arrays count as a level of their own, which the generated
+        // unmarshallers' target depths rely on
+        int depth = pathLength + arrayCount;
         if (currentField != null) depth++;
         return depth;
     }
@@ -140,7 +157,7 @@ public class JsonUnmarshallerContext {
     public boolean testExpression(String expression) {
         if (expression.equals("."))
             return true;
-        return stackString.endsWith(expression);
+        return pathEndsWith(expression, false);
     }
 
     /**
@@ -168,8 +185,8 @@ public class JsonUnmarshallerContext {
             }
         }
 
-        return stackString.endsWith("/" + expression) &&
-               stackDepth == getCurrentDepth();
+        return stackDepth == getCurrentDepth() &&
+               pathEndsWith(expression, true);
     }
 
     public JsonToken nextToken() throws IOException {
@@ -252,46 +269,84 @@ public class JsonUnmarshallerContext {
 
         if (currentToken == START_OBJECT || currentToken == START_ARRAY) {
             if (currentField != null) {
-                stack.push(currentField);
-                stack.push(currentToken.asString());
+                push(currentField, currentToken);
                 currentField = null;
             }
         } else if (currentToken == END_OBJECT || currentToken == END_ARRAY) {
-            if (!stack.isEmpty()) {
-                boolean squareBracketsMatch = currentToken == END_ARRAY && stack.peek().equals(START_ARRAY.asString());
-                boolean curlyBracketsMatch = currentToken == END_OBJECT && stack.peek().equals(START_OBJECT.asString());
+            if (pathLength > 0) {
+                JsonToken opening = pathTokens[pathLength - 1];
+                boolean squareBracketsMatch = currentToken == END_ARRAY && opening == START_ARRAY;
+                boolean curlyBracketsMatch = currentToken == END_OBJECT && opening == START_OBJECT;
                 if (squareBracketsMatch || curlyBracketsMatch) {
-                stack.pop();
-                stack.pop();
+                    if (squareBracketsMatch) arrayCount--;
+                    pathLength--;
+                    pathNames[pathLength] = null;
                 }
             }
             currentField = null;
         } else if (currentToken == FIELD_NAME) {
-            String t = jsonParser.getText();
+            String t = jsonParser.getCurrentName();
             currentField = t;
         }
-
-        rebuildStackString();
     }
 
-    @Override
-    public String toString() {
-        return stackString;
+    private void push(String name, JsonToken token) {
+        if (pathLength == pathNames.length) {
+            String[] names = new String[pathLength * 2];
+            JsonToken[] tokens = new JsonToken[pathLength * 2];
+            System.arraycopy(pathNames, 0, names, 0, pathLength);
+            System.arraycopy(pathTokens, 0, tokens, 0, pathLength);
+            pathNames = names;
+            pathTokens = tokens;
+        }
+        pathNames[pathLength] = name;
+        pathTokens[pathLength] = token;
+        pathLength++;
+        if (token == START_ARRAY) arrayCount++;
     }
 
-    private void rebuildStackString() {
-        stackString = "";
-
-        for (String s : stack) {
-            if (! (s.equals(START_ARRAY.asString()) || s.equals(START_OBJECT.asString()))) {
-                stackString += "/" + s;
+    /**
+     * Returns true if the path of the current position, written as
+     * "/name/name/..." (or "/" at the top level), ends with the specified
+     * expression, optionally preceded by a slash. This is a character by
+     * character suffix match, like String.endsWith on the written path, but
+     * walks the path in place instead of writing it.
+     */
+    private boolean pathEndsWith(String expression, boolean leadingSlash) {
+        // Index of the next character of the expression to match, from the end;
+        // -1 stands for the optional leading slash
+        int e = expression.length() - 1;
+        int end = leadingSlash ? -1 : 0;
+
+        int segments = currentField == null ? pathLength : pathLength + 1;
+        if (segments == 0) {
+            if (e < end) return true;
+            if (e >= 0 && expression.charAt(e) != '/') return false;
+            return e - 1 < end;
+        }
+        for (int i = segments - 1; i >= 0; i--) {
+            String name = (i == pathLength) ? currentField : pathNames[i];
+            for (int j = name.length() - 1; j >= 0; j--) {
+                if (e < end) return true;
+                if ((e < 0 ? '/' : expression.charAt(e)) != name.charAt(j)) return false;
+                e--;
             }
+            if (e < end) return true;
+            if (e >= 0 && expression.charAt(e) != '/') return false;
+            e--;
         }
+        return e < end;
+    }
 
-        if (currentField != null) {
-            stackString += "/" + currentField;
-        }
+    @Override
+    public String toString() {
+        int segments = currentField == null ? pathLength : pathLength + 1;
+        if (segments == 0) return "/";
 
-        if (stackString == "") stackString = "/";
+        StringBuilder path = new StringBuilder();
+        for (int i = 0; i < segments; i++) {
+            path.append('/').append(i == pathLength ? currentField : pathNames[i]);
+        }
+        return path.toString();
     }
 }
@@ -14,6 +14,7 @@
  */
 package com.amazonaws.transform;
 
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -21,10 +22,18 @@ import java.util.List;
 import java.util.Map;
 import java.util.Stack;
 
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLEventFactory;
 import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Characters;
+import javax.xml.stream.events.EndElement;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.StartElement;
 import javax.xml.stream.events.XMLEvent;
 
 /**
@@ -34,14 +43,54 @@ import javax.xml.stream.events.XMLEvent;
  * response. It also tracks the current position and element depth of the
  * document being parsed and provides utilties for accessing the next XML event
  * from the parser, reading element text, handling attribute XML events, etc.
+ * <p>
+ * The current position is kept as an array of element local names, and
+ * expressions are matched against it in place: the depth is compared first,
+ * then the names from the innermost outwards, so testing a field of a
+ * generated unmarshaller against an element is an integer comparison followed
+ * by at most one string comparison, without building any string.
+ * <p>
+ * A context created with an {@link XMLStreamReader} reads the document with
+ * the cursor API instead of the event reader. The events returned by
+ * {@link #nextEvent()} then only copy the names and text of the event, and
+ * build a complete event the first time its details are asked for. The text
+ * of an element read with {@link #readText()} is taken from the cursor
+ * without creating any event.
  */
 public class StaxUnmarshallerContext {
 
     private XMLEvent currentEvent;
     private final XMLEventReader eventReader;
+    private final XMLStreamReader streamReader;
 
+    /**
+     * True when the current event of streamReader hasn't been returned by
+     * nextEvent yet, that is the cursor is one event ahead of the context
+     */
+    private boolean streamReaderAhead;
+
+    /** Last start element read by streamReader, while its attributes are being returned */
+    private CursorEvent attributeOwner;
+
+    /** Index of the next attribute of attributeOwner to return */
+    private int attributeIndex;
+
+    /** Local names of the elements enclosing the current position, outermost first */
+    private String[] path = new String[16];
+    private int depth;
+
+    /**
+     * Local names of the elements enclosing the current position, outermost
+     * first. Kept up to date with the current position.
+     *
+     * @deprecated Use {@link #getCurrentDepth()} and
+     *             {@link #testExpression(String, int)} instead.
+     */
+    @Deprecated
     public final Stack<String> stack = new Stack<String>();
-    private String stackString = "";
+
+    /** Local name of the current attribute, if the current event is one */
+    private String attributeName;
 
     private Map<String, String> metadata = new HashMap<String, String>();
     private List<MetadataExpression> metadataExpressions = new ArrayList<MetadataExpression>();
@@ -71,9 +120,28 @@ public class StaxUnmarshallerContext {
      */
     public StaxUnmarshallerContext(XMLEventReader eventReader, Map<String, String> headers) {
         this.eventReader = eventReader;
+        this.streamReader = null;
         this.headers = headers;
     }
 
+    /**
+     * Constructs a new unmarshaller context that reads the document through
+     * the cursor of the specified stream reader, with a set of response
+     * headers.
+     *
+     * @param streamReader
+     *            The stream reader positioned at the start of the document.
+     * @param headers
+     *            The set of response headers associated with this unmarshaller
+     *            context.
+     */
+    public StaxUnmarshallerContext(XMLStreamReader streamReader, Map<String, String> headers) {
+        this.eventReader = null;
+        this.streamReader = streamReader;
+        this.headers = headers;
+        this.streamReaderAhead = true;
+    }
+
     /**
      * Returns the value of the header with the specified name from the
      * response, or null if not present.
@@ -97,6 +165,8 @@ public class StaxUnmarshallerContext {
      * @throws XMLStreamException
      */
     public String readText() throws XMLStreamException {
+        if (streamReader != null) return readStreamText();
+
         if (currentEvent.isAttribute()) {
             Attribute attribute = (Attribute)currentEvent;
             return attribute.getValue();
@@ -124,7 +194,7 @@ public class StaxUnmarshallerContext {
      *         document being parsed.
      */
     public int getCurrentDepth() {
-        return stack.size();
+        return depth;
     }
 
     /**
@@ -138,7 +208,7 @@ public class StaxUnmarshallerContext {
      */
     public boolean testExpression(String expression) {
         if (expression.equals(".")) return true;
-        return stackString.endsWith(expression);
+        return pathEndsWith(expression, false);
     }
 
     /**
@@ -158,17 +228,16 @@ public class StaxUnmarshallerContext {
     public boolean testExpression(String expression, int startingStackDepth) {
         if (expression.equals(".")) return true;
 
-        int index = -1;
-        while ((index = expression.indexOf("/", index + 1)) > -1) {
+        int length = expression.length();
+        for (int i = 0; i < length; i++) {
             // Don't consider attributes a new depth level
-            if (expression.charAt(index + 1) != '@') {
+            if (expression.charAt(i) == '/' && expression.charAt(i + 1) != '@') {
                 startingStackDepth++;
             }
         }
 
-
-        return (startingStackDepth == getCurrentDepth()
-                && stackString.endsWith("/" + expression));
+        return (startingStackDepth == depth
+                && pathEndsWith(expression, true));
     }
 
     /**
@@ -180,6 +249,9 @@ public class StaxUnmarshallerContext {
      *         yet).
      */
     public boolean isStartOfDocument() throws XMLStreamException {
+        if (streamReader != null) {
+            return streamReaderAhead && streamReader.getEventType() == XMLStreamConstants.START_DOCUMENT;
+        }
         return eventReader.peek().isStartDocument();
     }
 
@@ -191,6 +263,8 @@ public class StaxUnmarshallerContext {
      * @throws XMLStreamException
      */
     public XMLEvent nextEvent() throws XMLStreamException {
+        if (streamReader != null) return nextStreamEvent();
+
         if (attributeIterator != null && attributeIterator.hasNext()) {
             currentEvent = (XMLEvent)attributeIterator.next();
         } else {
@@ -206,11 +280,7 @@ public class StaxUnmarshallerContext {
         if (eventReader.hasNext()) {
             XMLEvent nextEvent = eventReader.peek();
             if (nextEvent != null && nextEvent.isCharacters()) {
-                for (MetadataExpression metadataExpression : metadataExpressions) {
-                    if (testExpression(metadataExpression.expression, metadataExpression.targetDepth)) {
-                        metadata.put(metadataExpression.key, nextEvent.asCharacters().getData());
-                    }
-                }
+                collectMetadata(nextEvent.asCharacters().getData());
             }
         }
 
@@ -271,21 +341,402 @@ public class StaxUnmarshallerContext {
         if (event == null) return;
 
         if (event.isEndElement()) {
-            stack.pop();
-            stackString = "";
-            for (String s : stack) {
-                stackString += "/" + s;
-            }
+            popElement();
         } else if (event.isStartElement()) {
-            stack.push(event.asStartElement().getName().getLocalPart());
-            stackString += "/" + event.asStartElement().getName().getLocalPart();
+            pushElement(event.asStartElement().getName().getLocalPart());
         } else if (event.isAttribute()) {
             Attribute attribute = (Attribute)event;
-            stackString = "";
-            for (String s : stack) {
-                stackString += "/" + s;
+            attributeName = attribute.getName().getLocalPart();
+        }
+    }
+
+    private void pushElement(String localName) {
+        if (depth == path.length) {
+            String[] newPath = new String[depth * 2];
+            System.arraycopy(path, 0, newPath, 0, depth);
+            path = newPath;
+        }
+        path[depth++] = localName;
+        stack.push(localName);
+        attributeName = null;
+    }
+
+    private void popElement() {
+        depth--;
+        path[depth] = null;
+        stack.pop();
+        attributeName = null;
+    }
+
+    private void collectMetadata(String data) {
+        for (int i = 0, n = metadataExpressions.size(); i < n; i++) {
+            MetadataExpression metadataExpression = metadataExpressions.get(i);
+            if (testExpression(metadataExpression.expression, metadataExpression.targetDepth)) {
+                metadata.put(metadataExpression.key, data);
+            }
+        }
+    }
+
+    /**
+     * Returns the next event from the stream reader: the attributes of the
+     * last start element first, as the event reader does, then the event under
+     * the cursor. The cursor is then moved one event ahead so that the text of
+     * the current element can be collected as metadata.
+     */
+    private XMLEvent nextStreamEvent() throws XMLStreamException {
+        if (attributeOwner != null && attributeIndex < attributeOwner.getAttributeCount()) {
+            CursorEvent attribute = attributeOwner.getAttributeEvent(attributeIndex++);
+            currentEvent = attribute;
+            attributeName = attribute.getLocalName();
+        } else {
+            if (!streamReaderAhead) streamReader.next();
+            streamReaderAhead = false;
+
+            CursorEvent event = CursorEvent.create(streamReader);
+            currentEvent = event;
+            attributeOwner = null;
+            if (event.isStartElement()) {
+                pushElement(event.getLocalName());
+                attributeOwner = event;
+                attributeIndex = 0;
+            } else if (event.isEndElement()) {
+                popElement();
+            }
+        }
+
+        if (!streamReaderAhead && streamReader.hasNext()) {
+            streamReader.next();
+            streamReaderAhead = true;
+        }
+        if (streamReaderAhead && streamReader.getEventType() == XMLStreamConstants.CHARACTERS
+                && !metadataExpressions.isEmpty()) {
+            collectMetadata(streamReader.getText());
+        }
+
+        return currentEvent;
+    }
+
+    /**
+     * Reads the text of the current element from the stream reader, leaving
+     * the cursor on the end of the element. Text that comes in a single chunk,
+     * which is the common case, is returned as is.
+     */
+    private String readStreamText() throws XMLStreamException {
+        if (currentEvent.isAttribute()) {
+            return ((CursorEvent)currentEvent).getText();
+        }
+
+        String text = null;
+        StringBuilder sb = null;
+        while (true) {
+            int eventType = streamReader.getEventType();
+            if (eventType == XMLStreamConstants.CHARACTERS || eventType == XMLStreamConstants.CDATA
+                    || eventType == XMLStreamConstants.SPACE) {
+                String chunk = streamReader.getText();
+                if (text == null) {
+                    text = chunk;
+                } else {
+                    if (sb == null) sb = new StringBuilder(text);
+                    sb.append(chunk);
+                }
+                streamReader.next();
+            } else if (eventType == XMLStreamConstants.END_ELEMENT) {
+                if (sb != null) return sb.toString();
+                return text == null ? "" : text;
+            } else {
+                throw new RuntimeException("Encountered unexpected event: " + CursorEvent.create(streamReader));
+            }
+        }
+    }
+
+    /**
+     * Returns true if the current position, written as "/name/name/..." with
+     * a final "/@name" for attributes, ends with the specified expression,
+     * optionally preceded by a slash. This is a character by character suffix
+     * match, like String.endsWith on the written path, but walks the path in
+     * place instead of writing it.
+     */
+    private boolean pathEndsWith(String expression, boolean leadingSlash) {
+        // Index of the next character of the expression to match, from the end;
+        // -1 stands for the optional leading slash
+        int e = expression.length() - 1;
+        int end = leadingSlash ? -1 : 0;
+
+        int segments = (attributeName == null) ? depth : depth + 1;
+        for (int i = segments - 1; i >= 0; i--) {
+            // The attribute segment is the attribute name preceded by '@'
+            String name = (i == depth) ? attributeName : path[i];
+            int offset = (i == depth) ? 1 : 0;
+            for (int j = name.length() - 1 + offset; j >= 0; j--) {
+                if (e < end) return true;
+                char c = (j < offset) ? '@' : name.charAt(j - offset);
+                if ((e < 0 ? '/' : expression.charAt(e)) != c) return false;
+                e--;
+            }
+            if (e < end) return true;
+            if (e >= 0 && expression.charAt(e) != '/') return false;
+            e--;
+        }
+        return e < end;
+    }
+
+    /**
+     * Event returned when reading with a stream reader. Element, attribute and
+     * text events copy their names and text from the cursor when they are
+     * created, and only build the equivalent event of the default
+     * {@link XMLEventFactory} if their details are asked for. Other events,
+     * which are rare in a response, are built right away.
+     */
+    private static final class CursorEvent implements XMLEvent {
+
+        private static final XMLEventFactory eventFactory = XMLEventFactory.newInstance();
+
+        private final int eventType;
+
+        /** Name of an element or attribute event */
+        private final String prefix;
+        private final String namespaceURI;
+        private final String localName;
+
+        /** Text of a character event, or value of an attribute event */
+        private final String text;
+
+        /**
+         * Prefix, namespace URI, local name and value of each attribute of a
+         * start element, null if it doesn't have any
+         */
+        private final String[] attributes;
+
+        /** Prefix and URI of each namespace declared by a start element, null if none */
+        private final String[] namespaces;
+
+        /** Equivalent event of the event factory, built on first use */
+        private XMLEvent event;
+
+        private CursorEvent(int eventType, String prefix, String namespaceURI, String localName, String text,
+                String[] attributes, String[] namespaces, XMLEvent event) {
+            this.eventType = eventType;
+            this.prefix = prefix;
+            this.namespaceURI = namespaceURI;
+            this.localName = localName;
+            this.text = text;
+            this.attributes = attributes;
+            this.namespaces = namespaces;
+            this.event = event;
+        }
+
+        /**
+         * Creates the event under the cursor of the specified reader.
+         */
+        static CursorEvent create(XMLStreamReader reader) {
+            int eventType = reader.getEventType();
+            switch (eventType) {
+            case XMLStreamConstants.START_ELEMENT:
+                return new CursorEvent(eventType, reader.getPrefix(), reader.getNamespaceURI(), reader.getLocalName(),
+                        null, readAttributes(reader), readNamespaces(reader), null);
+            case XMLStreamConstants.END_ELEMENT:
+                return new CursorEvent(eventType, reader.getPrefix(), reader.getNamespaceURI(), reader.getLocalName(),
+                        null, null, null, null);
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+                return new CursorEvent(eventType, null, null, null, reader.getText(), null, null, null);
+            default:
+                return new CursorEvent(eventType, null, null, null, null, null, null, createEvent(reader));
+            }
+        }
+
+        private static String[] readAttributes(XMLStreamReader reader) {
+            int count = reader.getAttributeCount();
+            if (count == 0) return null;
+
+            String[] attributes = new String[count * 4];
+            for (int i = 0; i < count; i++) {
+                attributes[i * 4] = reader.getAttributePrefix(i);
+                attributes[i * 4 + 1] = reader.getAttributeNamespace(i);
+                attributes[i * 4 + 2] = reader.getAttributeLocalName(i);
+                attributes[i * 4 + 3] = reader.getAttributeValue(i);
+            }
+            return attributes;
+        }
+
+        private static String[] readNamespaces(XMLStreamReader reader) {
+            int count = reader.getNamespaceCount();
+            if (count == 0) return null;
+
+            String[] namespaces = new String[count * 2];
+            for (int i = 0; i < count; i++) {
+                namespaces[i * 2] = reader.getNamespacePrefix(i);
+                namespaces[i * 2 + 1] = reader.getNamespaceURI(i);
+            }
+            return namespaces;
+        }
+
+        private static XMLEvent createEvent(XMLStreamReader reader) {
+            switch (reader.getEventType()) {
+            case XMLStreamConstants.START_DOCUMENT:
+                String encoding = reader.getCharacterEncodingScheme();
+                if (encoding == null) encoding = "UTF-8";
+                String version = reader.getVersion();
+                if (version == null) version = "1.0";
+                if (reader.standaloneSet()) {
+                    return eventFactory.createStartDocument(encoding, version, reader.isStandalone());
+                }
+                return eventFactory.createStartDocument(encoding, version);
+            case XMLStreamConstants.END_DOCUMENT:
+                return eventFactory.createEndDocument();
+            case XMLStreamConstants.COMMENT:
+                return eventFactory.createComment(reader.getText());
+            case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                return eventFactory.createProcessingInstruction(reader.getPITarget(), reader.getPIData());
+            case XMLStreamConstants.DTD:
+                return eventFactory.createDTD(reader.getText());
+            case XMLStreamConstants.ENTITY_REFERENCE:
+                return eventFactory.createEntityReference(reader.getLocalName(), null);
+            default:
+                return null;
             }
-            stackString += "/@" + attribute.getName().getLocalPart();
+        }
+
+        int getAttributeCount() {
+            return attributes == null ? 0 : attributes.length / 4;
+        }
+
+        /**
+         * Returns the attribute event for an attribute of this start element.
+         */
+        CursorEvent getAttributeEvent(int index) {
+            return new CursorEvent(XMLStreamConstants.ATTRIBUTE, attributes[index * 4], attributes[index * 4 + 1],
+                    attributes[index * 4 + 2], attributes[index * 4 + 3], null, null, null);
+        }
+
+        String getLocalName() {
+            return localName;
+        }
+
+        String getText() {
+            return text;
+        }
+
+        /**
+         * Returns the equivalent event of the event factory, or null if the
+         * event type has none.
+         */
+        private XMLEvent getEvent() {
+            if (event != null) return event;
+
+            switch (eventType) {
+            case XMLStreamConstants.START_ELEMENT:
+                List<Attribute> attributeList = new ArrayList<Attribute>();
+                for (int i = 0, n = getAttributeCount(); i < n; i++) {
+                    attributeList.add((Attribute)getAttributeEvent(i).getEvent());
+                }
+                List<Namespace> namespaceList = new ArrayList<Namespace>();
+                for (int i = 0; namespaces != null && i < namespaces.length; i += 2) {
+                    String namespacePrefix = namespaces[i];
+                    namespaceList.add(namespacePrefix == null || namespacePrefix.length() == 0
+                            ? eventFactory.createNamespace(namespaces[i + 1])
+                            : eventFactory.createNamespace(namespacePrefix, namespaces[i + 1]));
+                }
+                event = eventFactory.createStartElement(nonNull(prefix), nonNull(namespaceURI), localName,
+                        attributeList.iterator(), namespaceList.iterator());
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                event = eventFactory.createEndElement(nonNull(prefix), nonNull(namespaceURI), localName);
+                break;
+            case XMLStreamConstants.ATTRIBUTE:
+                event = eventFactory.createAttribute(nonNull(prefix), nonNull(namespaceURI), localName, text);
+                break;
+            case XMLStreamConstants.CHARACTERS:
+                event = eventFactory.createCharacters(text);
+                break;
+            case XMLStreamConstants.CDATA:
+                event = eventFactory.createCData(text);
+                break;
+            case XMLStreamConstants.SPACE:
+                event = eventFactory.createIgnorableSpace(text);
+                break;
+            }
+            return event;
+        }
+
+        private static String nonNull(String s) {
+            return s == null ? "" : s;
+        }
+
+        public int getEventType() {
+            return eventType;
+        }
+
+        public Location getLocation() {
+            return null;
+        }
+
+        public boolean isStartElement() {
+            return eventType == XMLStreamConstants.START_ELEMENT;
+        }
+
+        public boolean isAttribute() {
+            return eventType == XMLStreamConstants.ATTRIBUTE;
+        }
+
+        public boolean isNamespace() {
+            return eventType == XMLStreamConstants.NAMESPACE;
+        }
+
+        public boolean isEndElement() {
+            return eventType == XMLStreamConstants.END_ELEMENT;
+        }
+
+        public boolean isEntityReference() {
+            return eventType == XMLStreamConstants.ENTITY_REFERENCE;
+        }
+
+        public boolean isProcessingInstruction() {
+            return eventType == XMLStreamConstants.PROCESSING_INSTRUCTION;
+        }
+
+        public boolean isCharacters() {
+            return eventType == XMLStreamConstants.CHARACTERS || eventType == XMLStreamConstants.CDATA
+                    || eventType == XMLStreamConstants.SPACE;
+        }
+
+        public boolean isStartDocument() {
+            return eventType == XMLStreamConstants.START_DOCUMENT;
+        }
+
+        public boolean isEndDocument() {
+            return eventType == XMLStreamConstants.END_DOCUMENT;
+        }
+
+        public StartElement asStartElement() {
+            if (!isStartElement()) throw new ClassCastException("Not a start element: " + this);
+            return (StartElement)getEvent();
+        }
+
+        public EndElement asEndElement() {
+            if (!isEndElement()) throw new ClassCastException("Not an end element: " + this);
+            return (EndElement)getEvent();
+        }
+
+        public Characters asCharacters() {
+            if (!isCharacters()) throw new ClassCastException("Not a character event: " + this);
+            return (Characters)getEvent();
+        }
+
+        public QName getSchemaType() {
+            return null;
+        }
+
+        public void writeAsEncodedUnicode(Writer writer) throws XMLStreamException {
+            XMLEvent e = getEvent();
+            if (e != null) e.writeAsEncodedUnicode(writer);
+        }
+
+        @Override
+        public String toString() {
+            XMLEvent e = getEvent();
+            return (e == null) ? "XMLEvent type " + eventType : e.toString();
         }
     }
 
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.util;
+
+import java.io.ByteArrayInputStream;
+
+/**
+ * Request content held in a byte array, together with the SHA-256 hash of
+ * that content computed when it was produced, so that signers don't have to
+ * read the content again to hash it.
+ */
+public class HashedByteArrayInputStream extends ByteArrayInputStream {
+
+    private final byte[] sha256;
+
+    /**
+     * Constructs a new stream over the first <code>length</code> bytes of
+     * the specified array, which is used without being copied.
+     *
+     * @param buffer
+     *            The content.
+     * @param length
+     *            The number of bytes of content in the buffer.
+     * @param sha256
+     *            The SHA-256 hash of the content.
+     */
+    public HashedByteArrayInputStream(byte[] buffer, int length, byte[] sha256) {
+        super(buffer, 0, length);
+        this.sha256 = sha256;
+    }
+
+    /**
+     * Returns the SHA-256 hash of the content remaining in this stream, which
+     * is only known when none of it has been read yet.
+     *
+     * @return The SHA-256 hash of the remaining content, or null if part of
+     *         the content has already been read.
+     */
+    public synchronized byte[] getRemainingContentSha256() {
+        if (pos != 0) return null;
+        return sha256.clone();
+    }
+
+    /**
+     * Returns the length of the whole content.
+     */
+    public int getContentLength() {
+        return count;
+    }
+}
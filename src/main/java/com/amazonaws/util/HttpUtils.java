@@ -14,39 +14,97 @@
  */
 package com.amazonaws.util;
 
-import java.io.UnsupportedEncodingException;
 import java.net.URI;
-import java.net.URLEncoder;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 
-import org.apache.http.NameValuePair;
-import org.apache.http.client.utils.URLEncodedUtils;
-import org.apache.http.message.BasicNameValuePair;
-
 import com.amazonaws.Request;
 import com.amazonaws.http.HttpMethodName;
 
 public class HttpUtils {
 
-    private static final String DEFAULT_ENCODING = "UTF-8";
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    /** ASCII characters that are never percent-encoded, as per RFC 3986 */
+    private static final boolean[] UNRESERVED = new boolean[128];
+    static {
+        for (char c = 'a'; c <= 'z'; c++) UNRESERVED[c] = true;
+        for (char c = 'A'; c <= 'Z'; c++) UNRESERVED[c] = true;
+        for (char c = '0'; c <= '9'; c++) UNRESERVED[c] = true;
+        UNRESERVED['-'] = true;
+        UNRESERVED['_'] = true;
+        UNRESERVED['.'] = true;
+        UNRESERVED['~'] = true;
+    }
 
+    /**
+     * Percent-encodes a string as required by AWS signatures: all the
+     * characters except the unreserved ones of RFC 3986 are encoded, in UTF-8,
+     * with upper case hexadecimal digits, and spaces are encoded as "%20".
+     * Strings that don't need any encoding, which are most parameter names
+     * and values, are returned as they are.
+     *
+     * @param value
+     *            The string to encode.
+     * @param path
+     *            True if slashes should be left as they are, when encoding a
+     *            path.
+     *
+     * @return The encoded string, or an empty string if the value is null.
+     */
     public static String urlEncode(String value, boolean path) {
         if (value == null) return "";
 
-        try {
-            String encoded = URLEncoder.encode(value, DEFAULT_ENCODING)
-                    .replace("+", "%20").replace("*", "%2A")
-                    .replace("%7E", "~");
-            if (path) {
-                encoded = encoded.replace("%2F", "/");
-            }
+        int length = value.length();
+        int i = 0;
+        while (i < length && isUnreserved(value.charAt(i), path)) i++;
+        if (i == length) return value;
 
-            return encoded;
-        } catch (UnsupportedEncodingException ex) {
-            throw new RuntimeException(ex);
+        StringBuilder encoded = new StringBuilder(length + 16);
+        encoded.append(value, 0, i);
+        appendEncoded(encoded, value, i, path);
+        return encoded.toString();
+    }
+
+    private static boolean isUnreserved(char c, boolean path) {
+        return c < 128 && (UNRESERVED[c] || (path && c == '/'));
+    }
+
+    /**
+     * Appends the encoded form of a string, from the specified index, to a
+     * builder.
+     */
+    private static void appendEncoded(StringBuilder encoded, String value, int from, boolean path) {
+        int length = value.length();
+        for (int i = from; i < length; i++) {
+            char c = value.charAt(i);
+            if (isUnreserved(c, path)) {
+                encoded.append(c);
+            } else if (c < 0x80) {
+                appendEscaped(encoded, c);
+            } else if (c < 0x800) {
+                appendEscaped(encoded, 0xC0 | (c >> 6));
+                appendEscaped(encoded, 0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                appendEscaped(encoded, 0xF0 | (codePoint >> 18));
+                appendEscaped(encoded, 0x80 | ((codePoint >> 12) & 0x3F));
+                appendEscaped(encoded, 0x80 | ((codePoint >> 6) & 0x3F));
+                appendEscaped(encoded, 0x80 | (codePoint & 0x3F));
+            } else if (c >= 0xD800 && c <= 0xDFFF) {
+                // Unpaired surrogates are replaced, as String.getBytes does
+                appendEscaped(encoded, '?');
+            } else {
+                appendEscaped(encoded, 0xE0 | (c >> 12));
+                appendEscaped(encoded, 0x80 | ((c >> 6) & 0x3F));
+                appendEscaped(encoded, 0x80 | (c & 0x3F));
+            }
         }
+    }
+
+    private static void appendEscaped(StringBuilder encoded, int b) {
+        encoded.append('%').append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
     }
 
     /**
@@ -88,20 +146,22 @@ public class HttpUtils {
      *         string for the parameters present in the specified request.
      */
     public static String encodeParameters(Request<?> request) {
-        List<NameValuePair> nameValuePairs = null;
-        if (request.getParameters().size() > 0) {
-            nameValuePairs = new ArrayList<NameValuePair>(request.getParameters().size());
-            for (Entry<String, String> entry : request.getParameters().entrySet()) {
-                nameValuePairs.add(new BasicNameValuePair(entry.getKey(), entry.getValue()));
-            }
-        }
+        Map<String, String> parameters = request.getParameters();
+        if (parameters.isEmpty()) return null;
 
-        String encodedParams = null;
-        if (nameValuePairs != null) {
-            encodedParams = URLEncodedUtils.format(nameValuePairs, DEFAULT_ENCODING);
+        // Parameters are encoded as they are for signing, which is also valid
+        // form encoding, so that the common case of names and values that
+        // need no encoding doesn't create any intermediate string
+        StringBuilder encodedParams = new StringBuilder(parameters.size() * 32);
+        for (Entry<String, String> entry : parameters.entrySet()) {
+            if (encodedParams.length() > 0) encodedParams.append('&');
+            appendEncoded(encodedParams, entry.getKey(), 0, false);
+            encodedParams.append('=');
+            if (entry.getValue() != null) {
+                appendEncoded(encodedParams, entry.getValue(), 0, false);
+            }
         }
-
-        return encodedParams;
+        return encodedParams.toString();
     }
 
 }
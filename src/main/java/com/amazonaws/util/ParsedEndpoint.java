@@ -0,0 +1,193 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.util;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The parts of a service endpoint or resource URL that are needed to send and
+ * sign each request: host, port, Host header, region, service and path.
+ * <p>
+ * Clients send every request to one of a handful of endpoints, so parsed
+ * endpoints are kept in a small process-wide cache, shared by the signers,
+ * the HTTP request factory and the request handlers that rewrite endpoints,
+ * instead of being worked out again for each request. The cache is keyed by
+ * the full URL string and is simply cleared when it fills up.
+ * <p>
+ * Instances of {@code ParsedEndpoint} are immutable.
+ */
+public final class ParsedEndpoint {
+
+    /** The most URLs kept in the cache before it is cleared */
+    private static final int MAX_CACHED_ENDPOINTS = 1024;
+
+    private static final ConcurrentMap<String, ParsedEndpoint> cache =
+            new ConcurrentHashMap<String, ParsedEndpoint>();
+
+    private final URI uri;
+    private final String host;
+    private final int port;
+    private final boolean nonDefaultPort;
+    private final String hostHeader;
+    private final String regionName;
+    private final String serviceName;
+    private final URI endpointWithoutPath;
+
+    private ParsedEndpoint(URI uri) throws URISyntaxException {
+        this.uri = uri;
+        this.host = uri.getHost();
+        this.port = uri.getPort();
+        this.nonDefaultPort = uri.getScheme() != null && HttpUtils.isUsingNonDefaultPort(uri);
+
+        if (host != null) {
+            this.hostHeader = nonDefaultPort ? host + ":" + port : host;
+            this.regionName = AwsHostNameUtils.parseRegionName(uri);
+            this.serviceName = AwsHostNameUtils.parseServiceName(uri);
+            this.endpointWithoutPath = uri.getPath() == null
+                    ? null : new URI(uri.toString().replace(uri.getPath(), ""));
+        } else {
+            this.hostHeader = null;
+            this.regionName = null;
+            this.serviceName = null;
+            this.endpointWithoutPath = null;
+        }
+    }
+
+    /**
+     * Returns the parsed form of the specified endpoint.
+     *
+     * @param endpoint
+     *            The endpoint, including the protocol.
+     *
+     * @return The parsed endpoint.
+     */
+    public static ParsedEndpoint get(URI endpoint) {
+        String key = endpoint.toString();
+        ParsedEndpoint parsed = cache.get(key);
+        if (parsed != null) return parsed;
+
+        try {
+            return cache(key, new ParsedEndpoint(endpoint));
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Unable to parse endpoint '" + key + "'", e);
+        }
+    }
+
+    /**
+     * Returns the parsed form of the specified URL, such as an SQS queue URL.
+     *
+     * @param url
+     *            The URL to parse.
+     *
+     * @return The parsed URL.
+     *
+     * @throws URISyntaxException
+     *             If the URL can't be parsed.
+     */
+    public static ParsedEndpoint get(String url) throws URISyntaxException {
+        ParsedEndpoint parsed = cache.get(url);
+        if (parsed != null) return parsed;
+
+        return cache(url, new ParsedEndpoint(new URI(url)));
+    }
+
+    private static ParsedEndpoint cache(String key, ParsedEndpoint parsed) {
+        if (cache.size() >= MAX_CACHED_ENDPOINTS) {
+            cache.clear();
+        }
+        cache.put(key, parsed);
+        return parsed;
+    }
+
+    /**
+     * Returns the URI that was parsed.
+     */
+    public URI getUri() {
+        return uri;
+    }
+
+    /**
+     * Returns the host of the endpoint, or null if it doesn't have one.
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * Returns the port explicitly specified in the endpoint, or -1 if it
+     * doesn't specify one.
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Returns true if the endpoint specifies a port that isn't the default
+     * one for its protocol.
+     *
+     * @see HttpUtils#isUsingNonDefaultPort(URI)
+     */
+    public boolean isUsingNonDefaultPort() {
+        return nonDefaultPort;
+    }
+
+    /**
+     * Returns the value of the Host header for requests sent to the endpoint,
+     * which only includes the port if it isn't the default one, as Apache
+     * HttpClient does, or null if the endpoint doesn't have a host.
+     */
+    public String getHostHeader() {
+        return hostHeader;
+    }
+
+    /**
+     * Returns the region name parsed from the host of the endpoint, or null if
+     * it doesn't have a host.
+     *
+     * @see AwsHostNameUtils#parseRegionName(URI)
+     */
+    public String getRegionName() {
+        return regionName;
+    }
+
+    /**
+     * Returns the service name parsed from the host of the endpoint, or null
+     * if it doesn't have a host.
+     *
+     * @see AwsHostNameUtils#parseServiceName(URI)
+     */
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    /**
+     * Returns the path of the URL, which is the resource path of requests sent
+     * to it.
+     */
+    public String getResourcePath() {
+        return uri.getPath();
+    }
+
+    /**
+     * Returns the URL without its path, which is the endpoint requests for
+     * the resource must be sent to, or null if it doesn't have a host.
+     */
+    public URI getEndpointWithoutPath() {
+        return endpointWithoutPath;
+    }
+}
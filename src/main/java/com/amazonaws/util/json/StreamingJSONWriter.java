@@ -0,0 +1,240 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.util.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.util.HashedByteArrayInputStream;
+
+/**
+ * A JSONWriter that writes UTF-8 straight into a byte array with a Jackson
+ * generator, and hashes the bytes with SHA-256 as they are written, for use
+ * as the content of a request.
+ * <p>
+ * The content is not copied: once the document is complete,
+ * {@link #getContent()} returns a stream over the array the generator wrote
+ * into, along with its hash, which AWS4 signing then uses instead of reading
+ * the content again. Jackson recycles the generator's own buffers between
+ * documents written by the same thread.
+ * <p>
+ * Values are written as by JSONWriter, except that strings are only escaped
+ * where JSON requires it.
+ */
+public class StreamingJSONWriter extends JSONWriter {
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    private final ContentBuffer buffer = new ContentBuffer();
+    private final JsonGenerator generator;
+
+    public StreamingJSONWriter() {
+        super(null);
+        try {
+            this.generator = jsonFactory.createJsonGenerator(buffer, JsonEncoding.UTF8);
+        } catch (IOException e) {
+            throw new AmazonClientException("Unable to create JSON generator: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public JSONWriter array() throws JSONException {
+        try {
+            generator.writeStartArray();
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    @Override
+    public JSONWriter endArray() throws JSONException {
+        try {
+            generator.writeEndArray();
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    @Override
+    public JSONWriter object() throws JSONException {
+        try {
+            generator.writeStartObject();
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    @Override
+    public JSONWriter endObject() throws JSONException {
+        try {
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    @Override
+    public JSONWriter key(String s) throws JSONException {
+        if (s == null) {
+            throw new JSONException("Null key.");
+        }
+        try {
+            generator.writeFieldName(s);
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    @Override
+    public JSONWriter value(boolean b) throws JSONException {
+        try {
+            generator.writeBoolean(b);
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    @Override
+    public JSONWriter value(double d) throws JSONException {
+        return value(new Double(d));
+    }
+
+    @Override
+    public JSONWriter value(long l) throws JSONException {
+        try {
+            generator.writeNumber(l);
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    @Override
+    public JSONWriter value(Date date) throws JSONException {
+        return value(date.getTime() / 1000);
+    }
+
+    @Override
+    public JSONWriter value(ByteBuffer b) throws JSONException {
+        try {
+            if (b.hasArray()) {
+                generator.writeBinary(b.array(), b.arrayOffset() + b.position(), b.remaining());
+            } else {
+                b.mark();
+                byte[] bytes = new byte[b.remaining()];
+                b.get(bytes, 0, bytes.length);
+                b.reset();
+                generator.writeBinary(bytes);
+            }
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    @Override
+    public JSONWriter value(Object o) throws JSONException {
+        try {
+            if (o instanceof String) {
+                generator.writeString((String)o);
+            } else if (o instanceof Integer || o instanceof Long || o instanceof Short || o instanceof Byte) {
+                generator.writeNumber(((Number)o).longValue());
+            } else if (o instanceof Boolean) {
+                generator.writeBoolean(((Boolean)o).booleanValue());
+            } else {
+                // Numbers, nulls and JSON structures are written as JSONWriter writes them
+                generator.writeRawValue(JSONObject.valueToString(o));
+            }
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    /**
+     * Completes the document, flushing what's left of it into the content.
+     */
+    public void close() throws JSONException {
+        try {
+            generator.close();
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+    }
+
+    /**
+     * Returns the content written so far, with its SHA-256 hash. Should only
+     * be called once the document has been closed, and only once.
+     */
+    public HashedByteArrayInputStream getContent() {
+        return buffer.toInputStream();
+    }
+
+    /**
+     * Returns the number of bytes of content written so far.
+     */
+    public int getContentLength() {
+        return buffer.size();
+    }
+
+    /**
+     * Byte array output stream that hashes what's written into it, and hands
+     * its array over without copying it.
+     */
+    private static final class ContentBuffer extends ByteArrayOutputStream {
+
+        private final MessageDigest digest;
+
+        ContentBuffer() {
+            super(1024);
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new AmazonClientException("Unable to compute hash of JSON content: " + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            super.write(b);
+            digest.update((byte)b);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            super.write(b, off, len);
+            digest.update(b, off, len);
+        }
+
+        synchronized HashedByteArrayInputStream toInputStream() {
+            return new HashedByteArrayInputStream(buf, count, digest.digest());
+        }
+    }
+}